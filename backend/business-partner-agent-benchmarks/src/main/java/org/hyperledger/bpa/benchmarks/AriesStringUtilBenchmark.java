@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks;
+
+import org.hyperledger.bpa.impl.util.AriesStringUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of ledger identifiers, done for most rows that are returned by the
+ * api
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AriesStringUtilBenchmark {
+
+    private final String schemaId = Fixtures.schemaId(1);
+
+    private final String credDefId = Fixtures.credDefId(1);
+
+    private final String didSov = "did:sov:F6dB7dMVHUQSC64qemnBi7";
+
+    private final String didKey = "did:key:z6MkpTHR8VNsBxYAAWHut2Geadd9jSwuBV8xRoAnwWsdvktH";
+
+    private final String uuid = "a6b0e1d2-6b1c-4d1f-9f4c-0c7c1b2d3e4f";
+
+    @Benchmark
+    public void schemaId(Blackhole bh) {
+        bh.consume(AriesStringUtil.isIndySchemaId(schemaId));
+        bh.consume(AriesStringUtil.schemaGetName(schemaId));
+        bh.consume(AriesStringUtil.schemaGetVersion(schemaId));
+        bh.consume(AriesStringUtil.schemaGetCreator(schemaId));
+    }
+
+    @Benchmark
+    public void credDefId(Blackhole bh) {
+        bh.consume(AriesStringUtil.isCredDef(credDefId));
+        bh.consume(AriesStringUtil.credDefIdGetDid(credDefId));
+        bh.consume(AriesStringUtil.credDefIdGetTag(credDefId));
+        bh.consume(AriesStringUtil.credDefIdGetSequenceNo(credDefId));
+    }
+
+    @Benchmark
+    public void did(Blackhole bh) {
+        bh.consume(AriesStringUtil.isDidKey(didKey));
+        bh.consume(AriesStringUtil.isDidIndy(didSov));
+        bh.consume(AriesStringUtil.getLastSegment(didSov));
+        bh.consume(AriesStringUtil.qualifyDidIfNeeded("F6dB7dMVHUQSC64qemnBi7", Fixtures.DID_PREFIX));
+    }
+
+    @Benchmark
+    public boolean isUUID() {
+        return AriesStringUtil.isUUID(uuid);
+    }
+
+    @Benchmark
+    public String schemaAttributeFormat() {
+        return AriesStringUtil.schemaAttributeFormat(" date of  birth ");
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH json result file against the checked in baseline. The
+ * normalized allocation rate (bytes per operation, reported by -prof gc) does
+ * not depend on the machine the benchmark runs on, so it is used to detect
+ * regressions. The average time is only printed for information.
+ * <p>
+ * The database benchmarks spend their time in postgres, so their allocation
+ * says little. They are compared by time instead, which is only meaningful if
+ * both runs were done on the same machine and the same generated data.
+ * <p>
+ * Usage: BaselineCheck baseline.json result.json [tolerance in percent]
+ * [alloc|time]
+ * <p>
+ * Exits with 1 if a benchmark allocates, or takes, more than the tolerance
+ * (default 10%) above the baseline.
+ */
+public class BaselineCheck {
+
+    private static final String ALLOC_NORM = "gc.alloc.rate.norm";
+
+    private static final double DEFAULT_TOLERANCE = 10;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineCheck <baseline.json> <result.json> [tolerance %] [alloc|time]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+        boolean byTime = args.length > 3 && "time".equals(args[3]);
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Result> baseline = read(mapper.readTree(Path.of(args[0]).toFile()));
+        Map<String, Result> current = read(mapper.readTree(Path.of(args[1]).toFile()));
+
+        int regressions = 0;
+        System.out.printf("%-100s %14s %14s %8s %12s %12s%n",
+                "Benchmark", "B/op base", "B/op now", "diff", "time base", "time now");
+        for (Map.Entry<String, Result> e : current.entrySet()) {
+            Result now = e.getValue();
+            Result base = baseline.get(e.getKey());
+            if (base == null) {
+                System.out.printf("%-100s %14s %14.0f %8s %12s %12.3f%n",
+                        e.getKey(), "-", now.allocated, "new", "-", now.score);
+                continue;
+            }
+            double diff = byTime
+                    ? percent(base.score, now.score)
+                    : percent(base.allocated, now.allocated);
+            boolean regression = diff > tolerance;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-100s %14.0f %14.0f %7.1f%% %12.3f %12.3f%s%n",
+                    e.getKey(), base.allocated, now.allocated, diff, base.score, now.score,
+                    regression ? "  <-- REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.out.printf("%n%d benchmark(s) %s more than %.0f%% above the baseline%n",
+                    regressions, byTime ? "take" : "allocate", tolerance);
+            System.exit(1);
+        }
+    }
+
+    private static double percent(double base, double now) {
+        return base > 0 ? (now - base) * 100 / base : 0;
+    }
+
+    private static Map<String, Result> read(JsonNode results) {
+        Map<String, Result> byKey = new TreeMap<>();
+        for (JsonNode r : results) {
+            byKey.put(key(r), new Result(
+                    r.path("primaryMetric").path("score").asDouble(),
+                    allocated(r.path("secondaryMetrics"))));
+        }
+        return byKey;
+    }
+
+    /**
+     * Depending on the JMH version the profiler metrics are prefixed with a dot
+     */
+    private static double allocated(JsonNode secondaryMetrics) {
+        Iterator<Map.Entry<String, JsonNode>> it = secondaryMetrics.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> m = it.next();
+            if (m.getKey().endsWith(ALLOC_NORM)) {
+                return m.getValue().path("score").asDouble();
+            }
+        }
+        return -1;
+    }
+
+    private static String key(JsonNode r) {
+        Map<String, String> params = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> it = r.path("params").fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> p = it.next();
+            params.put(p.getKey(), p.getValue().asText());
+        }
+        String name = r.path("benchmark").asText();
+        return params.isEmpty() ? name : name + params;
+    }
+
+    private record Result(double score, double allocated) {
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks;
+
+import org.hyperledger.bpa.api.PartnerAPI;
+import org.hyperledger.bpa.api.aries.AriesProofExchange;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping partners and proof exchanges to their api representation, this
+ * happens for every row of the partner and proof lists in the UI
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConverterBenchmark {
+
+    /** credentials in the profile or in the proof */
+    @Param({ "1", "10" })
+    int credentials;
+
+    /** attributes per credential */
+    @Param({ "10", "50" })
+    int attributes;
+
+    private Converter converter;
+
+    private Partner partner;
+
+    private PartnerProof indyProof;
+
+    private PartnerProof ldProof;
+
+    @Setup
+    public void setup() {
+        converter = Fixtures.converter();
+        partner = Fixtures.partner(credentials, attributes);
+        indyProof = Fixtures.indyProof(credentials, attributes);
+        ldProof = Fixtures.ldProof(credentials, attributes);
+    }
+
+    @Benchmark
+    public PartnerAPI partner() {
+        return converter.toAPIObject(partner);
+    }
+
+    @Benchmark
+    public AriesProofExchange indyProof() {
+        return converter.toAPIObject(indyProof);
+    }
+
+    @Benchmark
+    public AriesProofExchange ldProof() {
+        return converter.toAPIObject(ldProof);
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
+import org.hyperledger.aries.api.present_proof.PresentProofRequest;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeRecord;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeRole;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.hyperledger.aries.api.present_proof_v2.DIFField;
+import org.hyperledger.aries.api.present_proof_v2.V2DIFProofRequest;
+import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.api.aries.AriesProofExchange;
+import org.hyperledger.bpa.api.aries.SchemaAPI;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.impl.aries.credential.CredentialInfoResolver;
+import org.hyperledger.bpa.impl.aries.schema.SchemaService;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.persistence.model.BPAProofTemplate;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
+import org.hyperledger.bpa.persistence.model.prooftemplate.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Shared test data for the benchmarks, shaped like the data the BPA handles in
+ * production
+ */
+public class Fixtures {
+
+    public static final String DID_PREFIX = "did:sov:";
+
+    /**
+     * A public profile like the ones of partners with many public credentials: the
+     * organizational profile plus indy credentials with nested attributes
+     *
+     * @param credentials number of credentials in the profile
+     * @param attributes  number of attributes per credential
+     * @return {@link VerifiablePresentation}
+     */
+    public static VerifiablePresentation<VerifiableIndyCredential> profile(int credentials, int attributes) {
+        List<VerifiableIndyCredential> vcs = new ArrayList<>();
+        vcs.add(VerifiableIndyCredential.builder()
+                .id("urn:org-profile")
+                .type(CredentialType.ORGANIZATIONAL_PROFILE_CREDENTIAL.getType())
+                .context(CredentialType.ORGANIZATIONAL_PROFILE_CREDENTIAL.getContext())
+                .issuer("did:sov:M6Mbe3qx7vB4wpZF4sBRjt")
+                .credentialSubject(orgProfile())
+                .build());
+        for (int i = 1; i < credentials; i++) {
+            List<String> type = new ArrayList<>(CredentialType.INDY.getType());
+            type.add("IndyCredential");
+            vcs.add(VerifiableIndyCredential.builder()
+                    .id("urn:credential-" + i)
+                    .type(type)
+                    .context(List.of(CredentialType.INDY.getContext().get(0), schemaContext(i, attributes)))
+                    .issuer("did:sov:M6Mbe3qx7vB4wpZF4sBRjt")
+                    .indyIssuer("did:sov:F6dB7dMVHUQSC64qemnBi7")
+                    .schemaId("F6dB7dMVHUQSC64qemnBi7:2:schema-" + i + ":1.0")
+                    .credDefId("F6dB7dMVHUQSC64qemnBi7:3:CL:" + (1000 + i) + ":tag")
+                    .credentialSubject(subject(i, attributes))
+                    .build());
+        }
+        return VerifiablePresentation.<VerifiableIndyCredential>builder()
+                .verifiableCredential(vcs)
+                .build();
+    }
+
+    /**
+     * @param credentials number of credentials in the partners public profile
+     * @param attributes  number of attributes per credential
+     * @return connected {@link Partner} with a public profile
+     */
+    public static Partner partner(int credentials, int attributes) {
+        return Partner.builder()
+                .id(UUID.randomUUID())
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .did("did:sov:M6Mbe3qx7vB4wpZF4sBRjt")
+                .connectionId(UUID.randomUUID().toString())
+                .alias("Example")
+                .verifiablePresentation(credentials > 0 ? profile(credentials, attributes) : null)
+                .build();
+    }
+
+    /**
+     * A verified indy proof where each group was requested with its own schema
+     * restriction
+     *
+     * @param groups     number of revealed attribute groups
+     * @param attributes number of attributes per group
+     * @return {@link PartnerProof}
+     */
+    public static PartnerProof indyProof(int groups, int attributes) {
+        Map<String, PresentationExchangeRecord.RevealedAttributeGroup> revealed = new LinkedHashMap<>();
+        PresentProofRequest.ProofRequest.ProofRequestBuilder request = PresentProofRequest.ProofRequest.builder()
+                .name("proof-request")
+                .nonce("1234567890")
+                .version("1.0");
+        for (int g = 0; g < groups; g++) {
+            Map<String, String> values = new LinkedHashMap<>();
+            List<String> names = new ArrayList<>();
+            for (int a = 0; a < attributes; a++) {
+                values.put("attribute" + a, "value of attribute " + a);
+                names.add("attribute" + a);
+            }
+            revealed.put("group" + g, PresentationExchangeRecord.RevealedAttributeGroup.builder()
+                    .revealedAttributes(values)
+                    .identifier(PresentationExchangeRecord.Identifier.builder()
+                            .schemaId(schemaId(g))
+                            .credentialDefinitionId(credDefId(g))
+                            .build())
+                    .build());
+            request.requestedAttribute("group" + g, PresentProofRequest.ProofRequest.ProofRequestedAttributes
+                    .builder()
+                    .names(names)
+                    .restriction(PresentProofRequest.ProofRequest.ProofRestrictions.builder()
+                            .schemaId(schemaId(g))
+                            .build()
+                            .toJsonObject())
+                    .build());
+        }
+        return proof(CredentialType.INDY)
+                .proof(ExchangePayload.indy(revealed))
+                .proofRequest(ExchangePayload.indy(request.build()))
+                .build();
+    }
+
+    /**
+     * A verified json-ld proof answering {@link #difRequest(int, int)}
+     *
+     * @param credentials number of presented credentials
+     * @param attributes  number of attributes per credential
+     * @return {@link PartnerProof}
+     */
+    public static PartnerProof ldProof(int credentials, int attributes) {
+        List<VerifiableCredential> vcs = new ArrayList<>();
+        List<VerifiablePresentation.PresentationSubmission.DescriptorMap> descriptors = new ArrayList<>();
+        for (int i = 0; i < credentials; i++) {
+            vcs.add(VerifiableCredential.builder()
+                    .id("urn:credential-" + i)
+                    .type(List.of("VerifiableCredential", "Schema" + i))
+                    .context(List.of(CredentialType.JSON_LD.getContext().get(0), "https://example.com/schema-" + i))
+                    .issuer("did:key:z6MkpTHR8VNsBxYAAWHut2Geadd9jSwuBV8xRoAnwWsdvktH")
+                    .credentialSubject(subject(i, attributes))
+                    .build());
+            descriptors.add(VerifiablePresentation.PresentationSubmission.DescriptorMap.builder()
+                    .id("descriptor-" + i)
+                    .format("ldp_vc")
+                    .path("$.verifiableCredential[" + i + "]")
+                    .build());
+        }
+        VerifiablePresentation<VerifiableCredential> vp = VerifiablePresentation.<VerifiableCredential>builder()
+                .verifiableCredential(vcs)
+                .presentationSubmission(VerifiablePresentation.PresentationSubmission.builder()
+                        .id(UUID.randomUUID())
+                        .definitionId(UUID.randomUUID())
+                        .descriptorMap(descriptors)
+                        .build())
+                .build();
+        return proof(CredentialType.JSON_LD)
+                .proof(ExchangePayload.jsonLD(vp))
+                .proofRequest(ExchangePayload.jsonLD(difRequest(credentials, attributes)))
+                .build();
+    }
+
+    /**
+     * A presentation definition like the BPA renders it from a proof template:
+     * every descriptor requests all attributes, restricts one of them to a value,
+     * one to a minimum and the issuer
+     *
+     * @param descriptors number of input descriptors
+     * @param fields      number of requested attributes per descriptor
+     * @return {@link V2DIFProofRequest}
+     */
+    public static V2DIFProofRequest difRequest(int descriptors, int fields) {
+        List<V2DIFProofRequest.PresentationDefinition.InputDescriptors> ids = new ArrayList<>();
+        for (int d = 0; d < descriptors; d++) {
+            List<DIFField> f = new ArrayList<>();
+            for (int a = 0; a < fields; a++) {
+                DIFField.Filter filter = null;
+                if (a == 0) {
+                    filter = DIFField.Filter.builder()._const("value of attribute 0").build();
+                } else if (a == 1) {
+                    filter = DIFField.Filter.builder().minimum("18").build();
+                }
+                f.add(DIFField.builder()
+                        .path(List.of("$.credentialSubject.attribute" + a))
+                        .filter(filter)
+                        .build());
+            }
+            f.add(DIFField.builder()
+                    .path(List.of("$.issuer.id", "$.issuer"))
+                    .filter(DIFField.Filter.builder()
+                            ._const("did:key:z6MkpTHR8VNsBxYAAWHut2Geadd9jSwuBV8xRoAnwWsdvktH")
+                            .build())
+                    .build());
+            ids.add(V2DIFProofRequest.PresentationDefinition.InputDescriptors.builder()
+                    .id("descriptor-" + d)
+                    .name("Schema " + d)
+                    .schema(List.of(V2DIFProofRequest.PresentationDefinition.InputDescriptors.SchemaInputDescriptorUri
+                            .builder()
+                            .uri("https://example.com/schema-" + d + "#Schema" + d)
+                            .build()))
+                    .constraints(V2DIFProofRequest.PresentationDefinition.Constraints.builder()
+                            .fields(f)
+                            .build())
+                    .build());
+        }
+        return V2DIFProofRequest.builder()
+                .presentationDefinition(V2DIFProofRequest.PresentationDefinition.builder()
+                        .id(UUID.randomUUID())
+                        .name("Proof of employment")
+                        .inputDescriptors(ids)
+                        .build())
+                .build();
+    }
+
+    /**
+     * An indy proof template with one group per schema, every group with an
+     * equality condition, a predicate and schema level restrictions
+     *
+     * @param schemaService the schema ids are registered here
+     * @param groups        number of attribute groups
+     * @param attributes    number of attributes per group
+     * @return {@link BPAProofTemplate}
+     */
+    public static BPAProofTemplate proofTemplate(StaticSchemaService schemaService, int groups, int attributes) {
+        List<BPAAttributeGroup> ag = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            List<BPAAttribute> attrs = new ArrayList<>();
+            for (int a = 0; a < attributes; a++) {
+                List<BPACondition> conditions = List.of();
+                if (a == 0) {
+                    conditions = List.of(BPACondition.builder().operator(ValueOperators.EQUALS)
+                            .value("value of attribute 0").build());
+                } else if (a == 1) {
+                    conditions = List.of(BPACondition.builder().operator(ValueOperators.GREATER_THAN_OR_EQUAL_TO)
+                            .value("18").build());
+                }
+                attrs.add(BPAAttribute.builder().name("attribute" + a).conditions(conditions).build());
+            }
+            ag.add(BPAAttributeGroup.builder()
+                    .schemaId(schemaService.register(schemaId(g)))
+                    .attributes(attrs)
+                    .nonRevoked(g % 2 == 0)
+                    .schemaLevelRestrictions(List.of(BPASchemaRestrictions.builder()
+                            .issuerDid("F6dB7dMVHUQSC64qemnBi7")
+                            .credentialDefinitionId(credDefId(g))
+                            .build()))
+                    .build());
+        }
+        return BPAProofTemplate.builder()
+                .id(UUID.randomUUID())
+                .name("Proof of employment")
+                .type(CredentialType.INDY)
+                .attributeGroups(BPAAttributeGroups.builder().attributeGroups(ag).build())
+                .build();
+    }
+
+    public static String schemaId(int i) {
+        return "F6dB7dMVHUQSC64qemnBi7:2:schema-" + i + ":1.0";
+    }
+
+    public static String credDefId(int i) {
+        return "F6dB7dMVHUQSC64qemnBi7:3:CL:" + (1000 + i) + ":tag-" + i;
+    }
+
+    /**
+     * @return mapper configured like the jackson section in application.yml
+     */
+    public static ObjectMapper mapper() {
+        return new ObjectMapper()
+                .findAndRegisterModules()
+                .setSerializationInclusion(JsonInclude.Include.NON_ABSENT)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .enable(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT)
+                .enable(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
+    }
+
+    /**
+     * @return converter wired with stand-ins that do not need a database
+     */
+    public static Converter converter() {
+        StaticSchemaService schemaService = new StaticSchemaService();
+        return new Converter(DID_PREFIX, mapper(), schemaService, null,
+                new StaticCredentialInfoResolver(), new StaticMessageSource());
+    }
+
+    private static PartnerProof.PartnerProofBuilder proof(CredentialType type) {
+        return PartnerProof.builder()
+                .id(UUID.randomUUID())
+                .createdAt(Instant.now())
+                .updatedAt(Instant.now())
+                .presentationExchangeId(UUID.randomUUID().toString())
+                .type(type)
+                .partner(partner(0, 0))
+                .role(PresentationExchangeRole.VERIFIER)
+                .state(PresentationExchangeState.VERIFIED)
+                .valid(Boolean.TRUE);
+    }
+
+    private static JsonObject orgProfile() {
+        JsonObject s = new JsonObject();
+        s.addProperty("id", "did:sov:M6Mbe3qx7vB4wpZF4sBRjt");
+        s.addProperty("type", "LegalEntity");
+        s.addProperty("legalName", "Example Trading Company GmbH");
+        s.addProperty("altName", "Example");
+        JsonObject address = new JsonObject();
+        address.addProperty("streetAddress", "Hauptstrasse 1");
+        address.addProperty("zipCode", "10115");
+        address.addProperty("city", "Berlin");
+        address.addProperty("country", "Germany");
+        s.add("registeredSite", address);
+        JsonObject identifier = new JsonObject();
+        identifier.addProperty("id", "DE123456789");
+        identifier.addProperty("type", "vatID");
+        JsonArray identifiers = new JsonArray();
+        identifiers.add(identifier);
+        s.add("identifier", identifiers);
+        return s;
+    }
+
+    private static JsonObject subject(int credential, int attributes) {
+        JsonObject s = new JsonObject();
+        for (int a = 0; a < attributes; a++) {
+            if (a % 10 == 0) {
+                s.addProperty("amount" + a, 1000L * credential + a);
+            } else if (a % 10 == 1) {
+                s.addProperty("valid" + a, a % 2 == 0);
+            } else {
+                s.addProperty("attribute" + a, "value of attribute " + a + " in credential " + credential);
+            }
+        }
+        return s;
+    }
+
+    private static JsonObject schemaContext(int credential, int attributes) {
+        JsonObject ctx = new JsonObject();
+        JsonObject content = new JsonObject();
+        content.addProperty("sc", DID_PREFIX + "F6dB7dMVHUQSC64qemnBi7:2:schema-" + credential + ":1.0");
+        for (int a = 0; a < attributes; a++) {
+            JsonObject id = new JsonObject();
+            id.addProperty("@id", "sc:attribute" + a);
+            content.add("attribute" + a, id);
+        }
+        ctx.add("@context", content);
+        return ctx;
+    }
+
+    /**
+     * Resolves schemas from memory instead of the database
+     */
+    public static final class StaticSchemaService extends SchemaService {
+
+        private final Map<UUID, SchemaAPI> schemas = new HashMap<>();
+
+        /**
+         * @param schemaId ledger schema id
+         * @return the database id the schema can be resolved with
+         */
+        public UUID register(String schemaId) {
+            UUID id = UUID.nameUUIDFromBytes(schemaId.getBytes(StandardCharsets.UTF_8));
+            schemas.put(id, SchemaAPI.builder()
+                    .id(id)
+                    .type(CredentialType.INDY)
+                    .schemaId(schemaId)
+                    .label("Schema " + schemaId)
+                    .build());
+            return id;
+        }
+
+        @Override
+        public Optional<SchemaAPI> getSchema(UUID id) {
+            return Optional.ofNullable(schemas.get(id));
+        }
+
+        @Override
+        public String getSchemaLabel(String schemaId) {
+            return "Schema " + schemaId;
+        }
+    }
+
+    /**
+     * Builds the identifiers without looking up issuer labels
+     */
+    public static final class StaticCredentialInfoResolver extends CredentialInfoResolver {
+
+        @Override
+        public AriesProofExchange.Identifier populateIdentifier(PresentationExchangeRecord.Identifier identifier) {
+            return AriesProofExchange.Identifier.builder()
+                    .schemaId(identifier.getSchemaId())
+                    .schemaLabel("Schema " + identifier.getSchemaId())
+                    .credentialDefinitionId(identifier.getCredentialDefinitionId())
+                    .build();
+        }
+
+        @Override
+        public AriesProofExchange.Identifier populateIdentifier(String schemaId, String issuerDid) {
+            return AriesProofExchange.Identifier.builder()
+                    .schemaId(schemaId)
+                    .schemaLabel("Schema " + schemaId)
+                    .issuerLabel(issuerDid)
+                    .build();
+        }
+    }
+
+    public static final class StaticMessageSource extends BPAMessageSource.DefaultMessageSource {
+        public StaticMessageSource() {
+            super(null);
+        }
+
+        @Override
+        public String getMessage(String key) {
+            return key;
+        }
+
+        @Override
+        public String getMessage(String key, Map<String, Object> variables) {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.gson.JsonObject;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
+import org.hyperledger.aries.config.GsonConfig;
+import org.hyperledger.bpa.api.PartnerAPI;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.impl.util.JsonTreeBridge;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting credential subjects between gson and jackson, once by printing and
+ * parsing the json, like the converter did before, and once through
+ * {@link JsonTreeBridge}. Run with -prof gc to compare the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonTreeBridgeBenchmark {
+
+    /** credentials in the partners profile */
+    @Param({ "5", "50" })
+    int credentials;
+
+    /** attributes per credential */
+    @Param({ "10", "100" })
+    int attributes;
+
+    private final ObjectMapper mapper = Fixtures.mapper();
+
+    private VerifiablePresentation<VerifiableIndyCredential> profile;
+
+    private ObjectNode document;
+
+    private Converter converter;
+
+    @Setup
+    public void setup() throws Exception {
+        profile = Fixtures.profile(credentials, attributes);
+        document = (ObjectNode) mapper.readTree(
+                profile.getVerifiableCredential().get(profile.getVerifiableCredential().size() - 1)
+                        .getCredentialSubject().toString());
+        converter = Fixtures.converter();
+    }
+
+    @Benchmark
+    public void subjectsToJacksonByString(Blackhole bh) throws Exception {
+        for (VerifiableIndyCredential c : profile.getVerifiableCredential()) {
+            bh.consume(mapper.readTree(c.getCredentialSubject().toString()));
+        }
+    }
+
+    @Benchmark
+    public void subjectsToJacksonByTree(Blackhole bh) {
+        for (VerifiableIndyCredential c : profile.getVerifiableCredential()) {
+            bh.consume(JsonTreeBridge.toJackson(c.getCredentialSubject()));
+        }
+    }
+
+    @Benchmark
+    public JsonObject documentToGsonByString() {
+        return GsonConfig.defaultConfig().fromJson(document.toString(), JsonObject.class);
+    }
+
+    @Benchmark
+    public JsonObject documentToGsonByTree() {
+        return JsonTreeBridge.toGsonObject(document);
+    }
+
+    @Benchmark
+    public PartnerAPI profileToPartner() {
+        return converter.toAPIObject(profile);
+    }
+
+    @Benchmark
+    public JsonNode roundTrip() {
+        return JsonTreeBridge.toJackson(JsonTreeBridge.toGson(document));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks;
+
+import org.hyperledger.aries.api.present_proof.PresentProofRequest;
+import org.hyperledger.aries.api.present_proof_v2.V2DIFProofRequest;
+import org.hyperledger.bpa.impl.aries.jsonld.LDConverter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a presentation definition as indy proof request, done for every
+ * json-ld proof exchange that is shown in the UI
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LDConverterBenchmark {
+
+    /** input descriptors, one per requested schema */
+    @Param({ "1", "10" })
+    int descriptors;
+
+    /** requested attributes per input descriptor */
+    @Param({ "5", "50" })
+    int fields;
+
+    private V2DIFProofRequest request;
+
+    @Setup
+    public void setup() {
+        request = Fixtures.difRequest(descriptors, fields);
+    }
+
+    @Benchmark
+    public PresentProofRequest.ProofRequest difToIndyProofRequest() {
+        return LDConverter.difToIndyProofRequest(request);
+    }
+}
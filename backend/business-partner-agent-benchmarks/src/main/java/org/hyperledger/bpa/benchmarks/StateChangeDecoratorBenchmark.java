@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks;
+
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.hyperledger.bpa.persistence.model.StateChangeDecorator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracking state changes, every aca-py webhook event of an exchange pushes its
+ * state
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateChangeDecoratorBenchmark {
+
+    /** states of a verifier exchange in the order aca-py sends them */
+    private static final PresentationExchangeState[] LIFECYCLE = {
+            PresentationExchangeState.REQUEST_SENT,
+            PresentationExchangeState.PRESENTATION_RECEIVED,
+            PresentationExchangeState.VERIFIED,
+            PresentationExchangeState.DONE
+    };
+
+    private final Instant start = Instant.parse("2022-12-01T10:15:30.123Z");
+
+    private final String[] timestamps = new String[LIFECYCLE.length];
+
+    private PartnerProof done;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < LIFECYCLE.length; i++) {
+            timestamps[i] = start.plusMillis(i * 250L).toString();
+        }
+        done = lifecycle();
+    }
+
+    /**
+     * The full lifecycle of one exchange, starting with an empty entity
+     *
+     * @return {@link PartnerProof}
+     */
+    @Benchmark
+    public PartnerProof lifecycle() {
+        PartnerProof pp = new PartnerProof();
+        for (int i = 0; i < LIFECYCLE.length; i++) {
+            pp.pushStates(LIFECYCLE[i], timestamps[i]);
+        }
+        return pp;
+    }
+
+    /**
+     * Events that arrive after the exchange is done, e.g. repeated webhooks
+     *
+     * @return {@link PartnerProof}
+     */
+    @Benchmark
+    public PartnerProof pushOnDone() {
+        return done.pushStates(PresentationExchangeState.DONE, start.plusSeconds(1));
+    }
+
+    @Benchmark
+    public Map<PresentationExchangeState, Long> toApi() {
+        StateChangeDecorator.StateToTimestamp<PresentationExchangeState> s = done.getStateToTimestamp();
+        return s.toApi();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks.db;
+
+import io.micronaut.data.model.Page;
+import io.micronaut.data.model.Pageable;
+import io.micronaut.data.model.Sort;
+import org.hyperledger.bpa.persistence.model.Activity;
+import org.hyperledger.bpa.persistence.repository.ActivityRepository;
+import org.hyperledger.bpa.persistence.repository.Keyset;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ActivityRepository} queries of the activity manager, which runs on
+ * every exchange event, and of the activity and task lists, against the
+ * generated activities
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActivityRepositoryBenchmark {
+
+    private ActivityRepository repo;
+
+    private Dataset dataset;
+
+    @Setup
+    public void setup(Database db) {
+        repo = db.getBean(ActivityRepository.class);
+        dataset = db.getDataset();
+    }
+
+    /** every connection, credential and proof event */
+    @Benchmark
+    public Optional<Activity> findByLinkIdAndTypeAndRole() {
+        long n = activity();
+        return repo.findByLinkIdAndTypeAndRole(dataset.activityLinkId(n), Dataset.activityType(n),
+                Dataset.activityRole(n));
+    }
+
+    /** open tasks */
+    @Benchmark
+    public List<Activity> listTasksByKeyset() {
+        return listByKeyset(Boolean.FALSE, Keyset.first(20));
+    }
+
+    @Benchmark
+    public List<Activity> listActivitiesByKeyset() {
+        return listByKeyset(Boolean.TRUE, Keyset.first(20));
+    }
+
+    @Benchmark
+    public List<Activity> listDeepPageByKeyset() {
+        return listByKeyset(null, new Keyset(PartnerRepositoryBenchmark.randomUpdatedAt(), null, 20));
+    }
+
+    @Benchmark
+    public Page<Activity> listTasksByOffset() {
+        return repo.findByCompletedFalse(Pageable.from(ThreadLocalRandom.current().nextInt(10), 20,
+                Sort.of(Sort.Order.desc("updatedAt"))));
+    }
+
+    private List<Activity> listByKeyset(Boolean completed, Keyset keyset) {
+        List<UUID> ids = repo.findIdsByKeyset(null, completed, keyset.seekUpdatedAt(), keyset.seekId(),
+                keyset.fetchSize());
+        return Keyset.load(ids, repo::findByIdIn, Activity::getId);
+    }
+
+    private long activity() {
+        return ThreadLocalRandom.current().nextLong(dataset.activityRows());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks.db;
+
+import io.micronaut.core.annotation.Nullable;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Streams rows into a table with COPY ... FROM STDIN in csv format. Rows are
+ * buffered and sent in chunks, COPY skips the per statement overhead of inserts
+ * and is the fastest way to bulk load postgres.
+ */
+final class CopyWriter implements AutoCloseable {
+
+    private static final int CHUNK = 1 << 20;
+
+    private final CopyIn copy;
+
+    private final StringBuilder buffer = new StringBuilder(CHUNK + 4096);
+
+    private boolean firstColumn = true;
+
+    CopyWriter(Connection connection, String table, String... columns) throws SQLException {
+        copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN (FORMAT csv)");
+    }
+
+    /**
+     * Appends the next column of the current row. Null is written as an unquoted
+     * empty value, which csv COPY reads as NULL.
+     *
+     * @param value column value
+     * @return this
+     */
+    CopyWriter add(@Nullable Object value) {
+        if (!firstColumn) {
+            buffer.append(',');
+        }
+        firstColumn = false;
+        if (value == null) {
+            return this;
+        }
+        if (value instanceof Boolean || value instanceof Number) {
+            buffer.append(value);
+        } else if (value instanceof Instant i) {
+            // timestamp without time zone, local time like the jdbc driver writes it
+            buffer.append(Timestamp.from(i));
+        } else if (value instanceof Enum<?> e) {
+            buffer.append(e.name());
+        } else {
+            quote(value.toString());
+        }
+        return this;
+    }
+
+    void endRow() throws SQLException {
+        buffer.append('\n');
+        firstColumn = true;
+        if (buffer.length() >= CHUNK) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the remaining rows and ends the copy
+     *
+     * @throws SQLException if the copy failed
+     */
+    @Override
+    public void close() throws SQLException {
+        if (copy.isActive()) {
+            flush();
+            copy.endCopy();
+        }
+    }
+
+    private void quote(String value) {
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+
+    private void flush() throws SQLException {
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+}
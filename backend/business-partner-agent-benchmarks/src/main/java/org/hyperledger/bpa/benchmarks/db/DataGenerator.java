@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks.db;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.convert.ConversionContext;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.aries.api.credentials.Credential;
+import org.hyperledger.aries.api.credentials.CredentialAttributes;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
+import org.hyperledger.aries.api.issue_credential_v1.V1CredentialExchange;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.benchmarks.Fixtures;
+import org.hyperledger.bpa.controller.api.partner.PartnerCredentialType;
+import org.hyperledger.bpa.impl.stats.DashboardCounters;
+import org.hyperledger.bpa.persistence.model.BPASchema;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.hyperledger.bpa.persistence.model.StateChangeDecorator;
+import org.hyperledger.bpa.persistence.model.Tag;
+import org.hyperledger.bpa.persistence.model.converter.CredExPayloadConverter;
+import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
+import org.hyperledger.bpa.persistence.model.converter.ProofPayloadConverter;
+import org.hyperledger.bpa.persistence.model.converter.ProofRequestPayloadConverter;
+import org.hyperledger.bpa.persistence.repository.BPASchemaRepository;
+import org.hyperledger.bpa.persistence.repository.TagRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Fills the BPA's database with partners and their exchanges, activities and
+ * chat messages. The bulk tables are loaded with COPY, the few schemas and tags
+ * are saved through their repositories. The json columns are written by the
+ * BPA's own mapper and converters, so that they look like the ones the BPA
+ * writes.
+ * <p>
+ * Arguments (--name=value): partners (100000), credentials (20 per partner),
+ * proofs (10 per partner), activities (20 per partner), messages (20 per
+ * partner), tags (50), seed (42), truncate (false, removes all partners and
+ * everything that references them before loading, refused if the database holds
+ * partners that were not generated).
+ * <p>
+ * COPY bypasses the application events, so the dashboard counters are rebuilt
+ * after loading.
+ * <p>
+ * The database is configured like the BPA, with POSTGRESQL_HOST,
+ * POSTGRESQL_USER and POSTGRESQL_PASSWORD.
+ */
+@Slf4j
+public class DataGenerator {
+
+    private static final Duration HISTORY = Duration.ofDays(730);
+
+    private static final String[] TABLES = {
+            "partner", "partner_tag", "bpa_credential_exchange", "partner_proof", "activity", "chat_message" };
+
+    private static final String TEXT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod "
+            + "tempor incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation "
+            + "ullamco laboris nisi ut aliquip ex ea commodo consequat. Duis aute irure dolor in reprehenderit in "
+            + "voluptate velit esse cillum dolore eu fugiat nulla pariatur.";
+
+    private final ApplicationContext context;
+
+    private final Dataset dataset;
+
+    private final Map<String, String> args;
+
+    private final ObjectMapper mapper;
+
+    private final Instant now = Instant.now();
+
+    private final List<UUID> schemaIds = new ArrayList<>();
+
+    private final List<UUID> tagIds = new ArrayList<>();
+
+    /** json columns that do not depend on the row, rendered once */
+    private final List<String> profiles = new ArrayList<>();
+    private final List<String> supportedCredentials = new ArrayList<>();
+    private final List<String> credentialProposals = new ArrayList<>();
+    private String proof;
+    private String proofRequest;
+
+    DataGenerator(ApplicationContext context, Dataset dataset, Map<String, String> args) {
+        this.context = context;
+        this.dataset = dataset;
+        this.args = args;
+        this.mapper = context.getBean(ObjectMapper.class);
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String a : argv) {
+            String[] kv = a.replaceFirst("^--", "").split("=", 2);
+            args.put(kv[0], kv.length > 1 ? kv[1] : "true");
+        }
+        Dataset dataset = new Dataset(
+                Integer.parseInt(args.getOrDefault("partners", "100000")),
+                Integer.parseInt(args.getOrDefault("credentials", "20")),
+                Integer.parseInt(args.getOrDefault("proofs", "10")),
+                Integer.parseInt(args.getOrDefault("activities", "20")),
+                Integer.parseInt(args.getOrDefault("messages", "20")));
+        try (ApplicationContext context = Database.start()) {
+            new DataGenerator(context, dataset, args).run();
+        }
+    }
+
+    void run() throws Exception {
+        Instant start = Instant.now();
+        DataSource ds = Database.dataSource(context);
+        try (Connection c = ds.getConnection()) {
+            prepare(c);
+        }
+        createSchemasAndTags(Integer.parseInt(args.getOrDefault("tags", "50")));
+        renderPayloads();
+
+        long seed = Long.parseLong(args.getOrDefault("seed", "42"));
+        copy("partner", () -> copyPartners(ds, new SplittableRandom(seed)));
+        copy("partner_tag", () -> copyPartnerTags(ds));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> children = List.of(
+                    executor.submit(() -> copy("bpa_credential_exchange",
+                            () -> copyCredentials(ds, new SplittableRandom(seed + 1)))),
+                    executor.submit(() -> copy("partner_proof",
+                            () -> copyProofs(ds, new SplittableRandom(seed + 2)))),
+                    executor.submit(() -> copy("activity",
+                            () -> copyActivities(ds, new SplittableRandom(seed + 3)))),
+                    executor.submit(() -> copy("chat_message",
+                            () -> copyMessages(ds, new SplittableRandom(seed + 4)))));
+            for (Future<?> f : children) {
+                f.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try (Connection c = ds.getConnection(); Statement s = c.createStatement()) {
+            for (String table : TABLES) {
+                s.execute("ANALYZE " + table);
+            }
+        }
+        context.getBean(DashboardCounters.class).rebuild();
+        log.info("Generated {} in {}s", dataset, Duration.between(start, Instant.now()).toSeconds());
+    }
+
+    private void prepare(Connection c) throws SQLException {
+        long existing = Database.count(c, "partner", Dataset::partnerId);
+        if (existing == 0) {
+            return;
+        }
+        if (!Boolean.parseBoolean(args.getOrDefault("truncate", "false"))) {
+            throw new IllegalStateException("The database already holds " + existing
+                    + " generated partners, run with --truncate to replace them");
+        }
+        long others = Database.countAll(c, "partner") - existing;
+        if (others > 0) {
+            throw new IllegalStateException("The database holds " + others
+                    + " partners that were not generated, refusing to truncate a database that is in use");
+        }
+        log.info("Removing all partners and everything that references them");
+        try (Statement s = c.createStatement()) {
+            s.execute("TRUNCATE partner CASCADE");
+        }
+    }
+
+    private void createSchemasAndTags(int tags) {
+        BPASchemaRepository schemaRepo = context.getBean(BPASchemaRepository.class);
+        for (int k = 0; k < Dataset.SCHEMAS; k++) {
+            String schemaId = Fixtures.schemaId(k);
+            int seqNo = 1000 + k;
+            schemaIds.add(schemaRepo.findBySchemaId(schemaId)
+                    .orElseGet(() -> schemaRepo.save(BPASchema.builder()
+                            .type(CredentialType.INDY)
+                            .label("Generated schema " + seqNo)
+                            .schemaId(schemaId)
+                            .seqNo(seqNo)
+                            .schemaAttributeNames(new TreeSet<>(attributes(seqNo).keySet()))
+                            .build()))
+                    .getId());
+        }
+        TagRepository tagRepo = context.getBean(TagRepository.class);
+        Map<String, UUID> existing = new HashMap<>();
+        tagRepo.findAll().forEach(t -> existing.put(t.getName(), t.getId()));
+        for (int t = 0; t < tags; t++) {
+            String name = tagName(t);
+            tagIds.add(existing.computeIfAbsent(name, n -> tagRepo.save(Tag.builder()
+                    .name(n)
+                    .isReadOnly(Boolean.FALSE)
+                    .build()).getId()));
+        }
+    }
+
+    private void renderPayloads() throws JsonProcessingException {
+        for (int credentials = 1; credentials <= 3; credentials++) {
+            profiles.add(mapper.writeValueAsString(Fixtures.profile(credentials, 5)));
+        }
+        CredExPayloadConverter credExConverter = context.getBean(CredExPayloadConverter.class);
+        for (int k = 0; k < Dataset.SCHEMAS; k++) {
+            supportedCredentials.add(mapper.writeValueAsString(Map.of("wrapped",
+                    List.of(PartnerCredentialType.fromCredDefId(Fixtures.credDefId(k))))));
+            credentialProposals.add(credExConverter.convertToPersistedValue(ExchangePayload.indy(
+                    V1CredentialExchange.CredentialProposalDict.CredentialProposal.builder()
+                            .attributes(CredentialAttributes.fromMap(attributes(k)))
+                            .build()),
+                    ConversionContext.DEFAULT));
+        }
+        PartnerProof indyProof = Fixtures.indyProof(2, 5);
+        proof = context.getBean(ProofPayloadConverter.class)
+                .convertToPersistedValue(indyProof.getProof(), ConversionContext.DEFAULT);
+        proofRequest = context.getBean(ProofRequestPayloadConverter.class)
+                .convertToPersistedValue(indyProof.getProofRequest(), ConversionContext.DEFAULT);
+    }
+
+    private long copyPartners(DataSource ds, SplittableRandom random) throws Exception {
+        try (Connection c = ds.getConnection();
+                CopyWriter w = new CopyWriter(c, "partner", "id", "created_at", "updated_at", "last_seen",
+                        "did", "aries_support", "connection_id", "state", "state_to_timestamp", "label", "alias",
+                        "incoming", "valid", "trust_ping", "invitation_msg_id", "verifiable_presentation",
+                        "supported_credentials")) {
+            for (long i = 0; i < dataset.partners(); i++) {
+                Instant created = created(random);
+                Instant updated = updated(random, created);
+                boolean hasProfile = Dataset.bucket(i, 20, 5) != 0;
+                // last_seen is updated_at, Database restores it after benchmarks that ping
+                w.add(Dataset.partnerId(i)).add(created).add(updated).add(updated)
+                        .add(Dataset.did(i)).add(true).add(Dataset.connectionId(i))
+                        .add(Dataset.partnerState(i)).add(stateToTimestamp(Dataset.partnerState(i), updated))
+                        .add("Partner " + i).add(i % 3 == 0 ? "Alias " + i : null)
+                        .add(i % 2 == 0).add(hasProfile ? Boolean.TRUE : null).add(Dataset.trustPing(i))
+                        .add(UUID.randomUUID())
+                        .add(hasProfile ? profiles.get(Dataset.bucket(i, 21, profiles.size())) : null)
+                        .add(hasProfile ? supportedCredentials.get(Dataset.bucket(i, 22, Dataset.SCHEMAS)) : null)
+                        .endRow();
+            }
+            return dataset.partners();
+        }
+    }
+
+    /** Every partner gets up to three consecutive tags */
+    private long copyPartnerTags(DataSource ds) throws Exception {
+        if (tagIds.isEmpty()) {
+            return 0;
+        }
+        long rows = 0;
+        try (Connection c = ds.getConnection();
+                CopyWriter w = new CopyWriter(c, "partner_tag", "partner_id", "tag_id")) {
+            for (long i = 0; i < dataset.partners(); i++) {
+                int first = Dataset.bucket(i, 23, tagIds.size());
+                int count = Math.min(Dataset.bucket(i, 24, 4), tagIds.size());
+                for (int t = 0; t < count; t++) {
+                    w.add(Dataset.partnerId(i)).add(tagIds.get((first + t) % tagIds.size())).endRow();
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private long copyCredentials(DataSource ds, SplittableRandom random) throws Exception {
+        try (Connection c = ds.getConnection();
+                CopyWriter w = new CopyWriter(c, "bpa_credential_exchange", "id", "created_at", "updated_at",
+                        "schema_id", "partner_id", "type", "label", "thread_id", "credential_exchange_id", "role",
+                        "exchange_version", "state", "state_to_timestamp", "credential_proposal",
+                        "credential_offer", "credential", "referent", "rev_reg_id", "cred_rev_id", "revoked",
+                        "is_public")) {
+            for (long n = 0; n < dataset.credentialRows(); n++) {
+                Instant created = created(random);
+                Instant updated = updated(random, created);
+                int schema = Dataset.schema(n);
+                CredentialExchangeState state = Dataset.credentialState(n);
+                boolean issued = state == CredentialExchangeState.CREDENTIAL_ACKED
+                        || state == CredentialExchangeState.DONE
+                        || state == CredentialExchangeState.CREDENTIAL_REVOKED;
+                boolean held = issued && Dataset.credentialRole(n) == CredentialExchangeRole.HOLDER;
+                boolean revocable = issued && Dataset.bucket(n, 25, 2) == 0;
+                String revRegId = revocable ? Dataset.revRegId(n) : null;
+                String credRevId = revocable ? Dataset.credRevId(n) : null;
+                w.add(Dataset.credentialId(n)).add(created).add(updated)
+                        .add(schemaIds.get(schema)).add(Dataset.partnerId(n / dataset.credentials()))
+                        .add(CredentialType.INDY).add("Credential " + n).add(UUID.randomUUID())
+                        .add(Dataset.credentialExchangeId(n)).add(Dataset.credentialRole(n))
+                        .add(ExchangeVersion.V1).add(state).add(stateToTimestamp(state, updated))
+                        .add(credentialProposals.get(schema)).add(credentialProposals.get(schema))
+                        .add(held ? credential(n, schema, revRegId, credRevId) : null)
+                        .add(held ? Dataset.referent(n) : null)
+                        .add(revRegId).add(credRevId)
+                        .add(revocable ? state == CredentialExchangeState.CREDENTIAL_REVOKED : null)
+                        .add(held ? Dataset.bucket(n, 26, 10) == 0 : null)
+                        .endRow();
+            }
+            return dataset.credentialRows();
+        }
+    }
+
+    private long copyProofs(DataSource ds, SplittableRandom random) throws Exception {
+        try (Connection c = ds.getConnection();
+                CopyWriter w = new CopyWriter(c, "partner_proof", "id", "created_at", "updated_at", "partner_id",
+                        "valid", "state", "presentation_exchange_id", "thread_id", "role", "type",
+                        "exchange_version", "proof", "proof_request", "state_to_timestamp")) {
+            for (long n = 0; n < dataset.proofRows(); n++) {
+                Instant created = created(random);
+                Instant updated = updated(random, created);
+                PresentationExchangeState state = Dataset.proofState(n);
+                boolean presented = state == PresentationExchangeState.PRESENTATION_ACKED
+                        || state == PresentationExchangeState.VERIFIED;
+                w.add(Dataset.proofId(n)).add(created).add(updated).add(Dataset.partnerId(n / dataset.proofs()))
+                        .add(presented ? Boolean.TRUE : null).add(state).add(Dataset.presentationExchangeId(n))
+                        .add(Dataset.threadId(n)).add(Dataset.proofRole(n)).add(CredentialType.INDY)
+                        .add(ExchangeVersion.V1)
+                        .add(presented ? proof : null).add(proofRequest).add(stateToTimestamp(state, updated))
+                        .endRow();
+            }
+            return dataset.proofRows();
+        }
+    }
+
+    private long copyActivities(DataSource ds, SplittableRandom random) throws Exception {
+        try (Connection c = ds.getConnection();
+                CopyWriter w = new CopyWriter(c, "activity", "id", "partner_id", "link_id", "type", "role",
+                        "state", "completed", "created_at", "updated_at")) {
+            for (long n = 0; n < dataset.activityRows(); n++) {
+                Instant created = created(random);
+                w.add(Dataset.activityId(n)).add(Dataset.partnerId(n / dataset.activities()))
+                        .add(dataset.activityLinkId(n)).add(Dataset.activityType(n)).add(Dataset.activityRole(n))
+                        .add(Dataset.activityState(n)).add(Dataset.activityCompleted(n))
+                        .add(created).add(updated(random, created))
+                        .endRow();
+            }
+            return dataset.activityRows();
+        }
+    }
+
+    private long copyMessages(DataSource ds, SplittableRandom random) throws Exception {
+        try (Connection c = ds.getConnection();
+                CopyWriter w = new CopyWriter(c, "chat_message", "id", "partner_id", "content", "incoming",
+                        "created_at")) {
+            for (long n = 0; n < dataset.messageRows(); n++) {
+                w.add(Dataset.messageId(n)).add(Dataset.partnerId(n / dataset.messages()))
+                        .add(TEXT.substring(0, 10 + random.nextInt(TEXT.length() - 10)))
+                        .add(n % 2 == 0).add(created(random))
+                        .endRow();
+            }
+            return dataset.messageRows();
+        }
+    }
+
+    private static long copy(String table, RowSource rows) throws Exception {
+        Instant start = Instant.now();
+        long count = rows.copy();
+        long millis = Math.max(1, Duration.between(start, Instant.now()).toMillis());
+        log.info("Copied {} rows into {} in {}s ({} rows/s)", count, table, millis / 1000,
+                count * 1000 / millis);
+        return count;
+    }
+
+    private String credential(long n, int schema, String revRegId, String credRevId)
+            throws JsonProcessingException {
+        return mapper.writeValueAsString(Credential.builder()
+                .schemaId(Fixtures.schemaId(schema))
+                .credentialDefinitionId(Fixtures.credDefId(schema))
+                .referent(Dataset.referent(n))
+                .revRegId(revRegId)
+                .credRevId(credRevId)
+                .attrs(attributes(schema))
+                .build());
+    }
+
+    private <S extends Enum<S>> String stateToTimestamp(S state, Instant ts) throws JsonProcessingException {
+        return mapper.writeValueAsString(new StateChangeDecorator.StateToTimestamp<>(Map.of(state, ts)));
+    }
+
+    private Instant created(SplittableRandom random) {
+        return now.minusMillis(random.nextLong(HISTORY.toMillis()));
+    }
+
+    private Instant updated(SplittableRandom random, Instant created) {
+        Instant updated = created.plusMillis(random.nextLong(Duration.ofDays(1).toMillis()));
+        return updated.isAfter(now) ? now : updated;
+    }
+
+    private static Map<String, String> attributes(int schema) {
+        return IntStream.range(0, 5).boxed().collect(Collectors.toMap(
+                a -> "attribute" + a, a -> "value " + a + " of schema " + schema, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    static String tagName(int t) {
+        return String.format("%s%03d", Dataset.TAG_PREFIX, t);
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        long copy() throws Exception;
+    }
+}
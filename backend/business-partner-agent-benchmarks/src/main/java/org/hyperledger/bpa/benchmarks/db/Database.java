@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks.db;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.env.Environment;
+import io.micronaut.transaction.jdbc.DelegatingDataSource;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.function.LongFunction;
+
+/**
+ * The BPA's persistence layer against the database the {@link DataGenerator}
+ * filled. The context is started in the test environment, which leaves out
+ * everything that needs aca-py, and it is configured like the BPA itself, i.e.
+ * with POSTGRESQL_HOST, POSTGRESQL_USER and POSTGRESQL_PASSWORD. Flyway
+ * migrates the schema on startup.
+ */
+@State(Scope.Benchmark)
+public class Database {
+
+    private ApplicationContext context;
+
+    private Dataset dataset;
+
+    public static ApplicationContext start() {
+        return ApplicationContext.builder()
+                .environments(Environment.TEST)
+                .deduceEnvironment(false)
+                .start();
+    }
+
+    /**
+     * @param context running context
+     * @return the connection pool, without the transaction aware proxy
+     */
+    public static DataSource dataSource(ApplicationContext context) {
+        return DelegatingDataSource.unwrapDataSource(context.getBean(DataSource.class));
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        context = start();
+        try (Connection c = dataSource(context).getConnection()) {
+            int partners = (int) count(c, "partner", Dataset::partnerId);
+            if (partners == 0) {
+                throw new IllegalStateException("No generated data found, run the DataGenerator first");
+            }
+            dataset = new Dataset(partners,
+                    (int) (count(c, "bpa_credential_exchange", Dataset::credentialId) / partners),
+                    (int) (count(c, "partner_proof", Dataset::proofId) / partners),
+                    (int) (count(c, "activity", Dataset::activityId) / partners),
+                    (int) (count(c, "chat_message", Dataset::messageId) / partners));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Connection c = dataSource(context).getConnection()) {
+            restorePartners(c);
+        } finally {
+            context.close();
+        }
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    /**
+     * Benchmarks of the ping handling update last_seen, which the generator set to
+     * updated_at. Restores it, so that every run starts from the generated data.
+     */
+    static void restorePartners(Connection c) throws SQLException {
+        int restored;
+        try (PreparedStatement ps = c.prepareStatement("UPDATE partner SET last_seen = updated_at "
+                + "WHERE id BETWEEN ? AND ? AND last_seen IS DISTINCT FROM updated_at")) {
+            ps.setObject(1, Dataset.partnerId(0));
+            ps.setObject(2, Dataset.partnerId(Long.MAX_VALUE));
+            restored = ps.executeUpdate();
+        }
+        if (restored > 0) {
+            try (Statement s = c.createStatement()) {
+                s.execute("VACUUM ANALYZE partner");
+            }
+        }
+    }
+
+    static long countAll(Connection c, String table) throws SQLException {
+        try (Statement s = c.createStatement(); ResultSet rs = s.executeQuery("SELECT count(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Counts the generated rows of a table, rows that were created by the BPA
+     * itself are not within the id range
+     */
+    static long count(Connection c, String table, LongFunction<UUID> id) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(
+                "SELECT count(*) FROM " + table + " WHERE id BETWEEN ? AND ?")) {
+            ps.setObject(1, id.apply(0));
+            ps.setObject(2, id.apply(Long.MAX_VALUE));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+}
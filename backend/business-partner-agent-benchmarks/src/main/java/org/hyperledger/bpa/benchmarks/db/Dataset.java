@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks.db;
+
+import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeRole;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.hyperledger.bpa.benchmarks.Fixtures;
+import org.hyperledger.bpa.controller.api.activity.ActivityRole;
+import org.hyperledger.bpa.controller.api.activity.ActivityState;
+import org.hyperledger.bpa.controller.api.activity.ActivityType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * The shape of the generated data. Ids and all enum columns are derived from
+ * the row number, so that the benchmarks can pick existing rows and know their
+ * state without reading them first. Row n of a child table belongs to partner n
+ * / (rows per partner).
+ *
+ * @param partners    number of partners
+ * @param credentials credential exchanges per partner
+ * @param proofs      presentation exchanges per partner
+ * @param activities  activities per partner
+ * @param messages    chat messages per partner
+ */
+public record Dataset(int partners, int credentials, int proofs, int activities, int messages) {
+
+    /** Prefix of the generated tags */
+    public static final String TAG_PREFIX = "generated-";
+
+    /** Number of generated schemas, see {@link #schema(long)} */
+    public static final int SCHEMAS = 10;
+
+    private static final int REGISTRY_SIZE = 3000;
+
+    private static final long PARTNER = 0x5041_5254L;
+    private static final long CONNECTION = 0x434f_4e4eL;
+    private static final long CREDENTIAL = 0x4352_4544L;
+    private static final long PROOF = 0x5052_4f46L;
+    private static final long ACTIVITY = 0x4143_5456L;
+    private static final long MESSAGE = 0x4d45_5347L;
+    private static final long THREAD = 0x5448_5244L;
+
+    private static final List<ConnectionState> PARTNER_STATES = weighted(
+            ConnectionState.ACTIVE, 16, ConnectionState.INVITATION, 2,
+            ConnectionState.REQUEST, 1, ConnectionState.ABANDONED, 1);
+
+    private static final List<CredentialExchangeState> HOLDER_STATES = weighted(
+            CredentialExchangeState.CREDENTIAL_ACKED, 14, CredentialExchangeState.DONE, 2,
+            CredentialExchangeState.OFFER_RECEIVED, 1, CredentialExchangeState.REQUEST_SENT, 1,
+            CredentialExchangeState.DECLINED, 1, CredentialExchangeState.CREDENTIAL_REVOKED, 1);
+
+    private static final List<CredentialExchangeState> ISSUER_STATES = weighted(
+            CredentialExchangeState.CREDENTIAL_ACKED, 14, CredentialExchangeState.OFFER_SENT, 2,
+            CredentialExchangeState.PROPOSAL_RECEIVED, 1, CredentialExchangeState.REQUEST_RECEIVED, 1,
+            CredentialExchangeState.PROBLEM, 1, CredentialExchangeState.CREDENTIAL_REVOKED, 1);
+
+    private static final List<PresentationExchangeState> PROVER_STATES = weighted(
+            PresentationExchangeState.PRESENTATION_ACKED, 14, PresentationExchangeState.REQUEST_RECEIVED, 3,
+            PresentationExchangeState.PRESENTATIONS_SENT, 1, PresentationExchangeState.DECLINED, 1,
+            PresentationExchangeState.ABANDONED, 1);
+
+    private static final List<PresentationExchangeState> VERIFIER_STATES = weighted(
+            PresentationExchangeState.VERIFIED, 14, PresentationExchangeState.REQUEST_SENT, 3,
+            PresentationExchangeState.PRESENTATION_RECEIVED, 1, PresentationExchangeState.DECLINED, 1,
+            PresentationExchangeState.ABANDONED, 1);
+
+    // partners
+
+    public static UUID partnerId(long i) {
+        return new UUID(PARTNER, i);
+    }
+
+    public static String connectionId(long i) {
+        return new UUID(CONNECTION, i).toString();
+    }
+
+    public static String did(long i) {
+        return String.format("did:sov:G%021d", i);
+    }
+
+    public static ConnectionState partnerState(long i) {
+        return PARTNER_STATES.get(bucket(i, 1, PARTNER_STATES.size()));
+    }
+
+    public static boolean trustPing(long i) {
+        return bucket(i, 2, 2) == 0;
+    }
+
+    // credential exchanges
+
+    public static UUID credentialId(long n) {
+        return new UUID(CREDENTIAL, n);
+    }
+
+    public static String credentialExchangeId(long n) {
+        return new UUID(CREDENTIAL, n).toString();
+    }
+
+    public static String referent(long n) {
+        return new UUID(CREDENTIAL ^ 0xffL, n).toString();
+    }
+
+    public static CredentialExchangeRole credentialRole(long n) {
+        return bucket(n, 3, 2) == 0 ? CredentialExchangeRole.HOLDER : CredentialExchangeRole.ISSUER;
+    }
+
+    public static CredentialExchangeState credentialState(long n) {
+        List<CredentialExchangeState> states = credentialRole(n) == CredentialExchangeRole.HOLDER
+                ? HOLDER_STATES
+                : ISSUER_STATES;
+        return states.get(bucket(n, 4, states.size()));
+    }
+
+    /**
+     * @param n credential exchange
+     * @return revocation registry id, every registry holds 3000 credentials
+     */
+    public static String revRegId(long n) {
+        return Fixtures.credDefId(schema(n)) + ":CL_ACCUM:" + n / REGISTRY_SIZE;
+    }
+
+    public static String credRevId(long n) {
+        return String.valueOf(n % REGISTRY_SIZE + 1);
+    }
+
+    /**
+     * @param n credential exchange
+     * @return index of the schema, see {@link Fixtures#schemaId(int)}
+     */
+    public static int schema(long n) {
+        return bucket(n, 5, SCHEMAS);
+    }
+
+    // presentation exchanges
+
+    public static UUID proofId(long n) {
+        return new UUID(PROOF, n);
+    }
+
+    public static String presentationExchangeId(long n) {
+        return new UUID(PROOF, n).toString();
+    }
+
+    public static String threadId(long n) {
+        return new UUID(THREAD, n).toString();
+    }
+
+    public static PresentationExchangeRole proofRole(long n) {
+        return bucket(n, 6, 2) == 0 ? PresentationExchangeRole.PROVER : PresentationExchangeRole.VERIFIER;
+    }
+
+    public static PresentationExchangeState proofState(long n) {
+        List<PresentationExchangeState> states = proofRole(n) == PresentationExchangeRole.PROVER
+                ? PROVER_STATES
+                : VERIFIER_STATES;
+        return states.get(bucket(n, 7, states.size()));
+    }
+
+    // activities and messages
+
+    public static UUID activityId(long n) {
+        return new UUID(ACTIVITY, n);
+    }
+
+    public static ActivityType activityType(long n) {
+        return ActivityType.values()[bucket(n, 8, ActivityType.values().length)];
+    }
+
+    public static ActivityRole activityRole(long n) {
+        return switch (activityType(n)) {
+        case CONNECTION_REQUEST -> ActivityRole.CONNECTION_REQUEST_RECIPIENT;
+        case CREDENTIAL_EXCHANGE -> ActivityRole.CREDENTIAL_EXCHANGE_HOLDER;
+        case PRESENTATION_EXCHANGE -> ActivityRole.PRESENTATION_EXCHANGE_PROVER;
+        };
+    }
+
+    public static ActivityState activityState(long n) {
+        boolean completed = activityCompleted(n);
+        return switch (activityType(n)) {
+        case CONNECTION_REQUEST -> completed
+                ? ActivityState.CONNECTION_REQUEST_ACCEPTED
+                : ActivityState.CONNECTION_REQUEST_RECEIVED;
+        case CREDENTIAL_EXCHANGE -> completed
+                ? ActivityState.CREDENTIAL_EXCHANGE_ACCEPTED
+                : ActivityState.CREDENTIAL_EXCHANGE_RECEIVED;
+        case PRESENTATION_EXCHANGE -> completed
+                ? ActivityState.PRESENTATION_EXCHANGE_ACCEPTED
+                : ActivityState.PRESENTATION_EXCHANGE_RECEIVED;
+        };
+    }
+
+    public static boolean activityCompleted(long n) {
+        return bucket(n, 9, 5) != 0;
+    }
+
+    public static UUID messageId(long n) {
+        return new UUID(MESSAGE, n);
+    }
+
+    /**
+     * @param n activity
+     * @return id of the partner, credential exchange or presentation exchange the
+     *         activity links to
+     */
+    public UUID activityLinkId(long n) {
+        long partner = n / activities;
+        return switch (activityType(n)) {
+        case CONNECTION_REQUEST -> partnerId(partner);
+        case CREDENTIAL_EXCHANGE -> credentials > 0
+                ? credentialId(partner * credentials + n % credentials)
+                : partnerId(partner);
+        case PRESENTATION_EXCHANGE -> proofs > 0
+                ? proofId(partner * proofs + n % proofs)
+                : partnerId(partner);
+        };
+    }
+
+    public long credentialRows() {
+        return (long) partners * credentials;
+    }
+
+    public long proofRows() {
+        return (long) partners * proofs;
+    }
+
+    public long activityRows() {
+        return (long) partners * activities;
+    }
+
+    public long messageRows() {
+        return (long) partners * messages;
+    }
+
+    /**
+     * Stable pseudo random bucket of a row, the salt decorrelates the columns of
+     * the same row
+     */
+    static int bucket(long row, int salt, int buckets) {
+        long h = (row + salt * 0x632b_e59b_d9b4_e019L) * 0x9e37_79b9_7f4a_7c15L;
+        h ^= h >>> 31;
+        h *= 0xbf58_476d_1ce4_e5b9L;
+        h ^= h >>> 29;
+        return (int) Math.floorMod(h, (long) buckets);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> weighted(Object... valueAndWeight) {
+        return Stream.iterate(0, i -> i < valueAndWeight.length, i -> i + 2)
+                .flatMap(i -> Collections.nCopies((Integer) valueAndWeight[i + 1], (T) valueAndWeight[i]).stream())
+                .toList();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks.db;
+
+import io.micronaut.data.model.Page;
+import io.micronaut.data.model.Pageable;
+import io.micronaut.data.model.Sort;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
+import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.benchmarks.Fixtures;
+import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
+import org.hyperledger.bpa.persistence.repository.HolderCredExRepository;
+import org.hyperledger.bpa.persistence.repository.Keyset;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HolderCredExRepository} queries of the issue credential and revocation
+ * event handlers and the wallet list, against the generated credential
+ * exchanges. Lookups of a random row may not match, e.g. a referent of an
+ * exchange that is not done yet, which costs the same index lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HolderCredExRepositoryBenchmark {
+
+    private static final List<CredentialExchangeState> HELD = List.of(
+            CredentialExchangeState.CREDENTIAL_ACKED, CredentialExchangeState.DONE);
+
+    private static final List<CredentialType> TYPES = List.of(CredentialType.values());
+
+    private HolderCredExRepository repo;
+
+    private Dataset dataset;
+
+    @Setup
+    public void setup(Database db) {
+        repo = db.getBean(HolderCredExRepository.class);
+        dataset = db.getDataset();
+    }
+
+    @Benchmark
+    public Optional<BPACredentialExchange> findById() {
+        return repo.findById(Dataset.credentialId(credential()));
+    }
+
+    /** every issue credential event */
+    @Benchmark
+    public Optional<BPACredentialExchange> findByCredentialExchangeId() {
+        return repo.findByCredentialExchangeId(Dataset.credentialExchangeId(credential()));
+    }
+
+    /** credential info of proof requests and presentations */
+    @Benchmark
+    public Optional<BPACredentialExchange> findByReferent() {
+        return repo.findByReferent(Dataset.referent(credential()));
+    }
+
+    /** every revocation event */
+    @Benchmark
+    public Optional<BPACredentialExchange> findByRevRegIdAndCredRevId() {
+        long n = credential();
+        return repo.findByRevRegIdAndCredRevId(Dataset.revRegId(n), Dataset.credRevId(n));
+    }
+
+    @Benchmark
+    public List<BPACredentialExchange> findBySchemaIdAndCredentialDefinitionId() {
+        int schema = ThreadLocalRandom.current().nextInt(Dataset.SCHEMAS);
+        return repo.findBySchemaIdAndCredentialDefinitionId(Fixtures.schemaId(schema), Fixtures.credDefId(schema));
+    }
+
+    @Benchmark
+    public List<BPACredentialExchange> listFirstPageByKeyset() {
+        return listByKeyset(Keyset.first(20));
+    }
+
+    @Benchmark
+    public List<BPACredentialExchange> listDeepPageByKeyset() {
+        return listByKeyset(new Keyset(PartnerRepositoryBenchmark.randomUpdatedAt(), null, 20));
+    }
+
+    @Benchmark
+    public Page<BPACredentialExchange> listPageByOffset() {
+        return repo.findByRoleEqualsAndStateInAndTypeIn(CredentialExchangeRole.HOLDER, HELD, TYPES,
+                Pageable.from(ThreadLocalRandom.current().nextInt(10), 20,
+                        Sort.of(Sort.Order.desc("updatedAt"))));
+    }
+
+    /** the wallet list, see HolderManager */
+    @Benchmark
+    public List<BPACredentialExchange.ExchangeSummaryDTO> listSummariesFirstPageByKeyset() {
+        return Keyset.load(heldIds(Keyset.first(20)), repo::queryByIdIn,
+                BPACredentialExchange.ExchangeSummaryDTO::getId);
+    }
+
+    @Benchmark
+    public Page<BPACredentialExchange.ExchangeSummaryDTO> listSummariesPageByOffset() {
+        Page<UUID> ids = repo.findIdByRoleEqualsAndStateInAndTypeIn(CredentialExchangeRole.HOLDER, HELD, TYPES,
+                Pageable.from(ThreadLocalRandom.current().nextInt(10), 20,
+                        Sort.of(Sort.Order.desc("updatedAt"))));
+        return Keyset.load(ids, repo::queryByIdIn, BPACredentialExchange.ExchangeSummaryDTO::getId);
+    }
+
+    private List<BPACredentialExchange> listByKeyset(Keyset keyset) {
+        return Keyset.load(heldIds(keyset), repo::findByIdIn, BPACredentialExchange::getId);
+    }
+
+    private List<UUID> heldIds(Keyset keyset) {
+        return repo.findHeldIdsByKeyset(
+                HELD.stream().map(Enum::name).toList(),
+                TYPES.stream().map(Enum::name).toList(),
+                keyset.seekUpdatedAt(), keyset.seekId(), keyset.fetchSize());
+    }
+
+    private long credential() {
+        return ThreadLocalRandom.current().nextLong(dataset.credentialRows());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks.db;
+
+import io.micronaut.data.model.Page;
+import io.micronaut.data.model.Pageable;
+import io.micronaut.data.model.Sort;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.hyperledger.bpa.persistence.repository.Keyset;
+import org.hyperledger.bpa.persistence.repository.PartnerProofRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PartnerProofRepository} queries of the present proof event handlers
+ * and the proof list of a partner, against the generated presentation exchanges
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartnerProofRepositoryBenchmark {
+
+    private PartnerProofRepository repo;
+
+    private Dataset dataset;
+
+    @Setup
+    public void setup(Database db) {
+        repo = db.getBean(PartnerProofRepository.class);
+        dataset = db.getDataset();
+    }
+
+    @Benchmark
+    public Optional<PartnerProof> findById() {
+        return repo.findById(Dataset.proofId(proof()));
+    }
+
+    /** every present proof event */
+    @Benchmark
+    public Optional<PartnerProof> findByPresentationExchangeId() {
+        return repo.findByPresentationExchangeId(Dataset.presentationExchangeId(proof()));
+    }
+
+    /** proof problem reports */
+    @Benchmark
+    public Optional<PartnerProof> findByThreadId() {
+        return repo.findByThreadId(Dataset.threadId(proof()));
+    }
+
+    @Benchmark
+    public Page<PartnerProof> findByPartnerId() {
+        return repo.findByPartnerId(Dataset.partnerId(ThreadLocalRandom.current().nextInt(dataset.partners())),
+                Pageable.from(0, 20, Sort.of(Sort.Order.desc("updatedAt"))));
+    }
+
+    /** the proof list of a partner, see ProofManager */
+    @Benchmark
+    public Page<PartnerProof.ProofSummaryDTO> listSummariesByPartnerId() {
+        Page<UUID> ids = repo.findIdByPartnerId(
+                Dataset.partnerId(ThreadLocalRandom.current().nextInt(dataset.partners())),
+                Pageable.from(0, 20, Sort.of(Sort.Order.desc("updatedAt"))));
+        return Keyset.load(ids, repo::queryByIdIn, PartnerProof.ProofSummaryDTO::getId);
+    }
+
+    private long proof() {
+        return ThreadLocalRandom.current().nextLong(dataset.proofRows());
+    }
+}
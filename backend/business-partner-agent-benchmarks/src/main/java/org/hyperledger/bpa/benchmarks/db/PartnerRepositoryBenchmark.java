@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.benchmarks.db;
+
+import io.micronaut.data.model.Page;
+import io.micronaut.data.model.Pageable;
+import io.micronaut.data.model.Sort;
+import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.bpa.benchmarks.Fixtures;
+import org.hyperledger.bpa.impl.util.AriesStringUtil;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.model.Tag;
+import org.hyperledger.bpa.persistence.repository.Keyset;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+import org.hyperledger.bpa.persistence.repository.TagRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link PartnerRepository} queries of the aca-py event handlers, the partner
+ * list and the background jobs, against the generated partners
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartnerRepositoryBenchmark {
+
+    private static final List<ConnectionState> PINGABLE = List.of(
+            ConnectionState.ACTIVE, ConnectionState.COMPLETED,
+            ConnectionState.PING_RESPONSE, ConnectionState.PING_NO_RESPONSE);
+
+    private static final List<String> CONNECTED = List.of(
+            ConnectionState.ACTIVE.name(), ConnectionState.COMPLETED.name());
+
+    private static final Sort BY_UPDATED = Sort.of(Sort.Order.desc("updatedAt"));
+
+    private PartnerRepository repo;
+
+    private Dataset dataset;
+
+    private List<UUID> tagIds;
+
+    @Setup
+    public void setup(Database db) {
+        repo = db.getBean(PartnerRepository.class);
+        dataset = db.getDataset();
+        tagIds = StreamSupport.stream(db.getBean(TagRepository.class).findAll().spliterator(), false)
+                .filter(t -> t.getName().startsWith(Dataset.TAG_PREFIX))
+                .map(Tag::getId)
+                .toList();
+    }
+
+    @Benchmark
+    public Optional<Partner> findById() {
+        return repo.findById(Dataset.partnerId(partner()));
+    }
+
+    /** every connection event */
+    @Benchmark
+    public Optional<Partner> findByConnectionId() {
+        return repo.findByConnectionId(Dataset.connectionId(partner()));
+    }
+
+    @Benchmark
+    public Optional<Partner> getByConnectionId() {
+        return repo.getByConnectionId(Dataset.connectionId(partner()));
+    }
+
+    @Benchmark
+    public Optional<Partner> findByDid() {
+        return repo.findByDid(Dataset.did(partner()));
+    }
+
+    /** partners that can issue a credential of a schema */
+    @Benchmark
+    public List<Partner> findBySupportedCredential() {
+        int schema = ThreadLocalRandom.current().nextInt(Dataset.SCHEMAS);
+        return repo.findBySupportedCredential(AriesStringUtil.credDefIdGetSequenceNo(Fixtures.credDefId(schema)));
+    }
+
+    /** proof request fan out to all partners with a tag */
+    @Benchmark
+    public List<UUID> findIdsByTagIdAndStateIn() {
+        return repo.findIdsByTagIdAndStateIn(tagIds.get(ThreadLocalRandom.current().nextInt(tagIds.size())),
+                CONNECTED);
+    }
+
+    /** every tick of the ping manager */
+    @Benchmark
+    public List<String> findConnectionIdsToPing() {
+        return repo.findConnectionIdByStateInAndTrustPingTrueAndAriesSupportTrue(PINGABLE);
+    }
+
+    @Benchmark
+    public List<Partner> listFirstPageByKeyset() {
+        return listByKeyset(Keyset.first(20));
+    }
+
+    @Benchmark
+    public List<Partner> listDeepPageByKeyset() {
+        return listByKeyset(new Keyset(randomUpdatedAt(), null, 20));
+    }
+
+    @Benchmark
+    public Page<Partner> listPageByOffset() {
+        return repo.findByStateNotEquals(ConnectionState.INVITATION,
+                Pageable.from(ThreadLocalRandom.current().nextInt(10), 20, BY_UPDATED));
+    }
+
+    /**
+     * ping responses, the state stays the same, last_seen is restored by
+     * {@link Database} after the trial
+     */
+    @Benchmark
+    public void updateStateAndLastSeenByConnectionId() {
+        long i = partner();
+        repo.updateStateAndLastSeenByConnectionId(Dataset.connectionId(i), Dataset.partnerState(i), Instant.now());
+    }
+
+    private List<Partner> listByKeyset(Keyset keyset) {
+        List<UUID> ids = repo.findIdsByKeyset(false, keyset.seekUpdatedAt(), keyset.seekId(),
+                keyset.fetchSize());
+        return Keyset.load(ids, repo::findByIdIn, Partner::getId);
+    }
+
+    private long partner() {
+        return ThreadLocalRandom.current().nextInt(dataset.partners());
+    }
+
+    static Instant randomUpdatedAt() {
+        return Instant.now().minusMillis(ThreadLocalRandom.current().nextLong(Duration.ofDays(730).toMillis()));
+    }
+}
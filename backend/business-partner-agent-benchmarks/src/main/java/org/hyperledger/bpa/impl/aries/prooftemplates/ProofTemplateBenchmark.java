@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.prooftemplates;
+
+import org.hyperledger.aries.api.present_proof.PresentProofRequest;
+import org.hyperledger.bpa.api.aries.SchemaAPI;
+import org.hyperledger.bpa.benchmarks.Fixtures;
+import org.hyperledger.bpa.impl.util.Pair;
+import org.hyperledger.bpa.persistence.model.BPAProofTemplate;
+import org.hyperledger.bpa.persistence.model.prooftemplate.BPAAttribute;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering proof requests from proof templates, once through the visitor on
+ * every request and once from the compiled template. Lives in the package of
+ * the code under test, because the visitor is package private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProofTemplateBenchmark {
+
+    /** attribute groups, one per schema */
+    @Param({ "1", "5" })
+    int groups;
+
+    /** attributes per group */
+    @Param({ "5", "25" })
+    int attributesPerGroup;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2022-12-01T10:15:30Z"), ZoneOffset.UTC);
+
+    private Fixtures.StaticSchemaService schemaService;
+
+    private ProofTemplateConversion conversion;
+
+    private BPAProofTemplate template;
+
+    private CompiledProofTemplate compiled;
+
+    private List<Pair<String, BPAAttribute>> attributes;
+
+    @Setup
+    public void setup() {
+        schemaService = new Fixtures.StaticSchemaService();
+        conversion = new ProofTemplateConversion();
+        conversion.schemaService = schemaService;
+        conversion.clock = clock;
+        template = Fixtures.proofTemplate(schemaService, groups, attributesPerGroup);
+        attributes = template.streamAttributeGroups()
+                .flatMap(ag -> ag.getAttributes().stream().map(a -> Pair.<String, BPAAttribute>builder()
+                        .left(resolveLedgerSchemaId(ag.getSchemaId()).orElseThrow())
+                        .right(a)
+                        .build()))
+                .toList();
+
+        ProofTemplateCompiler compiler = new ProofTemplateCompiler();
+        compiler.conversion = conversion;
+        compiled = compiler.compile(template);
+    }
+
+    @Benchmark
+    public PresentProofRequest.ProofRequest visitor() {
+        ProofTemplateElementVisitor visitor = new ProofTemplateElementVisitor(
+                this::resolveLedgerSchemaId, new RevocationTimeStampProvider(clock));
+        visitor.visit(template);
+        template.streamAttributeGroups().forEach(visitor::visit);
+        attributes.forEach(visitor::visit);
+        return visitor.getResult();
+    }
+
+    @Benchmark
+    public PresentProofRequest.ProofRequest conversion() {
+        return conversion.templateToProofRequest(template).build().getProofRequest();
+    }
+
+    @Benchmark
+    public PresentProofRequest.ProofRequest compiled() {
+        return compiled.toIndy(clock.instant().getEpochSecond());
+    }
+
+    private Optional<String> resolveLedgerSchemaId(UUID id) {
+        return schemaService.getSchema(id).map(SchemaAPI::getSchemaId);
+    }
+}
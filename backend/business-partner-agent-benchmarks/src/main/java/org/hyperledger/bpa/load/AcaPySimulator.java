@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.load;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stands in for aca-py: answers the admin endpoints the BPA calls while it
+ * handles events, and pushes scripted exchanges through the websocket the BPA
+ * connects to. Every chain is a connection followed by an issued credential and
+ * a presented proof on that connection, the chains run interleaved.
+ */
+@Slf4j
+public class AcaPySimulator implements AutoCloseable {
+
+    private static final Pattern RECORD = Pattern.compile(
+            "/(connections|issue-credential/records|present-proof/records)/([^/?]+)(/[^?]*)?");
+    private static final String JSON = "application/json";
+
+    private final Gson gson = new Gson();
+
+    private final MockWebServer server = new MockWebServer();
+
+    private final AtomicReference<WebSocket> socket = new AtomicReference<>();
+
+    private final CountDownLatch connected = new CountDownLatch(1);
+
+    /** latest payload of every exchange, served by the record endpoints */
+    private final Map<String, JsonObject> records = new ConcurrentHashMap<>();
+
+    /** admin calls the simulator has no answer for, by path */
+    private final Map<String, LongAdder> unhandled = new ConcurrentHashMap<>();
+
+    public AcaPySimulator() {
+        server.setDispatcher(new AdminDispatcher());
+    }
+
+    /**
+     * @param port the port the BPA is configured with in bpa.acapy.url
+     * @throws IOException if the port is not available
+     */
+    public void start(int port) throws IOException {
+        server.start(port);
+        log.info("aca-py simulator listening on: {}", server.url("/"));
+    }
+
+    /**
+     * @return the url of the simulator, as configured in bpa.acapy.url
+     */
+    public String getUrl() {
+        return server.url("/").toString();
+    }
+
+    /**
+     * @param timeout max time to wait for the BPA to open the event websocket
+     * @return true if the BPA is connected
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitConnected(@NonNull Duration timeout) throws InterruptedException {
+        return connected.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Emits the events of all chains, blocks until the last event was sent.
+     *
+     * @param chains      number of chains (connection, credential, proof)
+     * @param concurrency number of chains that are in progress at the same time
+     * @param rate        events per second over all chains
+     * @param listener    called with every event right after it was sent
+     */
+    public void run(int chains, int concurrency, double rate, @NonNull Consumer<Emitted> listener) {
+        WebSocket ws = Objects.requireNonNull(socket.get(), "BPA is not connected");
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        Deque<Chain> pending = new ArrayDeque<>();
+        for (int i = 0; i < chains; i++) {
+            pending.add(new Chain());
+        }
+        List<Chain> active = new ArrayList<>();
+        long next = System.nanoTime();
+        int slot = 0;
+        while (!pending.isEmpty() || !active.isEmpty()) {
+            while (active.size() < concurrency && !pending.isEmpty()) {
+                active.add(pending.poll());
+            }
+            int index = slot++ % active.size();
+            Chain chain = active.get(index);
+            LockSupport.parkNanos(next - System.nanoTime());
+            next += interval;
+
+            Instant now = Instant.now();
+            JsonObject payload = chain.lifecycle().payload(chain.step, chain.id(), chain.connectionId, chain.createdAt,
+                    now);
+            records.put(chain.id(), payload);
+            JsonObject event = new JsonObject();
+            event.addProperty("topic", chain.lifecycle().getTopic());
+            event.add("payload", payload);
+            ws.send(gson.toJson(event));
+            listener.accept(new Emitted(chain.lifecycle(), chain.id(), chain.step, now));
+
+            if (!chain.advance()) {
+                active.remove(index);
+            }
+        }
+    }
+
+    /**
+     * @return admin calls that were answered with 404, by path
+     */
+    public Map<String, Long> getUnhandled() {
+        Map<String, Long> result = new TreeMap<>();
+        unhandled.forEach((k, v) -> result.put(k, v.sum()));
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        WebSocket ws = socket.get();
+        if (ws != null) {
+            ws.close(1000, "done");
+        }
+        server.shutdown();
+    }
+
+    /**
+     * One event that was sent to the BPA
+     *
+     * @param lifecycle the exchange type
+     * @param id        aca-py id of the exchange
+     * @param step      index of the step in {@link Lifecycle#getSteps()}
+     * @param emittedAt time the event was sent
+     */
+    public record Emitted(Lifecycle lifecycle, String id, int step, Instant emittedAt) {
+    }
+
+    /**
+     * Connection, credential and proof on the same connection, run one after the
+     * other
+     */
+    private static final class Chain {
+        private final String connectionId = UUID.randomUUID().toString();
+        private final Map<Lifecycle, String> ids = new EnumMap<>(Lifecycle.class);
+        private int lifecycle;
+        private int step;
+        private Instant createdAt = Instant.now();
+
+        Lifecycle lifecycle() {
+            return Lifecycle.values()[lifecycle];
+        }
+
+        String id() {
+            return lifecycle() == Lifecycle.CONNECTION
+                    ? connectionId
+                    : ids.computeIfAbsent(lifecycle(), l -> UUID.randomUUID().toString());
+        }
+
+        /**
+         * @return false if the chain is done
+         */
+        boolean advance() {
+            if (++step < lifecycle().getSteps().size()) {
+                return true;
+            }
+            step = 0;
+            createdAt = Instant.now();
+            return ++lifecycle < Lifecycle.values().length;
+        }
+    }
+
+    private final class AdminDispatcher extends Dispatcher {
+
+        @NonNull
+        @Override
+        public MockResponse dispatch(@NonNull RecordedRequest request) {
+            String path = Objects.requireNonNullElse(request.getPath(), "/");
+            if (path.startsWith("/ws")) {
+                return new MockResponse().withWebSocketUpgrade(new EventSocket());
+            }
+            if (path.startsWith("/status")) {
+                return json("{\"ready\": true, \"alive\": true, \"version\": \"0.7.5\"}");
+            }
+            if (path.startsWith("/wallet/did/public")) {
+                return json("{\"result\": {\"did\": \"M6Mbe3qx7vB4wpZF4sBRjt\", "
+                        + "\"verkey\": \"8HH5gYEeNc3z7PYXmd54d4x6qAfCNrqQqEB3nS7Zfu7K\", \"posture\": \"posted\"}}");
+            }
+            if (path.startsWith("/schemas/")) {
+                JsonObject schema = new JsonObject();
+                schema.addProperty("ver", "1.0");
+                schema.addProperty("id", Lifecycle.SCHEMA_ID);
+                schema.addProperty("name", "load-test");
+                schema.addProperty("version", "1.0");
+                schema.addProperty("seqNo", 1000);
+                JsonArray names = new JsonArray();
+                Lifecycle.ATTRIBUTES.forEach(names::add);
+                schema.add("attrNames", names);
+                JsonObject result = new JsonObject();
+                result.add("schema", schema);
+                return json(gson.toJson(result));
+            }
+            Matcher m = RECORD.matcher(path);
+            if (m.matches()) {
+                if (m.group(3) != null && m.group(3).startsWith("/credentials")) {
+                    return json("[]");
+                }
+                JsonObject record = records.get(m.group(2));
+                if (record != null && m.group(3) == null) {
+                    return json(gson.toJson(record));
+                }
+                if (!"GET".equals(request.getMethod()) && record != null) {
+                    return json(gson.toJson(record));
+                }
+            }
+            if (!"GET".equals(request.getMethod())) {
+                return json("{}");
+            }
+            unhandled.computeIfAbsent(request.getMethod() + " " + path.replaceAll("\\?.*", ""),
+                    k -> new LongAdder()).increment();
+            return new MockResponse().setResponseCode(404).setHeader("Content-Type", JSON).setBody("{}");
+        }
+
+        private MockResponse json(String body) {
+            return new MockResponse().setHeader("Content-Type", JSON).setBody(body);
+        }
+    }
+
+    private final class EventSocket extends WebSocketListener {
+        @Override
+        public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+            log.info("BPA connected to the event websocket");
+            socket.set(webSocket);
+            connected.countDown();
+        }
+
+        @Override
+        public void onClosed(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
+            socket.compareAndSet(webSocket, null);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.load;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Scripted aca-py exchanges as the BPA sees them when it is the invitee, holder
+ * and prover. Every step is one websocket event, the state is given as aca-py
+ * sends it and as the BPA persists it.
+ */
+public enum Lifecycle {
+
+    CONNECTION("connections", "partner", "connection_id", List.of(
+            new Step("request", "REQUEST"),
+            new Step("response", "RESPONSE"),
+            new Step("active", "ACTIVE"))),
+
+    CREDENTIAL("issue_credential", "bpa_credential_exchange", "credential_exchange_id", List.of(
+            new Step("offer_received", "OFFER_RECEIVED"),
+            new Step("request_sent", "REQUEST_SENT"),
+            new Step("credential_received", "CREDENTIAL_RECEIVED"),
+            new Step("credential_acked", "CREDENTIAL_ACKED"))),
+
+    PROOF("present_proof", "partner_proof", "presentation_exchange_id", List.of(
+            new Step("request_received", "REQUEST_RECEIVED"),
+            new Step("presentation_sent", "PRESENTATIONS_SENT"),
+            new Step("presentation_acked", "PRESENTATION_ACKED")));
+
+    public static final String SCHEMA_ID = "F6dB7dMVHUQSC64qemnBi7:2:load-test:1.0";
+    public static final String CRED_DEF_ID = "F6dB7dMVHUQSC64qemnBi7:3:CL:1000:load-test";
+    public static final List<String> ATTRIBUTES = List.of("name", "street", "city", "amount");
+
+    /** websocket topic */
+    private final String topic;
+    /** table the BPA persists the exchange in */
+    private final String table;
+    /** column holding the aca-py id */
+    private final String idColumn;
+    private final List<Step> steps;
+
+    Lifecycle(String topic, String table, String idColumn, List<Step> steps) {
+        this.topic = topic;
+        this.table = table;
+        this.idColumn = idColumn;
+        this.steps = steps;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Renders the aca-py record of the exchange in the state of the given step
+     *
+     * @param step         index of the step
+     * @param id           aca-py id of the exchange
+     * @param connectionId connection the exchange belongs to
+     * @param createdAt    time of the first step
+     * @param updatedAt    time of this step
+     * @return record as aca-py sends it in the websocket payload
+     */
+    public JsonObject payload(int step, String id, String connectionId, Instant createdAt, Instant updatedAt) {
+        JsonObject p = new JsonObject();
+        p.addProperty(idColumn, id);
+        p.addProperty("state", steps.get(step).acaPyState());
+        p.addProperty("created_at", createdAt.toString());
+        p.addProperty("updated_at", updatedAt.toString());
+        switch (this) {
+        case CONNECTION -> {
+            p.addProperty("their_label", "Load Test " + id.substring(0, 8));
+            p.addProperty("their_did", "Ws" + id.replace("-", "").substring(0, 20));
+            p.addProperty("their_role", "invitee");
+            p.addProperty("invitation_key", "8HH5gYEeNc3z7PYXmd54d4x6qAfCNrqQqEB3nS7Zfu7K");
+            p.addProperty("invitation_mode", "once");
+            p.addProperty("routing_state", "none");
+            p.addProperty("accept", "auto");
+        }
+        case CREDENTIAL -> {
+            p.addProperty("connection_id", connectionId);
+            p.addProperty("thread_id", id);
+            p.addProperty("role", "holder");
+            p.addProperty("initiator", "external");
+            p.addProperty("schema_id", SCHEMA_ID);
+            p.addProperty("credential_definition_id", CRED_DEF_ID);
+            JsonObject preview = new JsonObject();
+            preview.addProperty("@type", "https://didcomm.org/issue-credential/1.0/credential-preview");
+            JsonArray attributes = new JsonArray();
+            JsonObject attrs = new JsonObject();
+            for (String name : ATTRIBUTES) {
+                JsonObject a = new JsonObject();
+                a.addProperty("name", name);
+                a.addProperty("value", name + " " + id.substring(0, 8));
+                attributes.add(a);
+                attrs.addProperty(name, name + " " + id.substring(0, 8));
+            }
+            preview.add("attributes", attributes);
+            JsonObject proposal = new JsonObject();
+            proposal.add("credential_proposal", preview);
+            proposal.addProperty("schema_id", SCHEMA_ID);
+            proposal.addProperty("cred_def_id", CRED_DEF_ID);
+            p.add("credential_proposal_dict", proposal);
+            if (step == steps.size() - 1) {
+                JsonObject credential = new JsonObject();
+                credential.addProperty("referent", id);
+                credential.addProperty("schema_id", SCHEMA_ID);
+                credential.addProperty("cred_def_id", CRED_DEF_ID);
+                credential.add("attrs", attrs);
+                p.add("credential", credential);
+            }
+        }
+        case PROOF -> {
+            p.addProperty("connection_id", connectionId);
+            p.addProperty("thread_id", id);
+            p.addProperty("role", "prover");
+            p.addProperty("initiator", "external");
+            JsonObject restriction = new JsonObject();
+            restriction.addProperty("schema_id", SCHEMA_ID);
+            JsonArray restrictions = new JsonArray();
+            restrictions.add(restriction);
+            JsonObject attribute = new JsonObject();
+            JsonArray names = new JsonArray();
+            ATTRIBUTES.forEach(names::add);
+            attribute.add("names", names);
+            attribute.add("restrictions", restrictions);
+            JsonObject requested = new JsonObject();
+            requested.add("load-test", attribute);
+            JsonObject request = new JsonObject();
+            request.addProperty("name", "Load Test");
+            request.addProperty("version", "1.0");
+            request.addProperty("nonce", "1234567890");
+            request.add("requested_attributes", requested);
+            request.add("requested_predicates", new JsonObject());
+            p.add("presentation_request", request);
+        }
+        }
+        return p;
+    }
+
+    /**
+     * @param acaPyState state as aca-py sends it
+     * @param dbState    state as the BPA persists it
+     */
+    public record Step(String acaPyState, String dbState) {
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a running BPA with the {@link AcaPySimulator} and measures end to end:
+ * <ul>
+ * <li>events handled per second</li>
+ * <li>time from sending an event until the BPA persisted its state (p50/p99),
+ * taken from the updated_at column, so the BPA and the driver must share the
+ * clock, i.e. run on the same host</li>
+ * <li>time from sending an event until the BPA sent the resulting websocket
+ * notification (p50/p99)</li>
+ * </ul>
+ * The BPA has to run with bpa.acapy.url pointing to the simulator, in web only
+ * mode and with security disabled, see the README of this module.
+ * <p>
+ * Arguments (--name=value): port (8031), bpa (http://localhost:8080), jdbc
+ * (jdbc:postgresql://localhost:5432/bpa), db-user (postgres), db-password
+ * (postgres), chains (100), concurrency (20), rate (100 events/s), poll (20ms),
+ * timeout (60s).
+ */
+@Slf4j
+public class LoadDriver {
+
+    private static final Duration LOOK_BACK = Duration.ofSeconds(2);
+
+    private final Map<String, String> args;
+
+    /** emitted events by aca-py id and persisted state */
+    private final Map<String, AcaPySimulator.Emitted> emitted = new ConcurrentHashMap<>();
+
+    /** all events by aca-py id, in the order they were sent */
+    private final Map<String, List<AcaPySimulator.Emitted>> byExchange = new ConcurrentHashMap<>();
+
+    /** persisted states by aca-py id and state, first time seen */
+    private final Map<String, Instant> persisted = new HashMap<>();
+
+    /** BPA id to aca-py id, learned while polling */
+    private final Map<String, String> bpaIds = new HashMap<>();
+
+    private final Queue<Notification> notifications = new ConcurrentLinkedQueue<>();
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    LoadDriver(Map<String, String> args) {
+        this.args = args;
+    }
+
+    public static void main(String[] argv) throws Exception {
+        Map<String, String> args = new HashMap<>();
+        for (String a : argv) {
+            String[] kv = a.replaceFirst("^--", "").split("=", 2);
+            args.put(kv[0], kv.length > 1 ? kv[1] : "true");
+        }
+        new LoadDriver(args).run();
+    }
+
+    void run() throws Exception {
+        int chains = Integer.parseInt(arg("chains", "100"));
+        int concurrency = Integer.parseInt(arg("concurrency", "20"));
+        double rate = Double.parseDouble(arg("rate", "100"));
+        Duration poll = Duration.parse("PT" + arg("poll", "0.02") + "S");
+        Duration timeout = Duration.parse("PT" + arg("timeout", "60") + "S");
+        int expected = chains * Arrays.stream(Lifecycle.values()).mapToInt(l -> l.getSteps().size()).sum();
+
+        try (AcaPySimulator simulator = new AcaPySimulator();
+                Connection db = DriverManager.getConnection(arg("jdbc", "jdbc:postgresql://localhost:5432/bpa"),
+                        arg("db-user", "postgres"), arg("db-password", "postgres"))) {
+            simulator.start(Integer.parseInt(arg("port", "8031")));
+            log.info("Waiting for the BPA to connect");
+            if (!simulator.awaitConnected(Duration.ofMinutes(5))) {
+                throw new IllegalStateException("BPA did not connect to the simulator");
+            }
+            WebSocket notificationSocket = openNotifications();
+            Instant watermark = Instant.now();
+            Instant start = Instant.now();
+
+            Thread emitter = new Thread(() -> simulator.run(chains, concurrency, rate, this::emitted),
+                    "load-emitter");
+            emitter.start();
+
+            Instant deadline = null;
+            while (true) {
+                watermark = pollDatabase(db, watermark);
+                if (!emitter.isAlive()) {
+                    if (deadline == null) {
+                        deadline = Instant.now().plus(timeout);
+                        log.info("All {} events sent, waiting for the BPA", expected);
+                    }
+                    if (handled() >= expected || Instant.now().isAfter(deadline)) {
+                        break;
+                    }
+                }
+                TimeUnit.MILLISECONDS.sleep(poll.toMillis());
+            }
+            // late notifications
+            TimeUnit.MILLISECONDS.sleep(500);
+            notificationSocket.close(1000, "done");
+            print(report(expected, start, simulator.getUnhandled()));
+        }
+    }
+
+    /** called with every event right after the simulator sent it */
+    void emitted(AcaPySimulator.Emitted e) {
+        emitted.put(key(e.id(), e.lifecycle().getSteps().get(e.step()).dbState()), e);
+        byExchange.computeIfAbsent(e.id(), k -> Collections.synchronizedList(new ArrayList<>())).add(e);
+    }
+
+    /**
+     * Called with every exchange row that was read from the database
+     *
+     * @param bpaId     id of the row
+     * @param acaPyId   aca-py id of the exchange
+     * @param state     persisted state
+     * @param updatedAt time the state was persisted
+     */
+    synchronized void persisted(String bpaId, String acaPyId, String state, Instant updatedAt) {
+        bpaIds.put(bpaId, acaPyId);
+        persisted.putIfAbsent(key(acaPyId, state), updatedAt);
+    }
+
+    /**
+     * Reads all exchanges that changed since the watermark
+     *
+     * @return new watermark
+     */
+    private Instant pollDatabase(Connection db, Instant watermark) throws SQLException {
+        Instant latest = watermark;
+        for (Lifecycle l : Lifecycle.values()) {
+            try (PreparedStatement ps = db.prepareStatement("SELECT id, " + l.getIdColumn()
+                    + ", state, updated_at FROM " + l.getTable() + " WHERE updated_at >= ?")) {
+                // rows are committed a moment after updated_at is set, look back a bit
+                ps.setTimestamp(1, Timestamp.from(watermark.minus(LOOK_BACK)));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String acaPyId = rs.getString(2);
+                        Timestamp updatedAt = rs.getTimestamp(4);
+                        if (acaPyId == null || updatedAt == null) {
+                            continue;
+                        }
+                        persisted(rs.getString(1), acaPyId, rs.getString(3), updatedAt.toInstant());
+                        if (updatedAt.toInstant().isAfter(latest)) {
+                            latest = updatedAt.toInstant();
+                        }
+                    }
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * An event counts as handled when its state, or a later state of the same
+     * exchange, was persisted. Events of one exchange are handled in order.
+     */
+    synchronized int handled() {
+        int handled = 0;
+        for (List<AcaPySimulator.Emitted> events : byExchange.values()) {
+            List<AcaPySimulator.Emitted> copy;
+            synchronized (events) {
+                copy = new ArrayList<>(events);
+            }
+            for (int i = copy.size() - 1; i >= 0; i--) {
+                AcaPySimulator.Emitted e = copy.get(i);
+                if (persisted.containsKey(key(e.id(), e.lifecycle().getSteps().get(e.step()).dbState()))) {
+                    handled += i + 1;
+                    break;
+                }
+            }
+        }
+        return handled;
+    }
+
+    private WebSocket openNotifications() {
+        String url = arg("bpa", "http://localhost:8080").replaceFirst("^http", "ws") + "/events";
+        OkHttpClient client = new OkHttpClient.Builder().readTimeout(0, TimeUnit.MILLISECONDS).build();
+        return client.newWebSocket(new Request.Builder().url(url).build(), new WebSocketListener() {
+            @Override
+            public void onMessage(@NonNull WebSocket webSocket, @NonNull String text) {
+                Instant received = Instant.now();
+                try {
+                    collect(mapper.readTree(text), received);
+                } catch (Exception e) {
+                    log.warn("Not a notification: {}", text);
+                }
+            }
+        });
+    }
+
+    /**
+     * Collects the notifications of a websocket message, batches are unpacked
+     *
+     * @param body     websocket message
+     * @param received time the message arrived
+     */
+    void collect(JsonNode body, Instant received) {
+        JsonNode message = body.path("message");
+        if ("BATCH".equals(message.path("type").asText())) {
+            message.path("info").forEach(b -> collect(b, received));
+        } else if (message.hasNonNull("linkId")) {
+            notifications.add(new Notification(message.path("type").asText(), message.path("linkId").asText(),
+                    received));
+        }
+    }
+
+    synchronized Report report(int expected, Instant start, Map<String, Long> unhandled) {
+        List<Long> toDb = new ArrayList<>();
+        Instant lastPersisted = start;
+        for (Map.Entry<String, Instant> p : persisted.entrySet()) {
+            AcaPySimulator.Emitted e = emitted.get(p.getKey());
+            if (e != null) {
+                toDb.add(Duration.between(e.emittedAt(), p.getValue()).toNanos());
+                if (p.getValue().isAfter(lastPersisted)) {
+                    lastPersisted = p.getValue();
+                }
+            }
+        }
+        List<Long> toWs = new ArrayList<>();
+        int unmatched = 0;
+        for (Notification n : notifications) {
+            String acaPyId = bpaIds.get(n.linkId());
+            AcaPySimulator.Emitted cause = acaPyId != null ? latestBefore(byExchange.get(acaPyId), n.received())
+                    : null;
+            if (cause == null) {
+                unmatched++;
+                continue;
+            }
+            toWs.add(Duration.between(cause.emittedAt(), n.received()).toNanos());
+        }
+        int handled = handled();
+        double seconds = Math.max(1, Duration.between(start, lastPersisted).toMillis()) / 1000d;
+        return new Report(emitted.size(), handled, expected, handled / seconds, toDb, toWs, unmatched, unhandled);
+    }
+
+    private static void print(Report r) {
+        System.out.println();
+        System.out.printf("events sent:               %d%n", r.sent());
+        System.out.printf("events handled:            %d of %d%n", r.handled(), r.expected());
+        System.out.printf("events handled per second: %.1f%n", r.perSecond());
+        System.out.printf("event to db        (%5d): p50 %8.2f ms   p99 %8.2f ms   max %8.2f ms%n",
+                r.toDb().size(), percentile(r.toDb(), 50), percentile(r.toDb(), 99), percentile(r.toDb(), 100));
+        System.out.printf("event to websocket (%5d): p50 %8.2f ms   p99 %8.2f ms   max %8.2f ms%n",
+                r.toWs().size(), percentile(r.toWs(), 50), percentile(r.toWs(), 99), percentile(r.toWs(), 100));
+        System.out.printf("notifications without exchange: %d%n", r.unmatched());
+        if (!r.unhandled().isEmpty()) {
+            System.out.println("admin calls the simulator answered with 404:");
+            r.unhandled().forEach((k, v) -> System.out.printf("  %6d %s%n", v, k));
+        }
+    }
+
+    private static AcaPySimulator.Emitted latestBefore(List<AcaPySimulator.Emitted> events, Instant received) {
+        if (events == null) {
+            return null;
+        }
+        AcaPySimulator.Emitted result = null;
+        synchronized (events) {
+            for (AcaPySimulator.Emitted e : events) {
+                if (!e.emittedAt().isAfter(received)) {
+                    result = e;
+                }
+            }
+        }
+        return result;
+    }
+
+    static double percentile(List<Long> nanos, double percentile) {
+        if (nanos.isEmpty()) {
+            return Double.NaN;
+        }
+        List<Long> sorted = new ArrayList<>(nanos);
+        Collections.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index)) / 1_000_000d;
+    }
+
+    private static String key(String acaPyId, String state) {
+        return acaPyId + ":" + state;
+    }
+
+    private String arg(String name, String defaultValue) {
+        return args.getOrDefault(name, defaultValue);
+    }
+
+    private record Notification(String type, String linkId, Instant received) {
+    }
+
+    /**
+     * Result of a run, latencies in nanoseconds
+     *
+     * @param sent      events sent
+     * @param handled   events whose state, or a later one, was persisted
+     * @param expected  events of all chains
+     * @param perSecond events handled per second
+     * @param toDb      time from sending an event until its state was persisted
+     * @param toWs      time from sending an event until its notification arrived
+     * @param unmatched notifications that could not be related to an event
+     * @param unhandled admin calls the simulator answered with 404, by path
+     */
+    record Report(int sent, int handled, int expected, double perSecond, List<Long> toDb, List<Long> toWs,
+            int unmatched, Map<String, Long> unhandled) {
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.persistence.model.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.core.convert.ConversionContext;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
+import org.hyperledger.aries.api.present_proof.PresentProofRequest;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeRecord;
+import org.hyperledger.aries.api.present_proof_v2.V2DIFProofRequest;
+import org.hyperledger.bpa.benchmarks.Fixtures;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading the json columns of the proof exchange, done on every
+ * save and load of a {@link PartnerProof}. Lives in the package of the code
+ * under test, because the mapper is injected into a package private field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PayloadConverterBenchmark {
+
+    /** credentials in the proof */
+    @Param({ "1", "10" })
+    int credentials;
+
+    /** attributes per credential */
+    @Param({ "10", "50" })
+    int attributes;
+
+    private final ProofPayloadConverter proofConverter = new ProofPayloadConverter();
+
+    private final ProofRequestPayloadConverter requestConverter = new ProofRequestPayloadConverter();
+
+    private ExchangePayload<Map<String, PresentationExchangeRecord.RevealedAttributeGroup>, VerifiablePresentation<VerifiableCredential>> indyProof;
+
+    private ExchangePayload<Map<String, PresentationExchangeRecord.RevealedAttributeGroup>, VerifiablePresentation<VerifiableCredential>> ldProof;
+
+    private ExchangePayload<PresentProofRequest.ProofRequest, V2DIFProofRequest> difRequest;
+
+    private String indyProofJson;
+
+    private String ldProofJson;
+
+    @Setup
+    public void setup() {
+        ObjectMapper mapper = Fixtures.mapper();
+        proofConverter.mapper = mapper;
+        requestConverter.mapper = mapper;
+
+        PartnerProof indy = Fixtures.indyProof(credentials, attributes);
+        PartnerProof ld = Fixtures.ldProof(credentials, attributes);
+        indyProof = indy.getProof();
+        ldProof = ld.getProof();
+        difRequest = ld.getProofRequest();
+        indyProofJson = proofConverter.convertToPersistedValue(indyProof, ConversionContext.DEFAULT);
+        ldProofJson = proofConverter.convertToPersistedValue(ldProof, ConversionContext.DEFAULT);
+    }
+
+    @Benchmark
+    public String writeIndyProof() {
+        return proofConverter.convertToPersistedValue(indyProof, ConversionContext.DEFAULT);
+    }
+
+    @Benchmark
+    public String writeLdProof() {
+        return proofConverter.convertToPersistedValue(ldProof, ConversionContext.DEFAULT);
+    }
+
+    @Benchmark
+    public String writeDifRequest() {
+        return requestConverter.convertToPersistedValue(difRequest, ConversionContext.DEFAULT);
+    }
+
+    @Benchmark
+    public Object readIndyProof() {
+        return proofConverter.convertToEntityValue(indyProofJson, ConversionContext.DEFAULT);
+    }
+
+    @Benchmark
+    public Object readLdProof() {
+        return proofConverter.convertToEntityValue(ldProofJson, ConversionContext.DEFAULT);
+    }
+}
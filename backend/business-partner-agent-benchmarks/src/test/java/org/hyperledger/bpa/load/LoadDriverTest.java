@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs one chain through the simulator, the test plays the BPA: every event is
+ * persisted and notified right away
+ */
+class LoadDriverTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testOneChainIsMeasuredEndToEnd() throws Exception {
+        int expected = Arrays.stream(Lifecycle.values()).mapToInt(l -> l.getSteps().size()).sum();
+        LoadDriver driver = new LoadDriver(Map.of());
+        CountDownLatch handled = new CountDownLatch(expected);
+        OkHttpClient client = new OkHttpClient();
+        try (AcaPySimulator simulator = new AcaPySimulator()) {
+            simulator.start(0);
+            WebSocket bpa = client.newWebSocket(new Request.Builder()
+                    .url(simulator.getUrl().replaceFirst("^http", "ws") + "ws").build(), new WebSocketListener() {
+                        @Override
+                        public void onMessage(@NonNull WebSocket webSocket, @NonNull String text) {
+                            handle(driver, text);
+                            handled.countDown();
+                        }
+                    });
+            assertTrue(simulator.awaitConnected(Duration.ofSeconds(10)));
+
+            Instant start = Instant.now();
+            simulator.run(1, 1, 1000, driver::emitted);
+            assertTrue(handled.await(10, TimeUnit.SECONDS));
+            LoadDriver.Report report = driver.report(expected, start, simulator.getUnhandled());
+            bpa.close(1000, "done");
+
+            assertEquals(expected, report.sent());
+            assertEquals(expected, report.handled());
+            assertEquals(expected, report.toDb().size());
+            assertEquals(expected, report.toWs().size());
+            assertEquals(0, report.unmatched());
+            assertTrue(report.perSecond() > 0);
+            assertTrue(report.toDb().stream().allMatch(nanos -> nanos >= 0));
+            assertTrue(report.toWs().stream().allMatch(nanos -> nanos >= 0));
+            assertTrue(LoadDriver.percentile(report.toDb(), 50) <= LoadDriver.percentile(report.toDb(), 99));
+            assertEquals(Map.of(), report.unhandled());
+        } finally {
+            client.dispatcher().executorService().shutdown();
+        }
+    }
+
+    /** persists the state of the event and sends the notification for it */
+    private void handle(LoadDriver driver, String text) {
+        try {
+            JsonNode event = mapper.readTree(text);
+            Lifecycle lifecycle = Arrays.stream(Lifecycle.values())
+                    .filter(l -> l.getTopic().equals(event.path("topic").asText()))
+                    .findFirst().orElseThrow();
+            JsonNode payload = event.path("payload");
+            String acaPyId = payload.path(lifecycle.getIdColumn()).asText();
+            String state = lifecycle.getSteps().stream()
+                    .filter(s -> s.acaPyState().equals(payload.path("state").asText()))
+                    .findFirst().orElseThrow().dbState();
+            String bpaId = "bpa-" + acaPyId;
+            driver.persisted(bpaId, acaPyId, state, Instant.now());
+            driver.collect(mapper.createObjectNode().set("message", mapper.createObjectNode()
+                    .put("type", "ON_" + state).put("linkId", bpaId)), Instant.now());
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+}
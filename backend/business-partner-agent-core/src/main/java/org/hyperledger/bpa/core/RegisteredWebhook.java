@@ -20,6 +20,8 @@ package org.hyperledger.bpa.core;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
 import java.util.List;
@@ -40,12 +42,20 @@ public class RegisteredWebhook {
     @Size(min = 1)
     private List<WebhookEventType> registeredEvent;
     private WebhookCredentials credentials;
+    /** Optional, if set events are collected and sent as a json array */
+    @Valid
+    private WebhookBatching batching;
 
     public RegisteredWebhook(RegisteredWebhook hook) {
         super();
         this.url = hook.getUrl();
         this.registeredEvent = hook.getRegisteredEvent();
         this.credentials = hook.getCredentials();
+        this.batching = hook.getBatching();
+    }
+
+    public boolean batchingEnabled() {
+        return batching != null && batching.getMaxBatchSize() != null && batching.getMaxBatchSize() > 1;
     }
 
     public enum WebhookEventType {
@@ -67,6 +77,28 @@ public class RegisteredWebhook {
         private String password;
     }
 
+    /**
+     * Batched delivery: events are collected per webhook until either the max batch
+     * size is reached or the oldest event waited for the max linger time, then they
+     * are sent in order as one json array.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static final class WebhookBatching {
+        @Min(1)
+        private Integer maxBatchSize;
+        @Min(0)
+        private Integer maxLingerMillis;
+        /** gzip the request body, sets Content-Encoding: gzip */
+        private Boolean gzip;
+
+        public boolean gzipEnabled() {
+            return Boolean.TRUE.equals(gzip);
+        }
+    }
+
     @SuperBuilder
     @Data
     @NoArgsConstructor
@@ -19,6 +19,7 @@ package org.hyperledger.bpa.api;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import io.micronaut.core.util.CollectionUtils;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.*;
@@ -28,6 +29,7 @@ import org.hyperledger.aries.api.connection.ConnectionState;
 import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
 import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.api.resolver.DIDDocument;
+import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
 import org.hyperledger.bpa.persistence.model.Partner;
 
 import java.util.List;
@@ -57,6 +59,11 @@ public class PartnerAPI {
     private String did;
     private List<PartnerCredential> credential;
     private List<TagAPI> tag;
+    /**
+     * round trip of the last answered trust ping in ms, only set for a single
+     * partner
+     */
+    private Long pingRoundTrip;
 
     // begin: internal use only
     @JsonIgnore
@@ -85,6 +92,27 @@ public class PartnerAPI {
         return result;
     }
 
+    /**
+     * Partner as referenced by an exchange in a list, the public profile is reduced
+     * to the legal name so that {@link #getName()} resolves the same way
+     */
+    public static PartnerAPI from(@NonNull BPACredentialExchange.ExchangeSummaryDTO s) {
+        PartnerAPI result = new PartnerAPI()
+                .setId(s.getPartnerId() != null ? s.getPartnerId().toString() : null)
+                .setState(s.getPartnerState())
+                .setAlias(s.getPartnerAlias())
+                .setLabel(s.getPartnerLabel())
+                .setDid(s.getPartnerDid())
+                .setIncoming(s.getPartnerIncoming() != null ? s.getPartnerIncoming() : Boolean.FALSE);
+        if (StringUtils.isNotEmpty(s.getPartnerLegalName())) {
+            result.setCredential(List.of(PartnerCredential.builder()
+                    .type(CredentialType.ORGANIZATIONAL_PROFILE_CREDENTIAL)
+                    .credentialData(JsonNodeFactory.instance.objectNode().put("legalName", s.getPartnerLegalName()))
+                    .build()));
+        }
+        return result;
+    }
+
     public static void copyFrom(@NonNull PartnerAPI to, @NonNull Partner from) {
         to
                 .setCreatedAt(from.getCreatedAt() != null ? from.getCreatedAt().toEpochMilli() : null)
@@ -88,6 +88,42 @@ public class AriesCredential {
                 .build();
     }
 
+    /**
+     * List view of a credential, without the credential data
+     *
+     * @param s         {@link BPACredentialExchange.ExchangeSummaryDTO}
+     * @param typeLabel schema label
+     * @param issuer    issuer label
+     * @return {@link AriesCredential}
+     */
+    public static AriesCredential fromExchangeSummary(@NonNull BPACredentialExchange.ExchangeSummaryDTO s,
+            @Nullable String typeLabel, @Nullable String issuer) {
+        AriesCredentialBuilder b = AriesCredential.builder();
+        if (s.typeIsIndy() && s.getCredentialSchemaId() != null) {
+            b
+                    .schemaId(s.getCredentialSchemaId())
+                    .credentialDefinitionId(s.getCredentialCredDefId())
+                    .revocable(StringUtils.isNotEmpty(s.getCredentialRevRegId()));
+        } else if (s.typeIsJsonLd()) {
+            b
+                    .schemaId(s.getSchemaId())
+                    .revocable(false);
+        }
+        return b
+                .id(s.getId())
+                .issuedAt(s.calculateIssuedAt() != null ? s.calculateIssuedAt().toEpochMilli() : null)
+                .state(s.getState())
+                .isPublic(Boolean.TRUE.equals(s.getIsPublic()))
+                .issuer(issuer)
+                .connectionId(s.getPartnerConnectionId())
+                .revoked(s.getRevoked())
+                .label(s.getLabel())
+                .typeLabel(typeLabel)
+                .exchangeVersion(s.getExchangeVersion())
+                .type(s.getType())
+                .build();
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
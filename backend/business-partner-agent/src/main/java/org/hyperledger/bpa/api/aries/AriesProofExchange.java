@@ -78,6 +78,28 @@ public class AriesProofExchange {
                 .build();
     }
 
+    /**
+     * List view of a proof exchange, without the proof data and the proof request
+     *
+     * @param p {@link PartnerProof.ProofSummaryDTO}
+     * @return {@link AriesProofExchange}
+     */
+    public static AriesProofExchange from(@NonNull PartnerProof.ProofSummaryDTO p) {
+        return AriesProofExchange.builder()
+                .id(p.getId())
+                .partnerId(p.getPartnerId())
+                .proofTemplateId(p.getProofTemplateId())
+                .state(p.getState())
+                .role(p.getRole())
+                .type(p.getType())
+                .problemReport(p.getProblemReport())
+                .exchangeVersion(p.getExchangeVersion() != null ? p.getExchangeVersion() : ExchangeVersion.V1)
+                .stateToTimestamp(p.getStateToTimestamp() != null ? p.getStateToTimestamp().toApi() : null)
+                .valid(p.getValid())
+                .updatedAt(p.getUpdatedAt().toEpochMilli())
+                .build();
+    }
+
     @Data
     @Builder
     @NoArgsConstructor
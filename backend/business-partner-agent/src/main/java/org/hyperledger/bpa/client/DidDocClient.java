@@ -19,8 +19,11 @@ package org.hyperledger.bpa.client;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import io.micronaut.cache.annotation.Cacheable;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpStatus;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -35,18 +38,22 @@ import org.hyperledger.aries.api.resolver.DIDDocument;
 import org.hyperledger.aries.config.GsonConfig;
 import org.hyperledger.bpa.api.exception.NetworkException;
 import org.hyperledger.bpa.api.exception.PartnerException;
+import org.hyperledger.bpa.client.cache.ResolverCache;
+import org.hyperledger.bpa.client.cache.ResolverCacheFactory;
 import org.hyperledger.bpa.config.BPAMessageSource;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Clock;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
 /**
- * Did document and public profile resolution
+ * Did document and public profile resolution, both are cached, see
+ * {@link ResolverCache}
  */
 @Slf4j
 @Singleton
@@ -61,12 +68,37 @@ public class DidDocClient {
     @Inject
     BPAMessageSource.DefaultMessageSource msg;
 
+    @Inject
+    @Named(ResolverCacheFactory.DID_DOC)
+    ResolverCache didDocCache;
+
+    @Inject
+    @Named(ResolverCacheFactory.DOCUMENT)
+    ResolverCache documentCache;
+
+    @Inject
+    Clock clock;
+
     private final Gson gson = GsonConfig.defaultConfig();
 
     private final OkHttpClient okClient = new OkHttpClient();
 
-    @Cacheable(cacheNames = { "ur-cache" })
     public Optional<DIDDocument> getDidDocument(@NonNull String did) {
+        return didDocCache.get(did, (key, previous) -> resolveDid(key)
+                .map(doc -> new ResolverCache.Entry(gson.toJson(doc), null, null, clock.instant()))
+                .orElse(null))
+                .map(json -> gson.fromJson(json, DIDDocument.class));
+    }
+
+    public Optional<VerifiablePresentation<VerifiableIndyCredential>> getPublicProfile(String url) {
+        return call(url, VP_TYPE);
+    }
+
+    public <T> Optional<T> call(String url, Type type) {
+        return documentCache.get(url, this::fetch).map(body -> gson.fromJson(body, type));
+    }
+
+    private Optional<DIDDocument> resolveDid(@NonNull String did) {
         try {
             return ac.resolverResolveDid(did);
         } catch (IOException e) {
@@ -77,22 +109,29 @@ public class DidDocClient {
         }
     }
 
-    public Optional<VerifiablePresentation<VerifiableIndyCredential>> getPublicProfile(String url) {
-        return call(url, VP_TYPE);
-    }
-
-    public <T> Optional<T> call(String url, Type type) {
-        Optional<T> result = Optional.empty();
+    /**
+     * Fetches the document, if there is a previous entry it is revalidated with its
+     * ETag or Last-Modified header.
+     */
+    private ResolverCache.Entry fetch(@NonNull String url, @Nullable ResolverCache.Entry previous) {
+        ResolverCache.Entry result = null;
         try {
             URL url2 = new URL(url);
-            Request request = new Request.Builder()
-                    .url(url2.toString())
-                    .build();
-            try (Response response = okClient.newCall(request).execute()) {
-                if (response.isSuccessful() && response.body() != null) {
+            Request.Builder request = new Request.Builder()
+                    .url(url2.toString());
+            if (previous != null && previous.etag() != null) {
+                request.header(HttpHeaders.IF_NONE_MATCH, previous.etag());
+            }
+            if (previous != null && previous.lastModified() != null) {
+                request.header(HttpHeaders.IF_MODIFIED_SINCE, previous.lastModified());
+            }
+            try (Response response = okClient.newCall(request.build()).execute()) {
+                if (previous != null && response.code() == HttpStatus.NOT_MODIFIED.getCode()) {
+                    result = previous.revalidated(clock.instant());
+                } else if (response.isSuccessful() && response.body() != null) {
                     String body = Objects.requireNonNull(response.body()).string();
-                    T md = gson.fromJson(body, type);
-                    result = Optional.of(md);
+                    result = new ResolverCache.Entry(body, response.header(HttpHeaders.ETAG),
+                            response.header(HttpHeaders.LAST_MODIFIED), clock.instant());
                 } else {
                     log.warn("Could not resolve public profile: {}, {}", response.code(), response.message());
                 }
@@ -81,7 +81,27 @@ public class LedgerExplorerClient {
      * @return optional list of {@link PartnerCredentialType}
      */
     public Optional<List<PartnerCredentialType>> queryCredentialDefinitions(@NonNull String query) {
-        Optional<List<PartnerCredentialType>> result = Optional.empty();
+        return queryCredentialDefinitionTxns(query, 0).map(txns -> txns
+                .stream()
+                .map(TxnMetadata::getTxnId)
+                .distinct()
+                .map(PartnerCredentialType::fromCredDefId)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Query the ledger explorer for the credential definition transactions that
+     * were written after the given ledger transaction. The explorer can not filter
+     * by sequence number, so older transactions are dropped on the client side.
+     *
+     * @param query      query can be either a did or a transaction id.
+     * @param afterSeqNo ledger sequence number of the last known transaction, 0 to
+     *                   get all
+     * @return optional list of {@link TxnMetadata}, the txnId is the credential
+     *         definition id
+     */
+    public Optional<List<TxnMetadata>> queryCredentialDefinitionTxns(@NonNull String query, int afterSeqNo) {
+        Optional<List<TxnMetadata>> result = Optional.empty();
 
         if (StringUtils.isEmpty(url)) {
             log.error("The system property: 'bpa.ledger.browser' is not set");
@@ -101,14 +121,12 @@ public class LedgerExplorerClient {
                 if (response.isSuccessful() && response.body() != null) {
                     String body = response.body().string();
                     LedgerQueryResult md = mapper.readValue(body, LedgerQueryResult.class);
-                    List<PartnerCredentialType> credDefIds = md.getResults()
+                    List<TxnMetadata> txns = md.getResults()
                             .stream()
                             .map(DomainTransaction::getTxnMetadata)
-                            .map(TxnMetadata::getTxnId)
-                            .distinct()
-                            .map(PartnerCredentialType::fromCredDefId)
+                            .filter(t -> t.getSeqNo() == null || t.getSeqNo() > afterSeqNo)
                             .collect(Collectors.toList());
-                    result = Optional.of(credDefIds);
+                    result = Optional.of(txns);
                 } else {
                     log.warn("Could not query ledger: {}, {}", response.code(), response.message());
                 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client.cache;
+
+import io.micronaut.context.annotation.Requires;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.bpa.persistence.repository.ResolverCacheEntryRepository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps the resolver cache entries in postgres, only active if
+ * bpa.resolver.cache.persistent is set
+ */
+@Slf4j
+@Singleton
+@Requires(property = "bpa.resolver.cache.persistent", value = "true")
+public class JdbcResolverCacheStore implements ResolverCacheStore {
+
+    @Inject
+    ResolverCacheEntryRepository repo;
+
+    @Override
+    public Optional<ResolverCache.Entry> find(@NonNull String cacheName, @NonNull String key) {
+        try {
+            return repo.findByCacheNameAndCacheKey(cacheName, key)
+                    .map(e -> new ResolverCache.Entry(e.getValue(), e.getEtag(), e.getLastModified(),
+                            e.getFetchedAt()));
+        } catch (Exception e) {
+            log.warn("Could not read {} entry: {}", cacheName, key, e);
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void save(@NonNull String cacheName, @NonNull String key, @NonNull ResolverCache.Entry entry) {
+        try {
+            repo.upsert(UUID.randomUUID(), cacheName, key, entry.value(), entry.etag(), entry.lastModified(),
+                    entry.fetchedAt());
+        } catch (Exception e) {
+            log.warn("Could not persist {} entry: {}", cacheName, key, e);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.core.annotation.Nullable;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Two level cache for resolved documents, entries are held in memory and,
+ * optionally, in a {@link ResolverCacheStore} so that they survive a restart.
+ * Fresh entries are served directly. Entries that are older than the ttl, but
+ * still within the stale period, are served as well while a refresh runs in the
+ * background. Older entries, or misses, are loaded on the calling thread.
+ * Concurrent loads of the same key share one call to the loader, and the loader
+ * gets the previous entry, so that it can revalidate it, e.g. with an ETag,
+ * instead of fetching it again.
+ */
+@Slf4j
+public class ResolverCache {
+
+    static final String METRIC_REQUESTS = "bpa.resolver.cache.requests";
+
+    /**
+     * Cached value, stored as a string so that it can be persisted as is
+     *
+     * @param value        the cached value
+     * @param etag         ETag header of the response, if any
+     * @param lastModified Last-Modified header of the response, if any
+     * @param fetchedAt    when the value was fetched or revalidated
+     */
+    public record Entry(@NonNull String value, @Nullable String etag, @Nullable String lastModified,
+            @NonNull Instant fetchedAt) {
+
+        public Entry revalidated(@NonNull Instant at) {
+            return new Entry(value, etag, lastModified, at);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param key      cache key
+         * @param previous the expired entry, if any, to revalidate
+         * @return the fresh or the revalidated entry, null if the key can not be
+         *         resolved, which is not cached
+         */
+        @Nullable
+        Entry load(@NonNull String key, @Nullable Entry previous);
+    }
+
+    private final String name;
+
+    private final Duration ttl;
+
+    private final Duration maxStale;
+
+    private final Clock clock;
+
+    private final Executor refresher;
+
+    @Nullable
+    private final ResolverCacheStore store;
+
+    private final Cache<String, Entry> entries;
+
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter staleHits;
+    private final Counter misses;
+
+    public ResolverCache(@NonNull String name, @NonNull Duration ttl, @NonNull Duration maxStale, long maxSize,
+            @NonNull Clock clock, @NonNull Executor refresher, @Nullable ResolverCacheStore store,
+            @NonNull MeterRegistry registry) {
+        this.name = name;
+        this.ttl = ttl;
+        this.maxStale = maxStale;
+        this.clock = clock;
+        this.refresher = refresher;
+        this.store = store;
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+        this.hits = counter(registry, "hit");
+        this.staleHits = counter(registry, "stale");
+        this.misses = counter(registry, "miss");
+    }
+
+    /**
+     * @param key    cache key
+     * @param loader {@link Loader} that is called on a miss or to refresh
+     * @return the cached or loaded value
+     */
+    public Optional<String> get(@NonNull String key, @NonNull Loader loader) {
+        Entry entry = entries.getIfPresent(key);
+        if (entry == null && store != null) {
+            entry = store.find(name, key).orElse(null);
+            if (entry != null) {
+                entries.put(key, entry);
+            }
+        }
+        if (entry != null) {
+            Duration age = Duration.between(entry.fetchedAt(), clock.instant());
+            if (age.compareTo(ttl) <= 0) {
+                hits.increment();
+                return Optional.of(entry.value());
+            }
+            if (age.compareTo(ttl.plus(maxStale)) <= 0) {
+                staleHits.increment();
+                refresh(key, entry, loader);
+                return Optional.of(entry.value());
+            }
+        }
+        misses.increment();
+        try {
+            return Optional.ofNullable(load(key, entry, loader, null).join()).map(Entry::value);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(@NonNull String key) {
+        entries.invalidate(key);
+    }
+
+    private void refresh(@NonNull String key, @NonNull Entry stale, @NonNull Loader loader) {
+        load(key, stale, loader, refresher).exceptionally(e -> {
+            log.warn("Could not refresh {} entry: {}, serving the stale entry", name, key, e);
+            return null;
+        });
+    }
+
+    /**
+     * @param executor runs the loader, or the calling thread if null
+     */
+    private CompletableFuture<Entry> load(@NonNull String key, @Nullable Entry previous, @NonNull Loader loader,
+            @Nullable Executor executor) {
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            return running;
+        }
+        Runnable task = () -> {
+            try {
+                Entry loaded = loader.load(key, previous);
+                if (loaded != null) {
+                    entries.put(key, loaded);
+                    persist(key, loaded);
+                }
+                created.complete(loaded);
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, created);
+            }
+        };
+        if (executor == null) {
+            task.run();
+        } else {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(key, created);
+                created.completeExceptionally(e);
+            }
+        }
+        return created;
+    }
+
+    private void persist(@NonNull String key, @NonNull Entry entry) {
+        if (store != null) {
+            try {
+                refresher.execute(() -> store.save(name, key, entry));
+            } catch (RejectedExecutionException e) {
+                log.debug("Not persisting {} entry: {}, shutting down", name, key);
+            }
+        }
+    }
+
+    private Counter counter(@NonNull MeterRegistry registry, @NonNull String result) {
+        return Counter.builder(METRIC_REQUESTS)
+                .description("Resolver cache requests")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(registry);
+    }
+}
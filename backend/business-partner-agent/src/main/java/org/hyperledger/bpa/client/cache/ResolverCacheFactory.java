@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.hyperledger.bpa.impl.util.NamedThreadFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the resolver caches, they share one pool for background refreshes and
+ * writes to the persistent store.
+ */
+@Factory
+public class ResolverCacheFactory {
+
+    public static final String DID_DOC = "did-doc";
+    public static final String DOCUMENT = "document";
+    public static final String VERIFICATION = "verification";
+
+    private static final String REFRESHER = "resolver-cache-refresh";
+
+    @Singleton
+    @Named(REFRESHER)
+    @Bean(preDestroy = "shutdownNow")
+    ExecutorService resolverCacheRefresher(@Value("${bpa.resolver.cache.refresh-threads}") int threads) {
+        return Executors.newFixedThreadPool(threads, new NamedThreadFactory(REFRESHER));
+    }
+
+    /** did documents resolved through aca-py */
+    @Singleton
+    @Named(DID_DOC)
+    ResolverCache didDocCache(
+            @Value("${bpa.resolver.cache.did-doc.ttl}") Duration ttl,
+            @Value("${bpa.resolver.cache.did-doc.max-stale}") Duration maxStale,
+            @Value("${bpa.resolver.cache.did-doc.max-size}") long maxSize,
+            Clock clock, @Named(REFRESHER) ExecutorService refresher, @Nullable ResolverCacheStore store,
+            MeterRegistry registry) {
+        return new ResolverCache(DID_DOC, ttl, maxStale, maxSize, clock, refresher, store, registry);
+    }
+
+    /** documents fetched over http, e.g. public profiles and json-ld contexts */
+    @Singleton
+    @Named(DOCUMENT)
+    ResolverCache documentCache(
+            @Value("${bpa.resolver.cache.document.ttl}") Duration ttl,
+            @Value("${bpa.resolver.cache.document.max-stale}") Duration maxStale,
+            @Value("${bpa.resolver.cache.document.max-size}") long maxSize,
+            Clock clock, @Named(REFRESHER) ExecutorService refresher, @Nullable ResolverCacheStore store,
+            MeterRegistry registry) {
+        return new ResolverCache(DOCUMENT, ttl, maxStale, maxSize, clock, refresher, store, registry);
+    }
+
+    /**
+     * signature verification results, keyed by the verkey and a hash of the
+     * presentation, so they never change for a key
+     */
+    @Singleton
+    @Named(VERIFICATION)
+    ResolverCache verificationCache(
+            @Value("${bpa.resolver.cache.verification.ttl}") Duration ttl,
+            @Value("${bpa.resolver.cache.verification.max-size}") long maxSize,
+            Clock clock, @Named(REFRESHER) ExecutorService refresher, @Nullable ResolverCacheStore store,
+            MeterRegistry registry) {
+        return new ResolverCache(VERIFICATION, ttl, Duration.ZERO, maxSize, clock, refresher, store, registry);
+    }
+}
@@ -31,8 +31,11 @@ import org.hyperledger.aries.AriesClient;
 import org.hyperledger.aries.AriesWebSocketClient;
 import org.hyperledger.aries.config.UriUtil;
 import org.hyperledger.aries.webhook.EventHandler;
+import org.hyperledger.aries.webhook.IEventHandler;
+import org.hyperledger.bpa.impl.aries.AriesEventJournal;
 
 import java.util.List;
+import java.util.Optional;
 
 @Factory
 @Requires(notEnv = Environment.TEST)
@@ -51,12 +54,17 @@ public class AriesClientFactory {
                 .build();
     }
 
+    /**
+     * If the event journal is enabled the websocket only feeds the journal, which
+     * then replays the events through the handlers.
+     */
     @Bean(preDestroy = "shutdown")
-    public AriesWebSocketClient ariesWebSocketClient(List<EventHandler> handlers) {
+    public AriesWebSocketClient ariesWebSocketClient(List<EventHandler> handlers,
+            Optional<AriesEventJournal> journal) {
         return AriesWebSocketClient.builder()
                 .url(UriUtil.httpToWs(url))
                 .apiKey(apiKey)
-                .handler(handlers)
+                .handler(journal.<List<? extends IEventHandler>>map(List::of).orElse(handlers))
                 .reactiveBufferSize(20)
                 .build();
     }
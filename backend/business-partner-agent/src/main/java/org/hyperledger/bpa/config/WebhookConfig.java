@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * Tuning of the outgoing webhook delivery, see: bpa.webhook in application.yml
+ */
+@Data
+@ConfigurationProperties("bpa.webhook")
+public class WebhookConfig {
+
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(10);
+
+    /** max parallel requests to a single webhook endpoint */
+    private Integer maxRequestsPerEndpoint = 5;
+
+    /** how long registered webhooks are cached if not changed through the api */
+    private Duration registryRefresh = Duration.ofMinutes(5);
+
+    /**
+     * attempts including the first one, before a delivery is moved to the dead
+     * letters
+     */
+    private Integer maxAttempts = 8;
+    private Duration initialBackoff = Duration.ofSeconds(30);
+    private Duration maxBackoff = Duration.ofHours(1);
+
+    /** consecutive failures after which an endpoint is not called anymore */
+    private Integer circuitBreakerThreshold = 5;
+    private Duration circuitBreakerOpen = Duration.ofMinutes(1);
+}
@@ -30,6 +30,8 @@ import io.micronaut.security.annotation.Secured;
 import io.micronaut.security.rules.SecurityRule;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.inject.Inject;
+import org.hyperledger.bpa.controller.api.CursorCommand;
+import org.hyperledger.bpa.controller.api.CursorPage;
 import org.hyperledger.bpa.controller.api.PaginationCommand;
 import org.hyperledger.bpa.controller.api.activity.ActivityItem;
 import org.hyperledger.bpa.controller.api.activity.ActivitySearchParameters;
@@ -61,4 +63,18 @@ public class ActivitiesController {
                 pc != null ? pc.toPageable() : Pageable.unpaged()));
     }
 
+    /**
+     * List Items by cursor, newest updates first
+     *
+     * @param cc         {@link CursorCommand}
+     * @param parameters ActivitySearchParameters Filters for list
+     * @return {@link CursorPage} of {@link ActivityItem}
+     */
+    @Get("/cursor{?cc*}")
+    public HttpResponse<CursorPage<ActivityItem>> listActivitiesByCursor(
+            @Valid @Nullable CursorCommand cc,
+            @RequestBean @Valid ActivitySearchParameters parameters) {
+        return HttpResponse.ok(activityManager.getItems(parameters, CursorCommand.toKeyset(cc)));
+    }
+
 }
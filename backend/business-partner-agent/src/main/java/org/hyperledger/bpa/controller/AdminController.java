@@ -36,6 +36,7 @@ import org.hyperledger.bpa.api.exception.WrongApiUsageException;
 import org.hyperledger.bpa.config.RuntimeConfig;
 import org.hyperledger.bpa.controller.api.admin.*;
 import org.hyperledger.bpa.impl.TagService;
+import org.hyperledger.bpa.impl.aries.connection.StaleConnectionCleanup;
 import org.hyperledger.bpa.impl.aries.schema.RestrictionsManager;
 import org.hyperledger.bpa.impl.aries.schema.SchemaService;
 import org.hyperledger.bpa.impl.mode.indy.EndpointService;
@@ -67,6 +68,9 @@ public class AdminController {
     @Inject
     RuntimeConfig config;
 
+    @Inject
+    StaleConnectionCleanup staleConnectionCleanup;
+
     /**
      * List configured schemas
      *
@@ -314,4 +318,24 @@ public class AdminController {
         }
         return HttpResponse.notFound();
     }
-}
\ No newline at end of file
+
+    /**
+     * Dry run: lists the aca-py connections that do not belong to any partner
+     *
+     * @return {@link StaleConnectionReport}
+     */
+    @Get("/connections/stale")
+    public HttpResponse<StaleConnectionReport> getStaleConnections() {
+        return HttpResponse.ok(staleConnectionCleanup.report());
+    }
+
+    /**
+     * Removes the aca-py connections that do not belong to any partner
+     *
+     * @return {@link StaleConnectionReport}
+     */
+    @Delete("/connections/stale")
+    public HttpResponse<StaleConnectionReport> removeStaleConnections() {
+        return HttpResponse.ok(staleConnectionCleanup.removeStale());
+    }
+}
@@ -30,12 +30,16 @@ import io.micronaut.validation.Validated;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.inject.Inject;
+import org.hyperledger.aries.api.ExchangeVersion;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
 import org.hyperledger.bpa.api.aries.SchemaAPI;
+import org.hyperledger.bpa.controller.api.CursorCommand;
+import org.hyperledger.bpa.controller.api.CursorPage;
 import org.hyperledger.bpa.controller.api.PaginationCommand;
 import org.hyperledger.bpa.controller.api.invitation.APICreateInvitationResponse;
 import org.hyperledger.bpa.controller.api.issuer.*;
 import org.hyperledger.bpa.impl.aries.creddef.CredDefManager;
+import org.hyperledger.bpa.impl.aries.credential.BulkIssuanceManager;
 import org.hyperledger.bpa.impl.aries.credential.IssuerManager;
 import org.hyperledger.bpa.impl.aries.schema.SchemaService;
 import org.hyperledger.bpa.impl.oob.OOBCredentialOffer;
@@ -65,6 +69,9 @@ public class IssuerController {
     @Inject
     SchemaService schemaService;
 
+    @Inject
+    BulkIssuanceManager bulk;
+
     /**
      * Create a new schema on the indy ledger and import it
      *
@@ -124,6 +131,54 @@ public class IssuerController {
         return HttpResponse.ok(exchangeId);
     }
 
+    /**
+     * Bulk issuance: Issuer sends many indy credentials within one job, progress is
+     * pushed via websocket
+     *
+     * @param req {@link BulkIssueCredentialRequest}
+     * @return {@link BulkIssuanceJobAPI}
+     */
+    @Post("/issue-credential/bulk")
+    public HttpResponse<BulkIssuanceJobAPI> issueCredentialsBulk(@Valid @Body BulkIssueCredentialRequest req) {
+        return HttpResponse.ok(bulk.submit(req));
+    }
+
+    /**
+     * Bulk issuance: Same as the json variant, the first row is the header
+     * containing partnerId, credDefId and the attribute names
+     *
+     * @param csv             the csv document
+     * @param exchangeVersion {@link ExchangeVersion}
+     * @return {@link BulkIssuanceJobAPI}
+     */
+    @Post(value = "/issue-credential/bulk", consumes = "text/csv")
+    public HttpResponse<BulkIssuanceJobAPI> issueCredentialsBulkCsv(@Body String csv,
+            @Parameter(description = "exchange version") @Nullable @QueryValue ExchangeVersion exchangeVersion) {
+        return HttpResponse.ok(bulk.submit(csv, exchangeVersion));
+    }
+
+    /**
+     * Bulk issuance: Get the state of a job, including the failed items
+     *
+     * @param id {@link UUID} the job id
+     * @return {@link BulkIssuanceJobAPI}
+     */
+    @Get("/issue-credential/bulk/{id}")
+    public HttpResponse<BulkIssuanceJobAPI> getBulkIssuanceJob(@PathVariable UUID id) {
+        return HttpResponse.ok(bulk.getJob(id));
+    }
+
+    /**
+     * Bulk issuance: Continue sending the pending items of an interrupted job
+     *
+     * @param id {@link UUID} the job id
+     * @return {@link BulkIssuanceJobAPI}
+     */
+    @Put("/issue-credential/bulk/{id}/resume")
+    public HttpResponse<BulkIssuanceJobAPI> resumeBulkIssuanceJob(@PathVariable UUID id) {
+        return HttpResponse.ok(bulk.resume(id));
+    }
+
     /**
      * Issue OOB credential step 1 - prepares credential offer and returns URL for
      * use within the barcode
@@ -154,6 +209,22 @@ public class IssuerController {
                 pc != null ? pc.toPageable() : Pageable.unpaged()));
     }
 
+    /**
+     * List issued or received credentials by cursor, newest updates first
+     *
+     * @param cc        {@link CursorCommand}
+     * @param partnerId partner id
+     * @param role      {@link CredentialExchangeRole}
+     * @return {@link CursorPage} of {@link CredEx}
+     */
+    @Get("/exchanges/cursor{?cc*}")
+    public HttpResponse<CursorPage<CredEx>> listCredentialExchangesByCursor(
+            @Valid @Nullable CursorCommand cc,
+            @Parameter(description = "issuer or holder") @Nullable @QueryValue CredentialExchangeRole role,
+            @Parameter(description = "partner id") @Nullable @QueryValue UUID partnerId) {
+        return HttpResponse.ok(im.listCredentialExchanges(role, partnerId, CursorCommand.toKeyset(cc)));
+    }
+
     /**
      * Get credential exchange
      *
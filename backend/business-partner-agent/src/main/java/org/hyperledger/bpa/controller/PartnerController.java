@@ -37,6 +37,8 @@ import org.hyperledger.bpa.api.PartnerAPI;
 import org.hyperledger.bpa.api.aries.AriesProofExchange;
 import org.hyperledger.bpa.api.exception.WrongApiUsageException;
 import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.CursorCommand;
+import org.hyperledger.bpa.controller.api.CursorPage;
 import org.hyperledger.bpa.controller.api.PaginationCommand;
 import org.hyperledger.bpa.controller.api.partner.*;
 import org.hyperledger.bpa.controller.api.proof.PresentationRequestVersion;
@@ -113,6 +115,19 @@ public class PartnerController {
         return HttpResponse.ok(pm.getAll(pageable));
     }
 
+    /**
+     * Get known partners by cursor, newest updates first
+     *
+     * @param cc              {@link CursorCommand}
+     * @param showInvitations Filter Partners by connection state
+     * @return {@link CursorPage} of partners
+     */
+    @Get("/cursor{?cc*}")
+    public HttpResponse<CursorPage<PartnerAPI>> getPartnersByCursor(@Valid @Nullable CursorCommand cc,
+            @QueryValue(defaultValue = "false") @Nullable Boolean showInvitations) {
+        return HttpResponse.ok(pm.getAll(Boolean.TRUE.equals(showInvitations), CursorCommand.toKeyset(cc)));
+    }
+
     /**
      * Get partner by id
      *
@@ -31,7 +31,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.inject.Inject;
 import org.hyperledger.bpa.api.CredentialType;
 import org.hyperledger.bpa.controller.api.PaginationCommand;
+import org.hyperledger.bpa.controller.api.prooftemplates.ProofRequestFanOutJob;
+import org.hyperledger.bpa.controller.api.prooftemplates.ProofRequestFanOutRequest;
 import org.hyperledger.bpa.controller.api.prooftemplates.ProofTemplate;
+import org.hyperledger.bpa.impl.aries.prooftemplates.ProofRequestFanOut;
 import org.hyperledger.bpa.impl.aries.prooftemplates.ProofTemplateManager;
 import org.hyperledger.bpa.persistence.model.BPAProofTemplate;
 import org.hyperledger.bpa.persistence.model.prooftemplate.ValueOperators;
@@ -50,6 +53,9 @@ public class ProofTemplateController {
     @Inject
     ProofTemplateManager proofTemplateManager;
 
+    @Inject
+    ProofRequestFanOut fanOut;
+
     /**
      * List configured templates
      *
@@ -120,4 +126,29 @@ public class ProofTemplateController {
         proofTemplateManager.removeProofTemplate(id);
         return HttpResponse.ok();
     }
+
+    /**
+     * Send a proof request based on the template to all partners that have the tag,
+     * or to the listed partners. Runs in the background.
+     *
+     * @param id  proof template id
+     * @param req {@link ProofRequestFanOutRequest}
+     * @return {@link ProofRequestFanOutJob}
+     */
+    @Post("/{id}/fan-out")
+    public HttpResponse<ProofRequestFanOutJob> fanOutProofRequest(@PathVariable UUID id,
+            @Body ProofRequestFanOutRequest req) {
+        return HttpResponse.ok(fanOut.submit(id, req));
+    }
+
+    /**
+     * Get the state of a proof request fan-out
+     *
+     * @param jobId fan-out job id
+     * @return {@link ProofRequestFanOutJob}
+     */
+    @Get("/fan-out/{jobId}")
+    public HttpResponse<ProofRequestFanOutJob> getFanOutJob(@PathVariable UUID jobId) {
+        return HttpResponse.ok(fanOut.getJob(jobId));
+    }
 }
@@ -17,7 +17,11 @@
  */
 package org.hyperledger.bpa.controller;
 
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.MutableHttpResponse;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
 import io.micronaut.scheduling.TaskExecutors;
@@ -25,15 +29,19 @@ import io.micronaut.scheduling.annotation.ExecuteOn;
 import io.micronaut.security.annotation.Secured;
 import io.micronaut.security.rules.SecurityRule;
 import io.micronaut.validation.Validated;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.inject.Inject;
-import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import lombok.NonNull;
 import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.api.resolver.DIDDocument;
 import org.hyperledger.bpa.impl.DidDocManager;
+import org.hyperledger.bpa.impl.PublicDocumentCache;
 import org.hyperledger.bpa.impl.aries.jsonld.VPManager;
 
-import java.util.Optional;
+import java.util.Locale;
 
 @Controller
 @Tag(name = "Public Web Profile")
@@ -42,28 +50,62 @@ import java.util.Optional;
 @ExecuteOn(TaskExecutors.IO)
 public class PublicProfileController {
 
+    private static final String GZIP = "gzip";
+
     @Inject
     VPManager vpMgmt;
 
     @Inject
     DidDocManager didDocManager;
 
-    @Get("/profile.jsonld")
-    public HttpResponse<VerifiablePresentation<VerifiableIndyCredential>> getMasterdata() {
-        Optional<VerifiablePresentation<VerifiableIndyCredential>> vp = vpMgmt.getVerifiablePresentation();
-        if (vp.isPresent()) {
-            return HttpResponse.ok(vp.get());
-        }
-        return HttpResponse.notFound();
+    @Inject
+    PublicDocumentCache publicDocs;
+
+    /**
+     * The signed public profile, supports conditional requests with If-None-Match
+     *
+     * @param request {@link HttpRequest}
+     * @return {@link VerifiablePresentation} as json
+     */
+    @Get(value = "/profile.jsonld", produces = MediaType.APPLICATION_JSON)
+    @ApiResponse(content = @Content(schema = @Schema(implementation = VerifiablePresentation.class)))
+    public HttpResponse<byte[]> getMasterdata(HttpRequest<?> request) {
+        return publicDocs.getProfile(vpMgmt::getVerifiablePresentation)
+                .map(s -> respond(request, s))
+                .orElseGet(HttpResponse::notFound);
     }
 
-    @Get("/.well-known/did.json")
-    public HttpResponse<DIDDocument> getDid() {
+    /**
+     * The did document, supports conditional requests with If-None-Match
+     *
+     * @param request {@link HttpRequest}
+     * @return {@link DIDDocument} as json
+     */
+    @Get(value = "/.well-known/did.json", produces = MediaType.APPLICATION_JSON)
+    @ApiResponse(content = @Content(schema = @Schema(implementation = DIDDocument.class)))
+    public HttpResponse<byte[]> getDid(HttpRequest<?> request) {
+        return publicDocs.getDidDocument(didDocManager::getDidDocument)
+                .map(s -> respond(request, s))
+                .orElseGet(HttpResponse::notFound);
+    }
 
-        Optional<DIDDocument> api = didDocManager.getDidDocument();
-        if (api.isPresent()) {
-            return HttpResponse.ok(api.get());
+    public static MutableHttpResponse<byte[]> respond(@NonNull HttpRequest<?> request,
+            @NonNull PublicDocumentCache.Snapshot snapshot) {
+        HttpHeaders headers = request.getHeaders();
+        if (snapshot.matches(headers.get(HttpHeaders.IF_NONE_MATCH))) {
+            return HttpResponse.<byte[]>notModified()
+                    .header(HttpHeaders.ETAG, snapshot.etag());
+        }
+        MutableHttpResponse<byte[]> response = HttpResponse.<byte[]>ok()
+                .header(HttpHeaders.ETAG, snapshot.etag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON_TYPE);
+        String acceptEncoding = headers.get(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.toLowerCase(Locale.US).contains(GZIP)) {
+            return response
+                    .header(HttpHeaders.CONTENT_ENCODING, GZIP)
+                    .body(snapshot.gzip());
         }
-        return HttpResponse.notFound();
+        return response.body(snapshot.json());
     }
 }
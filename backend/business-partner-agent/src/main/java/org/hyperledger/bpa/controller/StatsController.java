@@ -17,9 +17,11 @@
  */
 package org.hyperledger.bpa.controller;
 
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.QueryValue;
 import io.micronaut.scheduling.TaskExecutors;
 import io.micronaut.scheduling.annotation.ExecuteOn;
 import io.micronaut.security.annotation.Secured;
@@ -29,6 +31,8 @@ import jakarta.inject.Inject;
 import org.hyperledger.bpa.controller.api.stats.BPAStats;
 import org.hyperledger.bpa.impl.StatsService;
 
+import java.time.Duration;
+
 @Controller("/api/status")
 @Tag(name = "BPA Status")
 @Secured(SecurityRule.IS_AUTHENTICATED)
@@ -41,10 +45,12 @@ public class StatsController {
     /**
      * Get simple BPA information and usage statistics
      *
+     * @param period optional look back period of the period totals, defaults to one
+     *               day, e.g. 7d or P30D
      * @return {@link BPAStats}
      */
     @Get
-    public HttpResponse<BPAStats> getStats() {
-        return HttpResponse.ok(stats.collectStats());
+    public HttpResponse<BPAStats> getStats(@Nullable @QueryValue Duration period) {
+        return HttpResponse.ok(stats.collectStats(period != null ? period : StatsService.DEFAULT_PERIOD));
     }
 }
@@ -32,6 +32,8 @@ import jakarta.inject.Inject;
 import org.hyperledger.bpa.api.CredentialType;
 import org.hyperledger.bpa.api.MyDocumentAPI;
 import org.hyperledger.bpa.api.aries.AriesCredential;
+import org.hyperledger.bpa.controller.api.CursorCommand;
+import org.hyperledger.bpa.controller.api.CursorPage;
 import org.hyperledger.bpa.controller.api.PaginationCommand;
 import org.hyperledger.bpa.controller.api.issuer.DeclineExchangeRequest;
 import org.hyperledger.bpa.controller.api.wallet.WalletCredentialRequest;
@@ -145,6 +147,18 @@ public class WalletController {
                 pc != null ? pc.toPageable() : Pageable.unpaged()));
     }
 
+    /**
+     * Aries: List wallet credentials by cursor, newest updates first
+     *
+     * @param cc {@link CursorCommand} multi value list of types to filter
+     * @return {@link CursorPage} of {@link AriesCredential}
+     */
+    @Get("/credential/cursor{?cc*}")
+    public HttpResponse<CursorPage<AriesCredential>> getCredentialsByCursor(@Valid @Nullable CursorCommand cc) {
+        return HttpResponse.ok(holderCredMgmt.listHeldCredentials(
+                cc != null ? cc.getTypes() : null, CursorCommand.toKeyset(cc)));
+    }
+
     /**
      * Aries: Get wallet credential by id
      *
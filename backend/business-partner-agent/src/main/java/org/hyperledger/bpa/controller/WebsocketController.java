@@ -50,11 +50,18 @@ public class WebsocketController {
         this.broadcaster = broadcaster;
     }
 
+    /**
+     * Replays the messages that were stored while no frontend was connected. A
+     * reconnecting frontend can pass the id of the last message it received as
+     * query parameter lastSeen, to not get it again.
+     *
+     * @param session {@link WebSocketSession}
+     */
     @OnOpen
     public void onOpen(WebSocketSession session) {
         log.debug("New websocket session: {}", session.getId());
         msg.subscribe(session);
-        msg.sendStored();
+        msg.sendStored(session.getRequestParameters().get("lastSeen", Long.class).orElse(null));
     }
 
     @OnMessage
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller.api;
+
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.core.convert.format.Format;
+import io.micronaut.http.annotation.QueryValue;
+import io.swagger.v3.oas.annotations.Parameter;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.persistence.repository.Keyset;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.List;
+
+/**
+ * Cursor based paging, the alternative to {@link PaginationCommand} for
+ * infinite scrolling and exports. Items are ordered by last update, newest
+ * first, and there is no total count.
+ */
+@Data
+@NoArgsConstructor
+@Introspected
+public class CursorCommand {
+
+    public static final int DEFAULT_SIZE = 50;
+
+    @Nullable
+    @QueryValue
+    @Parameter(description = "next cursor from the previous page, empty for the first page")
+    private String after;
+
+    @Nullable
+    @QueryValue
+    @Min(1)
+    @Max(1000)
+    private Integer size;
+
+    @Nullable
+    @Parameter(description = "types filter")
+    @QueryValue
+    @Format("MULTI")
+    private List<CredentialType> types;
+
+    public Keyset toKeyset() {
+        return Keyset.decode(after, size != null ? size : DEFAULT_SIZE);
+    }
+
+    public static Keyset toKeyset(@Nullable CursorCommand cc) {
+        return cc != null ? cc.toKeyset() : Keyset.first(DEFAULT_SIZE);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller.api;
+
+import io.micronaut.core.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import org.hyperledger.bpa.persistence.repository.Keyset;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * One page of a cursor based list, see {@link CursorCommand}
+ *
+ * @param <T> item type
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CursorPage<T> {
+
+    private List<T> content;
+
+    /** cursor to get the next page, null if this is the last page */
+    @Nullable
+    private String next;
+
+    private Integer size;
+
+    /**
+     * @param entities  up to {@link Keyset#fetchSize()} entities in keyset order
+     * @param keyset    {@link Keyset} the entities were selected with
+     * @param updatedAt updated at accessor
+     * @param id        id accessor
+     * @param mapper    converts the entity into its api representation
+     * @param <E>       entity type
+     * @param <T>       api type
+     * @return {@link CursorPage}
+     */
+    public static <E, T> CursorPage<T> of(@NonNull List<E> entities, @NonNull Keyset keyset,
+            @NonNull Function<E, Instant> updatedAt, @NonNull Function<E, UUID> id,
+            @NonNull Function<E, T> mapper) {
+        boolean hasNext = entities.size() > keyset.limit();
+        List<E> page = hasNext ? entities.subList(0, keyset.limit()) : entities;
+        String next = null;
+        if (hasNext) {
+            E last = page.get(page.size() - 1);
+            next = Keyset.encode(updatedAt.apply(last), id.apply(last));
+        }
+        return new CursorPage<>(page.stream().map(mapper).toList(), next, keyset.limit());
+    }
+}
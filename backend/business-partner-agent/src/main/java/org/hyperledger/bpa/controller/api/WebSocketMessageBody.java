@@ -23,6 +23,8 @@ import org.hyperledger.bpa.api.PartnerAPI;
 import org.hyperledger.bpa.controller.api.partner.PartnerMessage;
 import org.hyperledger.bpa.persistence.model.ChatMessage;
 
+import java.util.List;
+
 /**
  * Websocket events
  */
@@ -51,7 +53,10 @@ public class WebSocketMessageBody {
 
     public enum WebSocketMessageType {
         ACTIVITY_NOTIFICATION,
+        /** info holds the list of messages that were sent together */
+        BATCH,
         ON_MESSAGE_RECEIVED,
+        ON_BULK_ISSUANCE_PROGRESS,
         ON_CREDENTIAL_ACCEPTED,
         ON_CREDENTIAL_ADDED,
         ON_CREDENTIAL_OFFERED,
@@ -82,6 +87,10 @@ public class WebSocketMessageBody {
                 partner);
     }
 
+    public static WebSocketMessageBody batch(@NonNull List<WebSocketMessageBody> messages) {
+        return notificationEvent(WebSocketMessageType.BATCH, null, messages, null);
+    }
+
     public static WebSocketMessageBody notificationEvent(@NonNull WebSocketMessageType type,
             @Nullable String linkId,
             @Nullable Object info,
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller.api.admin;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Result of reconciling the aca-py connections with the partners
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StaleConnectionReport {
+
+    /** true if nothing was removed */
+    private Boolean dryRun;
+    private Integer acaPyConnections;
+    private Integer partnerConnections;
+    /** aca-py connection ids that do not belong to any partner */
+    private List<String> stale;
+    private Integer removed;
+    private Integer failed;
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller.api.issuer;
+
+import io.micronaut.core.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.bpa.persistence.model.BulkIssuanceItem;
+import org.hyperledger.bpa.persistence.model.BulkIssuanceJob;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * State of a bulk issuance job, also pushed via websocket while the job is
+ * running
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIssuanceJobAPI {
+
+    private UUID id;
+    private Long createdAt;
+    private Long updatedAt;
+    private BulkIssuanceJob.JobState state;
+    private ExchangeVersion exchangeVersion;
+    private Integer total;
+    private Integer sent;
+    private Integer failed;
+    /** true if the job is running on this instance */
+    private Boolean active;
+
+    /** only set when a single job is requested */
+    @Nullable
+    private List<Failure> failures;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static final class Failure {
+        private Integer position;
+        private UUID partnerId;
+        private UUID credDefId;
+        private String errorMsg;
+
+        public static Failure from(@NonNull BulkIssuanceItem item) {
+            return Failure.builder()
+                    .position(item.getPosition())
+                    .partnerId(item.getPartnerId())
+                    .credDefId(item.getCredDefId())
+                    .errorMsg(item.getErrorMsg())
+                    .build();
+        }
+    }
+
+    public static BulkIssuanceJobAPI from(@NonNull BulkIssuanceJob job, boolean active) {
+        return BulkIssuanceJobAPI.builder()
+                .id(job.getId())
+                .createdAt(job.getCreatedAt() != null ? job.getCreatedAt().toEpochMilli() : null)
+                .updatedAt(job.getUpdatedAt() != null ? job.getUpdatedAt().toEpochMilli() : null)
+                .state(job.getState())
+                .exchangeVersion(job.getExchangeVersion())
+                .total(job.getTotal())
+                .sent(job.getSent())
+                .failed(job.getFailed())
+                .active(active)
+                .build();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller.api.issuer;
+
+import io.micronaut.core.annotation.Introspected;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.bpa.controller.api.ExchangeVersionTranslator;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Issue many indy credentials within one job
+ */
+@Introspected
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkIssueCredentialRequest implements ExchangeVersionTranslator {
+
+    /** credential exchange api version, applies to all items */
+    private ExchangeVersion exchangeVersion;
+
+    @NotEmpty
+    @Valid
+    private List<BulkIssueItem> items;
+
+    @Introspected
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static final class BulkIssueItem {
+
+        @NotNull
+        private UUID partnerId;
+
+        @NotNull
+        private UUID credDefId;
+
+        /** credential body key value pairs */
+        @NotNull
+        private Map<String, String> document;
+    }
+}
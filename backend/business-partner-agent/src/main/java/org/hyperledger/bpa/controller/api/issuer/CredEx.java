@@ -17,6 +17,7 @@
  */
 package org.hyperledger.bpa.controller.api.issuer;
 
+import io.micronaut.core.annotation.Nullable;
 import lombok.*;
 import org.apache.commons.lang3.StringUtils;
 import org.hyperledger.aries.api.ExchangeVersion;
@@ -27,6 +28,7 @@ import org.hyperledger.bpa.api.CredentialType;
 import org.hyperledger.bpa.api.PartnerAPI;
 import org.hyperledger.bpa.api.aries.SchemaAPI;
 import org.hyperledger.bpa.controller.api.ExchangeVersionTranslator;
+import org.hyperledger.bpa.impl.util.AriesStringUtil;
 import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
 
 import java.util.Map;
@@ -69,18 +71,9 @@ public class CredEx implements ExchangeVersionTranslator {
         SchemaAPI schemaAPI = db.getSchema() != null ? SchemaAPI.from(db.getSchema()) : null;
         CredDef credDef = db.getCredDef() != null ? CredDef.from(db.getCredDef())
                 : CredDef.builder().schema(schemaAPI).build();
-        String displayText = null;
-        if (schemaAPI != null) {
-            displayText = String.format("%s", schemaAPI.getLabel());
-            if (StringUtils.isNotEmpty(schemaAPI.getVersion())) {
-                displayText = displayText + String.format(" (%s)", schemaAPI.getVersion());
-            }
-            if (StringUtils.isNotBlank(credDef.getTag())) {
-                displayText = displayText + String.format(" - %s", credDef.getTag());
-            }
-        } else if (StringUtils.isNotEmpty(db.getErrorMsg())) {
-            displayText = db.getErrorMsg();
-        }
+        String displayText = schemaAPI != null
+                ? displayText(schemaAPI.getLabel(), schemaAPI.getVersion(), credDef.getTag())
+                : StringUtils.defaultIfEmpty(db.getErrorMsg(), null);
         Map<String, String> credentialAttrs;
         if (db.stateIsProposalReceived()
                 || db.stateIsProposalSent()
@@ -124,6 +117,55 @@ public class CredEx implements ExchangeVersionTranslator {
                 .build();
     }
 
+    /**
+     * List view of an exchange, without the proposal and the credential, and
+     * without the schema and the credential definition objects
+     *
+     * @param s {@link BPACredentialExchange.ExchangeSummaryDTO}
+     * @return {@link CredEx}
+     */
+    public static CredEx from(@NonNull BPACredentialExchange.ExchangeSummaryDTO s) {
+        String displayText;
+        if (s.getSchemaType() != null) {
+            String version = s.getSchemaType() == CredentialType.INDY && s.getSchemaId() != null
+                    ? AriesStringUtil.schemaGetVersion(s.getSchemaId())
+                    : null;
+            displayText = displayText(s.getSchemaLabel(), version, s.getCredDefTag());
+        } else {
+            displayText = StringUtils.defaultIfEmpty(s.getErrorMsg(), null);
+        }
+        return CredEx.builder()
+                .id(s.getId())
+                .createdAt(s.getCreatedAt().toEpochMilli())
+                .updatedAt(s.getUpdatedAt().toEpochMilli())
+                .partner(s.getPartnerId() != null ? PartnerAPI.from(s) : null)
+                .schemaId(s.getSchemaId())
+                .credentialDefinitionId(s.getCredentialDefinitionId())
+                .role(s.getRole())
+                .state(s.getState())
+                .stateToTimestamp(s.getStateToTimestamp() != null ? s.getStateToTimestamp().toApi() : null)
+                .type(s.getType())
+                .displayText(displayText)
+                .revoked(s.getRevoked())
+                .revocable(s.roleIsHolder() && s.getCredentialSchemaId() != null
+                        ? StringUtils.isNotEmpty(s.getCredentialRevRegId())
+                        : StringUtils.isNotEmpty(s.getRevRegId()))
+                .exchangeVersion(s.getExchangeVersion())
+                .errorMsg(s.getErrorMsg())
+                .build();
+    }
+
+    private static String displayText(String label, @Nullable String version, @Nullable String tag) {
+        String displayText = String.format("%s", label);
+        if (StringUtils.isNotEmpty(version)) {
+            displayText = displayText + String.format(" (%s)", version);
+        }
+        if (StringUtils.isNotBlank(tag)) {
+            displayText = displayText + String.format(" - %s", tag);
+        }
+        return displayText;
+    }
+
     private static Boolean checkIfRevocable(@NonNull BPACredentialExchange db) {
         if (db.roleIsHolder() && db.getIndyCredential() != null) {
             return StringUtils.isNotEmpty(db.getIndyCredential().getRevRegId());
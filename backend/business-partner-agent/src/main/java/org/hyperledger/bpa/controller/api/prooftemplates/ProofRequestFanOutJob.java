@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller.api.prooftemplates;
+
+import io.micronaut.core.annotation.Nullable;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * State of a proof request fan-out, jobs are only kept in memory
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProofRequestFanOutJob {
+
+    private UUID id;
+    private UUID templateId;
+    private Long createdAt;
+    private Boolean done;
+    private Integer total;
+    private Integer sent;
+    private Integer failed;
+    private List<PartnerStatus> partners;
+
+    public enum State {
+        PENDING,
+        SENT,
+        FAILED
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static final class PartnerStatus {
+        private UUID partnerId;
+        private State state;
+        /** set if the state is SENT */
+        @Nullable
+        private UUID proofId;
+        /** set if the state is FAILED */
+        @Nullable
+        private String errorMsg;
+    }
+}
@@ -29,15 +29,19 @@ import org.hyperledger.bpa.api.aries.AriesCredential;
 import org.hyperledger.bpa.api.notification.ActivityNotificationEvent;
 import org.hyperledger.bpa.api.notification.TaskAddedEvent;
 import org.hyperledger.bpa.api.notification.TaskCompletedEvent;
+import org.hyperledger.bpa.controller.api.CursorPage;
 import org.hyperledger.bpa.controller.api.activity.*;
 import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.persistence.model.Activity;
 import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.model.PartnerProof;
 import org.hyperledger.bpa.persistence.repository.ActivityRepository;
+import org.hyperledger.bpa.persistence.repository.Keyset;
 import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Slf4j
 @NoArgsConstructor
@@ -85,6 +89,22 @@ public class ActivityManager {
         return activities.map(this::convert);
     }
 
+    public CursorPage<ActivityItem> getItems(
+            @NonNull ActivitySearchParameters parameters,
+            @NonNull Keyset keyset) {
+        Boolean completed;
+        if (parameters.hasActivity() && parameters.hasTask()) {
+            completed = null;
+        } else {
+            completed = !parameters.hasTask();
+        }
+        List<UUID> ids = activityRepository.findIdsByKeyset(
+                parameters.getType() != null ? parameters.getType().name() : null, completed,
+                keyset.seekUpdatedAt(), keyset.seekId(), keyset.fetchSize());
+        return CursorPage.of(Keyset.load(ids, activityRepository::findByIdIn, Activity::getId), keyset,
+                Activity::getUpdatedAt, Activity::getId, this::convert);
+    }
+
     public void addPartnerRequestReceivedTask(@NonNull Partner partner) {
         // in case event is fired multiple times
         Optional<Activity> existing = activityRepository.findByLinkIdAndTypeAndRole(partner.getId(),
@@ -28,7 +28,7 @@ import org.hyperledger.bpa.api.PartnerAPI;
 import org.hyperledger.bpa.api.notification.*;
 import org.hyperledger.bpa.config.ActivityLogConfig;
 import org.hyperledger.bpa.controller.api.WebSocketMessageBody;
-import org.hyperledger.bpa.impl.messaging.websocket.MessageService;
+import org.hyperledger.bpa.impl.messaging.websocket.NotificationBatcher;
 import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.model.PartnerProof;
@@ -41,10 +41,10 @@ import org.hyperledger.bpa.persistence.model.PartnerProof;
 public class NotificationEventListener {
 
     @Inject
-    PartnerManager partnerManager;
+    NotificationPartnerCache partnerCache;
 
     @Inject
-    MessageService messageService;
+    NotificationBatcher batcher;
 
     @Inject
     ActivityLogConfig activityLogConfig;
@@ -61,7 +61,7 @@ public class NotificationEventListener {
         log.debug("onCredentialAddedEvent");
         // we have the connection id, but not the partner, will need to look up
         // partner...
-        PartnerAPI partnerAPI = partnerManager.getPartnerByConnectionId(event.getCredential().getConnectionId());
+        PartnerAPI partnerAPI = partnerCache.getByConnectionId(event.getCredential().getConnectionId());
         if (partnerAPI != null) {
             // if we auto respond to credential offers, and it is added, push up a
             // notification
@@ -71,7 +71,7 @@ public class NotificationEventListener {
                         event.getCredential().getId().toString(),
                         event.getCredential(),
                         partnerAPI);
-                messageService.sendMessage(message);
+                batcher.send(message);
             }
             // if we auto-responded to the offer then this creates a completed activity
             // if we did not auto-respond to the offer, then we have an existing task to
@@ -86,7 +86,7 @@ public class NotificationEventListener {
         log.debug("onCredentialOfferedEvent");
         // we have the connection id, but not the partner, will need to look up
         // partner...
-        PartnerAPI partnerAPI = partnerManager.getPartnerByConnectionId(event.getCredential().getConnectionId());
+        PartnerAPI partnerAPI = partnerCache.getByConnectionId(event.getCredential().getConnectionId());
         if (partnerAPI != null
                 && activityLogConfig.getCredentialExchangeStatesForTasks().contains(event.getCredential().getState())) {
             WebSocketMessageBody message = WebSocketMessageBody.notificationEvent(
@@ -94,7 +94,7 @@ public class NotificationEventListener {
                     event.getCredential().getId().toString(),
                     event.getCredential(),
                     partnerAPI);
-            messageService.sendMessage(message);
+            batcher.send(message);
             activityManager.addCredentialOfferedTask(event.getCredential());
         }
     }
@@ -113,14 +113,14 @@ public class NotificationEventListener {
     @Async
     public void onCredentialAcceptedEvent(CredentialAcceptedEvent event) {
         log.debug("onCredentialAcceptedEvent");
-        PartnerAPI partnerAPI = partnerManager.getPartnerByConnectionId(event.getCredential().getConnectionId());
+        PartnerAPI partnerAPI = partnerCache.getByConnectionId(event.getCredential().getConnectionId());
         if (partnerAPI != null) {
             WebSocketMessageBody message = WebSocketMessageBody.notificationEvent(
                     WebSocketMessageBody.WebSocketMessageType.ON_CREDENTIAL_ACCEPTED,
                     event.getCredential().getId().toString(),
                     event.getCredential(),
                     partnerAPI);
-            messageService.sendMessage(message);
+            batcher.send(message);
             activityManager.addCredentialAcceptedActivity(event.getCredential());
         }
     }
@@ -129,14 +129,14 @@ public class NotificationEventListener {
     @Async
     public void onCredentialProblemEvent(CredentialProblemEvent event) {
         log.debug("onCredentialProblemEvent");
-        PartnerAPI partnerAPI = partnerManager.getPartnerByConnectionId(event.getCredential().getConnectionId());
+        PartnerAPI partnerAPI = partnerCache.getByConnectionId(event.getCredential().getConnectionId());
         if (partnerAPI != null) {
             WebSocketMessageBody message = WebSocketMessageBody.notificationEvent(
                     WebSocketMessageBody.WebSocketMessageType.ON_CREDENTIAL_PROBLEM,
                     event.getCredential().getId().toString(),
                     event.getCredential(),
                     partnerAPI);
-            messageService.sendMessage(message);
+            batcher.send(message);
             activityManager.addCredentialProblemActivity(event.getCredential());
         }
     }
@@ -145,12 +145,13 @@ public class NotificationEventListener {
     @Async
     public void onPartnerRequestCompletedEvent(PartnerRequestCompletedEvent event) {
         log.debug("onPartnerRequestCompletedEvent");
+        partnerCache.invalidate(event.getPartner());
         WebSocketMessageBody message = WebSocketMessageBody.notificationEvent(
                 WebSocketMessageBody.WebSocketMessageType.ON_PARTNER_REQUEST_COMPLETED,
                 event.getPartner().getId().toString(),
                 null,
                 conv.toAPIObject(event.getPartner()));
-        messageService.sendMessage(message);
+        batcher.send(message);
 
         activityManager.completePartnerRequestTask(event.getPartner());
     }
@@ -159,6 +160,7 @@ public class NotificationEventListener {
     @Async
     public void onPartnerRequestReceivedEvent(PartnerRequestReceivedEvent event) {
         log.debug("onPartnerRequestReceivedEvent");
+        partnerCache.invalidate(event.getPartner());
         // only notify if this is a task (requires manual intervention)
         if (activityLogConfig.getConnectionStatesForTasks().contains(event.getPartner().getState())) {
 
@@ -169,7 +171,7 @@ public class NotificationEventListener {
                     event.getPartner().getId().toString(),
                     null,
                     conv.toAPIObject(event.getPartner()));
-            messageService.sendMessage(message);
+            batcher.send(message);
         }
     }
 
@@ -177,12 +179,13 @@ public class NotificationEventListener {
     @Async
     public void onPartnerAddedEvent(PartnerAddedEvent event) {
         log.debug("onPartnerAddedEvent");
+        partnerCache.invalidate(event.getPartner());
         WebSocketMessageBody message = WebSocketMessageBody.notificationEvent(
                 WebSocketMessageBody.WebSocketMessageType.ON_PARTNER_ADDED,
                 event.getPartner().getId().toString(),
                 null,
                 conv.toAPIObject(event.getPartner()));
-        messageService.sendMessage(message);
+        batcher.send(message);
 
         activityManager.addPartnerAddedActivity(event.getPartner());
     }
@@ -191,12 +194,13 @@ public class NotificationEventListener {
     @Async
     public void onPartnerAcceptedEvent(PartnerAcceptedEvent event) {
         log.debug("onPartnerAcceptedEvent");
+        partnerCache.invalidate(event.getPartner());
         WebSocketMessageBody message = WebSocketMessageBody.notificationEvent(
                 WebSocketMessageBody.WebSocketMessageType.ON_PARTNER_ACCEPTED,
                 event.getPartner().getId().toString(),
                 null,
                 conv.toAPIObject(event.getPartner()));
-        messageService.sendMessage(message);
+        batcher.send(message);
 
         activityManager.addPartnerAcceptedActivity(event.getPartner());
     }
@@ -205,12 +209,13 @@ public class NotificationEventListener {
     @Async
     public void onPartnerRemovedEvent(PartnerRemovedEvent event) {
         log.debug("onPartnerRemovedEvent");
+        partnerCache.invalidate(event.getPartner());
         WebSocketMessageBody message = WebSocketMessageBody.notificationEvent(
                 WebSocketMessageBody.WebSocketMessageType.ON_PARTNER_REMOVED,
                 event.getPartner().getId().toString(),
                 null,
                 conv.toAPIObject(event.getPartner()));
-        messageService.sendMessage(message);
+        batcher.send(message);
     }
 
     @EventListener
@@ -235,7 +240,7 @@ public class NotificationEventListener {
                     p);
         }
         activityManager.completePresentationExchangeTask(event.getPartnerProof());
-        messageService.sendMessage(message);
+        batcher.send(message);
     }
 
     @EventListener
@@ -281,7 +286,7 @@ public class NotificationEventListener {
                 event.getActivity().getId().toString(),
                 event.getActivity(),
                 conv.toAPIObject(event.getActivity().getPartner()));
-        messageService.sendMessage(msg);
+        batcher.send(msg);
     }
 
     @EventListener
@@ -293,7 +298,7 @@ public class NotificationEventListener {
                 event.getActivity().getId().toString(),
                 event.getActivity(),
                 conv.toAPIObject(event.getActivity().getPartner()));
-        messageService.sendMessage(task);
+        batcher.send(task);
     }
 
     @EventListener
@@ -305,7 +310,7 @@ public class NotificationEventListener {
                 event.getActivity().getId().toString(),
                 event.getActivity(),
                 conv.toAPIObject(event.getActivity().getPartner()));
-        messageService.sendMessage(task);
+        batcher.send(task);
     }
 
     private void handlePresentationRequestEvent(@NonNull PartnerProof partnerProof,
@@ -322,7 +327,7 @@ public class NotificationEventListener {
                     partnerProof.getId().toString(),
                     conv.toAPIObject(partnerProof),
                     conv.toAPIObject(partner));
-            messageService.sendMessage(message);
+            batcher.send(message);
         }
     }
 
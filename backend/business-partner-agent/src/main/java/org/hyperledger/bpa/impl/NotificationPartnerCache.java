@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import org.hyperledger.bpa.api.PartnerAPI;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+
+import java.time.Duration;
+
+/**
+ * Partners as they are attached to websocket notifications, including their
+ * public profile credentials and tags, as the frontend keeps them. Credential
+ * and proof events of the same connection tend to arrive in bursts, so the
+ * converted partner is cached by connection id.
+ */
+@Singleton
+public class NotificationPartnerCache {
+
+    @Inject
+    PartnerRepository partnerRepo;
+
+    @Inject
+    Converter conv;
+
+    private final Cache<String, PartnerAPI> byConnectionId;
+
+    public NotificationPartnerCache(
+            @Value("${bpa.notifications.partner-cache.ttl}") Duration ttl,
+            @Value("${bpa.notifications.partner-cache.max-size}") long maxSize) {
+        this.byConnectionId = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * @param connectionId aca-py connection id
+     * @return the partner, or null if there is no partner with this connection
+     */
+    public @Nullable PartnerAPI getByConnectionId(@NonNull String connectionId) {
+        return byConnectionId.get(connectionId,
+                id -> partnerRepo.getByConnectionId(id).map(conv::toAPIObject).orElse(null));
+    }
+
+    /**
+     * Drops the cached partner, called when the partner changes
+     *
+     * @param partner {@link Partner}
+     */
+    public void invalidate(@NonNull Partner partner) {
+        if (partner.getConnectionId() != null) {
+            byConnectionId.invalidate(partner.getConnectionId());
+        }
+    }
+}
@@ -30,19 +30,23 @@ import org.hyperledger.bpa.api.PartnerAPI;
 import org.hyperledger.bpa.api.exception.EntityNotFoundException;
 import org.hyperledger.bpa.api.exception.PartnerException;
 import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.CursorPage;
 import org.hyperledger.bpa.controller.api.partner.AddPartnerRequest;
 import org.hyperledger.bpa.controller.api.partner.UpdatePartnerRequest;
 import org.hyperledger.bpa.core.RegisteredWebhook.WebhookEventType;
 import org.hyperledger.bpa.impl.activity.PartnerCredDefLookup;
 import org.hyperledger.bpa.impl.activity.PartnerLookup;
 import org.hyperledger.bpa.impl.aries.connection.ConnectionManager;
+import org.hyperledger.bpa.impl.aries.connection.PingManager;
 import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.repository.HolderCredExRepository;
+import org.hyperledger.bpa.persistence.repository.Keyset;
 import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 import org.hyperledger.bpa.persistence.repository.TagRepository;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -68,6 +72,9 @@ public class PartnerManager {
     @Inject
     PartnerLookup partnerLookup;
 
+    @Inject
+    NotificationPartnerCache notificationPartnerCache;
+
     @Inject
     HolderCredExRepository holderCredExRepo;
 
@@ -80,6 +87,9 @@ public class PartnerManager {
     @Inject
     BPAMessageSource.DefaultMessageSource ms;
 
+    @Inject
+    Optional<PingManager> ping;
+
     public Page<PartnerAPI> getAll(@NonNull Pageable pageable) {
         return repo.findAll(pageable).map(converter::toAPIObject);
     }
@@ -89,8 +99,22 @@ public class PartnerManager {
         return repo.findByStateNotEquals(ConnectionState.INVITATION, pageable).map(converter::toAPIObject);
     }
 
+    public CursorPage<PartnerAPI> getAll(boolean showInvitations, @NonNull Keyset keyset) {
+        List<UUID> ids = repo.findIdsByKeyset(showInvitations,
+                keyset.seekUpdatedAt(), keyset.seekId(), keyset.fetchSize());
+        return CursorPage.of(Keyset.load(ids, repo::findByIdIn, Partner::getId), keyset,
+                Partner::getUpdatedAt, Partner::getId, converter::toAPIObject);
+    }
+
     public Optional<PartnerAPI> getPartnerById(@NonNull UUID id) {
-        return repo.findById(id).map(converter::toAPIObject);
+        return repo.findById(id).map(p -> {
+            PartnerAPI api = converter.toAPIObject(p);
+            if (p.getConnectionId() != null) {
+                ping.flatMap(pm -> pm.getRoundTrip(p.getConnectionId()))
+                        .ifPresent(rtt -> api.setPingRoundTrip(rtt.toMillis()));
+            }
+            return api;
+        });
     }
 
     @Nullable
@@ -145,6 +169,7 @@ public class PartnerManager {
             p.setTrustPing(req.getTrustPing());
             tagRepo.updateAllPartnerToTagMappings(id, req.getTag());
             repo.updateAlias(id, req.getAlias(), req.getTrustPing());
+            notificationPartnerCache.invalidate(p);
             result = Optional.of(converter.toAPIObject(p));
         }
         return result;
@@ -156,6 +181,7 @@ public class PartnerManager {
         if (count > 0) {
             final Optional<Partner> dbP = repo.findById(id);
             if (dbP.isPresent()) {
+                notificationPartnerCache.invalidate(dbP.get());
                 result = Optional.of(converter.toAPIObject(dbP.get()));
             }
         }
@@ -181,6 +207,7 @@ public class PartnerManager {
                     ? pAPI.getVerifiablePresentation()
                     : null);
             dbP = repo.update(dbP);
+            notificationPartnerCache.invalidate(dbP);
             result = Optional.of(converter.toAPIObject(dbP));
             webhook.convertAndSend(WebhookEventType.PARTNER_UPDATE, result.get());
         }
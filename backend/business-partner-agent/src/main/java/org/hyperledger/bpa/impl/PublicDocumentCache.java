@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
+import org.hyperledger.aries.api.resolver.DIDDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the public profile and the did document as serialized, and gzipped,
+ * bytes, so that the anonymous endpoints that every partner polls do not need
+ * to load and serialize them on each request. The profile is replaced when it
+ * is signed again, the did document when it is created. Both are reloaded after
+ * the refresh interval, so that changes made by other instances show up as
+ * well.
+ */
+@Singleton
+public class PublicDocumentCache {
+
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    Clock clock;
+
+    private final Duration refresh;
+
+    private final AtomicReference<Holder> profile = new AtomicReference<>();
+
+    private final AtomicReference<Holder> didDoc = new AtomicReference<>();
+
+    public PublicDocumentCache(@Value("${bpa.public-documents.refresh}") Duration refresh) {
+        this.refresh = refresh;
+    }
+
+    /**
+     * @param loader loads the profile if it is not cached or due for a refresh
+     * @return the signed profile.jsonld, empty if the profile was not signed yet
+     */
+    public Optional<Snapshot> getProfile(
+            @NonNull Supplier<Optional<VerifiablePresentation<VerifiableIndyCredential>>> loader) {
+        return get(profile, loader);
+    }
+
+    /**
+     * @param loader loads the did document if it is not cached or due for a refresh
+     * @return the .well-known/did.json, empty if there is no did document
+     */
+    public Optional<Snapshot> getDidDocument(@NonNull Supplier<Optional<DIDDocument>> loader) {
+        return get(didDoc, loader);
+    }
+
+    /**
+     * Replaces the profile, called after it was signed and persisted
+     *
+     * @param vp the signed {@link VerifiablePresentation}
+     */
+    public void updateProfile(@NonNull VerifiablePresentation<VerifiableIndyCredential> vp) {
+        profile.set(new Holder(Optional.of(serialize(vp)), clock.instant()));
+    }
+
+    /**
+     * Replaces the did document, called after it was persisted
+     *
+     * @param doc {@link DIDDocument}
+     */
+    public void updateDidDocument(@NonNull DIDDocument doc) {
+        didDoc.set(new Holder(Optional.of(serialize(doc)), clock.instant()));
+    }
+
+    private Optional<Snapshot> get(@NonNull AtomicReference<Holder> ref,
+            @NonNull Supplier<? extends Optional<?>> loader) {
+        Holder current = ref.get();
+        if (current != null && !current.loadedAt().plus(refresh).isBefore(clock.instant())) {
+            return current.snapshot();
+        }
+        Holder loaded = new Holder(loader.get().map(this::serialize), clock.instant());
+        // an update that happened meanwhile is newer than what was loaded
+        return ref.compareAndSet(current, loaded) ? loaded.snapshot() : ref.get().snapshot();
+    }
+
+    Snapshot serialize(@NonNull Object document) {
+        try {
+            return Snapshot.of(mapper.writeValueAsBytes(document));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Holder(Optional<Snapshot> snapshot, Instant loadedAt) {
+    }
+
+    /**
+     * Immutable serialized document, the arrays must not be modified
+     *
+     * @param json the document as json
+     * @param gzip the json gzipped
+     * @param etag strong ETag of the json, including the quotes
+     */
+    public record Snapshot(byte[] json, byte[] gzip, String etag) {
+
+        static Snapshot of(@NonNull byte[] json) {
+            return new Snapshot(json, gzip(json), etag(json));
+        }
+
+        /**
+         * @param ifNoneMatch the If-None-Match request header
+         * @return true if the client already has this version
+         */
+        public boolean matches(@Nullable String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            return Arrays.stream(ifNoneMatch.split(","))
+                    .map(String::trim)
+                    .map(t -> t.startsWith("W/") ? t.substring(2) : t)
+                    .anyMatch(t -> "*".equals(t) || etag.equals(t));
+        }
+
+        private static byte[] gzip(byte[] json) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+                gz.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+
+        private static String etag(byte[] json) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+                return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
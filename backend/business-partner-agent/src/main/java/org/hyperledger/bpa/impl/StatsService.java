@@ -19,6 +19,7 @@ package org.hyperledger.bpa.impl;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.aries.api.connection.ConnectionState;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
@@ -28,26 +29,33 @@ import org.hyperledger.bpa.api.CredentialType;
 import org.hyperledger.bpa.controller.api.stats.BPAStats;
 import org.hyperledger.bpa.controller.api.stats.DashboardCounts;
 import org.hyperledger.bpa.impl.aries.wallet.Identity;
+import org.hyperledger.bpa.impl.stats.DashboardCounters;
 import org.hyperledger.bpa.persistence.repository.*;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 
 @Slf4j
 @Singleton
 public class StatsService {
 
+    public static final Duration DEFAULT_PERIOD = Duration.ofDays(1);
+
     @Inject
-    PartnerRepository partnerRepo;
+    MyDocumentRepository docRepo;
 
     @Inject
-    HolderCredExRepository holderCredExRepo;
+    Identity identity;
 
     @Inject
-    MyDocumentRepository docRepo;
+    DashboardCounters counters;
 
     @Inject
-    Identity identity;
+    PartnerRepository partnerRepo;
+
+    @Inject
+    HolderCredExRepository holderCredExRepo;
 
     @Inject
     ActivityRepository activityRepository;
@@ -55,12 +63,46 @@ public class StatsService {
     @Inject
     PartnerProofRepository proofRepository;
 
+    @Inject
+    Clock clock;
+
     public BPAStats collectStats() {
-        DashboardCounts totals = DashboardCounts
+        return collectStats(DEFAULT_PERIOD);
+    }
+
+    /**
+     * Reads the dashboard counters, while they are built in the background the
+     * tables are counted instead
+     *
+     * @param period look back period of the period totals, e.g. one day or one week
+     * @return {@link BPAStats}
+     */
+    public BPAStats collectStats(@NonNull Duration period) {
+        DashboardCounts totals;
+        DashboardCounts periodTotals;
+        if (counters.isReady()) {
+            DashboardCounters.Counts counts = counters.read(period);
+            totals = counts.totals();
+            periodTotals = counts.periodTotals();
+        } else {
+            totals = countTotals();
+            periodTotals = countCreatedAfter(clock.instant().minus(period));
+        }
+        return BPAStats
+                .builder()
+                .did(identity.getMyDid())
+                .profile(docRepo
+                        .existsByTypeEqualsAndIsPublicTrue(CredentialType.ORGANIZATIONAL_PROFILE_CREDENTIAL))
+                .totals(totals)
+                .periodTotals(periodTotals)
+                .build();
+    }
+
+    private DashboardCounts countTotals() {
+        return DashboardCounts
                 .builder()
                 .credentialsSent(holderCredExRepo.countByRoleEqualsAndStateEquals(
-                        CredentialExchangeRole.ISSUER,
-                        CredentialExchangeState.CREDENTIAL_ACKED))
+                        CredentialExchangeRole.ISSUER, CredentialExchangeState.CREDENTIAL_ACKED))
                 .credentialsReceived(holderCredExRepo.countByRoleEqualsAndStateEquals(
                         CredentialExchangeRole.HOLDER, CredentialExchangeState.CREDENTIAL_ACKED))
                 .tasks(activityRepository.countByCompletedFalse())
@@ -69,32 +111,21 @@ public class StatsService {
                 .presentationRequestsReceived(
                         proofRepository.countByStateEquals(PresentationExchangeState.PRESENTATION_RECEIVED))
                 .build();
+    }
 
-        // for now, let's just get new data created today.
-        // we could maybe pass in a date from the ux for different filter/period (last
-        // week, last month, ???)
-        Instant yesterday = Instant.now().minus(1, ChronoUnit.DAYS);
-        DashboardCounts periodTotals = DashboardCounts
+    private DashboardCounts countCreatedAfter(Instant from) {
+        return DashboardCounts
                 .builder()
                 .credentialsSent(holderCredExRepo.countByRoleEqualsAndStateEqualsAndCreatedAtAfter(
-                        CredentialExchangeRole.ISSUER, CredentialExchangeState.CREDENTIAL_ACKED, yesterday))
+                        CredentialExchangeRole.ISSUER, CredentialExchangeState.CREDENTIAL_ACKED, from))
                 .credentialsReceived(holderCredExRepo.countByRoleEqualsAndStateEqualsAndCreatedAtAfter(
-                        CredentialExchangeRole.HOLDER, CredentialExchangeState.CREDENTIAL_ACKED, yesterday))
-                .tasks(activityRepository.countByCompletedFalseAndCreatedAtAfter(yesterday))
-                .partners(partnerRepo.countByStateNotEqualsAndCreatedAtAfter(ConnectionState.INVITATION, yesterday))
+                        CredentialExchangeRole.HOLDER, CredentialExchangeState.CREDENTIAL_ACKED, from))
+                .tasks(activityRepository.countByCompletedFalseAndCreatedAtAfter(from))
+                .partners(partnerRepo.countByStateNotEqualsAndCreatedAtAfter(ConnectionState.INVITATION, from))
                 .presentationRequestsSent(proofRepository
-                        .countByStateEqualsAndCreatedAtAfter(PresentationExchangeState.REQUEST_SENT, yesterday))
+                        .countByStateEqualsAndCreatedAtAfter(PresentationExchangeState.REQUEST_SENT, from))
                 .presentationRequestsReceived(proofRepository.countByStateEqualsAndCreatedAtAfter(
-                        PresentationExchangeState.PRESENTATION_RECEIVED, yesterday))
-                .build();
-
-        return BPAStats
-                .builder()
-                .did(identity.getMyDid())
-                .profile(docRepo
-                        .existsByTypeEqualsAndIsPublicTrue(CredentialType.ORGANIZATIONAL_PROFILE_CREDENTIAL))
-                .totals(totals)
-                .periodTotals(periodTotals)
+                        PresentationExchangeState.PRESENTATION_RECEIVED, from))
                 .build();
     }
 }
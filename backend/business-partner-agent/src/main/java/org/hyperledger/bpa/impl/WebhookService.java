@@ -17,45 +17,54 @@
  */
 package org.hyperledger.bpa.impl;
 
-import io.micronaut.core.util.StringUtils;
 import io.micronaut.data.exceptions.DataAccessException;
 import io.micronaut.scheduling.annotation.Async;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.*;
 import org.hyperledger.bpa.api.exception.WrongApiUsageException;
 import org.hyperledger.bpa.core.RegisteredWebhook;
 import org.hyperledger.bpa.core.RegisteredWebhook.RegisteredWebhookResponse;
-import org.hyperledger.bpa.core.RegisteredWebhook.WebhookCredentials;
 import org.hyperledger.bpa.core.RegisteredWebhook.WebhookEventType;
 import org.hyperledger.bpa.core.WebhookEvent;
 import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.impl.webhook.WebhookBatcher;
+import org.hyperledger.bpa.impl.webhook.WebhookRegistry;
+import org.hyperledger.bpa.impl.webhook.WebhookRegistry.ActiveWebhook;
+import org.hyperledger.bpa.impl.webhook.WebhookSender;
 import org.hyperledger.bpa.persistence.model.BPAWebhook;
 import org.hyperledger.bpa.persistence.repository.BPAWebhookRepository;
 
-import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Singleton
 public class WebhookService {
 
-    static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
-
-    private final OkHttpClient okClient = new OkHttpClient();
-
     @Inject
     Converter conv;
 
     @Inject
     BPAWebhookRepository repo;
 
+    @Inject
+    WebhookRegistry registry;
+
+    @Inject
+    WebhookSender sender;
+
+    @Inject
+    WebhookBatcher batcher;
+
     public List<RegisteredWebhookResponse> listRegisteredWebhooks() {
         List<RegisteredWebhookResponse> result = new ArrayList<>();
         repo.findAll().forEach(h -> {
@@ -70,6 +79,7 @@ public class WebhookService {
         final Map<String, Object> map = conv.toMap(hook);
         try {
             BPAWebhook dbHook = repo.save(BPAWebhook.builder().webhook(map).build());
+            registry.invalidate();
             return new RegisteredWebhookResponse(dbHook.getId(), hook);
         } catch (@SuppressWarnings("unused") DataAccessException e) {
             throw new WrongApiUsageException("Webhook for url: " + hook.getUrl() + " is already registered");
@@ -86,6 +96,9 @@ public class WebhookService {
             existing.get().setWebhook(map);
             try {
                 final BPAWebhook updated = repo.update(existing.get());
+                registry.invalidate();
+                batcher.flush(id);
+                sender.evict(id);
                 return Optional.of(new RegisteredWebhookResponse(updated.getId(), hook));
             } catch (@SuppressWarnings("unused") DataAccessException e) {
                 throw new WrongApiUsageException("Webhook for url: " + hook.getUrl() + " is already registered");
@@ -96,42 +109,44 @@ public class WebhookService {
 
     public void deleteRegisteredWebhook(UUID id) {
         repo.deleteById(id);
+        registry.invalidate();
+        batcher.discard(id);
+        sender.evict(id);
     }
 
+    /**
+     * Hands over the event to all webhooks that are registered for the event type.
+     * Webhooks with batching enabled get the event added to their current batch,
+     * for all others the event is serialized once and sent right away.
+     *
+     * @param eventType {@link WebhookEventType}
+     * @param msg       payload
+     */
     @Async
     public void convertAndSend(@NonNull WebhookEventType eventType, @NonNull Object msg) {
-        // Not a parallel stream for now to keep it simple
-        repo.findByEventType(eventType).forEach(e -> {
-            final RegisteredWebhook hook = conv.fromMap(e.getWebhook(), RegisteredWebhook.class);
+        List<ActiveWebhook> hooks = registry.findByEventType(eventType);
+        if (hooks.isEmpty()) {
+            return;
+        }
+        WebhookEvent<?> event = WebhookEvent
+                .builder()
+                .payload(msg)
+                .type(eventType)
+                .sent(Instant.now().toEpochMilli())
+                .build();
+        Map<Boolean, List<ActiveWebhook>> byMode = hooks.stream()
+                .collect(Collectors.partitioningBy(h -> h.hook().batchingEnabled()));
+        byMode.get(Boolean.TRUE).forEach(hook -> batcher.add(hook, event));
+        if (byMode.get(Boolean.FALSE).isEmpty()) {
+            return;
+        }
+        conv.writeValueAsString(event).ifPresent(json -> byMode.get(Boolean.FALSE).forEach(hook -> {
             try {
-                WebhookEvent<?> event = WebhookEvent
-                        .builder()
-                        .payload(msg)
-                        .type(eventType)
-                        .sent(Instant.now().toEpochMilli())
-                        .build();
-
-                conv.writeValueAsString(event).ifPresent(json -> {
-
-                    Request.Builder request = new Request.Builder()
-                            .url(hook.getUrl())
-                            .post(RequestBody.create(json, JSON_TYPE));
-                    addBasicAuthHeaderIfSet(request, hook);
-
-                    try (Response response = okClient.newCall(request.build()).execute()) {
-                        if (!response.isSuccessful()) {
-                            String body = response.body() != null ? response.body().toString() : "";
-                            log.error("Call to {} falied, code: {}, msg: {}",
-                                    hook.getUrl(), response.code(), body);
-                        }
-                    } catch (IOException ex) {
-                        log.error("Call to " + hook.getUrl() + " failed", ex);
-                    }
-                });
-            } catch (Exception e1) {
-                log.error("Could not send webhook for url: {}", hook.getUrl(), e1);
+                sender.send(hook, json);
+            } catch (Exception e) {
+                log.error("Could not send webhook for url: {}", hook.hook().getUrl(), e);
             }
-        });
+        }));
     }
 
     // TODO use a hibernate validator
@@ -143,16 +158,4 @@ public class WebhookService {
             throw new WrongApiUsageException("Not a valid URL: " + url);
         }
     }
-
-    private static void addBasicAuthHeaderIfSet(Request.Builder b, RegisteredWebhook hook) {
-        final WebhookCredentials creds = hook.getCredentials();
-        if (creds != null
-                && StringUtils.isNotEmpty(creds.getUsername())) {
-            String basic = "Basic ";
-            String base64 = Base64.getEncoder()
-                    .encodeToString((creds.getUsername() + ":" + creds.getPassword())
-                            .getBytes(StandardCharsets.UTF_8));
-            b.addHeader("Authorization", basic + base64);
-        }
-    }
 }
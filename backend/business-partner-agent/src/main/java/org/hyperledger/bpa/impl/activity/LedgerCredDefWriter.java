@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.activity;
+
+import io.micronaut.transaction.annotation.TransactionalAdvice;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import org.hyperledger.bpa.persistence.model.LedgerCredDef;
+import org.hyperledger.bpa.persistence.repository.LedgerCredDefRepository;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the results of a ledger explorer sync, one transaction per batch
+ */
+@Singleton
+public class LedgerCredDefWriter {
+
+    @Inject
+    LedgerCredDefRepository credDefRepo;
+
+    @Inject
+    PartnerRepository partnerRepo;
+
+    @TransactionalAdvice
+    public void saveCredDefs(@NonNull List<LedgerCredDef> credDefs) {
+        credDefRepo.saveAll(credDefs);
+    }
+
+    /**
+     * @param didToCredentials partner did to its supported credentials
+     */
+    @TransactionalAdvice
+    public void updatePartners(@NonNull Map<String, Map<String, Object>> didToCredentials) {
+        didToCredentials.forEach(partnerRepo::updateByDid);
+    }
+}
@@ -17,29 +17,40 @@
  */
 package org.hyperledger.bpa.impl.activity;
 
+import io.micronaut.context.annotation.Bean;
 import io.micronaut.context.annotation.Value;
-import io.micronaut.scheduling.annotation.Async;
 import io.micronaut.scheduling.annotation.Scheduled;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.hyperledger.bpa.api.PartnerAPI;
 import org.hyperledger.bpa.client.LedgerExplorerClient;
 import org.hyperledger.bpa.controller.api.partner.PartnerCredentialType;
 import org.hyperledger.bpa.impl.util.AriesStringUtil;
 import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.impl.util.NamedThreadFactory;
 import org.hyperledger.bpa.persistence.model.BPARestrictions;
 import org.hyperledger.bpa.persistence.model.BPASchema;
+import org.hyperledger.bpa.persistence.model.LedgerCredDef;
 import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.repository.BPARestrictionsRepository;
 import org.hyperledger.bpa.persistence.repository.BPASchemaRepository;
+import org.hyperledger.bpa.persistence.repository.LedgerCredDefRepository;
 import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
+@Slf4j
 @Singleton
+@Bean(preDestroy = "shutdown")
 public class PartnerCredDefLookup {
 
     @Value("${bpa.did.prefix}")
@@ -64,6 +75,36 @@ public class PartnerCredDefLookup {
     @Inject
     Converter conv;
 
+    @Inject
+    LedgerCredDefRepository credDefRepo;
+
+    @Inject
+    LedgerCredDefWriter writer;
+
+    private final int batchSize;
+
+    private final Duration debounce;
+
+    /** bounds the number of queries that are in flight with the ledger explorer */
+    private final ExecutorService ledgerExecutor;
+
+    private final ScheduledExecutorService debouncer;
+
+    /** an async sync is scheduled but has not started yet */
+    private final AtomicBoolean syncQueued = new AtomicBoolean();
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    public PartnerCredDefLookup(
+            @Value("${bpa.ledger.sync.concurrency}") int concurrency,
+            @Value("${bpa.ledger.sync.batch-size}") int batchSize,
+            @Value("${bpa.ledger.sync.debounce}") Duration debounce) {
+        this.batchSize = batchSize;
+        this.debounce = debounce;
+        this.ledgerExecutor = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("ledger-sync"));
+        this.debouncer = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("ledger-sync-debounce"));
+    }
+
     /**
      * Get/filter partners that can issue credentials that are based on the schema's
      * id.
@@ -122,32 +163,126 @@ public class PartnerCredDefLookup {
      * If a BCGov ledger explorer is configured, looks up all credential definition
      * ids on the ledger that match a configured schema. If the did in the
      * credential definition id matches a partner's did, the partner is considered
-     * an issuer of credentials that are based on that schema.
+     * an issuer of credentials that are based on that schema. The found credential
+     * definitions are kept, so that every sync only fetches the transactions that
+     * were written since the last one and only updates the partners that are
+     * affected by them.
      */
     @Scheduled(cron = "0 15 2 ? * *")
     void lookupTypesForAllPartners() {
         ledger.ifPresent(l -> {
-            Map<String, List<PartnerCredentialType>> didToTypes = new HashMap<>();
-            StreamSupport.stream(schemaRepo.findAll().spliterator(), false).filter(BPASchema::typeIsIndy).forEach(
-                    s -> l.queryCredentialDefinitions(s.getSeqNo().toString()).ifPresent(defs -> defs.forEach(def -> {
-                        String did = AriesStringUtil.credDefIdGetDid(def.getCredentialDefinitionId());
-                        if (didToTypes.containsKey(did)) {
-                            didToTypes.get(did).add(def);
-                        } else {
-                            List<PartnerCredentialType> types = new ArrayList<>();
-                            types.add(def);
-                            didToTypes.put(did, types);
-                        }
-                    })));
-            didToTypes.forEach(
-                    (did, types) -> partnerRepo.updateByDid(didPrefix + did,
-                            conv.toMap(new CredentialTypeWrapper(types))));
+            syncLock.lock();
+            try {
+                sync(l);
+            } catch (Exception e) {
+                log.error("Ledger explorer sync failed", e);
+            } finally {
+                syncLock.unlock();
+            }
         });
     }
 
-    @Async
+    /**
+     * Triggers a sync after the debounce period, triggers that arrive in the
+     * meantime are coalesced into the same run.
+     */
     public void lookupTypesForAllPartnersAsync() {
-        lookupTypesForAllPartners();
+        if (ledger.isPresent() && syncQueued.compareAndSet(false, true)) {
+            try {
+                debouncer.schedule(() -> {
+                    syncQueued.set(false);
+                    lookupTypesForAllPartners();
+                }, debounce.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                syncQueued.set(false);
+            }
+        }
+    }
+
+    public void shutdown() {
+        debouncer.shutdownNow();
+        ledgerExecutor.shutdownNow();
+    }
+
+    private void sync(@NonNull LedgerExplorerClient l) {
+        List<Integer> schemaSeqNos = StreamSupport.stream(schemaRepo.findAll().spliterator(), false)
+                .filter(BPASchema::typeIsIndy)
+                .map(BPASchema::getSeqNo)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        // credential definitions of removed schemas
+        Set<String> dirty = new HashSet<>();
+        if (schemaSeqNos.isEmpty()) {
+            credDefRepo.findAll().forEach(c -> dirty.add(c.getDid()));
+            credDefRepo.deleteAll();
+        } else {
+            dirty.addAll(credDefRepo.findDidBySchemaSeqNoNotIn(schemaSeqNos));
+            credDefRepo.deleteBySchemaSeqNoNotIn(schemaSeqNos);
+        }
+
+        List<CompletableFuture<List<LedgerCredDef>>> queries = schemaSeqNos.stream()
+                .map(seqNo -> CompletableFuture.supplyAsync(() -> queryDelta(l, seqNo), ledgerExecutor))
+                .toList();
+        List<LedgerCredDef> found = new ArrayList<>();
+        queries.forEach(q -> found.addAll(q.join()));
+
+        List<LedgerCredDef> added = new ArrayList<>();
+        if (!found.isEmpty()) {
+            Set<String> known = new HashSet<>(credDefRepo.findCredDefIdByCredDefIdIn(
+                    found.stream().map(LedgerCredDef::getCredDefId).collect(Collectors.toSet())));
+            found.stream().filter(c -> known.add(c.getCredDefId())).forEach(added::add);
+        }
+        for (int from = 0; from < added.size(); from += batchSize) {
+            writer.saveCredDefs(added.subList(from, Math.min(from + batchSize, added.size())));
+        }
+        added.forEach(c -> dirty.add(c.getDid()));
+
+        // partners that were never synced
+        partnerRepo.findDidBySupportedCredentialsIsNull()
+                .forEach(did -> dirty.add(StringUtils.removeStart(did, didPrefix)));
+
+        int updated = updatePartners(dirty);
+        log.debug("Ledger explorer sync: {} schemas, {} new credential definitions, {} partners updated",
+                schemaSeqNos.size(), added.size(), updated);
+    }
+
+    private List<LedgerCredDef> queryDelta(@NonNull LedgerExplorerClient l, @NonNull Integer schemaSeqNo) {
+        int after = credDefRepo.findMaxLedgerSeqNoBySchemaSeqNo(schemaSeqNo).orElse(0);
+        return l.queryCredentialDefinitionTxns(schemaSeqNo.toString(), after)
+                .orElse(List.of())
+                .stream()
+                .map(t -> LedgerCredDef.builder()
+                        .schemaSeqNo(schemaSeqNo)
+                        .credDefId(t.getTxnId())
+                        .did(AriesStringUtil.credDefIdGetDid(t.getTxnId()))
+                        .ledgerSeqNo(t.getSeqNo() != null ? t.getSeqNo() : after)
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Rebuilds the supported credentials of the partners with the given dids
+     *
+     * @param dids issuer dids without the did prefix
+     * @return number of updated partners
+     */
+    private int updatePartners(@NonNull Set<String> dids) {
+        List<String> partnerDids = dids.isEmpty() ? List.of()
+                : partnerRepo.findDidByDidIn(dids.stream().map(did -> didPrefix + did).toList());
+        for (int from = 0; from < partnerDids.size(); from += batchSize) {
+            List<String> batch = partnerDids.subList(from, Math.min(from + batchSize, partnerDids.size()));
+            Map<String, List<PartnerCredentialType>> didToTypes = new LinkedHashMap<>();
+            batch.forEach(did -> didToTypes.put(StringUtils.removeStart(did, didPrefix), new ArrayList<>()));
+            credDefRepo.findByDidIn(didToTypes.keySet()).forEach(c -> didToTypes.get(c.getDid())
+                    .add(PartnerCredentialType.fromCredDefId(c.getCredDefId())));
+            Map<String, Map<String, Object>> update = new LinkedHashMap<>();
+            didToTypes.forEach((did, types) -> update.put(didPrefix + did,
+                    conv.toMap(new CredentialTypeWrapper(types))));
+            writer.updatePartners(update);
+        }
+        return partnerDids.size();
     }
 
     @Data
@@ -17,9 +17,11 @@
  */
 package org.hyperledger.bpa.impl.activity;
 
+import com.google.gson.Gson;
 import io.micronaut.cache.annotation.Cacheable;
 import io.micronaut.core.util.CollectionUtils;
 import jakarta.inject.Inject;
+import jakarta.inject.Named;
 import jakarta.inject.Singleton;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -27,14 +29,19 @@ import org.apache.commons.lang3.StringUtils;
 import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
 import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.api.resolver.DIDDocument;
+import org.hyperledger.aries.config.GsonConfig;
 import org.hyperledger.bpa.api.ApiConstants;
 import org.hyperledger.bpa.api.PartnerAPI;
 import org.hyperledger.bpa.api.exception.PartnerException;
 import org.hyperledger.bpa.client.DidDocClient;
+import org.hyperledger.bpa.client.cache.ResolverCache;
+import org.hyperledger.bpa.client.cache.ResolverCacheFactory;
 import org.hyperledger.bpa.config.BPAMessageSource;
 import org.hyperledger.bpa.impl.aries.jsonld.SignVerifyLD;
 import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.impl.util.CryptoUtil;
 
+import java.time.Clock;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -55,6 +62,15 @@ public class PartnerLookup {
     @Inject
     BPAMessageSource.DefaultMessageSource ms;
 
+    @Inject
+    @Named(ResolverCacheFactory.VERIFICATION)
+    ResolverCache verificationCache;
+
+    @Inject
+    Clock clock;
+
+    private final Gson gson = GsonConfig.defaultConfig();
+
     @Cacheable(cacheNames = { "partner-lookup-cache" })
     public PartnerAPI lookupPartner(@NonNull String did) {
         Optional<DIDDocument> didDocument = ur.getDidDocument(did);
@@ -90,14 +106,28 @@ public class PartnerLookup {
                     : "";
             Optional<String> pk = matchKey(verificationMethod, verificationMethods);
             if (pk.isPresent()) {
-                final Boolean valid = crypto.verify(pk.get(), profile.get());
-                partner.setValid(valid);
+                partner.setValid(verify(pk.get(), profile.get()));
             }
             return partner;
         }
         throw new PartnerException(ms.getMessage("api.partner.lookup.no.endpoint", Map.of("endpoint", endpoint)));
     }
 
+    /**
+     * Verifies the profile through aca-py, a successful verification is cached by
+     * key and content of the profile, so that an unchanged profile is only verified
+     * once. Failures are not cached, as aca-py not answering looks the same as an
+     * invalid profile.
+     */
+    Boolean verify(@NonNull String verkey, @NonNull VerifiablePresentation<VerifiableIndyCredential> vp) {
+        String key = verkey + ":" + CryptoUtil.toSHA256Hex(gson, vp);
+        return verificationCache.get(key, (k, previous) -> Boolean.TRUE.equals(crypto.verify(verkey, vp))
+                ? new ResolverCache.Entry(Boolean.TRUE.toString(), null, null, clock.instant())
+                : null)
+                .map(Boolean::valueOf)
+                .orElse(Boolean.FALSE);
+    }
+
     /**
      * Tries to find the public key in the did document that matches the proof's
      * verification method
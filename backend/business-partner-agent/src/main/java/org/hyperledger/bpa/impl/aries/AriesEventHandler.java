@@ -45,6 +45,12 @@ import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
 
 import java.util.Optional;
 
+/**
+ * Entry point for all aca-py events. Exchange events are handed over to the
+ * {@link StripedEventDispatcher} keyed by connection or exchange id, so events
+ * of the same exchange stay ordered while different exchanges are handled in
+ * parallel.
+ */
 @Slf4j
 @Singleton
 public class AriesEventHandler extends EventHandler {
@@ -63,6 +69,8 @@ public class AriesEventHandler extends EventHandler {
 
     private final ChatMessageManager chatMessage;
 
+    private final StripedEventDispatcher dispatcher;
+
     @Inject
     public AriesEventHandler(
             ConnectionManager connectionManager,
@@ -71,7 +79,8 @@ public class AriesEventHandler extends EventHandler {
             ProofEventHandler proofEventHandler,
             LDEventHandler jsonLD,
             IssuerManager issuerCredentialManager,
-            ChatMessageManager chatMessageManager) {
+            ChatMessageManager chatMessageManager,
+            StripedEventDispatcher dispatcher) {
         this.connection = connectionManager;
         this.ping = pingManager;
         this.credHolder = holderCredentialManager;
@@ -79,6 +88,7 @@ public class AriesEventHandler extends EventHandler {
         this.proof = proofEventHandler;
         this.jsonLD = jsonLD;
         this.chatMessage = chatMessageManager;
+        this.dispatcher = dispatcher;
     }
 
     @Override
@@ -88,7 +98,7 @@ public class AriesEventHandler extends EventHandler {
         if (connectionRecord.stateIsInvitation()) {
             return;
         }
-        synchronized (connection) {
+        dispatcher.dispatch(connectionRecord.getConnectionId(), () -> {
             if (connectionRecord.isInvitationResponse()) {
                 connection.handleInvitationEvent(connectionRecord);
             } else if (connectionRecord.isOutgoingConnection()) {
@@ -96,7 +106,7 @@ public class AriesEventHandler extends EventHandler {
             } else {
                 connection.handleIncomingConnectionEvent(connectionRecord);
             }
-        }
+        });
     }
 
     @Override
@@ -107,21 +117,19 @@ public class AriesEventHandler extends EventHandler {
     @Override
     public void handleProof(PresentationExchangeRecord presExRecord) {
         log.debug("Present Proof Event: {}", presExRecord);
-        synchronized (proof) {
-            proof.dispatch(presExRecord);
-        }
+        dispatcher.dispatch(presExRecord.getPresentationExchangeId(), () -> proof.dispatch(presExRecord));
     }
 
     @Override
     public void handleProofV2(V20PresExRecord v2) {
         log.debug("Present Proof V2 Event: {}", v2);
-        synchronized (proof) {
+        dispatcher.dispatch(v2.getPresentationExchangeId(), () -> {
             if (v2.isIndy()) {
                 proof.dispatch(V20PresExRecordToV1Converter.toV1(v2));
             } else if (v2.isDif()) {
                 proof.dispatch(v2);
             }
-        }
+        });
     }
 
     @Override
@@ -129,7 +137,7 @@ public class AriesEventHandler extends EventHandler {
         log.debug("Credential Event: {}", v1CredEx);
         // holder events
         if (v1CredEx.roleIsHolder()) {
-            synchronized (credHolder) {
+            dispatcher.dispatch(v1CredEx.getCredentialExchangeId(), () -> {
                 if (v1CredEx.stateIsCredentialAcked()) {
                     credHolder.handleV1CredentialExchangeAcked(v1CredEx);
                 } else if (v1CredEx.stateIsOfferReceived()) {
@@ -140,10 +148,10 @@ public class AriesEventHandler extends EventHandler {
                             v1CredEx.getCredentialExchangeId(), v1CredEx.getState(),
                             v1CredEx.getUpdatedAt(), v1CredEx.getErrorMsg());
                 }
-            }
+            });
             // issuer events
         } else if (v1CredEx.roleIsIssuer()) {
-            synchronized (credIssuer) {
+            dispatcher.dispatch(v1CredEx.getCredentialExchangeId(), () -> {
                 if (v1CredEx.stateIsProposalReceived()) {
                     credIssuer.handleV1CredentialProposal(v1CredEx);
                 } else if (v1CredEx.stateIsRequestReceived()) {
@@ -151,7 +159,7 @@ public class AriesEventHandler extends EventHandler {
                 } else {
                     credIssuer.handleV1CredentialExchange(v1CredEx);
                 }
-            }
+            });
         }
     }
 
@@ -159,7 +167,7 @@ public class AriesEventHandler extends EventHandler {
     public void handleCredentialV2(V20CredExRecord v2CredEx) {
         log.debug("Credential V2 Event: {}", v2CredEx);
         if (v2CredEx.roleIsIssuer()) {
-            synchronized (credIssuer) {
+            dispatcher.dispatch(v2CredEx.getCredentialExchangeId(), () -> {
                 if (v2CredEx.stateIsProposalReceived()) {
                     credIssuer.handleV2CredentialProposal(v2CredEx);
                 } else if (v2CredEx.stateIsRequestReceived()) {
@@ -167,9 +175,9 @@ public class AriesEventHandler extends EventHandler {
                 } else {
                     credIssuer.handleV2CredentialExchange(v2CredEx);
                 }
-            }
+            });
         } else if (v2CredEx.roleIsHolder()) {
-            synchronized (credHolder) {
+            dispatcher.dispatch(v2CredEx.getCredentialExchangeId(), () -> {
                 if (v2CredEx.stateIsOfferReceived()) {
                     credHolder.handleV2OfferReceived(v2CredEx);
                 } else if (v2CredEx.stateIsCredentialReceived()) {
@@ -179,24 +187,22 @@ public class AriesEventHandler extends EventHandler {
                             v2CredEx.getCredentialExchangeId(), v2CredEx.getState(),
                             v2CredEx.getUpdatedAt(), v2CredEx.getErrorMsg());
                 }
-            }
+            });
         }
     }
 
     @Override
     public void handleIssueCredentialV2Indy(V2IssueIndyCredentialEvent revocationInfo) {
         log.debug("Issue Credential V2 Indy Event: {}", revocationInfo);
-        synchronized (credIssuer) {
-            credIssuer.handleIssueCredentialV2Indy(revocationInfo);
-        }
+        dispatcher.dispatch(revocationInfo.getCredExId(),
+                () -> credIssuer.handleIssueCredentialV2Indy(revocationInfo));
     }
 
     @Override
     public void handleIssueCredentialV2LD(V2IssueLDCredentialEvent credentialInfo) {
         log.debug("Issue LD Credential V2 Event: {}", credentialInfo);
-        synchronized (jsonLD) {
-            jsonLD.handleIssueCredentialV2LD(credentialInfo);
-        }
+        dispatcher.dispatch(credentialInfo.getCredExId(),
+                () -> jsonLD.handleIssueCredentialV2LD(credentialInfo));
     }
 
     @Override
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.env.Environment;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.webhook.EventHandler;
+import org.hyperledger.aries.webhook.EventType;
+import org.hyperledger.aries.webhook.IEventHandler;
+import org.hyperledger.bpa.impl.StartupTasks;
+import org.hyperledger.bpa.persistence.model.JournaledEvent;
+import org.hyperledger.bpa.persistence.repository.JournaledEventRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Journal stage between the aca-py websocket and the {@link EventHandler}s.
+ * Incoming events are appended to the journal table and are acknowledged to the
+ * websocket immediately, a single drain thread then replays them in order and
+ * in batches through the event handlers. Entries are only removed after the
+ * handlers (including the {@link StripedEventDispatcher}) are done with them,
+ * so events that were in flight during a shutdown or a crash are replayed on
+ * the next start. Replay is at least once, the managers already treat duplicate
+ * state changes of the same exchange as updates.
+ */
+@Slf4j
+@Singleton
+@Requires(notEnv = Environment.TEST)
+@Requires(property = "bpa.events.journal.enabled", value = "true")
+public class AriesEventJournal implements IEventHandler, ApplicationEventListener<StartupTasks.AcaPyReady> {
+
+    private static final Duration HANDLED_TIMEOUT = Duration.ofMinutes(5);
+
+    @Value("${bpa.events.journal.batch-size}")
+    Integer batchSize;
+
+    @Inject
+    JournaledEventRepository repo;
+
+    @Inject
+    List<EventHandler> handlers;
+
+    @Inject
+    StripedEventDispatcher dispatcher;
+
+    private final ExecutorService drainer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "aries-event-journal");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    private volatile boolean ready;
+
+    @Override
+    public void handleEvent(String eventType, String json) {
+        handleEvent(null, eventType, json);
+    }
+
+    @Override
+    public void handleEvent(String walletId, String eventType, String json) {
+        if (EventType.fromTopic(eventType).isEmpty()) {
+            log.trace("Skipping unknown event type: {}", eventType);
+            return;
+        }
+        repo.save(JournaledEvent.builder().topic(eventType).payload(json).build());
+        triggerDrain();
+    }
+
+    /**
+     * Replays everything that was journaled but not handled before the last
+     * shutdown
+     */
+    @Override
+    public void onApplicationEvent(StartupTasks.AcaPyReady event) {
+        ready = true;
+        triggerDrain();
+    }
+
+    @Scheduled(fixedDelay = "30s", initialDelay = "2m")
+    void drainLeftovers() {
+        triggerDrain();
+    }
+
+    void triggerDrain() {
+        if (ready && drainScheduled.compareAndSet(false, true)) {
+            drainer.execute(this::drain);
+        }
+    }
+
+    void drain() {
+        // reset before reading, so that events appended while draining schedule a new
+        // run
+        drainScheduled.set(false);
+        try {
+            List<JournaledEvent> batch;
+            do {
+                batch = repo.findOldest(batchSize);
+                if (batch.isEmpty()) {
+                    return;
+                }
+                batch.forEach(this::handle);
+                if (!dispatcher.awaitHandled(HANDLED_TIMEOUT)) {
+                    log.warn("Timeout while waiting for events to be handled, will retry the batch");
+                    return;
+                }
+                repo.deleteByIdIn(batch.stream().map(JournaledEvent::getId).toList());
+                log.debug("Handled {} journaled event(s)", batch.size());
+            } while (batch.size() == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Could not drain aca-py event journal", e);
+        }
+    }
+
+    private void handle(JournaledEvent event) {
+        for (EventHandler handler : handlers) {
+            try {
+                handler.handleEvent(event.getTopic(), event.getPayload());
+            } catch (Exception e) {
+                log.error("Could not handle journaled event: {}", event.getId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatches aca-py events onto a bounded set of single threaded stripes. The
+ * stripe is selected by the events key, typically the connection id or the
+ * exchange id, so that all events of the same exchange are handled in the order
+ * they were received, while events of different exchanges are handled in
+ * parallel. If the number of workers is set to zero, events are handled inline
+ * on the calling thread.
+ */
+@Slf4j
+@Singleton
+@Bean(preDestroy = "shutdown")
+public class StripedEventDispatcher {
+
+    static final String METRIC_QUEUE_DEPTH = "bpa.events.queue.depth";
+    static final String METRIC_WAIT = "bpa.events.wait";
+
+    /**
+     * Used for events that do not carry an id, they are serialized on one stripe
+     */
+    private static final String NO_KEY = "";
+
+    private final List<ThreadPoolExecutor> stripes = new ArrayList<>();
+
+    private final List<Timer> waitTimers = new ArrayList<>();
+
+    public StripedEventDispatcher(
+            @Value("${bpa.events.workers}") int workers,
+            MeterRegistry registry) {
+        for (int i = 0; i < workers; i++) {
+            ThreadPoolExecutor stripe = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), new StripeThreadFactory(i));
+            String stripeTag = String.valueOf(i);
+            Gauge.builder(METRIC_QUEUE_DEPTH, stripe, s -> s.getQueue().size())
+                    .description("Number of aca-py events waiting to be handled")
+                    .tag("stripe", stripeTag)
+                    .register(registry);
+            waitTimers.add(Timer.builder(METRIC_WAIT)
+                    .description("Time an aca-py event waited before it was handled")
+                    .tag("stripe", stripeTag)
+                    .register(registry));
+            stripes.add(stripe);
+        }
+    }
+
+    /**
+     * Hands over the event handler to the stripe that owns the key
+     *
+     * @param key     connection id or exchange id, events with the same key are
+     *                handled in order
+     * @param handler the event handler
+     */
+    public void dispatch(@Nullable String key, @NonNull Runnable handler) {
+        if (stripes.isEmpty()) {
+            handler.run();
+            return;
+        }
+        String k = key != null ? key : NO_KEY;
+        int index = Math.floorMod(k.hashCode(), stripes.size());
+        Timer waitTimer = waitTimers.get(index);
+        long enqueued = System.nanoTime();
+        try {
+            stripes.get(index).execute(() -> {
+                long waited = System.nanoTime() - enqueued;
+                waitTimer.record(waited, TimeUnit.NANOSECONDS);
+                log.trace("Event for key: {} waited {}ms", k, TimeUnit.NANOSECONDS.toMillis(waited));
+                try {
+                    handler.run();
+                } catch (Exception e) {
+                    log.error("Could not handle event for key: {}", k, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("Dispatcher is shutting down, dropping event for key: {}", k);
+        }
+    }
+
+    /**
+     * Blocks until all events that were dispatched before this call have been
+     * handled
+     *
+     * @param timeout max time to wait
+     * @return true if all stripes caught up, false if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitHandled(@NonNull Duration timeout) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(stripes.size());
+        stripes.forEach(s -> s.execute(latch::countDown));
+        return latch.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return total number of events that are waiting to be handled
+     */
+    public int getQueueDepth() {
+        return stripes.stream().mapToInt(s -> s.getQueue().size()).sum();
+    }
+
+    public void shutdown() {
+        stripes.forEach(ExecutorService::shutdown);
+        for (ExecutorService stripe : stripes) {
+            try {
+                if (!stripe.awaitTermination(10, TimeUnit.SECONDS)) {
+                    stripe.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                stripe.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class StripeThreadFactory implements ThreadFactory {
+        private final int stripe;
+        private final AtomicInteger count = new AtomicInteger();
+
+        StripeThreadFactory(int stripe) {
+            this.stripe = stripe;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread t = new Thread(r, "aries-events-" + stripe + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
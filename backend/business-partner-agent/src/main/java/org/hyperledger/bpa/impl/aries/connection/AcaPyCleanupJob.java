@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.connection;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.data.model.Pageable;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.hyperledger.aries.api.exception.AriesException;
+import org.hyperledger.bpa.impl.util.NamedThreadFactory;
+import org.hyperledger.bpa.impl.util.RateLimiter;
+import org.hyperledger.bpa.persistence.model.AcaPyCleanupTask;
+import org.hyperledger.bpa.persistence.repository.AcaPyCleanupTaskRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deletes the aca-py records of removed partners in the background. Every
+ * record is persisted as a {@link AcaPyCleanupTask} when the partner is
+ * removed, the tasks are then processed batch by batch with a bounded number of
+ * deletes in flight and a maximum rate. Tasks that fail because aca-py is not
+ * reachable, or answers with a server error, are retried with an exponential
+ * backoff. Records that are already gone count as deleted. Pending tasks
+ * survive a restart and are picked up by the next scheduled run.
+ */
+@Slf4j
+@Singleton
+@Bean(preDestroy = "shutdown")
+public class AcaPyCleanupJob {
+
+    @Inject
+    AcyPyConnectionCleanup cleanup;
+
+    @Inject
+    AcaPyCleanupTaskRepository repo;
+
+    @Inject
+    AcaPyCleanupWriter writer;
+
+    @Inject
+    Clock clock;
+
+    private final int batchSize;
+
+    private final int maxAttempts;
+
+    private final Duration backoff;
+
+    /** batches are processed one after another */
+    private final ExecutorService jobExecutor;
+
+    /** bounds the number of deletes that are in flight with aca-py */
+    private final ExecutorService acaPyExecutor;
+
+    private final RateLimiter limiter;
+
+    /** a run is queued but has not started yet */
+    private final AtomicBoolean queued = new AtomicBoolean();
+
+    private volatile boolean shutdown;
+
+    public AcaPyCleanupJob(
+            @Value("${bpa.connection.removal.concurrency}") int concurrency,
+            @Value("${bpa.connection.removal.rate}") double rate,
+            @Value("${bpa.connection.removal.batch-size}") int batchSize,
+            @Value("${bpa.connection.removal.max-attempts}") int maxAttempts,
+            @Value("${bpa.connection.removal.backoff}") Duration backoff) {
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.limiter = new RateLimiter(rate);
+        this.jobExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("acapy-cleanup-job"));
+        this.acaPyExecutor = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("acapy-cleanup"));
+    }
+
+    /**
+     * Persists the tasks and starts processing them
+     *
+     * @param tasks {@link AcaPyCleanupTask}
+     */
+    public void submit(@NonNull List<AcaPyCleanupTask> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        Instant now = clock.instant();
+        tasks.forEach(t -> t.setNextAttemptAt(now));
+        writer.save(tasks);
+        log.debug("Scheduled {} aca-py records for deletion", tasks.size());
+        trigger();
+    }
+
+    /**
+     * @return number of records that still need to be deleted
+     */
+    public long getPending() {
+        return repo.countByState(AcaPyCleanupTask.TaskState.PENDING);
+    }
+
+    @Scheduled(fixedDelay = "1m", initialDelay = "1m")
+    void resume() {
+        trigger();
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        jobExecutor.shutdown();
+        acaPyExecutor.shutdown();
+        try {
+            if (!jobExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                jobExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            jobExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void trigger() {
+        if (queued.compareAndSet(false, true)) {
+            try {
+                jobExecutor.execute(this::run);
+            } catch (RejectedExecutionException e) {
+                queued.set(false);
+            }
+        }
+    }
+
+    void run() {
+        queued.set(false);
+        try {
+            List<AcaPyCleanupTask> batch;
+            while (!shutdown && !(batch = repo.findByStateAndNextAttemptAtLessThanEqualsOrderByNextAttemptAt(
+                    AcaPyCleanupTask.TaskState.PENDING, clock.instant(), Pageable.from(0, batchSize))).isEmpty()) {
+                processBatch(batch);
+            }
+        } catch (Exception e) {
+            log.error("aca-py cleanup stopped, pending records are deleted with the next run", e);
+        }
+    }
+
+    private void processBatch(@NonNull List<AcaPyCleanupTask> batch) {
+        List<CompletableFuture<List<AcaPyCleanupTask>>> inFlight = batch.stream()
+                .map(task -> CompletableFuture.supplyAsync(() -> execute(task), acaPyExecutor))
+                .toList();
+
+        Instant now = clock.instant();
+        List<AcaPyCleanupTask> done = new ArrayList<>();
+        List<AcaPyCleanupTask> failed = new ArrayList<>();
+        List<AcaPyCleanupTask> discovered = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            AcaPyCleanupTask task = batch.get(i);
+            try {
+                discovered.addAll(inFlight.get(i).join());
+                done.add(task);
+            } catch (CompletionException | CancellationException e) {
+                onFailure(task, e.getCause() != null ? e.getCause() : e, now);
+                failed.add(task);
+            }
+        }
+        discovered.forEach(t -> t.setNextAttemptAt(now));
+        writer.writeBatch(done, failed, discovered);
+        log.debug("aca-py cleanup batch: deleted {}, failed {}, discovered {}",
+                done.size(), failed.size(), discovered.size());
+    }
+
+    /**
+     * @return the tasks that were discovered by a listing task
+     */
+    private List<AcaPyCleanupTask> execute(@NonNull AcaPyCleanupTask task) {
+        try {
+            limiter.acquire();
+            if (AcaPyCleanupTask.RecordType.REMAINING_CREDENTIALS.equals(task.getRecordType())) {
+                return cleanup.streamRemainingCredentialExchangeRecords(task).toList();
+            }
+            cleanup.delete(task);
+        } catch (AriesException e) {
+            if (!e.codeIsNotFound()) {
+                throw e;
+            }
+            log.trace("aca-py record: {} is already gone", task.getRecordId());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("interrupted");
+        }
+        return List.of();
+    }
+
+    private void onFailure(@NonNull AcaPyCleanupTask task, @NonNull Throwable cause, @NonNull Instant now) {
+        int attempts = task.getAttempts() + 1;
+        task.setAttempts(attempts);
+        task.setErrorMsg(StringUtils.abbreviate(cause.getMessage(), 2048));
+        if (isTransient(cause) && attempts < maxAttempts) {
+            task.setNextAttemptAt(now.plus(backoff.multipliedBy(1L << Math.min(attempts - 1, 16))));
+            log.debug("Could not delete aca-py {} record: {}, retrying", task.getRecordType(), task.getRecordId());
+        } else {
+            task.setState(AcaPyCleanupTask.TaskState.FAILED);
+            log.warn("Could not delete aca-py {} record: {}, giving up after {} attempts",
+                    task.getRecordType(), task.getRecordId(), attempts, cause);
+        }
+    }
+
+    static boolean isTransient(@NonNull Throwable t) {
+        if (t instanceof UncheckedIOException || t instanceof CancellationException) {
+            return true;
+        }
+        if (t instanceof AriesException e) {
+            return e.getCode() >= 500 || e.getCode() == 429;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.connection;
+
+import io.micronaut.transaction.annotation.TransactionalAdvice;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import org.hyperledger.bpa.persistence.model.AcaPyCleanupTask;
+import org.hyperledger.bpa.persistence.repository.AcaPyCleanupTaskRepository;
+
+import java.util.List;
+
+/**
+ * Persists the progress of the {@link AcaPyCleanupJob} in batches
+ */
+@Singleton
+public class AcaPyCleanupWriter {
+
+    @Inject
+    AcaPyCleanupTaskRepository repo;
+
+    @TransactionalAdvice
+    public void save(@NonNull List<AcaPyCleanupTask> tasks) {
+        repo.saveAll(tasks);
+    }
+
+    /**
+     * @param done       tasks that succeeded, they are deleted
+     * @param failed     tasks that will be retried or have finally failed
+     * @param discovered new tasks that were found by a listing task
+     */
+    @TransactionalAdvice
+    public void writeBatch(@NonNull List<AcaPyCleanupTask> done, @NonNull List<AcaPyCleanupTask> failed,
+            @NonNull List<AcaPyCleanupTask> discovered) {
+        if (!done.isEmpty()) {
+            repo.deleteAll(done);
+        }
+        if (!failed.isEmpty()) {
+            repo.updateAll(failed);
+        }
+        if (!discovered.isEmpty()) {
+            repo.saveAll(discovered);
+        }
+    }
+}
@@ -23,27 +23,37 @@ import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.hyperledger.aries.AriesClient;
 import org.hyperledger.aries.api.ExchangeVersion;
-import org.hyperledger.aries.api.exception.AriesException;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
 import org.hyperledger.aries.api.issue_credential_v1.IssueCredentialRecordsFilter;
 import org.hyperledger.aries.api.issue_credential_v2.V2IssueCredentialRecordsFilter;
 import org.hyperledger.bpa.config.AcaPyConfig;
+import org.hyperledger.bpa.persistence.model.AcaPyCleanupTask;
 import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
+import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.model.PartnerProof;
 import org.hyperledger.bpa.persistence.repository.HolderCredExRepository;
 import org.hyperledger.bpa.persistence.repository.PartnerProofRepository;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+/**
+ * Knows which aca-py records belong to a partner and how to delete them. The
+ * records are not deleted here, they are collected as {@link AcaPyCleanupTask}s
+ * and handed over to the {@link AcaPyCleanupJob}.
+ */
 @Slf4j
 @Singleton
 public class AcyPyConnectionCleanup {
 
-    private static final int PAGE_SIZE = 50;
+    private static final int PAGE_SIZE = 500;
 
     private final Set<CredentialExchangeState> FILTERED_STATES;
 
@@ -71,97 +81,118 @@ public class AcyPyConnectionCleanup {
         }
     }
 
-    void deleteConnectionRecord(
-            @NonNull String connectionId) {
-        try {
-            ac.connectionsRemove(connectionId);
-        } catch (IOException | AriesException e) {
-            log.warn("Could not delete aca-py connection.", e);
+    /**
+     * Collects the aca-py records of the partner, needs to be called before the
+     * partners exchanges are removed from the BPA.
+     *
+     * @param partner {@link Partner}
+     * @return one task per record, empty if the partner has no connection
+     */
+    List<AcaPyCleanupTask> collectTasks(@NonNull Partner partner) {
+        List<AcaPyCleanupTask> tasks = new ArrayList<>();
+        String connectionId = partner.getConnectionId();
+        if (StringUtils.isEmpty(connectionId)) {
+            return tasks;
         }
-    }
+        UUID partnerId = partner.getId();
+        tasks.add(newTask(partnerId, AcaPyCleanupTask.RecordType.CONNECTION, connectionId));
 
-    void deletePresentationExchangeRecords(
-            @NonNull UUID partnerId) {
-        Page<PartnerProof.DeletePartnerProofDTO> partnerProofs = partnerProofRepo.getByPartnerId(
+        Page<PartnerProof.DeletePartnerProofDTO> proofs = partnerProofRepo.getByPartnerId(
                 partnerId, Pageable.from(0, PAGE_SIZE));
-        do {
-            partnerProofs = deletePresExPage(partnerId, partnerProofs);
-        } while (partnerProofs.getNumberOfElements() > 0);
-    }
+        while (proofs.getNumberOfElements() > 0) {
+            proofs.forEach(p -> {
+                if (p.exchangeIsV1()) {
+                    tasks.add(newTask(partnerId, AcaPyCleanupTask.RecordType.PRESENTATION_V1,
+                            p.getPresentationExchangeId()));
+                } else if (p.exchangeIsV2()) {
+                    tasks.add(newTask(partnerId, AcaPyCleanupTask.RecordType.PRESENTATION_V2,
+                            p.getPresentationExchangeId()));
+                }
+            });
+            proofs = partnerProofRepo.getByPartnerId(partnerId, proofs.nextPageable());
+        }
 
-    void deleteCredentialExchangeRecords(
-            @NonNull UUID partnerId) {
         // If the flag preserver-exchange-records is set to false, only exchanges that
         // are not acked or done are stored within aca-py, so to prevent lots of 404
         // we filter out those states.
         Page<BPACredentialExchange.DeleteCredentialExchangeDTO> credExchanges = holderCredExRepository
-                .findByPartnerIdAndStateNotIn(
-                        partnerId,
-                        FILTERED_STATES,
-                        Pageable.from(0, PAGE_SIZE));
-        do {
-            credExchanges = deleteCredExPage(partnerId, credExchanges);
-        } while (credExchanges.getNumberOfElements() > 0);
+                .findByPartnerIdAndStateNotIn(partnerId, FILTERED_STATES, Pageable.from(0, PAGE_SIZE));
+        while (credExchanges.getNumberOfElements() > 0) {
+            credExchanges.forEach(c -> tasks.add(
+                    credentialTask(partnerId, c.getCredentialExchangeId(), c.getExchangeVersion())));
+            credExchanges = holderCredExRepository.findByPartnerIdAndStateNotIn(
+                    partnerId, FILTERED_STATES, credExchanges.nextPageable());
+        }
 
+        tasks.add(newTask(partnerId, AcaPyCleanupTask.RecordType.REMAINING_CREDENTIALS, connectionId));
+        return tasks;
     }
 
-    void deleteRemainingCredentialExchangeRecords(
-            @NonNull String connectionId) {
-        try {
-            ac.issueCredentialRecords(IssueCredentialRecordsFilter
-                    .builder()
-                    .connectionId(connectionId)
-                    .build())
-                    .ifPresent(records -> records
-                            .forEach(record -> deleteCredentialExchangeRecord(record.getCredentialExchangeId(),
-                                    ExchangeVersion.V1)));
-            ac.issueCredentialV2Records(V2IssueCredentialRecordsFilter
-                    .builder()
-                    .connectionId(connectionId)
-                    .build())
-                    .ifPresent(records -> records
-                            .forEach(record -> deleteCredentialExchangeRecord(record.getCredExRecord().getCredExId(),
-                                    ExchangeVersion.V2)));
-        } catch (IOException e) {
-            log.error("aca-py not available");
+    /**
+     * Deletes the record the task points to
+     *
+     * @param task {@link AcaPyCleanupTask} of a deletable record type
+     * @throws IOException if aca-py is not reachable
+     */
+    void delete(@NonNull AcaPyCleanupTask task) throws IOException {
+        String id = task.getRecordId();
+        switch (task.getRecordType()) {
+        case CONNECTION -> ac.connectionsRemove(id);
+        case PRESENTATION_V1 -> ac.presentProofRecordsRemove(id);
+        case PRESENTATION_V2 -> ac.presentProofV2RecordsRemove(id);
+        case CREDENTIAL_V1 -> ac.issueCredentialRecordsRemove(id);
+        case CREDENTIAL_V2 -> ac.issueCredentialV2RecordsRemove(id);
+        default -> throw new IllegalArgumentException("Not a deletable record type: " + task.getRecordType());
         }
     }
 
-    private Page<PartnerProof.DeletePartnerProofDTO> deletePresExPage(
-            @NonNull UUID partnerId,
-            @NonNull Page<PartnerProof.DeletePartnerProofDTO> page) {
-        page.forEach(p -> {
-            try {
-                if (p.exchangeIsV1()) {
-                    ac.presentProofRecordsRemove(p.getPresentationExchangeId());
-                } else if (p.exchangeIsV2()) {
-                    ac.presentProofV2RecordsRemove(p.getPresentationExchangeId());
-                }
-            } catch (IOException | AriesException e) {
-                log.error("Could not delete presentation exchange record: {}", p.getPresentationExchangeId(), e);
-            }
-        });
-        return partnerProofRepo.getByPartnerId(partnerId, page.nextPageable());
+    /**
+     * Lists the v1 and v2 credential exchanges of the connection that are still
+     * held by aca-py. The records endpoints of aca-py can not be paged, so the
+     * listing is fetched once per exchange version and only then mapped, lazily,
+     * into tasks.
+     *
+     * @param task {@link AcaPyCleanupTask} of type REMAINING_CREDENTIALS
+     * @return stream of delete tasks
+     * @throws IOException if aca-py is not reachable
+     */
+    Stream<AcaPyCleanupTask> streamRemainingCredentialExchangeRecords(@NonNull AcaPyCleanupTask task)
+            throws IOException {
+        String connectionId = task.getRecordId();
+        UUID partnerId = task.getPartnerId();
+        Stream<AcaPyCleanupTask> v1 = ac.issueCredentialRecords(IssueCredentialRecordsFilter
+                .builder()
+                .connectionId(connectionId)
+                .build())
+                .stream()
+                .flatMap(List::stream)
+                .map(r -> credentialTask(partnerId, r.getCredentialExchangeId(), ExchangeVersion.V1));
+        Stream<AcaPyCleanupTask> v2 = ac.issueCredentialV2Records(V2IssueCredentialRecordsFilter
+                .builder()
+                .connectionId(connectionId)
+                .build())
+                .stream()
+                .flatMap(List::stream)
+                .filter(r -> r.getCredExRecord() != null)
+                .map(r -> credentialTask(partnerId, r.getCredExRecord().getCredExId(), ExchangeVersion.V2));
+        return Stream.concat(v1, v2);
     }
 
-    private Page<BPACredentialExchange.DeleteCredentialExchangeDTO> deleteCredExPage(
-            @NonNull UUID partnerId,
-            @NonNull Page<BPACredentialExchange.DeleteCredentialExchangeDTO> page) {
-        page.forEach(p -> deleteCredentialExchangeRecord(p.getCredentialExchangeId(), p.getExchangeVersion()));
-        return holderCredExRepository.findByPartnerIdAndStateNotIn(partnerId, FILTERED_STATES, page.nextPageable());
+    private static AcaPyCleanupTask credentialTask(UUID partnerId, @NonNull String credentialExchangeId,
+            ExchangeVersion version) {
+        return newTask(partnerId, version != null && version.isV2()
+                ? AcaPyCleanupTask.RecordType.CREDENTIAL_V2
+                : AcaPyCleanupTask.RecordType.CREDENTIAL_V1, credentialExchangeId);
     }
 
-    private void deleteCredentialExchangeRecord(
-            @NonNull String credentialExchangeId,
-            @NonNull ExchangeVersion version) {
-        try {
-            if (version.isV1()) {
-                ac.issueCredentialRecordsRemove(credentialExchangeId);
-            } else if (version.isV2()) {
-                ac.issueCredentialV2RecordsRemove(credentialExchangeId);
-            }
-        } catch (IOException | AriesException e) {
-            log.error("Could not delete credential exchange record: {}", credentialExchangeId, e);
-        }
+    static AcaPyCleanupTask newTask(UUID partnerId, @NonNull AcaPyCleanupTask.RecordType type,
+            @NonNull String recordId) {
+        return AcaPyCleanupTask.builder()
+                .partnerId(partnerId)
+                .recordType(type)
+                .recordId(recordId)
+                .state(AcaPyCleanupTask.TaskState.PENDING)
+                .attempts(0)
+                .build();
     }
 }
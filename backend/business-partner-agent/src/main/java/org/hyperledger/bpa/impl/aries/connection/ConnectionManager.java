@@ -47,6 +47,7 @@ import org.hyperledger.bpa.impl.activity.DidResolver;
 import org.hyperledger.bpa.impl.activity.PartnerCredDefLookup;
 import org.hyperledger.bpa.impl.util.AriesStringUtil;
 import org.hyperledger.bpa.impl.util.TimeUtil;
+import org.hyperledger.bpa.persistence.model.AcaPyCleanupTask;
 import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.model.Tag;
 import org.hyperledger.bpa.persistence.repository.HolderCredExRepository;
@@ -98,6 +99,9 @@ public class ConnectionManager {
     @Inject
     AcyPyConnectionCleanup acaPyConnectionCleanup;
 
+    @Inject
+    AcaPyCleanupJob acaPyCleanupJob;
+
     /**
      * Creates a connection invitation to be used within a barcode
      *
@@ -339,18 +343,9 @@ public class ConnectionManager {
     }
 
     public void removeConnection(@NonNull Partner partner) {
-        if (StringUtils.isNotEmpty(partner.getConnectionId())) {
-            String connectionId = partner.getConnectionId();
-            log.debug("Removing aca-py connection: {}", connectionId);
-            acaPyConnectionCleanup.deleteConnectionRecord(connectionId);
-
-            log.debug("Removing all aca-py v1 and v2 presentation exchanges");
-            acaPyConnectionCleanup.deletePresentationExchangeRecords(partner.getId());
-
-            log.debug("Removing all aca-py v1 and v2 credential exchanges");
-            acaPyConnectionCleanup.deleteCredentialExchangeRecords(partner.getId());
-            acaPyConnectionCleanup.deleteRemainingCredentialExchangeRecords(connectionId);
-        }
+        // collect the aca-py records before the BPA exchanges are gone, they are
+        // deleted in the background so that the caller does not wait for aca-py
+        List<AcaPyCleanupTask> acaPyRecords = acaPyConnectionCleanup.collectTasks(partner);
 
         log.debug("Detaching wallet credentials from partner");
         holderCredExRepo.setPartnerIdToNull(partner.getId());
@@ -358,6 +353,9 @@ public class ConnectionManager {
         log.debug("Removing all BPA presentation exchanges");
         partnerProofRepo.deleteByPartnerId(partner.getId());
 
+        log.debug("Removing {} aca-py records of connection: {}", acaPyRecords.size(), partner.getConnectionId());
+        acaPyCleanupJob.submit(acaPyRecords);
+
         eventPublisher.publishEventAsync(PartnerRemovedEvent.builder().partner(partner).build());
     }
 
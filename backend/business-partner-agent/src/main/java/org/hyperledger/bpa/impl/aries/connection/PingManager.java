@@ -17,36 +17,52 @@
  */
 package org.hyperledger.bpa.impl.aries.connection;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Bean;
 import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.context.env.Environment;
-import io.micronaut.core.util.CollectionUtils;
 import io.micronaut.core.util.StringUtils;
 import io.micronaut.scheduling.annotation.Scheduled;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.aries.AriesClient;
 import org.hyperledger.aries.api.connection.ConnectionState;
 import org.hyperledger.aries.api.exception.AriesException;
 import org.hyperledger.aries.api.trustping.PingEvent;
-import org.hyperledger.aries.api.trustping.PingEventState;
 import org.hyperledger.aries.api.trustping.PingRequest;
-import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.impl.util.NamedThreadFactory;
 import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 
 import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
-
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Sends trust pings to all connections that have trust ping enabled. The
+ * connections are split into shards by their id, every run pings one shard, so
+ * that each connection is pinged once per shards * tick. Pings are sent with a
+ * bounded number in flight. A ping that is not answered within the response
+ * timeout counts as no response. State changes are written with one update per
+ * outcome and run.
+ */
 @Slf4j
 @Singleton
 @Requires(notEnv = { Environment.TEST })
+@Bean(preDestroy = "shutdown")
 public class PingManager {
 
+    static final String METRIC_ROUND_TRIP = "bpa.ping.round.trip";
+
     final static List<ConnectionState> statesToFilter = List.of(
             ConnectionState.ACTIVE, ConnectionState.COMPLETED,
             ConnectionState.PING_RESPONSE, ConnectionState.PING_NO_RESPONSE);
@@ -57,110 +73,174 @@ public class PingManager {
     @Inject
     PartnerRepository repo;
 
-    private boolean firstRun;
+    @Inject
+    Clock clock;
 
-    public PingManager() {
-        super();
-        this.firstRun = true;
-    }
+    @Inject
+    StaleConnectionCleanup staleConnectionCleanup;
+
+    private final int shards;
+
+    private final Duration responseTimeout;
+
+    private final int maxPending;
 
-    // threadId, connectionId
-    private final Map<String, String> sent = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
 
-    // threadId, state
-    private final Map<String, PingEventState> received = new ConcurrentHashMap<>();
+    private final Timer roundTripTimer;
+
+    private long run;
+
+    // threadId, sent ping
+    private final Map<String, PendingPing> pending = new ConcurrentHashMap<>();
+
+    // threadId, time the response was received
+    private final Map<String, Instant> received = new ConcurrentHashMap<>();
+
+    // connectionId, last measured round trip
+    private final Map<String, Duration> roundTrips = new ConcurrentHashMap<>();
+
+    public PingManager(
+            @Value("${bpa.ping.shards}") int shards,
+            @Value("${bpa.ping.concurrency}") int concurrency,
+            @Value("${bpa.ping.response-timeout}") Duration responseTimeout,
+            @Value("${bpa.ping.max-pending}") int maxPending,
+            MeterRegistry registry) {
+        this.shards = Math.max(1, shards);
+        this.responseTimeout = responseTimeout;
+        this.maxPending = maxPending;
+        this.executor = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("trust-ping"));
+        this.roundTripTimer = Timer.builder(METRIC_ROUND_TRIP)
+                .description("Time between sending a trust ping and receiving its response")
+                .register(registry);
+    }
 
     public void handlePingEvent(PingEvent event) {
-        if (event.stateIsResponseReceived()) {
-            received.put(event.getThreadId(), event.getState());
+        if (event.stateIsResponseReceived() && received.size() < maxPending) {
+            received.put(event.getThreadId(), clock.instant());
         }
     }
 
-    @Scheduled(fixedDelay = "1m", initialDelay = "90s") // init delay needs to be > than aca-py connection timeout
+    /**
+     * @param connectionId aca-py connection id
+     * @return round trip of the last answered ping, if any
+     */
+    public Optional<Duration> getRoundTrip(@NonNull String connectionId) {
+        return Optional.ofNullable(roundTrips.get(connectionId));
+    }
+
+    // init delay needs to be > than aca-py connection timeout
+    @Scheduled(fixedDelay = "${bpa.ping.tick}", initialDelay = "90s")
     void checkConnections() {
         try {
-            List<String> connectionsToPing = repo
-                    .findByStateInAndTrustPingTrueAndAriesSupportTrue(statesToFilter)
-                    .stream().map(Partner::getConnectionId).collect(Collectors.toList());
-            if (CollectionUtils.isNotEmpty(connectionsToPing)) {
-                if (!firstRun) {
-                    setNewState();
-                }
-                sendPingToConnections(connectionsToPing);
+            List<String> pingable = repo.findConnectionIdByStateInAndTrustPingTrueAndAriesSupportTrue(statesToFilter);
+            Instant now = clock.instant();
+
+            Set<String> responded = new HashSet<>();
+            Set<String> noResponse = ConcurrentHashMap.newKeySet();
+            collectOutcomes(now, responded, noResponse);
+
+            int shard = (int) (run++ % shards);
+            Set<String> inFlight = new HashSet<>();
+            pending.values().forEach(p -> inFlight.add(p.connectionId()));
+            List<String> toPing = pingable.stream()
+                    .filter(StringUtils::isNotEmpty)
+                    .filter(id -> Math.floorMod(id.hashCode(), shards) == shard)
+                    .filter(id -> !inFlight.contains(id))
+                    .toList();
+            sendPingToConnections(toPing, noResponse);
+
+            noResponse.removeAll(responded);
+            if (!responded.isEmpty()) {
+                repo.updateStateAndLastSeenByConnectionIdIn(responded, ConnectionState.PING_RESPONSE, now);
             }
-            if (firstRun) {
-                firstRun = false;
+            if (!noResponse.isEmpty()) {
+                repo.updateStateByConnectionIdIn(noResponse, ConnectionState.PING_NO_RESPONSE);
             }
+            roundTrips.keySet().retainAll(new HashSet<>(pingable));
+            log.debug("Trust ping shard {}/{}: sent {}, responded {}, no response {}",
+                    shard + 1, shards, toPing.size(), responded.size(), noResponse.size());
         } catch (Exception e) {
             log.error("Trust ping job failed.", e);
         }
     }
 
-    private void setNewState() {
-        sent.forEach((k, v) -> {
-            ConnectionState state;
-            if (received.containsKey(k)) {
-                state = ConnectionState.PING_RESPONSE;
-                repo.updateStateAndLastSeenByConnectionId(v, state, Instant.now());
-            } else {
-                state = ConnectionState.PING_NO_RESPONSE;
-                repo.updateStateByConnectionId(v, state);
+    /**
+     * Matches the pending pings with the received responses, pings that are older
+     * than the response timeout count as not answered. Responses that do not match
+     * any ping are dropped after the same timeout.
+     */
+    private void collectOutcomes(@NonNull Instant now, @NonNull Set<String> responded,
+            @NonNull Set<String> noResponse) {
+        Instant deadline = now.minus(responseTimeout);
+        pending.entrySet().removeIf(e -> {
+            PendingPing ping = e.getValue();
+            Instant responseAt = received.remove(e.getKey());
+            if (responseAt != null) {
+                Duration rtt = Duration.between(ping.sentAt(), responseAt);
+                roundTripTimer.record(rtt);
+                roundTrips.put(ping.connectionId(), rtt);
+                responded.add(ping.connectionId());
+                return true;
             }
+            if (ping.sentAt().isBefore(deadline)) {
+                noResponse.add(ping.connectionId());
+                return true;
+            }
+            return false;
         });
-        sent.clear();
-        received.clear();
+        received.values().removeIf(at -> at.isBefore(deadline));
+    }
+
+    private void sendPingToConnections(@NonNull List<String> connectionsToPing, @NonNull Set<String> noResponse) {
+        CompletableFuture.allOf(connectionsToPing.stream()
+                .map(connectionId -> CompletableFuture.runAsync(() -> sendPing(connectionId, noResponse), executor))
+                .toArray(CompletableFuture[]::new))
+                .join();
     }
 
-    private void sendPingToConnections(List<String> connectionsToPing) {
+    private void sendPing(@NonNull String connectionId, @NonNull Set<String> noResponse) {
+        log.debug("Sending ping to: {}", connectionId);
         try {
-            for (String connectionId : connectionsToPing) {
-                log.debug("Sending ping to: {}", connectionId);
-                try {
-                    aries.connectionsSendPing(connectionId, new PingRequest(connectionId))
-                            .ifPresent(resp -> sent.put(resp.getThreadId(), connectionId));
-                } catch (AriesException e) {
-                    if (e.getCode() == 404) {
-                        log.error("Connection id {} exists in the BPA but not in aca-py", connectionId);
-                        repo.updateStateByConnectionId(connectionId, ConnectionState.PING_NO_RESPONSE);
-                    } else {
-                        log.error("Could not send ping request to connection {}", connectionId, e);
-                    }
+            Instant sentAt = clock.instant();
+            aries.connectionsSendPing(connectionId, new PingRequest(connectionId)).ifPresent(resp -> {
+                if (pending.size() < maxPending) {
+                    pending.put(resp.getThreadId(), new PendingPing(connectionId, sentAt));
                 }
+            });
+        } catch (AriesException e) {
+            if (e.getCode() == 404) {
+                log.error("Connection id {} exists in the BPA but not in aca-py", connectionId);
+                noResponse.add(connectionId);
+            } else {
+                log.error("Could not send ping request to connection {}", connectionId, e);
             }
         } catch (IOException e) {
-            log.error("Could not ping active connections, because aca-py is not available", e);
+            log.error("Could not ping connection {}, because aca-py is not available", connectionId);
         }
     }
 
-    int getSentSize() {
-        return sent.size();
+    int getPendingSize() {
+        return pending.size();
     }
 
     int getReceivedSize() {
         return received.size();
     }
 
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     @Scheduled(fixedDelay = "30m", initialDelay = "1m")
     void deleteStaleConnections() {
-        List<String> bpaConIds = StreamSupport.stream(repo.findAll().spliterator(), false)
-                .map(Partner::getConnectionId)
-                .filter(StringUtils::isNotEmpty)
-                .toList();
-
         try {
-            List<String> acaConIds = aries.connectionIds();
-            List<String> stale = acaConIds
-                    .stream()
-                    .filter(acaId -> bpaConIds
-                            .stream()
-                            .noneMatch(bpaId -> bpaId.equals(acaId)))
-                    .toList();
-            for (String conId : stale) {
-                aries.connectionsRemove(conId);
-            }
-        } catch (IOException e) {
-            log.error("aca-py not reachable.", e);
+            staleConnectionCleanup.removeStale();
+        } catch (Exception e) {
+            log.error("Stale connection cleanup failed.", e);
         }
+    }
 
+    private record PendingPing(String connectionId, Instant sentAt) {
     }
 }
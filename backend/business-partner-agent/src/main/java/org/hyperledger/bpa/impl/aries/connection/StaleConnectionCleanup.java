@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.connection;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.exception.AriesException;
+import org.hyperledger.bpa.api.exception.NetworkException;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.admin.StaleConnectionReport;
+import org.hyperledger.bpa.impl.util.NamedThreadFactory;
+import org.hyperledger.bpa.impl.util.RateLimiter;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Removes aca-py connections that do not belong to any partner. Only the
+ * connection ids are loaded on both sides, the partner ids are held in a hash
+ * set and the aca-py ids are streamed against it. Removals are sent with a
+ * bounded number in flight and a maximum rate, so that aca-py is not flooded.
+ */
+@Slf4j
+@Singleton
+@Bean(preDestroy = "shutdown")
+public class StaleConnectionCleanup {
+
+    @Inject
+    AriesClient aries;
+
+    @Inject
+    PartnerRepository repo;
+
+    @Inject
+    BPAMessageSource.DefaultMessageSource ms;
+
+    private final ExecutorService executor;
+
+    private final RateLimiter limiter;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public StaleConnectionCleanup(
+            @Value("${bpa.connection.cleanup.concurrency}") int concurrency,
+            @Value("${bpa.connection.cleanup.rate}") double rate) {
+        this.executor = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("connection-cleanup"));
+        this.limiter = new RateLimiter(rate);
+    }
+
+    /**
+     * @return the stale connections, without removing them
+     */
+    public StaleConnectionReport report() {
+        return reconcile(true);
+    }
+
+    /**
+     * Removes the stale connections from aca-py
+     *
+     * @return {@link StaleConnectionReport}
+     */
+    public StaleConnectionReport removeStale() {
+        if (!running.compareAndSet(false, true)) {
+            throw new WrongApiUsageException(ms.getMessage("api.admin.connections.cleanup.running"));
+        }
+        try {
+            return reconcile(false);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private StaleConnectionReport reconcile(boolean dryRun) {
+        // aca-py first, so that a partner that is created meanwhile is part of the
+        // partner set
+        List<String> acaPyIds;
+        try {
+            acaPyIds = aries.connectionIds();
+        } catch (IOException e) {
+            throw new NetworkException(ms.getMessage("acapy.unavailable"), e);
+        }
+        Set<String> partnerIds = new HashSet<>(repo.findConnectionIdByConnectionIdIsNotNull());
+        List<String> stale = acaPyIds.stream()
+                .filter(id -> !partnerIds.contains(id))
+                .toList();
+
+        StaleConnectionReport report = StaleConnectionReport.builder()
+                .dryRun(dryRun)
+                .acaPyConnections(acaPyIds.size())
+                .partnerConnections(partnerIds.size())
+                .stale(stale)
+                .removed(0)
+                .failed(0)
+                .build();
+        if (!dryRun && !stale.isEmpty()) {
+            remove(stale, report);
+            log.info("Removed {} stale aca-py connections, {} failed", report.getRemoved(), report.getFailed());
+        }
+        return report;
+    }
+
+    private void remove(@NonNull List<String> stale, @NonNull StaleConnectionReport report) {
+        AtomicInteger removed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CompletableFuture.allOf(stale.stream()
+                .map(connectionId -> CompletableFuture.runAsync(() -> {
+                    try {
+                        limiter.acquire();
+                        aries.connectionsRemove(connectionId);
+                        removed.incrementAndGet();
+                    } catch (IOException | AriesException e) {
+                        log.warn("Could not remove stale aca-py connection: {}", connectionId, e);
+                        failed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        failed.incrementAndGet();
+                        Thread.currentThread().interrupt();
+                    }
+                }, executor))
+                .toArray(CompletableFuture[]::new))
+                .join();
+        report.setRemoved(removed.get());
+        report.setFailed(failed.get());
+    }
+}
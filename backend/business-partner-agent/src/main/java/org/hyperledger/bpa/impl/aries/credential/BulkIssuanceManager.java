@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.credential;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.model.Pageable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.bpa.api.exception.EntityNotFoundException;
+import org.hyperledger.bpa.api.exception.IssuerException;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.WebSocketMessageBody;
+import org.hyperledger.bpa.controller.api.issuer.BulkIssuanceJobAPI;
+import org.hyperledger.bpa.controller.api.issuer.BulkIssueCredentialRequest;
+import org.hyperledger.bpa.impl.messaging.websocket.MessageService;
+import org.hyperledger.bpa.impl.messaging.websocket.NotificationBatcher;
+import org.hyperledger.bpa.impl.util.CsvReader;
+import org.hyperledger.bpa.impl.util.NamedThreadFactory;
+import org.hyperledger.bpa.persistence.model.BPACredentialDefinition;
+import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
+import org.hyperledger.bpa.persistence.model.BulkIssuanceItem;
+import org.hyperledger.bpa.persistence.model.BulkIssuanceJob;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.repository.BPACredentialDefinitionRepository;
+import org.hyperledger.bpa.persistence.repository.BulkIssuanceItemRepository;
+import org.hyperledger.bpa.persistence.repository.BulkIssuanceJobRepository;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Issues many indy credentials within one job. All items are validated and
+ * persisted up front, then sent to aca-py batch by batch with a bounded number
+ * of offers in flight. The credential exchange of an item is persisted as soon
+ * as its offer was sent, together with the item state, so that webhooks of the
+ * exchange find it even while the rest of the batch is still in flight. A job
+ * that was interrupted, e.g. by a restart, can be resumed and will only send
+ * the items that are still pending. Items that were sent to aca-py, but not
+ * persisted yet when the instance stopped, will be sent again.
+ */
+@Slf4j
+@Singleton
+@Bean(preDestroy = "shutdown")
+public class BulkIssuanceManager {
+
+    static final String CSV_PARTNER_ID = "partnerId";
+    static final String CSV_CRED_DEF_ID = "credDefId";
+
+    @Inject
+    BulkIssuanceJobRepository jobRepo;
+
+    @Inject
+    BulkIssuanceItemRepository itemRepo;
+
+    @Inject
+    BulkIssuanceWriter writer;
+
+    @Inject
+    PartnerRepository partnerRepo;
+
+    @Inject
+    BPACredentialDefinitionRepository credDefRepo;
+
+    @Inject
+    IssuerIndyManager indy;
+
+    @Inject
+    IssuerManager issuer;
+
+    @Inject
+    MessageService messageService;
+
+    @Inject
+    NotificationBatcher batcher;
+
+    @Inject
+    BPAMessageSource.DefaultMessageSource msg;
+
+    private final int batchSize;
+
+    /** jobs are processed one after another */
+    private final ExecutorService jobExecutor;
+
+    /** bounds the number of offers that are in flight with aca-py */
+    private final ExecutorService acaPyExecutor;
+
+    /** jobs that are queued or running on this instance */
+    private final Set<UUID> active = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean shutdown;
+
+    public BulkIssuanceManager(
+            @Value("${bpa.issuance.bulk.concurrency}") int concurrency,
+            @Value("${bpa.issuance.bulk.batch-size}") int batchSize) {
+        this.batchSize = batchSize;
+        this.jobExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("bulk-issuance-job"));
+        this.acaPyExecutor = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("bulk-issuance"));
+    }
+
+    /**
+     * Validates and persists all items and starts the job
+     *
+     * @param request {@link BulkIssueCredentialRequest}
+     * @return {@link BulkIssuanceJobAPI}
+     */
+    public BulkIssuanceJobAPI submit(@NonNull BulkIssueCredentialRequest request) {
+        List<BulkIssueCredentialRequest.BulkIssueItem> requested = request.getItems();
+        Map<UUID, Partner> partners = loadPartners(requested.stream()
+                .map(BulkIssueCredentialRequest.BulkIssueItem::getPartnerId));
+        Map<UUID, BPACredentialDefinition> credDefs = loadCredDefs(requested.stream()
+                .map(BulkIssueCredentialRequest.BulkIssueItem::getCredDefId));
+
+        List<BulkIssuanceItem> items = new ArrayList<>(requested.size());
+        int failed = 0;
+        for (int i = 0; i < requested.size(); i++) {
+            BulkIssueCredentialRequest.BulkIssueItem r = requested.get(i);
+            BulkIssuanceItem item = BulkIssuanceItem.builder()
+                    .position(i)
+                    .partnerId(r.getPartnerId())
+                    .credDefId(r.getCredDefId())
+                    .document(r.getDocument())
+                    .state(BulkIssuanceItem.ItemState.PENDING)
+                    .build();
+            try {
+                validate(item, partners, credDefs);
+            } catch (IssuerException e) {
+                item.setState(BulkIssuanceItem.ItemState.FAILED);
+                item.setErrorMsg(e.getMessage());
+                failed++;
+            }
+            items.add(item);
+        }
+
+        BulkIssuanceJob job = writer.createJob(BulkIssuanceJob.builder()
+                .state(failed == items.size() ? BulkIssuanceJob.JobState.DONE : BulkIssuanceJob.JobState.RUNNING)
+                .exchangeVersion(request.exchangeIsV1() ? ExchangeVersion.V1 : ExchangeVersion.V2)
+                .total(items.size())
+                .sent(0)
+                .failed(failed)
+                .build(), items);
+        log.info("Created bulk issuance job: {} with {} items, {} invalid", job.getId(), items.size(), failed);
+        if (BulkIssuanceJob.JobState.RUNNING.equals(job.getState())) {
+            start(job);
+        }
+        return BulkIssuanceJobAPI.from(job, active.contains(job.getId()));
+    }
+
+    /**
+     * Parses the csv and submits the job. The first row is the header, it contains
+     * partnerId, credDefId and the credentials attribute names in any order.
+     *
+     * @param csv             the csv document
+     * @param exchangeVersion {@link ExchangeVersion}
+     * @return {@link BulkIssuanceJobAPI}
+     */
+    public BulkIssuanceJobAPI submit(@NonNull String csv, @Nullable ExchangeVersion exchangeVersion) {
+        return submit(BulkIssueCredentialRequest.builder()
+                .exchangeVersion(exchangeVersion)
+                .items(parseCsv(csv))
+                .build());
+    }
+
+    /**
+     * @param id job id
+     * @return {@link BulkIssuanceJobAPI} including the failed items
+     */
+    public BulkIssuanceJobAPI getJob(@NonNull UUID id) {
+        BulkIssuanceJob job = jobRepo.findById(id).orElseThrow(EntityNotFoundException::new);
+        BulkIssuanceJobAPI api = BulkIssuanceJobAPI.from(job, active.contains(id));
+        api.setFailures(itemRepo.findByJobIdAndStateOrderByPosition(id, BulkIssuanceItem.ItemState.FAILED)
+                .stream().map(BulkIssuanceJobAPI.Failure::from).toList());
+        return api;
+    }
+
+    /**
+     * Continues sending the pending items of a job that was interrupted
+     *
+     * @param id job id
+     * @return {@link BulkIssuanceJobAPI}
+     */
+    public BulkIssuanceJobAPI resume(@NonNull UUID id) {
+        BulkIssuanceJob job = jobRepo.findById(id).orElseThrow(EntityNotFoundException::new);
+        if (BulkIssuanceJob.JobState.DONE.equals(job.getState()) || !start(job)) {
+            throw new WrongApiUsageException(msg.getMessage("api.issuer.bulk.not.resumable", Map.of("id", id)));
+        }
+        return BulkIssuanceJobAPI.from(job, true);
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        jobExecutor.shutdown();
+        acaPyExecutor.shutdown();
+        try {
+            if (!jobExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                jobExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            jobExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean start(@NonNull BulkIssuanceJob job) {
+        if (!active.add(job.getId())) {
+            return false;
+        }
+        try {
+            jobExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            active.remove(job.getId());
+            return false;
+        }
+        return true;
+    }
+
+    void run(@NonNull BulkIssuanceJob job) {
+        UUID jobId = job.getId();
+        ExchangeVersion exVersion = job.getExchangeVersion() != null ? job.getExchangeVersion() : ExchangeVersion.V1;
+        Map<UUID, Partner> partners = new HashMap<>();
+        Map<UUID, BPACredentialDefinition> credDefs = new HashMap<>();
+        try {
+            job.setSent(itemRepo.countByJobIdAndState(jobId, BulkIssuanceItem.ItemState.SENT));
+            job.setFailed(itemRepo.countByJobIdAndState(jobId, BulkIssuanceItem.ItemState.FAILED));
+            List<BulkIssuanceItem> batch;
+            while (!shutdown && !(batch = itemRepo.findByJobIdAndStateOrderByPosition(jobId,
+                    BulkIssuanceItem.ItemState.PENDING, Pageable.from(0, batchSize))).isEmpty()) {
+                partners.putAll(loadPartners(batch.stream().map(BulkIssuanceItem::getPartnerId)
+                        .filter(id -> !partners.containsKey(id))));
+                credDefs.putAll(loadCredDefs(batch.stream().map(BulkIssuanceItem::getCredDefId)
+                        .filter(id -> !credDefs.containsKey(id))));
+                sendBatch(job, batch, partners, credDefs, exVersion);
+            }
+            if (!shutdown) {
+                job.setState(BulkIssuanceJob.JobState.DONE);
+                jobRepo.updateProgress(jobId, job.getState(), job.getSent(), job.getFailed());
+                log.info("Bulk issuance job: {} done, sent: {}, failed: {}", jobId, job.getSent(), job.getFailed());
+            }
+        } catch (Exception e) {
+            log.error("Bulk issuance job: {} stopped, it can be resumed", jobId, e);
+        } finally {
+            active.remove(jobId);
+            publishProgress(job);
+        }
+    }
+
+    private void sendBatch(@NonNull BulkIssuanceJob job, @NonNull List<BulkIssuanceItem> batch,
+            @NonNull Map<UUID, Partner> partners, @NonNull Map<UUID, BPACredentialDefinition> credDefs,
+            @NonNull ExchangeVersion exVersion) {
+        List<CompletableFuture<BPACredentialExchange>> inFlight = batch.stream()
+                .map(item -> CompletableFuture.supplyAsync(() -> {
+                    validate(item, partners, credDefs);
+                    BPACredentialExchange credEx = indy.sendIndyCredential(partners.get(item.getPartnerId()),
+                            credDefs.get(item.getCredDefId()), item.getDocument(), exVersion);
+                    // aca-py might already be calling back, do not wait for the batch
+                    return writer.writeSent(item, credEx);
+                }, acaPyExecutor))
+                .toList();
+
+        List<BPACredentialExchange> saved = new ArrayList<>();
+        List<BulkIssuanceItem> failed = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            BulkIssuanceItem item = batch.get(i);
+            try {
+                saved.add(inFlight.get(i).join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("Bulk issuance job: {} could not send item: {}", job.getId(), item.getPosition(), cause);
+                item.setState(BulkIssuanceItem.ItemState.FAILED);
+                item.setErrorMsg(cause.getMessage());
+                failed.add(item);
+            }
+        }
+
+        writer.writeFailed(failed);
+        job.setSent(job.getSent() + saved.size());
+        job.setFailed(job.getFailed() + failed.size());
+        jobRepo.updateProgress(job.getId(), job.getState(), job.getSent(), job.getFailed());
+
+        saved.forEach(issuer::fireCredentialIssuedEvent);
+        publishProgress(job);
+    }
+
+    private void validate(@NonNull BulkIssuanceItem item, @NonNull Map<UUID, Partner> partners,
+            @NonNull Map<UUID, BPACredentialDefinition> credDefs) {
+        Partner partner = partners.get(item.getPartnerId());
+        if (partner == null) {
+            throw new IssuerException(msg.getMessage("api.partner.not.found", Map.of("id", item.getPartnerId())));
+        }
+        if (partner.getConnectionId() == null) {
+            throw new IssuerException(msg.getMessage("api.partner.no.connection"));
+        }
+        BPACredentialDefinition credDef = credDefs.get(item.getCredDefId());
+        if (credDef == null) {
+            throw new IssuerException(
+                    msg.getMessage("api.issuer.creddef.not.found", Map.of("id", item.getCredDefId())));
+        }
+        indy.checkCredentialAttributes(item.getDocument() != null ? item.getDocument() : Map.of(), credDef);
+    }
+
+    private Map<UUID, Partner> loadPartners(@NonNull Stream<UUID> ids) {
+        List<UUID> distinct = ids.filter(Objects::nonNull).distinct().toList();
+        return distinct.isEmpty() ? Map.of()
+                : partnerRepo.findByIdIn(distinct).stream()
+                        .collect(Collectors.toMap(Partner::getId, p -> p));
+    }
+
+    private Map<UUID, BPACredentialDefinition> loadCredDefs(@NonNull Stream<UUID> ids) {
+        List<UUID> distinct = ids.filter(Objects::nonNull).distinct().toList();
+        return distinct.isEmpty() ? Map.of()
+                : credDefRepo.findByIdIn(distinct).stream()
+                        .collect(Collectors.toMap(BPACredentialDefinition::getId, c -> c));
+    }
+
+    /**
+     * Progress is only pushed to connected sessions, queueing it for later would
+     * flood the message queue with outdated states. Progress updates of the same
+     * job within one flush interval are sent as one.
+     */
+    private void publishProgress(@NonNull BulkIssuanceJob job) {
+        if (messageService.hasConnectedSessions()) {
+            batcher.send(WebSocketMessageBody.notificationEvent(
+                    WebSocketMessageBody.WebSocketMessageType.ON_BULK_ISSUANCE_PROGRESS,
+                    job.getId().toString(),
+                    BulkIssuanceJobAPI.from(job, active.contains(job.getId())),
+                    null));
+        }
+    }
+
+    List<BulkIssueCredentialRequest.BulkIssueItem> parseCsv(@NonNull String csv) {
+        List<List<String>> rows;
+        try {
+            rows = CsvReader.read(csv);
+        } catch (IllegalArgumentException e) {
+            throw new WrongApiUsageException(msg.getMessage("api.issuer.bulk.csv.invalid",
+                    Map.of("reason", e.getMessage())));
+        }
+        if (rows.size() < 2) {
+            throw new WrongApiUsageException(msg.getMessage("api.issuer.bulk.csv.invalid",
+                    Map.of("reason", "no rows")));
+        }
+        List<String> header = rows.get(0);
+        int partnerIdx = header.indexOf(CSV_PARTNER_ID);
+        int credDefIdx = header.indexOf(CSV_CRED_DEF_ID);
+        if (partnerIdx < 0 || credDefIdx < 0) {
+            throw new WrongApiUsageException(msg.getMessage("api.issuer.bulk.csv.invalid",
+                    Map.of("reason", "missing id columns")));
+        }
+        List<BulkIssueCredentialRequest.BulkIssueItem> items = new ArrayList<>(rows.size() - 1);
+        for (int r = 1; r < rows.size(); r++) {
+            List<String> row = rows.get(r);
+            if (row.size() != header.size()) {
+                throw new WrongApiUsageException(msg.getMessage("api.issuer.bulk.csv.invalid",
+                        Map.of("reason", "row " + r + " has " + row.size() + " columns")));
+            }
+            Map<String, String> document = new LinkedHashMap<>();
+            for (int c = 0; c < header.size(); c++) {
+                if (c != partnerIdx && c != credDefIdx) {
+                    document.put(header.get(c), row.get(c));
+                }
+            }
+            try {
+                items.add(BulkIssueCredentialRequest.BulkIssueItem.builder()
+                        .partnerId(UUID.fromString(row.get(partnerIdx)))
+                        .credDefId(UUID.fromString(row.get(credDefIdx)))
+                        .document(document)
+                        .build());
+            } catch (IllegalArgumentException e) {
+                throw new WrongApiUsageException(msg.getMessage("api.issuer.bulk.csv.invalid",
+                        Map.of("reason", "row " + r + " " + e.getMessage())));
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.credential;
+
+import io.micronaut.transaction.annotation.TransactionalAdvice;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
+import org.hyperledger.bpa.persistence.model.BulkIssuanceItem;
+import org.hyperledger.bpa.persistence.model.BulkIssuanceJob;
+import org.hyperledger.bpa.persistence.repository.BulkIssuanceItemRepository;
+import org.hyperledger.bpa.persistence.repository.BulkIssuanceJobRepository;
+import org.hyperledger.bpa.persistence.repository.IssuerCredExRepository;
+
+import java.util.List;
+
+/**
+ * Persists the state of a bulk issuance job in batches
+ */
+@Singleton
+public class BulkIssuanceWriter {
+
+    @Inject
+    BulkIssuanceJobRepository jobRepo;
+
+    @Inject
+    BulkIssuanceItemRepository itemRepo;
+
+    @Inject
+    IssuerCredExRepository issuerCredExRepo;
+
+    /**
+     * @param job   {@link BulkIssuanceJob}
+     * @param items all items of the job
+     * @return the persisted job
+     */
+    @TransactionalAdvice
+    public BulkIssuanceJob createJob(@NonNull BulkIssuanceJob job, @NonNull List<BulkIssuanceItem> items) {
+        BulkIssuanceJob saved = jobRepo.save(job);
+        items.forEach(i -> i.setJobId(saved.getId()));
+        itemRepo.saveAll(items);
+        return saved;
+    }
+
+    /**
+     * Inserts the credential exchange of a sent item and marks the item as sent in
+     * one transaction
+     *
+     * @param item   the sent item
+     * @param credEx the exchange that was created for it
+     * @return the persisted credential exchange
+     */
+    @TransactionalAdvice
+    public BPACredentialExchange writeSent(@NonNull BulkIssuanceItem item, @NonNull BPACredentialExchange credEx) {
+        BPACredentialExchange saved = issuerCredExRepo.save(credEx);
+        item.setState(BulkIssuanceItem.ItemState.SENT);
+        item.setCredExId(saved.getId());
+        itemRepo.update(item);
+        return saved;
+    }
+
+    /**
+     * @param failed the items of a batch that could not be sent
+     */
+    @TransactionalAdvice
+    public void writeFailed(@NonNull List<BulkIssuanceItem> failed) {
+        if (!failed.isEmpty()) {
+            itemRepo.updateAll(failed);
+        }
+    }
+}
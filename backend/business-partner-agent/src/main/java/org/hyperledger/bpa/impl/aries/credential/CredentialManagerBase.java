@@ -33,14 +33,16 @@ import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
 import org.hyperledger.bpa.api.exception.EntityNotFoundException;
 import org.hyperledger.bpa.api.exception.NetworkException;
 import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.CursorPage;
 import org.hyperledger.bpa.controller.api.issuer.CredEx;
 import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
-import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.repository.IssuerCredExRepository;
+import org.hyperledger.bpa.persistence.repository.Keyset;
 
 import java.io.IOException;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -97,11 +99,24 @@ public abstract class CredentialManagerBase {
     public Page<CredEx> listCredentialExchanges(@Nullable CredentialExchangeRole role, @Nullable UUID partnerId,
             @NonNull Pageable pageable) {
         List<CredentialExchangeRole> roles = role == null ? List.of(CredentialExchangeRole.values()) : List.of(role);
-        Page<BPACredentialExchange> exchanges = partnerId == null
-                ? issuerCredExRepo.findByRoleIn(roles, pageable)
-                : issuerCredExRepo.findByRoleInAndPartnerEquals(roles, Partner.builder().id(partnerId).build(),
-                        pageable);
-        return exchanges.map(ex -> CredEx.from(ex, conv.toAPIObject(ex.getPartner())));
+        Page<UUID> ids = partnerId == null
+                ? issuerCredExRepo.findIdByRoleIn(roles, pageable)
+                : issuerCredExRepo.findIdByRoleInAndPartnerId(roles, partnerId, pageable);
+        return Keyset.load(ids, issuerCredExRepo::queryByIdIn, BPACredentialExchange.ExchangeSummaryDTO::getId)
+                .map(CredEx::from);
+    }
+
+    public CursorPage<CredEx> listCredentialExchanges(@Nullable CredentialExchangeRole role, @Nullable UUID partnerId,
+            @NonNull Keyset keyset) {
+        List<String> roles = role == null
+                ? Arrays.stream(CredentialExchangeRole.values()).map(CredentialExchangeRole::name).toList()
+                : List.of(role.name());
+        List<UUID> ids = issuerCredExRepo.findIdsByKeyset(roles, partnerId,
+                keyset.seekUpdatedAt(), keyset.seekId(), keyset.fetchSize());
+        return CursorPage.of(
+                Keyset.load(ids, issuerCredExRepo::queryByIdIn, BPACredentialExchange.ExchangeSummaryDTO::getId),
+                keyset, BPACredentialExchange.ExchangeSummaryDTO::getUpdatedAt,
+                BPACredentialExchange.ExchangeSummaryDTO::getId, CredEx::from);
     }
 
     public CredEx findCredentialExchangeById(@NonNull UUID id) {
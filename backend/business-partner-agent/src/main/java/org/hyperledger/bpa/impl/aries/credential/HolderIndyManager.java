@@ -17,6 +17,7 @@
  */
 package org.hyperledger.bpa.impl.aries.credential;
 
+import io.micronaut.context.event.ApplicationEventPublisher;
 import io.micronaut.core.annotation.Nullable;
 import io.micronaut.data.model.Page;
 import io.micronaut.data.model.Pageable;
@@ -41,6 +42,7 @@ import org.hyperledger.aries.api.issue_credential_v2.V20CredExRecord;
 import org.hyperledger.aries.api.issue_credential_v2.V2CredentialExchangeFree;
 import org.hyperledger.aries.api.issue_credential_v2.V2ToV1IndyCredentialConverter;
 import org.hyperledger.bpa.api.aries.SchemaAPI;
+import org.hyperledger.bpa.api.notification.CredentialRevokedEvent;
 import org.hyperledger.bpa.impl.activity.LabelStrategy;
 import org.hyperledger.bpa.impl.aries.schema.SchemaService;
 import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
@@ -74,6 +76,9 @@ public class HolderIndyManager {
     @Setter(AccessLevel.PACKAGE)
     SchemaService schemaService;
 
+    @Inject
+    ApplicationEventPublisher eventPublisher;
+
     public void sendCredentialProposal(
             @NonNull String connectionId,
             @NonNull String schemaId,
@@ -132,6 +137,8 @@ public class HolderIndyManager {
                         cred.pushStates(CredentialExchangeState.CREDENTIAL_REVOKED, Instant.now());
                         holderCredExRepo.updateRevoked(cred.getId(), Boolean.TRUE, cred.getState(),
                                 cred.getStateToTimestamp());
+                        eventPublisher.publishEventAsync(
+                                CredentialRevokedEvent.builder().credentialExchange(cred).build());
                         log.debug("Credential with referent id: {} has been revoked", cred.getReferent());
                     }
                 });
@@ -47,8 +47,11 @@ import org.hyperledger.bpa.api.exception.EntityNotFoundException;
 import org.hyperledger.bpa.api.exception.NetworkException;
 import org.hyperledger.bpa.api.exception.PartnerException;
 import org.hyperledger.bpa.api.notification.CredentialAddedEvent;
+import org.hyperledger.bpa.api.notification.CredentialDeletedEvent;
 import org.hyperledger.bpa.api.notification.CredentialOfferedEvent;
+import org.hyperledger.bpa.api.notification.CredentialRevokedEvent;
 import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.CursorPage;
 import org.hyperledger.bpa.impl.activity.LabelStrategy;
 import org.hyperledger.bpa.impl.aries.jsonld.VPManager;
 import org.hyperledger.bpa.impl.aries.wallet.Identity;
@@ -60,6 +63,7 @@ import org.hyperledger.bpa.persistence.model.MyDocument;
 import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
 import org.hyperledger.bpa.persistence.repository.HolderCredExRepository;
+import org.hyperledger.bpa.persistence.repository.Keyset;
 import org.hyperledger.bpa.persistence.repository.MyDocumentRepository;
 import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 
@@ -199,7 +203,8 @@ public class HolderManager extends CredentialManagerBase {
     }
 
     /**
-     * List credential that the user holds in the wallet
+     * List credential that the user holds in the wallet, without the credential
+     * data, see {@link #findHeldCredentialById(UUID)}
      *
      * @param typesToFilter filter by provided credential types
      * @param pageable      {@link Pageable}
@@ -211,13 +216,38 @@ public class HolderManager extends CredentialManagerBase {
         List<CredentialType> types = CollectionUtils.isNotEmpty(typesToFilter)
                 ? typesToFilter
                 : List.of(CredentialType.values());
-        return holderCredExRepo.findByRoleEqualsAndStateInAndTypeIn(
+        Page<UUID> ids = holderCredExRepo.findIdByRoleEqualsAndStateInAndTypeIn(
                 CredentialExchangeRole.HOLDER,
                 List.of(CredentialExchangeState.CREDENTIAL_ACKED, CredentialExchangeState.DONE),
-                types, pageable)
+                types, pageable);
+        return Keyset.load(ids, holderCredExRepo::queryByIdIn, BPACredentialExchange.ExchangeSummaryDTO::getId)
                 .map(this::buildCredential);
     }
 
+    /**
+     * List wallet credentials by keyset, see {@link Keyset}, without the credential
+     * data
+     *
+     * @param typesToFilter {@link CredentialType}
+     * @param keyset        {@link Keyset}
+     * @return {@link CursorPage} of {@link AriesCredential}
+     */
+    public CursorPage<AriesCredential> listHeldCredentials(
+            @Nullable List<CredentialType> typesToFilter,
+            @NonNull Keyset keyset) {
+        List<CredentialType> types = CollectionUtils.isNotEmpty(typesToFilter)
+                ? typesToFilter
+                : List.of(CredentialType.values());
+        List<UUID> ids = holderCredExRepo.findHeldIdsByKeyset(
+                List.of(CredentialExchangeState.CREDENTIAL_ACKED.name(), CredentialExchangeState.DONE.name()),
+                types.stream().map(CredentialType::name).toList(),
+                keyset.seekUpdatedAt(), keyset.seekId(), keyset.fetchSize());
+        return CursorPage.of(
+                Keyset.load(ids, holderCredExRepo::queryByIdIn, BPACredentialExchange.ExchangeSummaryDTO::getId),
+                keyset, BPACredentialExchange.ExchangeSummaryDTO::getUpdatedAt,
+                BPACredentialExchange.ExchangeSummaryDTO::getId, this::buildCredential);
+    }
+
     /**
      * Find wallet credential by id
      *
@@ -259,6 +289,7 @@ public class HolderManager extends CredentialManagerBase {
                 throw new NetworkException("acapy.unavailable");
             }
             holderCredExRepo.deleteById(id);
+            eventPublisher.publishEventAsync(CredentialDeletedEvent.builder().credentialExchange(c).build());
             if (isPublic) {
                 vpMgmt.recreateVerifiablePresentation();
             }
@@ -366,6 +397,8 @@ public class HolderManager extends CredentialManagerBase {
                     credEx.pushStates(CredentialExchangeState.CREDENTIAL_REVOKED, Instant.now());
                     holderCredExRepo.updateRevoked(credEx.getId(), true, credEx.getState(),
                             credEx.getStateToTimestamp());
+                    eventPublisher.publishEventAsync(
+                            CredentialRevokedEvent.builder().credentialExchange(credEx).build());
                 });
     }
 
@@ -398,28 +431,49 @@ public class HolderManager extends CredentialManagerBase {
      */
     @Nullable
     public static String resolveIssuer(@Nullable Partner p) {
-        String issuer = null;
-        if (p != null) {
-            if (StringUtils.isNotEmpty(p.getAlias())) {
-                issuer = p.getAlias();
-            } else if (p.getVerifiablePresentation() != null) {
-                VerifiablePresentation<VerifiableCredential.VerifiableIndyCredential> vp = Objects
-                        .requireNonNull(p.getVerifiablePresentation());
-                Optional<VerifiableCredential.VerifiableIndyCredential> profile = vp.getVerifiableCredential()
-                        .stream().filter(ic -> ic.getType().contains("OrganizationalProfileCredential")).findAny();
-                if (profile.isPresent() && profile.get().getCredentialSubject() != null) {
-                    ProfileVC pVC = GsonConfig.jacksonBehaviour().fromJson(profile.get().getCredentialSubject(),
-                            ProfileVC.class);
-                    issuer = pVC.getLegalName();
-                }
-            }
-            if (issuer == null && Boolean.TRUE.equals(p.getIncoming())) {
-                issuer = p.getLabel();
-            }
-            if (issuer == null) {
-                issuer = p.getDid();
+        if (p == null) {
+            return null;
+        }
+        String legalName = null;
+        if (StringUtils.isEmpty(p.getAlias()) && p.getVerifiablePresentation() != null) {
+            VerifiablePresentation<VerifiableCredential.VerifiableIndyCredential> vp = Objects
+                    .requireNonNull(p.getVerifiablePresentation());
+            Optional<VerifiableCredential.VerifiableIndyCredential> profile = vp.getVerifiableCredential()
+                    .stream().filter(ic -> ic.getType().contains("OrganizationalProfileCredential")).findAny();
+            if (profile.isPresent() && profile.get().getCredentialSubject() != null) {
+                ProfileVC pVC = GsonConfig.jacksonBehaviour().fromJson(profile.get().getCredentialSubject(),
+                        ProfileVC.class);
+                legalName = pVC.getLegalName();
             }
         }
+        return resolveIssuer(p.getAlias(), legalName, p.getIncoming(), p.getLabel(), p.getDid());
+    }
+
+    /**
+     * Same as {@link #resolveIssuer(Partner)} for the partner columns of a list
+     * view, where the legal name was already extracted by the database
+     *
+     * @param s {@link BPACredentialExchange.ExchangeSummaryDTO}
+     * @return the issuer or null when the credential has no partner
+     */
+    @Nullable
+    public static String resolveSummaryIssuer(@NonNull BPACredentialExchange.ExchangeSummaryDTO s) {
+        if (s.getPartnerId() == null) {
+            return null;
+        }
+        return resolveIssuer(s.getPartnerAlias(), s.getPartnerLegalName(), s.getPartnerIncoming(),
+                s.getPartnerLabel(), s.getPartnerDid());
+    }
+
+    private static String resolveIssuer(@Nullable String alias, @Nullable String legalName,
+            @Nullable Boolean incoming, @Nullable String label, @Nullable String did) {
+        String issuer = StringUtils.isNotEmpty(alias) ? alias : legalName;
+        if (issuer == null && Boolean.TRUE.equals(incoming)) {
+            issuer = label;
+        }
+        if (issuer == null) {
+            issuer = did;
+        }
         return issuer;
     }
 
@@ -428,4 +482,11 @@ public class HolderManager extends CredentialManagerBase {
                 dbCred.getSchema() != null ? dbCred.getSchema().resolveSchemaLabel() : null,
                 resolveIssuer(dbCred.getPartner()));
     }
+
+    private AriesCredential buildCredential(@NonNull BPACredentialExchange.ExchangeSummaryDTO s) {
+        BPASchema schema = s.toSchema();
+        return AriesCredential.fromExchangeSummary(s,
+                schema != null ? schema.resolveSchemaLabel() : null,
+                resolveSummaryIssuer(s));
+    }
 }
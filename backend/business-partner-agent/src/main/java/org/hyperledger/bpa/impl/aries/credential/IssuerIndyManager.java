@@ -17,6 +17,7 @@
  */
 package org.hyperledger.bpa.impl.aries.credential;
 
+import io.micronaut.context.event.ApplicationEventPublisher;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import lombok.Builder;
@@ -41,6 +42,7 @@ import org.hyperledger.aries.api.revocation.RevokeRequest;
 import org.hyperledger.bpa.api.exception.IssuerException;
 import org.hyperledger.bpa.api.exception.NetworkException;
 import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.api.notification.CredentialRevokedEvent;
 import org.hyperledger.bpa.config.BPAMessageSource;
 import org.hyperledger.bpa.controller.api.issuer.CredEx;
 import org.hyperledger.bpa.controller.api.issuer.IssueCredentialRequest;
@@ -85,6 +87,9 @@ public class IssuerIndyManager {
     @Inject
     BPAMessageSource.DefaultMessageSource msg;
 
+    @Inject
+    ApplicationEventPublisher eventPublisher;
+
     // Indy Credential Management - Called By User
 
     /**
@@ -108,13 +113,29 @@ public class IssuerIndyManager {
 
         checkCredentialAttributes(document, dbCredDef);
 
+        return issuerCredExRepo.save(sendIndyCredential(dbPartner, dbCredDef, document,
+                request.exchangeIsV1() ? ExchangeVersion.V1 : ExchangeVersion.V2));
+    }
+
+    /**
+     * Sends the indy credential offer to the partner without persisting the
+     * exchange, so that callers that issue many credentials can persist it together
+     * with their own state. The attributes are expected to be checked against the
+     * schema already.
+     *
+     * @param dbPartner {@link Partner}
+     * @param dbCredDef {@link BPACredentialDefinition}
+     * @param document  credential attributes
+     * @param exVersion {@link ExchangeVersion}
+     * @return the not yet persisted {@link BPACredentialExchange}
+     */
+    public BPACredentialExchange sendIndyCredential(@NonNull Partner dbPartner,
+            @NonNull BPACredentialDefinition dbCredDef, @NonNull Map<String, String> document,
+            @NonNull ExchangeVersion exVersion) {
         String connectionId = dbPartner.getConnectionId();
         String schemaId = dbCredDef.getSchema().getSchemaId();
         String credentialDefinitionId = dbCredDef.getCredentialDefinitionId();
 
-        ExchangeResult exResult;
-        ExchangeVersion exVersion;
-
         V1CredentialProposalRequest proposal = V1CredentialProposalRequest
                 .builder()
                 .connectionId(Objects.requireNonNull(connectionId))
@@ -123,15 +144,11 @@ public class IssuerIndyManager {
                 .credentialDefinitionId(credentialDefinitionId)
                 .build();
 
-        if (request.exchangeIsV1()) {
-            exVersion = ExchangeVersion.V1;
-            exResult = sendV1IndyCredential(proposal);
-        } else {
-            exVersion = ExchangeVersion.V2;
-            exResult = sendV2IndyCredential(proposal);
-        }
+        ExchangeResult exResult = ExchangeVersion.V1.equals(exVersion)
+                ? sendV1IndyCredential(proposal)
+                : sendV2IndyCredential(proposal);
 
-        BPACredentialExchange cex = BPACredentialExchange.builder()
+        return BPACredentialExchange.builder()
                 .schema(dbCredDef.getSchema())
                 .partner(dbPartner)
                 .credDef(dbCredDef)
@@ -148,7 +165,6 @@ public class IssuerIndyManager {
                 .threadId(exResult.getThreadId())
                 .exchangeVersion(exVersion)
                 .build();
-        return issuerCredExRepo.save(cex);
     }
 
     public void reIssueIndyCredential(@NonNull BPACredentialExchange credEx) {
@@ -181,6 +197,7 @@ public class IssuerIndyManager {
             credEx.setRevoked(Boolean.TRUE);
             credEx.pushStates(CredentialExchangeState.CREDENTIAL_REVOKED);
             issuerCredExRepo.update(credEx);
+            eventPublisher.publishEventAsync(CredentialRevokedEvent.builder().credentialExchange(credEx).build());
             return CredEx.from(credEx);
         } catch (IOException e) {
             throw new NetworkException(msg.getMessage("acapy.unavailable"), e);
@@ -235,7 +252,7 @@ public class IssuerIndyManager {
      * @param document  the credential
      * @param dbCredDef {@link BPACredentialDefinition}
      */
-    private void checkCredentialAttributes(Map<String, String> document, BPACredentialDefinition dbCredDef) {
+    void checkCredentialAttributes(Map<String, String> document, BPACredentialDefinition dbCredDef) {
         Set<String> documentAttributeNames = document.keySet();
         Set<String> schemaAttributeNames = dbCredDef.getSchema().getSchemaAttributeNames();
         if (!documentAttributeNames.equals(schemaAttributeNames)) {
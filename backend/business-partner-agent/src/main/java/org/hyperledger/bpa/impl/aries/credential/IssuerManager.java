@@ -440,7 +440,7 @@ public class IssuerManager extends CredentialManagerBase {
 
     // Events
 
-    private void fireCredentialIssuedEvent(@NonNull BPACredentialExchange db) {
+    void fireCredentialIssuedEvent(@NonNull BPACredentialExchange db) {
         eventPublisher.publishEventAsync(CredentialIssuedEvent.builder()
                 .credential(AriesCredential.fromBPACredentialExchange(db, schemaLabel(db)))
                 .build());
@@ -20,13 +20,15 @@ package org.hyperledger.bpa.impl.aries.jsonld;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.core.annotation.Nullable;
-import io.micronaut.scheduling.annotation.Async;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 import lombok.AccessLevel;
 import lombok.NonNull;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.aries.api.credentials.Credential;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
 import org.hyperledger.aries.api.jsonld.VerifiableCredential;
@@ -34,14 +36,16 @@ import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCrede
 import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential.VerifiableIndyCredentialBuilder;
 import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.api.jsonld.VerifiablePresentation.VerifiablePresentationBuilder;
-import org.hyperledger.aries.config.GsonConfig;
 import org.hyperledger.aries.config.TimeUtil;
 import org.hyperledger.bpa.api.ApiConstants;
 import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.impl.PublicDocumentCache;
 import org.hyperledger.bpa.impl.aries.schema.SchemaService;
 import org.hyperledger.bpa.impl.aries.wallet.Identity;
 import org.hyperledger.bpa.impl.util.AriesStringUtil;
 import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.impl.util.JsonTreeBridge;
+import org.hyperledger.bpa.impl.util.NamedThreadFactory;
 import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
 import org.hyperledger.bpa.persistence.model.DidDocWeb;
 import org.hyperledger.bpa.persistence.model.MyDocument;
@@ -49,9 +53,17 @@ import org.hyperledger.bpa.persistence.repository.DidDocWebRepository;
 import org.hyperledger.bpa.persistence.repository.HolderCredExRepository;
 import org.hyperledger.bpa.persistence.repository.MyDocumentRepository;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
+@Slf4j
 @Singleton
+@Bean(preDestroy = "shutdown")
 public class VPManager {
 
     @Inject
@@ -69,6 +81,9 @@ public class VPManager {
     @Inject
     SignVerifyLD crypto;
 
+    @Inject
+    PublicDocumentCache publicDocs;
+
     @Inject
     @Setter
     SchemaService schemaService;
@@ -77,27 +92,131 @@ public class VPManager {
     @Setter(AccessLevel.PROTECTED)
     Converter converter;
 
+    /** rebuilds that are requested within this period are signed once */
+    @Value("${bpa.profile.rebuild.debounce}")
+    @Setter(AccessLevel.PACKAGE)
+    Duration debounce;
+
+    /** VC fragments of the last rebuild, keyed by document or credential id */
+    private final Map<UUID, Fragment> fragments = new ConcurrentHashMap<>();
+
+    /** the did the cached fragments were built with */
+    private String fragmentsDid;
+
+    /** a rebuild is scheduled but has not started yet */
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    private final ScheduledExecutorService debouncer = Executors
+            .newSingleThreadScheduledExecutor(new NamedThreadFactory("vp-rebuild"));
+
+    /**
+     * Rebuilds and signs the public profile after the debounce period, requests
+     * that arrive in the meantime are coalesced into the same rebuild. If no
+     * debounce period is set the profile is rebuilt on the calling thread.
+     */
     public void recreateVerifiablePresentation() {
-        List<VerifiableIndyCredential> vcs = new ArrayList<>();
+        if (debounce == null || debounce.isZero()) {
+            rebuild();
+        } else if (rebuildQueued.compareAndSet(false, true)) {
+            try {
+                debouncer.schedule(() -> {
+                    rebuildQueued.set(false);
+                    try {
+                        rebuild();
+                    } catch (Exception e) {
+                        log.error("Could not rebuild the public profile", e);
+                    }
+                }, debounce.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                rebuildQueued.set(false);
+            }
+        }
+    }
 
+    /**
+     * Collects all public documents and credentials and signs them into the
+     * profile. Only documents and credentials that changed since the last rebuild,
+     * or whose schema context resolves differently, are converted again, all others
+     * are taken from the fragment cache. Documents are self issued, so they get a
+     * fresh issuance date with every rebuild.
+     */
+    synchronized void rebuild() {
         String myDid = id.getMyDid();
+        if (!Objects.equals(myDid, fragmentsDid)) {
+            fragments.clear();
+            fragmentsDid = myDid;
+        }
 
-        docRepo.findByIsPublicTrue().forEach(doc -> vcs.add(buildFromDocument(doc, myDid)));
+        List<VerifiableIndyCredential> vcs = new ArrayList<>();
+        Set<UUID> seen = new HashSet<>();
+        // documents and credentials often share a schema, resolve its context once
+        Map<String, List<Object>> contexts = new HashMap<>();
+        BiFunction<CredentialType, String, List<Object>> contextOf = (type, schemaId) -> contexts
+                .computeIfAbsent(type + "|" + schemaId, k -> resolveContext(type, schemaId));
+
+        docRepo.findByIsPublicTrue().forEach(doc -> {
+            seen.add(doc.getId());
+            List<Object> context = contextOf.apply(doc.getType(), doc.getSchemaId());
+            VerifiableIndyCredential vc = fragment(doc.getId(), doc.getUpdatedAt(), context,
+                    () -> buildFromDocument(doc, myDid, context));
+            vcs.add(reissue(vc, TimeUtil.currentTimeFormatted()));
+        });
 
         holderCredExRepo.findByRoleAndIsPublicTrue(CredentialExchangeRole.HOLDER)
                 .stream()
                 .filter(credEx -> credEx.stateIsCredentialAcked() || credEx.stateIsDone()
                         || credEx.stateIsCredentialReceived())
-                .forEach(credEx -> vcs.add(buildFromCredential(credEx)));
+                .forEach(credEx -> {
+                    seen.add(credEx.getId());
+                    // json-ld credentials carry their own context
+                    List<Object> context = credEx.typeIsJsonLd() || credEx.getIndyCredential() == null
+                            ? List.of()
+                            : contextOf.apply(credEx.getType(), credEx.getIndyCredential().getSchemaId());
+                    vcs.add(fragment(credEx.getId(), credEx.getUpdatedAt(), context,
+                            () -> buildFromCredential(credEx, context)));
+                });
+
+        fragments.keySet().retainAll(seen);
+
+        sign(vcs);
+    }
 
-        // only split up into own method, because of a weird issue that the second
-        // thread does
-        // not see the newly created document otherwise.
-        signVP(vcs);
+    private VerifiableIndyCredential fragment(@NonNull UUID id, @Nullable Instant updatedAt,
+            @NonNull List<Object> context, @NonNull Supplier<VerifiableIndyCredential> builder) {
+        Fragment cached = fragments.get(id);
+        if (cached != null && updatedAt != null && updatedAt.equals(cached.updatedAt())
+                && context.equals(cached.context())) {
+            return cached.vc();
+        }
+        VerifiableIndyCredential vc = builder.get();
+        fragments.put(id, new Fragment(updatedAt, context, vc));
+        return vc;
     }
 
-    @Async
-    public void signVP(List<VerifiableIndyCredential> vcs) {
+    /**
+     * Copies the credential with a new issuance date, the cached fragment itself is
+     * never changed, as it is also part of the last signed profile.
+     */
+    private static VerifiableIndyCredential reissue(@NonNull VerifiableIndyCredential vc,
+            @NonNull String issuanceDate) {
+        @SuppressWarnings("rawtypes")
+        VerifiableIndyCredentialBuilder builder = VerifiableIndyCredential.builder()
+                .context(vc.getContext())
+                .credentialSubject(vc.getCredentialSubject())
+                .expirationDate(vc.getExpirationDate())
+                .id(vc.getId())
+                .issuanceDate(issuanceDate)
+                .issuer(vc.getIssuer())
+                .proof(vc.getProof())
+                .type(vc.getType())
+                .label(vc.getLabel())
+                .schemaId(vc.getSchemaId())
+                .credDefId(vc.getCredDefId())
+                .indyIssuer(vc.getIndyIssuer());
+        return builder.build();
+    }
+
+    private void sign(List<VerifiableIndyCredential> vcs) {
         final VerifiablePresentationBuilder<VerifiableIndyCredential> vpBuilder = VerifiablePresentation.builder();
         if (vcs.size() > 0) {
             vpBuilder.verifiableCredential(vcs);
@@ -105,22 +224,30 @@ public class VPManager {
             vpBuilder.verifiableCredential(null);
         }
         crypto.sign(vpBuilder.build())
-                .ifPresent(vp -> didRepo.findDidDocSingle().ifPresentOrElse(
-                        didWeb -> didRepo.updateProfileJson(didWeb.getId(), vp),
-                        () -> didRepo.save(DidDocWeb
-                                .builder()
-                                .profileJson(vp)
-                                .build())));
+                .ifPresent(vp -> {
+                    didRepo.findDidDocSingle().ifPresentOrElse(
+                            didWeb -> didRepo.updateProfileJson(didWeb.getId(), vp),
+                            () -> didRepo.save(DidDocWeb
+                                    .builder()
+                                    .profileJson(vp)
+                                    .build()));
+                    publicDocs.updateProfile(vp);
+                });
     }
 
     protected VerifiableIndyCredential buildFromDocument(@NonNull MyDocument doc, @NonNull String myDid) {
+        return buildFromDocument(doc, myDid, resolveContext(doc.getType(), doc.getSchemaId()));
+    }
+
+    private VerifiableIndyCredential buildFromDocument(@NonNull MyDocument doc, @NonNull String myDid,
+            @NonNull List<Object> context) {
         final ObjectNode on = converter.fromMap(Objects.requireNonNull(doc.getDocument()), ObjectNode.class);
         on.remove("id");
         on.put("id", myDid);
 
         // this is needed because the java client serializes with GSON
         // and cannot handle Jackson ObjectNode
-        JsonObject subj = GsonConfig.defaultConfig().fromJson(on.toString(), JsonObject.class);
+        JsonObject subj = JsonTreeBridge.toGsonObject(on);
 
         List<String> types = new ArrayList<>(doc.getType().getType());
         if (doc.typeIsJsonLd() && doc.getSchema() != null && doc.getSchema().getLdType() != null) {
@@ -131,7 +258,7 @@ public class VPManager {
                 .builder()
                 .id("urn:" + doc.getId().toString())
                 .type(types)
-                .context(resolveContext(doc.getType(), doc.getSchemaId()))
+                .context(context)
                 .issuanceDate(TimeUtil.currentTimeFormatted())
                 .issuer(myDid)
                 .label(doc.getLabel())
@@ -143,16 +270,25 @@ public class VPManager {
         if (cred.typeIsJsonLd()) {
             return buildFromLDCredential(cred);
         }
-        return buildFromIndyCredential(cred);
+        Credential ariesCred = Objects.requireNonNull(cred.getIndyCredential());
+        return buildFromIndyCredential(cred, resolveContext(cred.getType(), ariesCred.getSchemaId()));
     }
 
-    private VerifiableIndyCredential buildFromIndyCredential(@NonNull BPACredentialExchange cred) {
+    private VerifiableIndyCredential buildFromCredential(@NonNull BPACredentialExchange cred,
+            @NonNull List<Object> schemaContext) {
+        if (cred.typeIsJsonLd()) {
+            return buildFromLDCredential(cred);
+        }
+        return buildFromIndyCredential(cred, schemaContext);
+    }
+
+    private VerifiableIndyCredential buildFromIndyCredential(@NonNull BPACredentialExchange cred,
+            @NonNull List<Object> schemaContext) {
         final ArrayList<String> type = new ArrayList<>(cred.getType().getType());
         type.add("IndyCredential");
 
-        Credential ariesCred = cred.getIndyCredential();
-        final ArrayList<Object> context = new ArrayList<>(
-                resolveContext(cred.getType(), Objects.requireNonNull(ariesCred).getSchemaId()));
+        Credential ariesCred = Objects.requireNonNull(cred.getIndyCredential());
+        final ArrayList<Object> context = new ArrayList<>(schemaContext);
         context.add(ApiConstants.INDY_CREDENTIAL_SCHEMA);
 
         @SuppressWarnings("rawtypes")
@@ -165,10 +301,18 @@ public class VPManager {
                 .credDefId(ariesCred.getCredentialDefinitionId())
                 .label(cred.getLabel())
                 .indyIssuer(id.getDidPrefix() + AriesStringUtil.credDefIdGetDid(ariesCred.getCredentialDefinitionId()))
-                .credentialSubject(GsonConfig.defaultConfig().toJsonTree(ariesCred.getAttrs()).getAsJsonObject());
+                .credentialSubject(toSubject(ariesCred.getAttrs()));
         return builder.build();
     }
 
+    private static JsonObject toSubject(@Nullable Map<String, String> attrs) {
+        JsonObject subject = new JsonObject();
+        if (attrs != null) {
+            attrs.forEach(subject::addProperty);
+        }
+        return subject;
+    }
+
     private VerifiableIndyCredential buildFromLDCredential(@NonNull BPACredentialExchange cred) {
         VerifiableCredential vc = Objects.requireNonNull(cred.getLdCredential()).getJsonLD().getCredential();
 
@@ -231,4 +375,10 @@ public class VPManager {
         return context;
     }
 
+    public void shutdown() {
+        debouncer.shutdownNow();
+    }
+
+    private record Fragment(Instant updatedAt, List<Object> context, VerifiableIndyCredential vc) {
+    }
 }
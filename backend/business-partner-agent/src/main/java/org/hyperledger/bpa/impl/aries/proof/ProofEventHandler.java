@@ -29,6 +29,7 @@ import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
 import org.hyperledger.aries.api.present_proof_v2.V20PresExRecord;
 import org.hyperledger.aries.api.present_proof_v2.V2DIFProofRequest;
 import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.api.notification.PresentationReceivedEvent;
 import org.hyperledger.bpa.api.notification.PresentationRequestCompletedEvent;
 import org.hyperledger.bpa.api.notification.PresentationRequestDeclinedEvent;
 import org.hyperledger.bpa.api.notification.PresentationRequestReceivedEvent;
@@ -42,6 +43,7 @@ import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 
 import java.time.Instant;
 import java.util.Objects;
+import java.util.Optional;
 
 @Slf4j
 @Singleton
@@ -72,7 +74,8 @@ public class ProofEventHandler {
             if (proof.isNotAutoVerify()) {
                 proofManager.handleVerifierPresentationReceived(proof.getVersion(), proof.getPresentationExchangeId());
             }
-            handleAll(proof);
+            handleAll(proof).ifPresent(pp -> eventPublisher.publishEventAsync(
+                    PresentationReceivedEvent.builder().partnerProof(pp).build()));
         } else if (StringUtils.isNotEmpty(proof.getErrorMsg())) {
             handleProblemReport(proof);
         } else {
@@ -89,19 +92,26 @@ public class ProofEventHandler {
      * partner proofs
      *
      * @param exchange {@link BasePresExRecord}
+     * @return the stored or updated {@link PartnerProof}, empty if the exchange
+     *         does not match any connection
      */
-    private void handleAll(BasePresExRecord exchange) {
-        pProofRepo.findByPresentationExchangeId(exchange.getPresentationExchangeId()).ifPresentOrElse(
-                pp -> {
-                    if (exchange.getState() != null) {
-                        pp.pushStates(exchange.getState(), exchange.getUpdatedAt());
-                        pProofRepo.update(pp);
-                    }
-                },
-                () -> partnerRepo.findByConnectionId(exchange.getConnectionId())
-                        .ifPresentOrElse(
-                                p -> pProofRepo.save(defaultProof(p, exchange)),
-                                () -> log.warn("Received exchange event that does not match any connection")));
+    private Optional<PartnerProof> handleAll(BasePresExRecord exchange) {
+        Optional<PartnerProof> existing = pProofRepo.findByPresentationExchangeId(
+                exchange.getPresentationExchangeId());
+        if (existing.isPresent()) {
+            PartnerProof pp = existing.get();
+            if (exchange.getState() != null) {
+                pp.pushStates(exchange.getState(), exchange.getUpdatedAt());
+                pProofRepo.update(pp);
+            }
+            return existing;
+        }
+        Optional<PartnerProof> created = partnerRepo.findByConnectionId(exchange.getConnectionId())
+                .map(p -> pProofRepo.save(defaultProof(p, exchange)));
+        if (created.isEmpty()) {
+            log.warn("Received exchange event that does not match any connection");
+        }
+        return created;
     }
 
     /**
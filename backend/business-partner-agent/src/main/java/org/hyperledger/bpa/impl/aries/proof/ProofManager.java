@@ -45,6 +45,7 @@ import org.hyperledger.bpa.api.CredentialType;
 import org.hyperledger.bpa.api.aries.AriesProofExchange;
 import org.hyperledger.bpa.api.exception.*;
 import org.hyperledger.bpa.api.notification.PresentationRequestDeclinedEvent;
+import org.hyperledger.bpa.api.notification.PresentationRequestDeletedEvent;
 import org.hyperledger.bpa.api.notification.PresentationRequestSentEvent;
 import org.hyperledger.bpa.config.BPAMessageSource;
 import org.hyperledger.bpa.controller.api.proof.ApproveProofRequest;
@@ -52,7 +53,9 @@ import org.hyperledger.bpa.controller.api.partner.RequestProofRequest;
 import org.hyperledger.bpa.controller.api.proof.PresentationRequestCredentialsIndy;
 import org.hyperledger.bpa.impl.activity.DidResolver;
 import org.hyperledger.bpa.impl.aries.credential.CredentialInfoResolver;
-import org.hyperledger.bpa.impl.aries.prooftemplates.ProofTemplateConversion;
+import org.hyperledger.bpa.impl.aries.prooftemplates.CompiledProofTemplate;
+import org.hyperledger.bpa.impl.aries.prooftemplates.ProofTemplateCompiler;
+import org.hyperledger.bpa.impl.aries.prooftemplates.RevocationTimeStampProvider;
 import org.hyperledger.bpa.impl.util.AriesStringUtil;
 import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
@@ -61,11 +64,13 @@ import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.model.PartnerProof;
 import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
 import org.hyperledger.bpa.persistence.repository.HolderCredExRepository;
+import org.hyperledger.bpa.persistence.repository.Keyset;
 import org.hyperledger.bpa.persistence.repository.PartnerProofRepository;
 import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 
 import javax.validation.Valid;
 import java.io.IOException;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.*;
 import java.util.function.Consumer;
@@ -100,13 +105,13 @@ public class ProofManager {
     ApplicationEventPublisher eventPublisher;
 
     @Inject
-    ProofTemplateConversion proofTemplateConversion;
+    ProofTemplateCompiler proofTemplateCompiler;
 
     @Inject
-    ProverLDManager ldProver;
+    Clock clock;
 
     @Inject
-    VerifierLDManager ldVerifier;
+    ProverLDManager ldProver;
 
     @Inject
     CredentialInfoResolver credentialInfoResolver;
@@ -117,24 +122,32 @@ public class ProofManager {
     // request proof from partner via proof template
     public void sendPresentProofRequestIndy(@NonNull UUID partnerId, @NonNull @Valid BPAProofTemplate proofTemplate,
             @NonNull ExchangeVersion version) {
+        Partner p = partnerRepo.findById(partnerId)
+                .orElseThrow(
+                        () -> new PartnerException(ms.getMessage("api.partner.not.found", Map.of("id", partnerId))));
+        if (!p.hasConnectionId()) {
+            throw new PartnerException(ms.getMessage("api.partner.no.connection"));
+        }
         try {
-            PresentProofRequest proofRequest = proofTemplateConversion.proofRequestViaVisitorFrom(partnerId,
-                    proofTemplate);
             // the proofTemplate does not contain the proof request Non-Revocation value, if
             // that was not part of the template and set during proof request creation.
             // using null for issuerId and schemaId because the template could have multiple
             // of each.
-            Partner p = partnerRepo.findById(partnerId).orElseThrow(EntityNotFoundException::new);
+            PresentProofRequest.ProofRequest proofRequest = compile(proofTemplate)
+                    .toIndy(new RevocationTimeStampProvider(clock).get());
             if (version.isV1()) {
-                ac.presentProofSendRequest(proofRequest)
+                ac.presentProofSendRequest(PresentProofRequest.builder()
+                        .connectionId(p.getConnectionId())
+                        .proofRequest(proofRequest)
+                        .build())
                         .ifPresent(persistProof(PersistProofCmd.builder()
                                 .partner(p).type(CredentialType.INDY).proofTemplate(proofTemplate).build()));
             } else {
                 ac.presentProofV2SendRequest(V20PresSendRequestRequest
                         .builder()
-                        .connectionId(proofRequest.getConnectionId())
+                        .connectionId(p.getConnectionId())
                         .presentationRequest(V20PresSendRequestRequest.V20PresRequestByFormat.builder()
-                                .indy(proofRequest.getProofRequest())
+                                .indy(proofRequest)
                                 .build())
                         .build())
                         .map(V20PresExRecordToV1Converter::toV1)
@@ -153,7 +166,9 @@ public class ProofManager {
      * @return {@link PresentProofRequest}
      */
     public PresentProofRequest renderIndyProofRequest(@NonNull @Valid BPAProofTemplate proofTemplate) {
-        return proofTemplateConversion.templateToProofRequest(proofTemplate).build();
+        return PresentProofRequest.builder()
+                .proofRequest(compile(proofTemplate).toIndy(new RevocationTimeStampProvider(clock).get()))
+                .build();
     }
 
     public void sendPresentProofRequestJsonLD(@NonNull UUID partnerId, @NonNull @Valid BPAProofTemplate proofTemplate) {
@@ -175,7 +190,98 @@ public class ProofManager {
     }
 
     public V2DIFProofRequest renderLDProofRequest(@NonNull @Valid BPAProofTemplate proofTemplate) {
-        return ldVerifier.prepareRequest(proofTemplate);
+        return compile(proofTemplate).toDif();
+    }
+
+    private CompiledProofTemplate compile(@NonNull BPAProofTemplate proofTemplate) {
+        return proofTemplate.getId() != null
+                ? proofTemplateCompiler.getCompiled(proofTemplate.getId(), proofTemplate)
+                : proofTemplateCompiler.compile(proofTemplate);
+    }
+
+    /**
+     * Compiles the proof request of a template once, so that it can be sent to many
+     * partners, see
+     * {@link #sendPreparedProofRequest(Partner, PreparedProofRequest)}
+     *
+     * @param proofTemplate {@link BPAProofTemplate}
+     * @param version       {@link ExchangeVersion} only used for indy, json-ld is
+     *                      always v2
+     * @return {@link PreparedProofRequest}
+     */
+    public PreparedProofRequest prepareProofRequest(@NonNull @Valid BPAProofTemplate proofTemplate,
+            @Nullable ExchangeVersion version) {
+        if (proofTemplate.typeIsJsonLD()) {
+            return new PreparedProofRequest(proofTemplate, CredentialType.JSON_LD, ExchangeVersion.V2,
+                    compile(proofTemplate));
+        }
+        return new PreparedProofRequest(proofTemplate, CredentialType.INDY,
+                version != null ? version : ExchangeVersion.V1, compile(proofTemplate));
+    }
+
+    /**
+     * Renders the prepared proof request with its per request values, i.e. the
+     * non-revocation timestamp, or challenge, domain and definition id, and sends
+     * it to the partner. The proof is persisted right away, so that the events of
+     * the exchange find it.
+     *
+     * @param partner  {@link Partner} with a connection
+     * @param prepared {@link PreparedProofRequest}
+     * @return the persisted {@link PartnerProof}
+     */
+    public Optional<PartnerProof> sendPreparedProofRequest(@NonNull Partner partner,
+            @NonNull PreparedProofRequest prepared) {
+        if (!partner.hasConnectionId()) {
+            throw new PartnerException(ms.getMessage("api.partner.no.connection"));
+        }
+        PersistProofCmd cmd = PersistProofCmd.builder()
+                .partner(partner).type(prepared.type()).proofTemplate(prepared.proofTemplate()).build();
+        try {
+            if (CredentialType.JSON_LD.equals(prepared.type())) {
+                return ac.presentProofV2SendRequest(V20PresSendRequestRequest
+                        .builder()
+                        .connectionId(partner.getConnectionId())
+                        .presentationRequest(V20PresSendRequestRequest.V20PresRequestByFormat.builder()
+                                .dif(prepared.compiled().toDif())
+                                .build())
+                        .build())
+                        .map(V20PresExRecordToV1Converter::toV1)
+                        .map(ex -> saveProof(toPartnerProof(ex, cmd)));
+            }
+            PresentProofRequest.ProofRequest proofRequest = prepared.compiled()
+                    .toIndy(new RevocationTimeStampProvider(clock).get());
+            if (prepared.version().isV1()) {
+                return ac.presentProofSendRequest(PresentProofRequest.builder()
+                        .connectionId(partner.getConnectionId())
+                        .proofRequest(proofRequest)
+                        .build())
+                        .map(ex -> saveProof(toPartnerProof(ex, cmd)));
+            }
+            return ac.presentProofV2SendRequest(V20PresSendRequestRequest
+                    .builder()
+                    .connectionId(partner.getConnectionId())
+                    .presentationRequest(V20PresSendRequestRequest.V20PresRequestByFormat.builder()
+                            .indy(proofRequest)
+                            .build())
+                    .build())
+                    .map(V20PresExRecordToV1Converter::toV1)
+                    .map(ex -> saveProof(toPartnerProof(ex, cmd)));
+        } catch (IOException e) {
+            throw new NetworkException(ms.getMessage("acapy.unavailable"), e);
+        }
+    }
+
+    /**
+     * Proof request of a template that is compiled, but not rendered and not bound
+     * to a connection
+     *
+     * @param proofTemplate {@link BPAProofTemplate}
+     * @param type          {@link CredentialType}
+     * @param version       {@link ExchangeVersion}
+     * @param compiled      {@link CompiledProofTemplate}, rendered per partner
+     */
+    public record PreparedProofRequest(@NonNull BPAProofTemplate proofTemplate, @NonNull CredentialType type,
+            @NonNull ExchangeVersion version, @NonNull CompiledProofTemplate compiled) {
     }
 
     // request proof from partner - currently not used by the frontend
@@ -243,26 +349,32 @@ public class ProofManager {
     }
 
     private Consumer<BasePresExRecord> persistProof(@NonNull PersistProofCmd cmd) {
-        return exchange -> {
-            final PartnerProof pp = PartnerProof
-                    .builder()
-                    .state(exchange.getState())
-                    .type(cmd.type)
-                    .presentationExchangeId(exchange.getPresentationExchangeId())
-                    .role(exchange.getRole())
-                    .threadId(exchange.getThreadId())
-                    .proofRequest(ExchangePayload.buildForProofRequest(exchange))
-                    .proofTemplate(cmd.proofTemplate)
-                    .exchangeVersion(exchange.getVersion())
-                    .pushStateChange(exchange.getState(), Instant.now())
-                    .partner(cmd.partner)
-                    .credentialExchange(cmd.credentialExchange)
-                    .build();
-            pProofRepo.save(pp);
-            eventPublisher.publishEventAsync(PresentationRequestSentEvent.builder()
-                    .partnerProof(pp)
-                    .build());
-        };
+        return exchange -> saveProof(toPartnerProof(exchange, cmd));
+    }
+
+    private PartnerProof saveProof(@NonNull PartnerProof pp) {
+        pProofRepo.save(pp);
+        eventPublisher.publishEventAsync(PresentationRequestSentEvent.builder()
+                .partnerProof(pp)
+                .build());
+        return pp;
+    }
+
+    private PartnerProof toPartnerProof(@NonNull BasePresExRecord exchange, @NonNull PersistProofCmd cmd) {
+        return PartnerProof
+                .builder()
+                .state(exchange.getState())
+                .type(cmd.type)
+                .presentationExchangeId(exchange.getPresentationExchangeId())
+                .role(exchange.getRole())
+                .threadId(exchange.getThreadId())
+                .proofRequest(ExchangePayload.buildForProofRequest(exchange))
+                .proofTemplate(cmd.proofTemplate)
+                .exchangeVersion(exchange.getVersion())
+                .pushStateChange(exchange.getState(), Instant.now())
+                .partner(cmd.partner)
+                .credentialExchange(cmd.credentialExchange)
+                .build();
     }
 
     // manual proof request flow
@@ -459,8 +571,9 @@ public class ProofManager {
     public Page<AriesProofExchange> listPartnerProofs(
             @NonNull UUID partnerId,
             @NonNull Pageable pageable) {
-        Page<PartnerProof> pExchanges = pProofRepo.findByPartnerId(partnerId, pageable);
-        return pExchanges.map(conv::toAPIObject);
+        Page<UUID> ids = pProofRepo.findIdByPartnerId(partnerId, pageable);
+        return Keyset.load(ids, pProofRepo::queryByIdIn, PartnerProof.ProofSummaryDTO::getId)
+                .map(conv::toAPIObject);
     }
 
     public AriesProofExchange getPartnerProofById(@NonNull UUID id) {
@@ -485,6 +598,7 @@ public class ProofManager {
                 }
             }
             pProofRepo.deleteById(id);
+            eventPublisher.publishEventAsync(PresentationRequestDeletedEvent.builder().partnerProof(pp).build());
         });
     }
 
@@ -56,6 +56,33 @@ public class VerifierLDManager extends BaseLDManager {
     LDContextResolver ctx;
 
     public V2DIFProofRequest prepareRequest(@NonNull BPAProofTemplate proofTemplate) {
+        return prepareRequest(proofTemplate.getName(), prepareInputDescriptors(proofTemplate));
+    }
+
+    /**
+     * Renders the part of the request that only depends on the template
+     *
+     * @param proofTemplate {@link BPAProofTemplate}
+     * @return one input descriptor per attribute group
+     */
+    public List<V2DIFProofRequest.PresentationDefinition.InputDescriptors> prepareInputDescriptors(
+            @NonNull BPAProofTemplate proofTemplate) {
+        return proofTemplate.streamAttributeGroups()
+                .map(this::groupToDescriptor)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Wraps pre-rendered input descriptors into a request with a fresh challenge,
+     * domain and definition id
+     *
+     * @param name             presentation definition name
+     * @param inputDescriptors see
+     *                         {@link #prepareInputDescriptors(BPAProofTemplate)}
+     * @return {@link V2DIFProofRequest}
+     */
+    public static V2DIFProofRequest prepareRequest(String name,
+            @NonNull List<V2DIFProofRequest.PresentationDefinition.InputDescriptors> inputDescriptors) {
         return V2DIFProofRequest.builder()
                 .options(DIFOptions.builder()
                         .challenge(UUID.randomUUID().toString())
@@ -63,15 +90,13 @@ public class VerifierLDManager extends BaseLDManager {
                         .build())
                 .presentationDefinition(V2DIFProofRequest.PresentationDefinition.builder()
                         .id(UUID.randomUUID())
-                        .name(proofTemplate.getName())
+                        .name(name)
                         .format(V2DIFProofRequest.PresentationDefinition.ClaimFormat.builder()
                                 .ldpVp(V2DIFProofRequest.PresentationDefinition.ClaimFormat.LdpVp.builder()
                                         .addProofType(ProofType.Ed25519Signature2018)
                                         .build())
                                 .build())
-                        .inputDescriptors(proofTemplate.streamAttributeGroups()
-                                .map(this::groupToDescriptor)
-                                .collect(Collectors.toList()))
+                        .inputDescriptors(inputDescriptors)
                         .build())
                 .build();
     }
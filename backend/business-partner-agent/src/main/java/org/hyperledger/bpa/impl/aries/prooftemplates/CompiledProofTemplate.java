@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.prooftemplates;
+
+import io.micronaut.core.annotation.Nullable;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.hyperledger.aries.api.present_proof.PresentProofRequest;
+import org.hyperledger.aries.api.present_proof_v2.V2DIFProofRequest;
+import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.impl.aries.proof.VerifierLDManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-rendered proof request of a
+ * {@link org.hyperledger.bpa.persistence.model.BPAProofTemplate}. Instances are
+ * shared and never modified, every call to {@link #toIndy(long)} or
+ * {@link #toDif()} returns a new request where only the per request values are
+ * filled in: the non-revocation timestamp for indy, challenge, domain and
+ * definition id for json-ld. The indy nonce is left empty, aca-py generates a
+ * fresh one for every request.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CompiledProofTemplate {
+
+    @Getter
+    private final CredentialType type;
+
+    private final PresentProofRequest.ProofRequest indy;
+
+    private final String name;
+
+    private final List<V2DIFProofRequest.PresentationDefinition.InputDescriptors> inputDescriptors;
+
+    static CompiledProofTemplate indy(@NonNull PresentProofRequest.ProofRequest skeleton) {
+        return new CompiledProofTemplate(CredentialType.INDY, skeleton, skeleton.getName(), null);
+    }
+
+    static CompiledProofTemplate jsonLD(String name,
+            @NonNull List<V2DIFProofRequest.PresentationDefinition.InputDescriptors> inputDescriptors) {
+        return new CompiledProofTemplate(CredentialType.JSON_LD, null, name, List.copyOf(inputDescriptors));
+    }
+
+    /**
+     * @param nonRevokedTimestamp epoch seconds, only set where the template
+     *                            requires non-revocation
+     * @return new indy proof request
+     */
+    public PresentProofRequest.ProofRequest toIndy(long nonRevokedTimestamp) {
+        if (indy == null) {
+            throw new IllegalStateException("Not an indy template");
+        }
+        PresentProofRequest.ProofRequest.ProofNonRevoked nonRevoked = PresentProofRequest.ProofRequest.ProofNonRevoked
+                .builder()
+                .from(nonRevokedTimestamp)
+                .to(nonRevokedTimestamp)
+                .build();
+        return new PresentProofRequest.ProofRequest(
+                indy.getName(),
+                indy.getVersion(),
+                null,
+                replace(indy.getNonRevoked(), nonRevoked),
+                copyAttributes(indy.getRequestedAttributes(), nonRevoked),
+                copyPredicates(indy.getRequestedPredicates(), nonRevoked));
+    }
+
+    /**
+     * @return new json-ld proof request
+     */
+    public V2DIFProofRequest toDif() {
+        if (inputDescriptors == null) {
+            throw new IllegalStateException("Not a json-ld template");
+        }
+        return VerifierLDManager.prepareRequest(name, inputDescriptors);
+    }
+
+    private static Map<String, PresentProofRequest.ProofRequest.ProofRequestedAttributes> copyAttributes(
+            @Nullable Map<String, PresentProofRequest.ProofRequest.ProofRequestedAttributes> attributes,
+            @NonNull PresentProofRequest.ProofRequest.ProofNonRevoked nonRevoked) {
+        if (attributes == null) {
+            return null;
+        }
+        Map<String, PresentProofRequest.ProofRequest.ProofRequestedAttributes> result = new LinkedHashMap<>();
+        attributes.forEach((k, a) -> result.put(k, new PresentProofRequest.ProofRequest.ProofRequestedAttributes(
+                a.getName(), a.getNames(), replace(a.getNonRevoked(), nonRevoked), a.getRestrictions())));
+        return result;
+    }
+
+    private static Map<String, PresentProofRequest.ProofRequest.ProofRequestedPredicates> copyPredicates(
+            @Nullable Map<String, PresentProofRequest.ProofRequest.ProofRequestedPredicates> predicates,
+            @NonNull PresentProofRequest.ProofRequest.ProofNonRevoked nonRevoked) {
+        if (predicates == null) {
+            return null;
+        }
+        Map<String, PresentProofRequest.ProofRequest.ProofRequestedPredicates> result = new LinkedHashMap<>();
+        predicates.forEach((k, p) -> result.put(k, new PresentProofRequest.ProofRequest.ProofRequestedPredicates(
+                p.getName(), replace(p.getNonRevoked(), nonRevoked), p.getPType(), p.getPValue(),
+                p.getRestrictions())));
+        return result;
+    }
+
+    private static PresentProofRequest.ProofRequest.ProofNonRevoked replace(
+            @Nullable PresentProofRequest.ProofRequest.ProofNonRevoked compiled,
+            @NonNull PresentProofRequest.ProofRequest.ProofNonRevoked nonRevoked) {
+        return compiled != null ? nonRevoked : null;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.prooftemplates;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.bpa.api.exception.EntityNotFoundException;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.config.ActivityLogConfig;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.prooftemplates.ProofRequestFanOutJob;
+import org.hyperledger.bpa.controller.api.prooftemplates.ProofRequestFanOutRequest;
+import org.hyperledger.bpa.impl.aries.proof.ProofManager;
+import org.hyperledger.bpa.impl.util.NamedThreadFactory;
+import org.hyperledger.bpa.persistence.model.BPAProofTemplate;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sends one proof template to a group of partners. The template is compiled
+ * once, per partner only the per request values are rendered. Requests are sent
+ * with a bounded number in flight, every proof is inserted as soon as its
+ * request was sent, so that webhooks of the exchange find it. Jobs are not
+ * persisted, the most recent ones are kept in memory so that their per partner
+ * status can be polled.
+ */
+@Slf4j
+@Singleton
+@Bean(preDestroy = "shutdown")
+public class ProofRequestFanOut {
+
+    static final int MAX_JOBS = 50;
+
+    @Inject
+    ProofTemplateManager templateManager;
+
+    @Inject
+    ProofManager proofManager;
+
+    @Inject
+    PartnerRepository partnerRepo;
+
+    @Inject
+    ActivityLogConfig activityLogConfig;
+
+    @Inject
+    BPAMessageSource.DefaultMessageSource ms;
+
+    private final int batchSize;
+
+    private final ExecutorService jobExecutor;
+
+    /** bounds the number of proof requests that are in flight with aca-py */
+    private final ExecutorService acaPyExecutor;
+
+    private final Map<UUID, ProofRequestFanOutJob> jobs = Collections.synchronizedMap(
+            new LinkedHashMap<>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, ProofRequestFanOutJob> eldest) {
+                    return size() > MAX_JOBS;
+                }
+            });
+
+    public ProofRequestFanOut(
+            @Value("${bpa.proof-template.fan-out.concurrency}") int concurrency,
+            @Value("${bpa.proof-template.fan-out.batch-size}") int batchSize) {
+        this.batchSize = batchSize;
+        this.jobExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("proof-fan-out-job"));
+        this.acaPyExecutor = Executors.newFixedThreadPool(concurrency, new NamedThreadFactory("proof-fan-out"));
+    }
+
+    /**
+     * Resolves the partners, compiles the template and starts the job
+     *
+     * @param templateId proof template id
+     * @param request    {@link ProofRequestFanOutRequest}
+     * @return {@link ProofRequestFanOutJob}
+     */
+    public ProofRequestFanOutJob submit(@NonNull UUID templateId, @NonNull ProofRequestFanOutRequest request) {
+        if (request.getTagId() == null && (request.getPartnerIds() == null || request.getPartnerIds().isEmpty())) {
+            throw new WrongApiUsageException(ms.getMessage("api.proof.template.fan.out.no.partners"));
+        }
+        BPAProofTemplate template = templateManager.findProofTemplate(templateId);
+        ProofManager.PreparedProofRequest prepared = proofManager.prepareProofRequest(template,
+                request.getExchangeVersion());
+
+        Set<UUID> ids = new LinkedHashSet<>();
+        if (request.getTagId() != null) {
+            ids.addAll(partnerRepo.findIdsByTagIdAndStateIn(request.getTagId(),
+                    activityLogConfig.getConnectionStatesForCompleted().stream().map(Enum::name).toList()));
+        }
+        if (request.getPartnerIds() != null) {
+            ids.addAll(request.getPartnerIds());
+        }
+        Map<UUID, Partner> partners = ids.isEmpty() ? Map.of()
+                : partnerRepo.findByIdIn(ids).stream().collect(Collectors.toMap(Partner::getId, Function.identity()));
+
+        List<ProofRequestFanOutJob.PartnerStatus> statuses = ids.stream()
+                .map(id -> ProofRequestFanOutJob.PartnerStatus.builder()
+                        .partnerId(id)
+                        .state(ProofRequestFanOutJob.State.PENDING)
+                        .build())
+                .toList();
+        ProofRequestFanOutJob job = ProofRequestFanOutJob.builder()
+                .id(UUID.randomUUID())
+                .templateId(templateId)
+                .createdAt(Instant.now().toEpochMilli())
+                .done(Boolean.FALSE)
+                .total(statuses.size())
+                .sent(0)
+                .failed(0)
+                .partners(statuses)
+                .build();
+        jobs.put(job.getId(), job);
+        log.info("Created proof request fan-out: {} for template: {} with {} partners",
+                job.getId(), templateId, statuses.size());
+        try {
+            jobExecutor.execute(() -> run(job, prepared, partners));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return snapshot(job);
+    }
+
+    /**
+     * @param id job id
+     * @return {@link ProofRequestFanOutJob} including the status of every partner
+     */
+    public ProofRequestFanOutJob getJob(@NonNull UUID id) {
+        ProofRequestFanOutJob job = jobs.get(id);
+        if (job == null) {
+            throw new EntityNotFoundException();
+        }
+        return snapshot(job);
+    }
+
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        acaPyExecutor.shutdown();
+    }
+
+    void run(@NonNull ProofRequestFanOutJob job, @NonNull ProofManager.PreparedProofRequest prepared,
+            @NonNull Map<UUID, Partner> partners) {
+        List<ProofRequestFanOutJob.PartnerStatus> statuses = job.getPartners();
+        try {
+            for (int from = 0; from < statuses.size() && !Thread.currentThread().isInterrupted(); from += batchSize) {
+                sendBatch(job, statuses.subList(from, Math.min(from + batchSize, statuses.size())),
+                        prepared, partners);
+            }
+        } catch (Exception e) {
+            log.error("Proof request fan-out: {} stopped", job.getId(), e);
+        } finally {
+            synchronized (job) {
+                job.setDone(Boolean.TRUE);
+            }
+            log.info("Proof request fan-out: {} done, sent: {}, failed: {}",
+                    job.getId(), job.getSent(), job.getFailed());
+        }
+    }
+
+    private void sendBatch(@NonNull ProofRequestFanOutJob job, @NonNull List<ProofRequestFanOutJob.PartnerStatus> batch,
+            @NonNull ProofManager.PreparedProofRequest prepared, @NonNull Map<UUID, Partner> partners) {
+        List<CompletableFuture<Optional<PartnerProof>>> inFlight = batch.stream()
+                .map(status -> CompletableFuture.supplyAsync(() -> {
+                    Partner partner = partners.get(status.getPartnerId());
+                    if (partner == null) {
+                        throw new EntityNotFoundException(
+                                ms.getMessage("api.partner.not.found", Map.of("id", status.getPartnerId())));
+                    }
+                    return proofManager.sendPreparedProofRequest(partner, prepared);
+                }, acaPyExecutor))
+                .toList();
+
+        Map<ProofRequestFanOutJob.PartnerStatus, PartnerProof> sent = new IdentityHashMap<>();
+        Map<ProofRequestFanOutJob.PartnerStatus, String> failed = new IdentityHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            ProofRequestFanOutJob.PartnerStatus status = batch.get(i);
+            try {
+                Optional<PartnerProof> proof = inFlight.get(i).join();
+                if (proof.isPresent()) {
+                    sent.put(status, proof.get());
+                } else {
+                    failed.put(status, ms.getMessage("acapy.unavailable"));
+                }
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("Proof request fan-out: {} could not send to partner: {}",
+                        job.getId(), status.getPartnerId(), cause);
+                failed.put(status, cause.getMessage());
+            }
+        }
+
+        synchronized (job) {
+            sent.forEach((status, proof) -> {
+                status.setState(ProofRequestFanOutJob.State.SENT);
+                status.setProofId(proof.getId());
+            });
+            failed.forEach((status, error) -> {
+                status.setState(ProofRequestFanOutJob.State.FAILED);
+                status.setErrorMsg(error);
+            });
+            job.setSent(job.getSent() + sent.size());
+            job.setFailed(job.getFailed() + failed.size());
+        }
+    }
+
+    private static ProofRequestFanOutJob snapshot(@NonNull ProofRequestFanOutJob job) {
+        synchronized (job) {
+            return ProofRequestFanOutJob.builder()
+                    .id(job.getId())
+                    .templateId(job.getTemplateId())
+                    .createdAt(job.getCreatedAt())
+                    .done(job.getDone())
+                    .total(job.getTotal())
+                    .sent(job.getSent())
+                    .failed(job.getFailed())
+                    .partners(job.getPartners().stream()
+                            .map(s -> ProofRequestFanOutJob.PartnerStatus.builder()
+                                    .partnerId(s.getPartnerId())
+                                    .state(s.getState())
+                                    .proofId(s.getProofId())
+                                    .errorMsg(s.getErrorMsg())
+                                    .build())
+                            .toList())
+                    .build();
+        }
+    }
+}
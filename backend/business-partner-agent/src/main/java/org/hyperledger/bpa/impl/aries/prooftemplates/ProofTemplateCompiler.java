@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.prooftemplates;
+
+import io.micronaut.cache.annotation.CacheInvalidate;
+import io.micronaut.cache.annotation.Cacheable;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.bpa.impl.aries.proof.VerifierLDManager;
+import org.hyperledger.bpa.persistence.model.BPAProofTemplate;
+
+import java.util.UUID;
+
+/**
+ * Compiles proof templates into a {@link CompiledProofTemplate} and caches the
+ * result by template id. Templates are never updated in place, a change creates
+ * a new template, so the id identifies the template version. Entries are
+ * invalidated when a template is removed.
+ */
+@Slf4j
+@Singleton
+public class ProofTemplateCompiler {
+
+    static final String CACHE_NAME = "proof-template-cache";
+
+    @Inject
+    ProofTemplateConversion conversion;
+
+    @Inject
+    VerifierLDManager ldVerifier;
+
+    /**
+     * @param id            the templates id, used as cache key
+     * @param proofTemplate the persisted {@link BPAProofTemplate} with that id
+     * @return cached {@link CompiledProofTemplate}
+     */
+    @Cacheable(cacheNames = CACHE_NAME, parameters = "id")
+    public CompiledProofTemplate getCompiled(@NonNull UUID id, @NonNull BPAProofTemplate proofTemplate) {
+        log.debug("Compiling proof template: {}", id);
+        return compile(proofTemplate);
+    }
+
+    @CacheInvalidate(cacheNames = CACHE_NAME, parameters = "id")
+    public void invalidate(@NonNull UUID id) {
+        log.debug("Invalidated compiled proof template: {}", id);
+    }
+
+    /**
+     * Compiles without caching, e.g. for templates that are not persisted
+     *
+     * @param proofTemplate {@link BPAProofTemplate}
+     * @return {@link CompiledProofTemplate}
+     */
+    public CompiledProofTemplate compile(@NonNull BPAProofTemplate proofTemplate) {
+        if (proofTemplate.typeIsJsonLD()) {
+            return CompiledProofTemplate.jsonLD(proofTemplate.getName(),
+                    ldVerifier.prepareInputDescriptors(proofTemplate));
+        }
+        return CompiledProofTemplate.indy(conversion.templateToProofRequest(proofTemplate).build().getProofRequest());
+    }
+}
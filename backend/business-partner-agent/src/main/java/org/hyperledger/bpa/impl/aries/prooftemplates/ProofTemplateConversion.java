@@ -36,9 +36,11 @@ import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 
 import javax.validation.Valid;
 import java.time.Clock;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -86,15 +88,20 @@ public class ProofTemplateConversion {
             return buildForSelfAttestation(proofTemplate);
         }
 
+        // every attribute group is visited twice, resolve each schema only once
+        Map<UUID, Optional<String>> ledgerSchemaIds = new HashMap<>();
+        Function<UUID, Optional<String>> resolveLedgerSchemaId = id -> ledgerSchemaIds.computeIfAbsent(id,
+                this::resolveLedgerSchemaId);
+
         ProofTemplateElementVisitor proofTemplateElementVisitor = new ProofTemplateElementVisitor(
-                this::resolveLedgerSchemaId,
+                resolveLedgerSchemaId,
                 new RevocationTimeStampProvider(clock));
 
         proofTemplateElementVisitor.visit(proofTemplate);
         proofTemplate.streamAttributeGroups()
                 .forEach(proofTemplateElementVisitor::visit);
         proofTemplate.streamAttributeGroups()
-                .flatMap(this::pairSchemaIdWithAttributes)
+                .flatMap(ag -> pairSchemaIdWithAttributes(ag, resolveLedgerSchemaId))
                 .forEach(proofTemplateElementVisitor::visit);
 
         return PresentProofRequest.builder()
@@ -106,8 +113,9 @@ public class ProofTemplateConversion {
     }
 
     @NonNull
-    private Stream<Pair<String, BPAAttribute>> pairSchemaIdWithAttributes(@NonNull BPAAttributeGroup ag) {
-        Optional<Pair.PairBuilder<String, BPAAttribute>> pairBuilder = resolveLedgerSchemaId(ag.getSchemaId())
+    private Stream<Pair<String, BPAAttribute>> pairSchemaIdWithAttributes(@NonNull BPAAttributeGroup ag,
+            @NonNull Function<UUID, Optional<String>> resolveLedgerSchemaId) {
+        Optional<Pair.PairBuilder<String, BPAAttribute>> pairBuilder = resolveLedgerSchemaId.apply(ag.getSchemaId())
                 .map(Pair.<String, BPAAttribute>builder()::left);
         return pairBuilder.map(
                 pair -> ag.getAttributes().stream()
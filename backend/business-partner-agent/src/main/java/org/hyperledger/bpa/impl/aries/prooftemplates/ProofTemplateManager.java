@@ -61,6 +61,9 @@ public class ProofTemplateManager {
     @Inject
     SchemaService schemaService;
 
+    @Inject
+    ProofTemplateCompiler compiler;
+
     @Inject
     BPAMessageSource.DefaultMessageSource ms;
 
@@ -112,6 +115,7 @@ public class ProofTemplateManager {
     public void removeProofTemplate(@NonNull UUID templateId) {
         try {
             repo.deleteById(templateId);
+            compiler.invalidate(templateId);
         } catch (DataAccessException e) {
             throw new DataPersistenceException(ms.getMessage("api.proof.template.constraint.violation"));
         }
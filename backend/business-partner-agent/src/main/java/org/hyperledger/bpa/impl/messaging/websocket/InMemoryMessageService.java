@@ -17,22 +17,27 @@
  */
 package org.hyperledger.bpa.impl.messaging.websocket;
 
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.core.util.CollectionUtils;
 import io.micronaut.scheduling.annotation.Scheduled;
 import io.micronaut.websocket.WebSocketBroadcaster;
 import io.micronaut.websocket.WebSocketSession;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.bpa.controller.api.WebSocketMessageBody;
+import org.hyperledger.bpa.persistence.model.MessageQueue;
 import org.hyperledger.bpa.persistence.repository.MessageQueueRepository;
 import org.slf4j.Logger;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
@@ -44,9 +49,25 @@ public final class InMemoryMessageService implements MessageService {
     WebSocketBroadcaster broadcaster;
 
     @Inject
-    @Getter
     MessageQueueRepository queue;
 
+    @Inject
+    ObjectMapper mapper;
+
+    @Inject
+    Clock clock;
+
+    @Value("${bpa.websocket.offline.max-length}")
+    long offlineMaxLength;
+
+    @Value("${bpa.websocket.offline.ttl}")
+    Duration offlineTtl;
+
+    /** number of stored messages that are loaded at once */
+    static final int REPLAY_PAGE_SIZE = 100;
+
+    private static final UUID MIN_ID = new UUID(0, 0);
+
     private final Map<String, WebSocketSession> connected = new ConcurrentHashMap<>();
 
     public void subscribe(WebSocketSession session) {
@@ -65,6 +86,44 @@ public final class InMemoryMessageService implements MessageService {
         broadcaster.broadcastSync(message);
     }
 
+    public void store(WebSocketMessageBody message) {
+        try {
+            queue.upsert(UUID.randomUUID(), clock.instant(), message.getId(),
+                    MessageService.dedupKey(message), mapper.writeValueAsString(message));
+        } catch (JacksonException e) {
+            log.error("Could not store message", e);
+        }
+    }
+
+    public void sendStored(@Nullable Long lastSeen) {
+        Instant afterCreatedAt = Instant.EPOCH;
+        UUID afterId = MIN_ID;
+        if (lastSeen != null) {
+            Optional<MessageQueue> seen = queue.findFirstByMessageId(lastSeen);
+            if (seen.isPresent()) {
+                afterCreatedAt = seen.get().getCreatedAt();
+                afterId = seen.get().getId();
+                queue.deleteUpTo(afterCreatedAt, afterId);
+            }
+        }
+        List<MessageQueue> page;
+        do {
+            page = queue.findPageAfter(afterCreatedAt, afterId, REPLAY_PAGE_SIZE);
+            List<UUID> delivered = new ArrayList<>(page.size());
+            for (MessageQueue msg : page) {
+                if (msg.getMessage() != null) {
+                    send(msg.getMessage());
+                }
+                delivered.add(msg.getId());
+                afterCreatedAt = msg.getCreatedAt();
+                afterId = msg.getId();
+            }
+            if (!delivered.isEmpty()) {
+                queue.deleteByIdIn(delivered);
+            }
+        } while (page.size() == REPLAY_PAGE_SIZE);
+    }
+
     public Logger getLog() {
         return log;
     }
@@ -82,4 +141,11 @@ public final class InMemoryMessageService implements MessageService {
         log.debug("Found {} session(s), {} of them are stale.", connected.size(), stale.size());
         stale.forEach(connected::remove);
     }
+
+    @SuppressWarnings("unused")
+    @Scheduled(fixedDelay = "5m", initialDelay = "2m")
+    void trimStoredMessages() {
+        queue.deleteByCreatedAtLessThan(clock.instant().minus(offlineTtl));
+        queue.trimTo(offlineMaxLength);
+    }
 }
\ No newline at end of file
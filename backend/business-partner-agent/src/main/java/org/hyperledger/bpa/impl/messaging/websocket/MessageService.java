@@ -17,15 +17,12 @@
  */
 package org.hyperledger.bpa.impl.messaging.websocket;
 
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.scheduling.annotation.Async;
 import io.micronaut.websocket.WebSocketSession;
 import org.hyperledger.bpa.controller.api.WebSocketMessageBody;
-import org.hyperledger.bpa.persistence.model.MessageQueue;
-import org.hyperledger.bpa.persistence.repository.MessageQueueRepository;
 import org.slf4j.Logger;
 
-import java.util.stream.StreamSupport;
-
 public interface MessageService {
 
     void subscribe(WebSocketSession session);
@@ -36,7 +33,21 @@ public interface MessageService {
 
     void send(WebSocketMessageBody message);
 
-    MessageQueueRepository getQueue();
+    /**
+     * Keeps a message that could not be delivered because no frontend is connected
+     */
+    void store(WebSocketMessageBody message);
+
+    /**
+     * Called by controller, delivers the stored messages in the order they were
+     * stored. Only delivered messages are removed, so messages that are stored
+     * during the replay are not lost.
+     *
+     * @param lastSeen id of the last message the frontend has received, this
+     *                 message and all messages that were stored before it are
+     *                 dropped without being sent again
+     */
+    void sendStored(@Nullable Long lastSeen);
 
     Logger getLog();
 
@@ -44,6 +55,22 @@ public interface MessageService {
         return "bpa-messages";
     }
 
+    /**
+     * Notifications of the same type for the same entity replace each other while
+     * they are stored
+     *
+     * @param body {@link WebSocketMessageBody}
+     * @return the key, or null if the message does not refer to an entity
+     */
+    @Nullable
+    static String dedupKey(WebSocketMessageBody body) {
+        WebSocketMessageBody.WebSocketMessage m = body.getMessage();
+        if (m == null || m.getType() == null || m.getLinkId() == null) {
+            return null;
+        }
+        return m.getType() + ":" + m.getLinkId();
+    }
+
     /** Called by impl */
     @Async
     default void sendMessage(WebSocketMessageBody message) {
@@ -51,19 +78,10 @@ public interface MessageService {
             if (hasConnectedSessions()) {
                 send(message);
             } else {
-                MessageQueue msg = MessageQueue.builder().message(message).build();
-                getQueue().save(msg);
+                store(message);
             }
         } catch (Exception e) {
             getLog().error("Could not send websocket message.", e);
         }
     }
-
-    /** Called by controller */
-    default void sendStored() {
-        StreamSupport.stream(getQueue().findAll().spliterator(), false)
-                .filter(msg -> msg.getMessage() != null)
-                .forEach(msg -> send(msg.getMessage()));
-        getQueue().deleteAll();
-    }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.messaging.websocket;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Value;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.bpa.controller.api.WebSocketMessageBody;
+import org.hyperledger.bpa.impl.util.NamedThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects websocket notifications over the flush interval and hands them to
+ * the {@link MessageService} as one message. Notifications of the same type for
+ * the same entity that arrive within the interval replace each other, so a bulk
+ * issuance results in one frame per interval instead of one per credential.
+ * Batches are only built for connected sessions, if no frontend is connected
+ * every notification is stored on its own, so that the offline queue can
+ * deduplicate and cap them. If the interval is zero notifications are sent
+ * right away.
+ */
+@Slf4j
+@Singleton
+@Bean(preDestroy = "shutdown")
+public class NotificationBatcher {
+
+    @Inject
+    MessageService messageService;
+
+    private final Duration flushInterval;
+
+    private final ScheduledExecutorService flusher;
+
+    /** pending notifications by dedup key, in the order they arrived */
+    private final Map<String, WebSocketMessageBody> pending = new LinkedHashMap<>();
+
+    public NotificationBatcher(@Value("${bpa.notifications.flush-interval}") Duration flushInterval) {
+        this.flushInterval = flushInterval;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("ws-flush"));
+    }
+
+    public void send(@NonNull WebSocketMessageBody message) {
+        if (flushInterval.isZero()) {
+            messageService.sendMessage(message);
+            return;
+        }
+        String dedupKey = MessageService.dedupKey(message);
+        String key = dedupKey != null ? dedupKey : "id:" + message.getId();
+        boolean schedule;
+        synchronized (pending) {
+            schedule = pending.isEmpty();
+            // re-insert, so that the latest notification keeps its position in the batch
+            pending.remove(key);
+            pending.put(key, message);
+        }
+        if (schedule) {
+            try {
+                flusher.schedule(this::flush, flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                flush();
+            }
+        }
+    }
+
+    void flush() {
+        List<WebSocketMessageBody> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (!messageService.hasConnectedSessions()) {
+            batch.forEach(this::store);
+        } else if (batch.size() == 1) {
+            messageService.sendMessage(batch.get(0));
+        } else if (batch.size() > 1) {
+            log.trace("Sending {} notifications in one batch", batch.size());
+            messageService.sendMessage(WebSocketMessageBody.batch(batch));
+        }
+    }
+
+    private void store(@NonNull WebSocketMessageBody message) {
+        try {
+            messageService.store(message);
+        } catch (Exception e) {
+            log.error("Could not store websocket message.", e);
+        }
+    }
+
+    public void shutdown() {
+        flusher.shutdownNow();
+        flush();
+    }
+}
@@ -19,40 +19,56 @@ package org.hyperledger.bpa.impl.messaging.websocket;
 
 import com.fasterxml.jackson.core.JacksonException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.lettuce.core.KeyValue;
+import io.lettuce.core.*;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
 import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
 import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
 import io.micronaut.context.event.StartupEvent;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.annotation.Scheduled;
 import io.micronaut.websocket.WebSocketBroadcaster;
 import io.micronaut.websocket.WebSocketSession;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
-import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.hyperledger.bpa.controller.api.WebSocketMessageBody;
-import org.hyperledger.bpa.persistence.repository.MessageQueueRepository;
 import org.slf4j.Logger;
 
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * Simple messaging service implementation that broadcasts incoming events to a
- * channel. Each bpa instance publishes/subscribes events to the same channel,
- * incoming channel events are then broadcast to all connected websockets. TODO:
- * for multi tenancy channels need to be separated by tenant id.
+ * Websocket fan-out when the BPA is scaled to multiple instances. Every
+ * instance counts its own sessions and publishes the count under an expiring
+ * heartbeat key, so that checking for connected frontends does not need a round
+ * trip to redis. Messages are published without waiting for the reply, messages
+ * that arrive while no frontend is connected are kept in a capped redis stream.
+ * An instance only listens on the message channel while it has sessions, so a
+ * message that reaches no listener, e.g. because the heartbeat of the cluster
+ * is outdated, is kept in the stream as well.
  */
 @Slf4j
 @Singleton
 @Requires(property = "micronaut.session.http.redis.enabled")
 public final class RedisMessageService implements MessageService {
 
-    @Inject
-    WebSocketBroadcaster broadcaster;
+    /** number of stored messages that are read from the stream at once */
+    static final int REPLAY_PAGE_SIZE = 100;
+
+    private static final String FIELD_MESSAGE = "message";
+
+    private static final String FIELD_ID = "id";
 
     @Inject
-    @Getter
-    MessageQueueRepository queue;
+    WebSocketBroadcaster broadcaster;
 
     @Inject
     ObjectMapper mapper;
@@ -63,9 +79,25 @@ public final class RedisMessageService implements MessageService {
     @Inject
     StatefulRedisPubSubConnection<String, String> pubSub;
 
+    @Value("${bpa.websocket.heartbeat}")
+    Duration heartbeat;
+
+    @Value("${bpa.websocket.offline.max-length}")
+    long offlineMaxLength;
+
+    @Value("${bpa.websocket.offline.ttl}")
+    Duration offlineTtl;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    /** sessions that are connected to this instance */
+    private final AtomicInteger localSessions = new AtomicInteger();
+
+    /** sessions of all instances as of the last heartbeat */
+    private final AtomicInteger clusterSessions = new AtomicInteger();
+
     @EventListener
     public void onServiceStartedEvent(@SuppressWarnings("unused") StartupEvent startEvent) {
-        pubSub.reactive().subscribe(baseChannel()).subscribe();
         pubSub.reactive().observeChannels()
                 .doOnNext(pm -> {
                     log.debug("Reactive handler sending to channel: {}, message, {}", pm.getChannel(), pm.getMessage());
@@ -77,29 +109,187 @@ public final class RedisMessageService implements MessageService {
                 .subscribe();
     }
 
-    public void subscribe(WebSocketSession session) {
-        redis.sync().hset(baseChannel(), session.getId(), null);
+    public synchronized void subscribe(WebSocketSession session) {
+        int count = localSessions.incrementAndGet();
+        if (count == 1) {
+            // wait for the subscription, so that replayed messages are received
+            pubSub.sync().subscribe(baseChannel());
+        }
+        publishSessionCount(count);
     }
 
-    public void unsubscribe(WebSocketSession session) {
-        redis.sync().hdel(baseChannel(), session.getId());
+    public synchronized void unsubscribe(WebSocketSession session) {
+        int count = localSessions.updateAndGet(c -> Math.max(0, c - 1));
+        if (count == 0) {
+            pubSub.async().unsubscribe(baseChannel());
+        }
+        publishSessionCount(count);
     }
 
+    /**
+     * Does not block, sessions of other instances are known as of their last
+     * heartbeat
+     */
     public boolean hasConnectedSessions() {
-        KeyValue<String, String> subscriptions = redis.reactive().hgetall(baseChannel()).blockFirst();
-        return subscriptions != null && !subscriptions.isEmpty();
+        return localSessions.get() > 0 || clusterSessions.get() > 0;
     }
 
+    /**
+     * Publishes the message, if no instance with connected sessions received it the
+     * message is stored instead
+     */
     public void send(WebSocketMessageBody body) {
         try {
             String message = mapper.writeValueAsString(body);
-            redis.reactive().publish(baseChannel(), message).block();
+            // lettuce pipelines async commands on the shared connection
+            redis.async().publish(baseChannel(), message)
+                    .whenComplete((receivers, e) -> {
+                        if (e != null) {
+                            log.error("Could not publish message to channel, storing it", e);
+                            store(body.getId(), message);
+                        } else if (receivers == null || receivers == 0) {
+                            log.debug("No instance with sessions received message: {}", body.getId());
+                            store(body.getId(), message);
+                        }
+                    });
         } catch (JacksonException e) {
             log.error("Could not send message to channel", e);
         }
     }
 
+    public void store(WebSocketMessageBody body) {
+        try {
+            store(body.getId(), mapper.writeValueAsString(body));
+        } catch (JacksonException e) {
+            log.error("Could not store message", e);
+        }
+    }
+
+    private void store(long id, String message) {
+        redis.async().xadd(offlineKey(),
+                XAddArgs.Builder.maxlen(offlineMaxLength).approximateTrimming(),
+                Map.of(FIELD_ID, String.valueOf(id), FIELD_MESSAGE, message))
+                .whenComplete((streamId, e) -> {
+                    if (e != null) {
+                        log.error("Could not store message", e);
+                    }
+                });
+        redis.async().pexpire(offlineKey(), offlineTtl);
+    }
+
+    /**
+     * Replays the stream page by page, a page is published pipelined and only the
+     * messages that reached an instance with sessions are removed. The replay stops
+     * at a page with undelivered messages, they are kept for the next one.
+     */
+    public void sendStored(@Nullable Long lastSeen) {
+        RedisCommands<String, String> cmd = redis.sync();
+        if (lastSeen != null) {
+            dropUpTo(cmd, String.valueOf(lastSeen));
+        }
+        List<StreamMessage<String, String>> page;
+        boolean complete;
+        do {
+            page = cmd.xrange(offlineKey(), Range.create("-", "+"), Limit.from(REPLAY_PAGE_SIZE));
+            Map<String, RedisFuture<Long>> published = new LinkedHashMap<>();
+            page.forEach(m -> {
+                String message = m.getBody().get(FIELD_MESSAGE);
+                published.put(m.getId(), message != null ? redis.async().publish(baseChannel(), message) : null);
+            });
+            List<String> delivered = new ArrayList<>(page.size());
+            published.forEach((streamId, receivers) -> {
+                // entries without a message are dropped as well
+                if (receivers == null || reachedReceiver(receivers)) {
+                    delivered.add(streamId);
+                }
+            });
+            if (!delivered.isEmpty()) {
+                cmd.xdel(offlineKey(), delivered.toArray(String[]::new));
+            }
+            complete = delivered.size() == page.size();
+        } while (complete && page.size() == REPLAY_PAGE_SIZE);
+    }
+
+    private boolean reachedReceiver(RedisFuture<Long> receivers) {
+        try {
+            Long count = receivers.get(heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+            return count != null && count > 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("Could not replay stored message", e);
+        }
+        return false;
+    }
+
+    /**
+     * Removes the message with the given id and all messages before it, if the
+     * message is still in the stream. The stream is capped, so it is read in full.
+     */
+    private void dropUpTo(RedisCommands<String, String> cmd, String messageId) {
+        List<StreamMessage<String, String>> all = cmd.xrange(offlineKey(), Range.create("-", "+"));
+        for (int i = 0; i < all.size(); i++) {
+            if (messageId.equals(all.get(i).getBody().get(FIELD_ID))) {
+                cmd.xdel(offlineKey(), all.subList(0, i + 1).stream()
+                        .map(StreamMessage::getId).toArray(String[]::new));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Refreshes the heartbeat of this instance and sums up the sessions of all
+     * instances whose heartbeat has not expired
+     */
+    @Scheduled(fixedDelay = "${bpa.websocket.heartbeat}", initialDelay = "5s")
+    void heartbeat() {
+        try {
+            RedisCommands<String, String> cmd = redis.sync();
+            cmd.set(sessionsKey(instanceId), String.valueOf(localSessions.get()),
+                    SetArgs.Builder.px(heartbeatTtl()));
+            cmd.sadd(instancesKey(), instanceId);
+
+            List<String> instances = List.copyOf(cmd.smembers(instancesKey()));
+            List<KeyValue<String, String>> counts = cmd.mget(instances.stream()
+                    .map(this::sessionsKey).toArray(String[]::new));
+            int total = 0;
+            for (int i = 0; i < counts.size(); i++) {
+                KeyValue<String, String> count = counts.get(i);
+                if (count.hasValue()) {
+                    total += Integer.parseInt(count.getValue());
+                } else {
+                    // heartbeat expired, the instance is gone
+                    cmd.srem(instancesKey(), instances.get(i));
+                }
+            }
+            clusterSessions.set(total);
+        } catch (Exception e) {
+            log.warn("Could not refresh websocket session heartbeat: {}", e.getMessage());
+        }
+    }
+
     public Logger getLog() {
         return log;
     }
+
+    private void publishSessionCount(int count) {
+        redis.async().set(sessionsKey(instanceId), String.valueOf(count), SetArgs.Builder.px(heartbeatTtl()));
+        redis.async().sadd(instancesKey(), instanceId);
+    }
+
+    private Duration heartbeatTtl() {
+        return heartbeat.multipliedBy(3);
+    }
+
+    private String offlineKey() {
+        return baseChannel() + ":offline";
+    }
+
+    private String instancesKey() {
+        return baseChannel() + ":instances";
+    }
+
+    private String sessionsKey(String instanceId) {
+        return baseChannel() + ":sessions:" + instanceId;
+    }
 }
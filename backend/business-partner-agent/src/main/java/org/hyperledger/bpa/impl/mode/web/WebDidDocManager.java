@@ -27,6 +27,7 @@ import org.hyperledger.aries.api.resolver.DIDDocument;
 import org.hyperledger.bpa.api.ApiConstants;
 import org.hyperledger.bpa.config.runtime.RequiresWeb;
 import org.hyperledger.bpa.impl.DidDocManager;
+import org.hyperledger.bpa.impl.PublicDocumentCache;
 import org.hyperledger.bpa.impl.aries.wallet.Identity;
 import org.hyperledger.bpa.persistence.model.DidDocWeb;
 import org.hyperledger.bpa.persistence.repository.DidDocWebRepository;
@@ -56,6 +57,9 @@ public class WebDidDocManager implements DidDocManager {
     @Inject
     Identity id;
 
+    @Inject
+    PublicDocumentCache publicDocs;
+
     public void createDidDocument(String scheme, String host) {
 
         String verkey = null;
@@ -95,6 +99,7 @@ public class WebDidDocManager implements DidDocManager {
             didRepo.findDidDocSingle().ifPresentOrElse(
                     dd -> didRepo.updateDidDoc(dd.getId(), didDoc),
                     () -> didRepo.save(DidDocWeb.builder().didDoc(didDoc).build()));
+            publicDocs.updateDidDocument(didDoc);
         } catch (IllegalArgumentException e) {
             log.error("Could not convert did document", e);
         }
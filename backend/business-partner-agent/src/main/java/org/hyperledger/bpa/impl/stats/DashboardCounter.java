@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.stats;
+
+/**
+ * The counts shown on the dashboard. Every counter is the number of entities
+ * that are currently in a given state, bucketed by their creation time, see
+ * {@link org.hyperledger.bpa.persistence.repository.StatsCounterRepository} for
+ * the exact conditions.
+ */
+public enum DashboardCounter {
+    /** issuer exchanges in state CREDENTIAL_ACKED */
+    CREDENTIALS_SENT,
+    /** holder exchanges in state CREDENTIAL_ACKED */
+    CREDENTIALS_RECEIVED,
+    /** presentation exchanges in state REQUEST_SENT */
+    PRESENTATION_REQUESTS_SENT,
+    /** presentation exchanges in state PRESENTATION_RECEIVED */
+    PRESENTATION_REQUESTS_RECEIVED,
+    /** partners that are not in state INVITATION */
+    PARTNERS,
+    /** open tasks */
+    TASKS
+}
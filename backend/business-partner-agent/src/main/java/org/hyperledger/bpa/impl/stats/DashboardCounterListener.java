@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.stats;
+
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.annotation.Async;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.hyperledger.bpa.api.aries.AriesCredential;
+import org.hyperledger.bpa.api.notification.*;
+import org.hyperledger.bpa.persistence.model.Activity;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.hyperledger.bpa.persistence.repository.HolderCredExRepository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Keeps the {@link DashboardCounters} up to date from the application events.
+ * Every entity enters and leaves a counter by its id, so events that are
+ * delivered or replayed more than once do not change the count. Presentation
+ * exchanges and tasks are deleted together with their partner, so they are
+ * counted with the partner and leave the counters when it is removed. The
+ * counters are rebuilt from the database every night to correct any drift.
+ */
+@Slf4j
+@Singleton
+public class DashboardCounterListener {
+
+    @Inject
+    DashboardCounters counters;
+
+    @Inject
+    HolderCredExRepository credExRepo;
+
+    @EventListener
+    @Async
+    public void onCredentialAcceptedEvent(CredentialAcceptedEvent event) {
+        credentialEntered(event.getCredential(), DashboardCounter.CREDENTIALS_SENT);
+    }
+
+    @EventListener
+    @Async
+    public void onCredentialAddedEvent(CredentialAddedEvent event) {
+        credentialEntered(event.getCredential(), DashboardCounter.CREDENTIALS_RECEIVED);
+    }
+
+    @EventListener
+    @Async
+    public void onCredentialRevokedEvent(CredentialRevokedEvent event) {
+        credentialLeft(event.getCredentialExchange().getId());
+    }
+
+    @EventListener
+    @Async
+    public void onCredentialDeletedEvent(CredentialDeletedEvent event) {
+        credentialLeft(event.getCredentialExchange().getId());
+    }
+
+    @EventListener
+    @Async
+    public void onPresentationRequestSentEvent(PresentationRequestSentEvent event) {
+        PartnerProof pp = event.getPartnerProof();
+        if (PresentationExchangeState.REQUEST_SENT.equals(pp.getState())) {
+            counters.enter(DashboardCounter.PRESENTATION_REQUESTS_SENT, pp.getId(), partnerId(pp.getPartner()),
+                    pp.getCreatedAt());
+        }
+    }
+
+    @EventListener
+    @Async
+    public void onPresentationReceivedEvent(PresentationReceivedEvent event) {
+        PartnerProof pp = event.getPartnerProof();
+        counters.leave(DashboardCounter.PRESENTATION_REQUESTS_SENT, pp.getId());
+        if (PresentationExchangeState.PRESENTATION_RECEIVED.equals(pp.getState())) {
+            counters.enter(DashboardCounter.PRESENTATION_REQUESTS_RECEIVED, pp.getId(), partnerId(pp.getPartner()),
+                    pp.getCreatedAt());
+        }
+    }
+
+    @EventListener
+    @Async
+    public void onPresentationRequestCompletedEvent(PresentationRequestCompletedEvent event) {
+        proofLeft(event.getPartnerProof());
+    }
+
+    @EventListener
+    @Async
+    public void onPresentationRequestDeclinedEvent(PresentationRequestDeclinedEvent event) {
+        proofLeft(event.getPartnerProof());
+    }
+
+    @EventListener
+    @Async
+    public void onPresentationRequestDeletedEvent(PresentationRequestDeletedEvent event) {
+        proofLeft(event.getPartnerProof());
+    }
+
+    @EventListener
+    @Async
+    public void onTaskAddedEvent(TaskAddedEvent event) {
+        Activity a = event.getActivity();
+        counters.enter(DashboardCounter.TASKS, a.getId(), partnerId(a.getPartner()), a.getCreatedAt());
+    }
+
+    @EventListener
+    @Async
+    public void onTaskCompletedEvent(TaskCompletedEvent event) {
+        counters.leave(DashboardCounter.TASKS, event.getActivity().getId());
+    }
+
+    /** outgoing connection, our invitation request was sent */
+    @EventListener
+    @Async
+    public void onPartnerAddedEvent(PartnerAddedEvent event) {
+        partnerEntered(event.getPartner());
+    }
+
+    /** outgoing connection that skipped the request state */
+    @EventListener
+    @Async
+    public void onPartnerAcceptedEvent(PartnerAcceptedEvent event) {
+        partnerEntered(event.getPartner());
+    }
+
+    /** incoming connection request on one of our invitations */
+    @EventListener
+    @Async
+    public void onPartnerRequestReceivedEvent(PartnerRequestReceivedEvent event) {
+        partnerEntered(event.getPartner());
+    }
+
+    /** incoming connection that skipped the request state */
+    @EventListener
+    @Async
+    public void onPartnerRequestCompletedEvent(PartnerRequestCompletedEvent event) {
+        partnerEntered(event.getPartner());
+    }
+
+    @EventListener
+    @Async
+    public void onPartnerRemovedEvent(PartnerRemovedEvent event) {
+        counters.leavePartner(event.getPartner().getId());
+    }
+
+    /** the dashboard counts the tables until the counters are built */
+    @EventListener
+    @Async
+    public void onServiceStartedEvent(@SuppressWarnings("unused") StartupEvent startEvent) {
+        try {
+            counters.initialise();
+        } catch (Exception e) {
+            log.error("Could not build dashboard counters", e);
+        }
+    }
+
+    @Scheduled(cron = "0 45 2 ? * *")
+    void rebuildNightly() {
+        try {
+            counters.rebuild();
+            // in case the build at startup failed
+            counters.initialise();
+        } catch (Exception e) {
+            log.error("Could not rebuild dashboard counters", e);
+        }
+    }
+
+    private void credentialEntered(AriesCredential credential, DashboardCounter counter) {
+        if (CredentialExchangeState.CREDENTIAL_ACKED.equals(credential.getState())) {
+            Instant createdAt = credExRepo.findCreatedAtById(credential.getId()).orElse(null);
+            counters.enter(counter, credential.getId(), createdAt);
+        }
+    }
+
+    /**
+     * revoked or deleted, the credential is not acked anymore, whatever its role
+     */
+    private void credentialLeft(UUID credExId) {
+        counters.leave(DashboardCounter.CREDENTIALS_SENT, credExId);
+        counters.leave(DashboardCounter.CREDENTIALS_RECEIVED, credExId);
+    }
+
+    /** the proof is in neither of the open states anymore, whatever its role */
+    private void proofLeft(PartnerProof pp) {
+        counters.leave(DashboardCounter.PRESENTATION_REQUESTS_SENT, pp.getId());
+        counters.leave(DashboardCounter.PRESENTATION_REQUESTS_RECEIVED, pp.getId());
+    }
+
+    private void partnerEntered(Partner p) {
+        if (p.getState() != null && !ConnectionState.INVITATION.equals(p.getState())) {
+            counters.enter(DashboardCounter.PARTNERS, p.getId(), p.getId(), p.getCreatedAt());
+        }
+    }
+
+    private static @Nullable UUID partnerId(@Nullable Partner p) {
+        return p != null ? p.getId() : null;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.stats;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.transaction.annotation.TransactionalAdvice;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.bpa.controller.api.stats.DashboardCounts;
+import org.hyperledger.bpa.persistence.model.StatsCounter;
+import org.hyperledger.bpa.persistence.repository.StatsCounterRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Incrementally maintained dashboard counters in hourly buckets, so that the
+ * dashboard does not need to count the exchange tables on every load. Totals
+ * are kept in their own bucket, any period is the sum of its hourly buckets.
+ * The counted entities are tracked by id, so entering or leaving a counter
+ * twice, e.g. when events are replayed, does not change it. The member rows
+ * also record the bucket an entity has to be taken out of and the partner it is
+ * deleted with. Only entities that are counted right now have a member row, and
+ * the dashboard read never touches them.
+ */
+@Slf4j
+@Singleton
+public class DashboardCounters {
+
+    /** bucket that holds the overall totals */
+    static final Instant TOTAL = Instant.EPOCH;
+
+    /** bucket for entities without a creation date, only part of the totals */
+    static final Instant UNDATED = Instant.EPOCH.plus(1, ChronoUnit.DAYS);
+
+    @Inject
+    StatsCounterRepository repo;
+
+    @Inject
+    Clock clock;
+
+    /** set once the counters are known to be built */
+    private volatile boolean ready;
+
+    /**
+     * Counts the entity in the bucket of its creation time and in the total, unless
+     * it is counted already
+     *
+     * @param counter   {@link DashboardCounter}
+     * @param entityId  id of the entity that entered the counted state
+     * @param createdAt creation time of the entity
+     */
+    public void enter(@NonNull DashboardCounter counter, @Nullable UUID entityId, @Nullable Instant createdAt) {
+        enter(counter, entityId, null, createdAt);
+    }
+
+    /**
+     * Counts the entity like {@link #enter(DashboardCounter, UUID, Instant)}, the
+     * entity leaves the counter again when its partner is removed
+     *
+     * @param counter   {@link DashboardCounter}
+     * @param entityId  id of the entity that entered the counted state
+     * @param partnerId partner the entity is deleted with
+     * @param createdAt creation time of the entity
+     */
+    public void enter(@NonNull DashboardCounter counter, @Nullable UUID entityId, @Nullable UUID partnerId,
+            @Nullable Instant createdAt) {
+        if (entityId == null) {
+            return;
+        }
+        try {
+            Instant bucket = createdAt != null ? createdAt.truncatedTo(ChronoUnit.HOURS) : UNDATED;
+            repo.enter(counter.name(), entityId, bucket, partnerId, TOTAL);
+        } catch (Exception e) {
+            log.error("Could not update dashboard counter: {}", counter, e);
+        }
+    }
+
+    /**
+     * Removes the entity from the counter, if it is counted
+     *
+     * @param counter  {@link DashboardCounter}
+     * @param entityId id of the entity that left the counted state
+     */
+    public void leave(@NonNull DashboardCounter counter, @Nullable UUID entityId) {
+        if (entityId == null) {
+            return;
+        }
+        try {
+            repo.leave(counter.name(), entityId, TOTAL);
+        } catch (Exception e) {
+            log.error("Could not update dashboard counter: {}", counter, e);
+        }
+    }
+
+    /**
+     * Removes the partner and everything that is deleted together with it, e.g. its
+     * presentation exchanges and tasks, from all counters
+     *
+     * @param partnerId id of the removed partner
+     */
+    public void leavePartner(@Nullable UUID partnerId) {
+        if (partnerId == null) {
+            return;
+        }
+        try {
+            repo.leavePartner(partnerId, TOTAL);
+        } catch (Exception e) {
+            log.error("Could not update dashboard counters of partner: {}", partnerId, e);
+        }
+    }
+
+    /**
+     * @param period look back period, e.g. one day
+     * @return the totals and the totals of the entities created within the period
+     */
+    public Counts read(@NonNull Duration period) {
+        Instant from = clock.instant().minus(period).truncatedTo(ChronoUnit.HOURS);
+        Map<DashboardCounter, Long> totals = new EnumMap<>(DashboardCounter.class);
+        Map<DashboardCounter, Long> periodTotals = new EnumMap<>(DashboardCounter.class);
+        List<StatsCounter> rows = repo.findTotalsAndBucketsFrom(TOTAL, from);
+        for (StatsCounter row : rows) {
+            DashboardCounter counter;
+            try {
+                counter = DashboardCounter.valueOf(row.getName());
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            Map<DashboardCounter, Long> target = TOTAL.equals(row.getBucket()) ? totals : periodTotals;
+            target.merge(counter, row.getValue(), Long::sum);
+        }
+        return new Counts(toDashboardCounts(totals), toDashboardCounts(periodTotals));
+    }
+
+    /**
+     * Recomputes all counters from the exchange tables. Counter updates wait until
+     * the rebuild is committed, readers see either the old or the new counts.
+     */
+    @TransactionalAdvice
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        repo.lockMembers();
+        repo.deleteMembers();
+        repo.rebuildMembers(UNDATED);
+        repo.rebuildCounters(TOTAL);
+        log.info("Rebuilt dashboard counters in {}ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Builds the counters if they were never built, e.g. after an upgrade, and
+     * switches the dashboard over to them once the build is committed
+     */
+    public void initialise() {
+        if (repo.countByBucket(TOTAL) != DashboardCounter.values().length) {
+            rebuild();
+        }
+        ready = true;
+    }
+
+    /**
+     * @return false until the counters were built by this instance, or found to be
+     *         built, until then the dashboard has to count the tables
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    private static DashboardCounts toDashboardCounts(Map<DashboardCounter, Long> c) {
+        return DashboardCounts
+                .builder()
+                .credentialsSent(c.getOrDefault(DashboardCounter.CREDENTIALS_SENT, 0L))
+                .credentialsReceived(c.getOrDefault(DashboardCounter.CREDENTIALS_RECEIVED, 0L))
+                .presentationRequestsSent(c.getOrDefault(DashboardCounter.PRESENTATION_REQUESTS_SENT, 0L))
+                .presentationRequestsReceived(c.getOrDefault(DashboardCounter.PRESENTATION_REQUESTS_RECEIVED, 0L))
+                .partners(c.getOrDefault(DashboardCounter.PARTNERS, 0L))
+                .tasks(c.getOrDefault(DashboardCounter.TASKS, 0L))
+                .build();
+    }
+
+    /**
+     * @param totals       overall
+     * @param periodTotals created within the period
+     */
+    public record Counts(DashboardCounts totals, DashboardCounts periodTotals) {
+    }
+}
@@ -21,7 +21,6 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import io.micronaut.context.annotation.Value;
@@ -41,7 +40,6 @@ import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.api.present_proof.PresentProofRequest;
 import org.hyperledger.aries.api.present_proof.PresentationExchangeRecord;
 import org.hyperledger.aries.api.present_proof_v2.V2DIFProofRequest;
-import org.hyperledger.aries.config.GsonConfig;
 import org.hyperledger.bpa.api.CredentialType;
 import org.hyperledger.bpa.api.MyDocumentAPI;
 import org.hyperledger.bpa.api.PartnerAPI;
@@ -110,12 +108,9 @@ public class Converter {
         List<PartnerCredential> pc = new ArrayList<>();
         if (partner.getVerifiableCredential() != null) {
             for (VerifiableIndyCredential c : partner.getVerifiableCredential()) {
-                JsonNode node;
-                try {
-                    node = mapper.readTree(c.getCredentialSubject().toString());
-                } catch (JsonProcessingException e) {
-                    node = null;
-                }
+                JsonNode node = c.getCredentialSubject() != null
+                        ? JsonTreeBridge.toJackson(c.getCredentialSubject())
+                        : null;
 
                 boolean verifiedCredential = false;
                 if (CollectionUtils.isNotEmpty(c.getType())) {
@@ -287,6 +282,18 @@ public class Converter {
         return proof;
     }
 
+    /**
+     * List view of a proof exchange, without the proof data and the proof request
+     *
+     * @param p {@link PartnerProof.ProofSummaryDTO}
+     * @return {@link AriesProofExchange}
+     */
+    public AriesProofExchange toAPIObject(@NonNull PartnerProof.ProofSummaryDTO p) {
+        AriesProofExchange proof = AriesProofExchange.from(p);
+        proof.setTypeLabel(resolveProofTypeLabel(p.getType(), p.getRequestName(), p.getRequestCredDefId()));
+        return proof;
+    }
+
     /**
      * In V1 proof proposal there is no way to name the proof request so aca-py
      * always falls back to 'proof-request' for the name. In most cases this is only
@@ -297,35 +304,47 @@ public class Converter {
      * @return name, credential definition tag, or default label
      */
     private String resolveTypeLabel(@NonNull PartnerProof p) {
-        String defaultLabel = msg.getMessage("api.proof.exchange.default.name");
         ExchangePayload<PresentProofRequest.ProofRequest, V2DIFProofRequest> pr = Objects
                 .requireNonNullElseGet(p.getProofRequest(), ExchangePayload::new);
+        String name = null;
+        String credDefId = null;
         if (p.typeIsIndy() && pr.getIndy() != null) {
             PresentProofRequest.ProofRequest indy = pr.getIndy();
-            if (!"proof-request".equals(indy.getName())) {
-                return indy.getName();
-            }
+            name = indy.getName();
             if (indy.getRequestedAttributes() != null
                     && indy.getRequestedAttributes().size() == 1) {
-                return indy.getRequestedAttributes().entrySet().stream().findFirst().map(attr -> {
-                    if (attr.getValue().getRestrictions() != null && attr.getValue().getRestrictions().size() == 1) {
-                        JsonObject jo = attr.getValue().getRestrictions().get(0);
-                        String credDefId = jo.get("cred_def_id") != null ? jo.get("cred_def_id").getAsString() : null;
-                        if (credDefId != null) {
-                            return StringUtils.replace(AriesStringUtil.credDefIdGetTag(credDefId), "-", " ");
-                        }
-                    }
-                    return defaultLabel;
-                }).orElse(defaultLabel);
+                credDefId = indy.getRequestedAttributes().values().stream().findFirst()
+                        .filter(attr -> attr.getRestrictions() != null && attr.getRestrictions().size() == 1)
+                        .map(attr -> attr.getRestrictions().get(0).get("cred_def_id"))
+                        .map(JsonElement::getAsString)
+                        .orElse(null);
             }
         } else if (p.typeIsJsonLd() && pr.getJsonLD() != null) {
             V2DIFProofRequest ld = pr.getJsonLD();
-            String name = ld.getPresentationDefinition() != null ? ld.getPresentationDefinition().getName() : null;
-            if (StringUtils.isNotEmpty(name)) {
+            name = ld.getPresentationDefinition() != null ? ld.getPresentationDefinition().getName() : null;
+        }
+        return resolveProofTypeLabel(p.getType(), name, credDefId);
+    }
+
+    /**
+     * @param type      {@link CredentialType}
+     * @param name      name of the proof request or the presentation definition
+     * @param credDefId restriction of an indy proof request for a single credential
+     * @return name, credential definition tag, or default label
+     */
+    private String resolveProofTypeLabel(@Nullable CredentialType type, @Nullable String name,
+            @Nullable String credDefId) {
+        if (CredentialType.INDY.equals(type)) {
+            if (StringUtils.isNotEmpty(name) && !"proof-request".equals(name)) {
                 return name;
             }
+            if (credDefId != null) {
+                return StringUtils.replace(AriesStringUtil.credDefIdGetTag(credDefId), "-", " ");
+            }
+        } else if (CredentialType.JSON_LD.equals(type) && StringUtils.isNotEmpty(name)) {
+            return name;
         }
-        return defaultLabel;
+        return msg.getMessage("api.proof.exchange.default.name");
     }
 
     private String resolveTypeLabel(@NonNull CredentialType type, @Nullable String schemaId,
@@ -351,21 +370,26 @@ public class Converter {
     }
 
     private String getSchemaIdFromContext(VerifiableIndyCredential c) {
-        String schemaId = null;
-        JsonArray ja = GsonConfig.defaultConfig().toJsonTree(c.getContext()).getAsJsonArray();
-        for (JsonElement je : ja) {
-            if (je.isJsonObject()) {
-                JsonObject jo = je.getAsJsonObject();
-                JsonElement ctx = jo.getAsJsonObject("@context");
-                if (ctx != null) {
+        if (c.getContext() == null) {
+            return null;
+        }
+        // the context is either deserialized by gson, by jackson, or built as gson
+        // tree, only objects can hold the schema reference
+        for (Object o : c.getContext()) {
+            Object sc = null;
+            if (o instanceof JsonObject jo) {
+                JsonElement ctx = jo.get("@context");
+                if (ctx != null && ctx.isJsonObject()) {
                     JsonElement e = ctx.getAsJsonObject().get("sc");
-                    if (e != null) {
-                        schemaId = e.getAsString().replace(ledgerPrefix, "");
-                        break;
-                    }
+                    sc = e != null && e.isJsonPrimitive() ? e.getAsString() : null;
                 }
+            } else if (o instanceof Map<?, ?> m && m.get("@context") instanceof Map<?, ?> ctx) {
+                sc = ctx.get("sc");
+            }
+            if (sc != null) {
+                return String.valueOf(sc).replace(ledgerPrefix, "");
             }
         }
-        return schemaId;
+        return null;
     }
 }
@@ -17,13 +17,19 @@
  */
 package org.hyperledger.bpa.impl.util;
 
+import com.google.gson.Gson;
 import io.micronaut.core.annotation.Nullable;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.hyperledger.aries.config.GsonConfig;
 import org.springframework.security.crypto.codec.Hex;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -34,7 +40,10 @@ public class CryptoUtil {
         if (base == null || other == null) {
             return false;
         }
-        return hashCompare(GsonConfig.defaultConfig().toJson(base), GsonConfig.defaultConfig().toJson(other));
+        Gson gson = GsonConfig.defaultConfig();
+        String b = toSHA256Hex(gson, base);
+        String o = toSHA256Hex(gson, other);
+        return b != null && b.equals(o);
     }
 
     public static boolean hashCompare(@NonNull String base, @NonNull String other) {
@@ -46,7 +55,7 @@ public class CryptoUtil {
         return b.equals(o);
     }
 
-    private static String toSHA256Hex(@NonNull String base) {
+    public static String toSHA256Hex(@NonNull String base) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA3-256");
             final byte[] hashBytes = digest.digest(base.getBytes(StandardCharsets.UTF_8));
@@ -56,4 +65,28 @@ public class CryptoUtil {
         }
         return null;
     }
+
+    /**
+     * Hashes the json representation of the object, the json is streamed into the
+     * digest instead of being built as string first
+     *
+     * @param gson {@link Gson} that defines the json representation
+     * @param src  object to hash
+     * @return SHA3-256 hex or null if the algorithm is not available
+     */
+    public static String toSHA256Hex(@NonNull Gson gson, @NonNull Object src) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA3-256");
+            try (Writer w = new OutputStreamWriter(
+                    new DigestOutputStream(OutputStream.nullOutputStream(), digest), StandardCharsets.UTF_8)) {
+                gson.toJson(src, w);
+            }
+            return String.valueOf(Hex.encode(digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            log.error("SHA3-256 not available");
+        } catch (IOException e) {
+            log.error("Could not hash object", e);
+        }
+        return null;
+    }
 }
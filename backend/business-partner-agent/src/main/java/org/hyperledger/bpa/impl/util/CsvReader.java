@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.util;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 reader: comma separated, fields may be quoted with double
+ * quotes, quotes within quoted fields are escaped by doubling them. Empty lines
+ * are skipped.
+ */
+public class CsvReader {
+
+    private CsvReader() {
+    }
+
+    /**
+     * @param csv the csv document
+     * @return rows, each row being a list of fields
+     */
+    public static List<List<String>> read(@NonNull String csv) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean rowHasContent = false;
+        int len = csv.length();
+        for (int i = 0; i < len; i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < len && csv.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                rowHasContent = true;
+            } else if (c == ',') {
+                row.add(field.toString().strip());
+                field.setLength(0);
+                rowHasContent = true;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < len && csv.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                if (rowHasContent || !field.isEmpty()) {
+                    row.add(field.toString().strip());
+                    rows.add(row);
+                }
+                row = new ArrayList<>();
+                field.setLength(0);
+                rowHasContent = false;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        if (rowHasContent || !field.isEmpty()) {
+            row.add(field.toString().strip());
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.POJONode;
+import com.google.gson.*;
+import io.micronaut.core.annotation.Nullable;
+import org.hyperledger.aries.config.GsonConfig;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Converts between gson and jackson json trees node by node. The aries client
+ * models use gson, while the BPA api and persistence use jackson, converting
+ * the trees directly avoids printing one tree and parsing it into the other.
+ */
+public class JsonTreeBridge {
+
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+
+    /**
+     * @param element gson tree
+     * @return the same tree as jackson nodes, numbers are mapped the way jackson
+     *         parses them
+     */
+    public static JsonNode toJackson(@Nullable JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return NODES.nullNode();
+        }
+        if (element.isJsonObject()) {
+            ObjectNode on = NODES.objectNode();
+            for (Map.Entry<String, JsonElement> e : element.getAsJsonObject().entrySet()) {
+                on.set(e.getKey(), toJackson(e.getValue()));
+            }
+            return on;
+        }
+        if (element.isJsonArray()) {
+            ArrayNode an = NODES.arrayNode();
+            for (JsonElement e : element.getAsJsonArray()) {
+                an.add(toJackson(e));
+            }
+            return an;
+        }
+        JsonPrimitive p = element.getAsJsonPrimitive();
+        if (p.isBoolean()) {
+            return NODES.booleanNode(p.getAsBoolean());
+        }
+        if (p.isNumber()) {
+            return toJacksonNumber(p.getAsNumber());
+        }
+        return NODES.textNode(p.getAsString());
+    }
+
+    /**
+     * @param node jackson tree
+     * @return the same tree as gson elements
+     */
+    public static JsonElement toGson(@Nullable JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return JsonNull.INSTANCE;
+        }
+        if (node.isObject()) {
+            JsonObject jo = new JsonObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> e = fields.next();
+                jo.add(e.getKey(), toGson(e.getValue()));
+            }
+            return jo;
+        }
+        if (node.isArray()) {
+            JsonArray ja = new JsonArray(node.size());
+            for (JsonNode e : node) {
+                ja.add(toGson(e));
+            }
+            return ja;
+        }
+        if (node.isBoolean()) {
+            return new JsonPrimitive(node.booleanValue());
+        }
+        if (node.isNumber()) {
+            return new JsonPrimitive(node.numberValue());
+        }
+        if (node instanceof POJONode pojo) {
+            return GsonConfig.defaultConfig().toJsonTree(pojo.getPojo());
+        }
+        return new JsonPrimitive(node.asText());
+    }
+
+    public static JsonObject toGsonObject(@Nullable ObjectNode node) {
+        return node == null ? new JsonObject() : toGson(node).getAsJsonObject();
+    }
+
+    private static JsonNode toJacksonNumber(Number n) {
+        if (n instanceof Integer || n instanceof Short || n instanceof Byte) {
+            return NODES.numberNode(n.intValue());
+        }
+        if (n instanceof Long l) {
+            return NODES.numberNode(l);
+        }
+        if (n instanceof Double d) {
+            return NODES.numberNode(d);
+        }
+        if (n instanceof Float f) {
+            return NODES.numberNode(f);
+        }
+        if (n instanceof BigInteger bi) {
+            return NODES.numberNode(bi);
+        }
+        if (n instanceof BigDecimal bd) {
+            return NODES.numberNode(bd);
+        }
+        // parsed by gson and not yet materialized, keep the type jackson would pick
+        String s = n.toString();
+        if (s.indexOf('.') < 0 && s.indexOf('e') < 0 && s.indexOf('E') < 0) {
+            if (s.length() > 18) {
+                BigInteger bi = new BigInteger(s);
+                return bi.bitLength() < Long.SIZE ? NODES.numberNode(bi.longValue()) : NODES.numberNode(bi);
+            }
+            long l = Long.parseLong(s);
+            return l == (int) l ? NODES.numberNode((int) l) : NODES.numberNode(l);
+        }
+        return NODES.numberNode(Double.parseDouble(s));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Spaces out calls so that at most the configured number of permits is handed
+ * out per second, callers block until it is their turn. A rate of zero or less
+ * disables the limit.
+ */
+public final class RateLimiter {
+
+    private final long intervalNanos;
+
+    private final LongSupplier ticker;
+
+    private final Sleeper sleeper;
+
+    private long next;
+
+    public RateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, System::nanoTime, TimeUnit.NANOSECONDS::sleep);
+    }
+
+    RateLimiter(double permitsPerSecond, LongSupplier ticker, Sleeper sleeper) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.ticker = ticker;
+        this.sleeper = sleeper;
+        this.next = ticker.getAsLong();
+    }
+
+    /**
+     * Blocks until the next permit is available
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = ticker.getAsLong();
+            long at = Math.max(now, next);
+            next = at + intervalNanos;
+            wait = at - now;
+        }
+        if (wait > 0) {
+            sleeper.sleep(wait);
+        }
+    }
+
+    /** waits for the given number of nanoseconds */
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long nanos) throws InterruptedException;
+    }
+}
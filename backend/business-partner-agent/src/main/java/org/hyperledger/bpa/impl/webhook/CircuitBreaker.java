@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.webhook;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Minimal per endpoint circuit breaker. After a number of consecutive failures
+ * the circuit opens and no calls are let through until the open duration has
+ * passed, then a single probe call decides if the circuit closes again.
+ */
+class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private int consecutiveFailures;
+    private Instant openedAt;
+    private boolean probeInFlight;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, Clock clock) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    synchronized boolean allowRequest() {
+        if (openedAt == null) {
+            return true;
+        }
+        if (!probeInFlight && clock.instant().isAfter(openedAt.plus(openDuration))) {
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        openedAt = null;
+        probeInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        if (probeInFlight || consecutiveFailures >= failureThreshold) {
+            openedAt = clock.instant();
+        }
+        probeInFlight = false;
+    }
+
+    synchronized boolean isOpen() {
+        return openedAt != null;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.webhook;
+
+import io.micronaut.context.annotation.Bean;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookBatching;
+import org.hyperledger.bpa.core.WebhookEvent;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.impl.webhook.WebhookRegistry.ActiveWebhook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Collects the events of webhooks that have batching enabled and hands them
+ * over to the {@link WebhookSender} as one json array, either when the max
+ * batch size is reached or when the oldest event in the batch waited for the
+ * max linger time. Batches of the same webhook are sent one after the other, so
+ * the receiver gets the events in the order they happened.
+ */
+@Slf4j
+@Singleton
+@Bean(preDestroy = "shutdown")
+public class WebhookBatcher {
+
+    @Inject
+    WebhookSender sender;
+
+    @Inject
+    Converter conv;
+
+    private final Map<UUID, Batch> batches = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService linger = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "webhook-batcher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Adds the event to the current batch of the webhook
+     *
+     * @param hook  {@link ActiveWebhook} with batching enabled
+     * @param event {@link WebhookEvent}
+     */
+    public void add(@NonNull ActiveWebhook hook, @NonNull WebhookEvent<?> event) {
+        batches.computeIfAbsent(hook.id(), id -> new Batch()).add(hook, event);
+    }
+
+    /**
+     * Sends the pending events of the webhook and forgets about its batch, e.g.
+     * after the webhook was changed
+     *
+     * @param webhookId {@link ActiveWebhook} id
+     */
+    public void flush(@NonNull UUID webhookId) {
+        Batch b = batches.remove(webhookId);
+        if (b != null) {
+            b.flush();
+        }
+    }
+
+    /**
+     * Drops the pending events of the webhook, e.g. after it was deleted
+     *
+     * @param webhookId {@link ActiveWebhook} id
+     */
+    public void discard(@NonNull UUID webhookId) {
+        Batch b = batches.remove(webhookId);
+        if (b != null) {
+            b.discard();
+        }
+    }
+
+    public void shutdown() {
+        linger.shutdownNow();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        batches.values().forEach(b -> pending.add(b.flush()));
+        try {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Not all webhook batches could be sent before shutdown");
+        }
+    }
+
+    private final class Batch {
+
+        private final List<WebhookEvent<?>> events = new ArrayList<>();
+
+        private ActiveWebhook hook;
+
+        private ScheduledFuture<?> lingerTask;
+
+        /** completes when the previous batch was delivered or persisted */
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+        synchronized void add(ActiveWebhook activeHook, WebhookEvent<?> event) {
+            this.hook = activeHook;
+            events.add(event);
+            WebhookBatching config = activeHook.hook().getBatching();
+            if (events.size() >= config.getMaxBatchSize()) {
+                flush();
+            } else if (lingerTask == null) {
+                long lingerMillis = config.getMaxLingerMillis() != null ? config.getMaxLingerMillis() : 0;
+                lingerTask = linger.schedule(this::flush, lingerMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized CompletableFuture<Void> flush() {
+            cancelLinger();
+            if (events.isEmpty()) {
+                return tail;
+            }
+            ActiveWebhook target = hook;
+            conv.writeValueAsString(List.copyOf(events)).ifPresent(payload -> tail = tail
+                    .thenCompose(v -> sender.sendInOrder(target, payload))
+                    .exceptionally(e -> {
+                        log.error("Could not send webhook batch to {}", target.hook().getUrl(), e);
+                        return null;
+                    }));
+            events.clear();
+            return tail;
+        }
+
+        synchronized void discard() {
+            cancelLinger();
+            if (!events.isEmpty()) {
+                log.debug("Dropping {} batched events of removed webhook: {}", events.size(), hook.id());
+                events.clear();
+            }
+        }
+
+        private void cancelLinger() {
+            if (lingerTask != null) {
+                lingerTask.cancel(false);
+                lingerTask = null;
+            }
+        }
+    }
+}
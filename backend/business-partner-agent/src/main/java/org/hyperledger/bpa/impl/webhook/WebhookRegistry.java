@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.webhook;
+
+import io.micronaut.core.util.StringUtils;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import org.hyperledger.bpa.config.WebhookConfig;
+import org.hyperledger.bpa.core.RegisteredWebhook;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookCredentials;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookEventType;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.persistence.repository.BPAWebhookRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.StreamSupport;
+
+/**
+ * In memory view of the registered webhooks, so that sending an event does not
+ * need a database round trip. The view is dropped whenever a webhook is changed
+ * through the {@link org.hyperledger.bpa.impl.WebhookService} and reloaded
+ * periodically to pick up changes made by other instances. Every view carries
+ * the generation it was loaded in, so that a load that was running while the
+ * view was dropped is not used afterwards.
+ */
+@Singleton
+public class WebhookRegistry {
+
+    @Inject
+    BPAWebhookRepository repo;
+
+    @Inject
+    Converter conv;
+
+    @Inject
+    WebhookConfig config;
+
+    /** incremented with every invalidation */
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    public List<ActiveWebhook> findByEventType(@NonNull WebhookEventType type) {
+        return current().hooks().stream()
+                .filter(h -> h.hook().getRegisteredEvent() != null && h.hook().getRegisteredEvent().contains(type))
+                .toList();
+    }
+
+    public Optional<ActiveWebhook> findById(@NonNull UUID id) {
+        return current().hooks().stream().filter(h -> h.id().equals(id)).findFirst();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null || s.generation() != generation.get()
+                || s.loadedAt().plus(config.getRegistryRefresh()).isBefore(Instant.now())) {
+            s = load(generation.get());
+            snapshot = s;
+        }
+        return s;
+    }
+
+    private Snapshot load(long gen) {
+        List<ActiveWebhook> hooks = StreamSupport.stream(repo.findAll().spliterator(), false)
+                .map(h -> {
+                    RegisteredWebhook rh = conv.fromMap(h.getWebhook(), RegisteredWebhook.class);
+                    return new ActiveWebhook(h.getId(), rh, basicAuthHeader(rh.getCredentials()));
+                })
+                .toList();
+        return new Snapshot(gen, Instant.now(), hooks);
+    }
+
+    private static String basicAuthHeader(WebhookCredentials creds) {
+        if (creds != null && StringUtils.isNotEmpty(creds.getUsername())) {
+            return "Basic " + Base64.getEncoder()
+                    .encodeToString((creds.getUsername() + ":" + creds.getPassword())
+                            .getBytes(StandardCharsets.UTF_8));
+        }
+        return null;
+    }
+
+    private record Snapshot(long generation, Instant loadedAt, List<ActiveWebhook> hooks) {
+    }
+
+    /**
+     * A registered webhook as it is used when sending
+     *
+     * @param id            database id
+     * @param hook          {@link RegisteredWebhook}
+     * @param authorization pre-computed authorization header, or null if the hook
+     *                      has no credentials
+     */
+    public record ActiveWebhook(UUID id, RegisteredWebhook hook, String authorization) {
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.webhook;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import org.apache.commons.lang3.StringUtils;
+import org.hyperledger.bpa.config.WebhookConfig;
+import org.hyperledger.bpa.impl.webhook.WebhookRegistry.ActiveWebhook;
+import org.hyperledger.bpa.persistence.model.WebhookDelivery;
+import org.hyperledger.bpa.persistence.repository.WebhookDeliveryRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Non-blocking webhook delivery. Every endpoint gets its own http dispatcher
+ * and connection pool, so that a slow or unreachable subscriber can not delay
+ * the others, and its own {@link CircuitBreaker}. Failed deliveries are
+ * persisted and retried with exponential backoff until they either succeed or
+ * end up as dead letters.
+ */
+@Slf4j
+@Singleton
+@Bean(preDestroy = "shutdown")
+public class WebhookSender {
+
+    static final MediaType JSON_TYPE = MediaType.get("application/json; charset=utf-8");
+
+    static final String METRIC_DELIVERY = "bpa.webhook.delivery";
+    static final String METRIC_DEAD_LETTER = "bpa.webhook.dead.letter";
+
+    private static final int RETRY_BATCH_SIZE = 100;
+    private static final int MAX_ERROR_LENGTH = 2048;
+
+    @Inject
+    WebhookConfig config;
+
+    @Inject
+    WebhookRegistry registry;
+
+    @Inject
+    WebhookDeliveryRepository deliveryRepo;
+
+    @Inject
+    MeterRegistry meters;
+
+    @Inject
+    Clock clock;
+
+    private final Map<UUID, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    private OkHttpClient baseClient;
+
+    /**
+     * Sends the payload to the webhook, returns immediately
+     *
+     * @param hook    {@link ActiveWebhook}
+     * @param payload serialized webhook event
+     */
+    public void send(@NonNull ActiveWebhook hook, @NonNull String payload) {
+        send(hook, payload, null);
+    }
+
+    /**
+     * Sends the payload of a batched webhook. Batches of the same webhook must be
+     * delivered in order, so if older batches are still waiting for a retry the
+     * payload is queued behind them instead of being sent.
+     *
+     * @param hook    {@link ActiveWebhook}
+     * @param payload serialized json array of webhook events
+     * @return completes when the payload was either delivered or persisted for a
+     *         retry
+     */
+    public CompletableFuture<Void> sendInOrder(@NonNull ActiveWebhook hook, @NonNull String payload) {
+        try {
+            if (deliveryRepo.existsByWebhookIdAndDeadLetter(hook.id(), Boolean.FALSE)) {
+                deliveryRepo.save(WebhookDelivery.builder()
+                        .webhookId(hook.id())
+                        .payload(payload)
+                        .attempts(0)
+                        .nextAttemptAt(clock.instant())
+                        .deadLetter(Boolean.FALSE)
+                        .build());
+                return CompletableFuture.completedFuture(null);
+            }
+            return send(hook, payload, null).thenApply(success -> null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Drops the http client and circuit state of the webhook, e.g. after it was
+     * changed or deleted
+     *
+     * @param webhookId {@link ActiveWebhook} id
+     */
+    public void evict(@NonNull UUID webhookId) {
+        Endpoint e = endpoints.remove(webhookId);
+        if (e != null) {
+            e.client().dispatcher().executorService().shutdown();
+            e.client().connectionPool().evictAll();
+        }
+    }
+
+    @Scheduled(fixedDelay = "15s", initialDelay = "1m")
+    void retryDue() {
+        try {
+            Set<UUID> ordered = new HashSet<>();
+            for (WebhookDelivery delivery : deliveryRepo.findDue(clock.instant(), RETRY_BATCH_SIZE)) {
+                Optional<ActiveWebhook> hook = registry.findById(delivery.getWebhookId());
+                if (hook.isEmpty()) {
+                    deliveryRepo.deleteById(delivery.getId());
+                } else if (hook.get().hook().batchingEnabled()) {
+                    if (ordered.add(hook.get().id())) {
+                        retryInOrder(hook.get());
+                    }
+                } else {
+                    retry(hook.get(), delivery);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Could not retry webhook deliveries", e);
+        }
+    }
+
+    /**
+     * Retries the oldest pending delivery of a batched webhook and if it succeeds,
+     * continues with the next one
+     */
+    private void retryInOrder(ActiveWebhook hook) {
+        deliveryRepo.findFirstByWebhookIdAndDeadLetterOrderByCreatedAt(hook.id(), Boolean.FALSE)
+                .filter(d -> !d.getNextAttemptAt().isAfter(clock.instant()))
+                .ifPresent(d -> retry(hook, d).thenAccept(success -> {
+                    if (Boolean.TRUE.equals(success)) {
+                        retryInOrder(hook);
+                    }
+                }));
+    }
+
+    private CompletableFuture<Boolean> retry(ActiveWebhook hook, WebhookDelivery delivery) {
+        // claim the delivery for the duration of the next backoff before it is sent
+        int attempts = delivery.getAttempts() + 1;
+        delivery.setAttempts(attempts);
+        deliveryRepo.updateAttempt(delivery.getId(), attempts, nextAttempt(attempts),
+                delivery.getLastError(), Boolean.FALSE);
+        return send(hook, delivery.getPayload(), delivery);
+    }
+
+    private CompletableFuture<Boolean> send(ActiveWebhook hook, String payload, @Nullable WebhookDelivery retry) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Endpoint endpoint = endpoints.computeIfAbsent(hook.id(), id -> newEndpoint());
+        if (!endpoint.breaker().allowRequest()) {
+            log.debug("Circuit open for webhook: {}, deferring delivery", hook.hook().getUrl());
+            onFailure(hook, payload, retry, "circuit open");
+            result.complete(Boolean.FALSE);
+            return result;
+        }
+        Request.Builder request = new Request.Builder().url(hook.hook().getUrl());
+        if (hook.hook().getBatching() != null && hook.hook().getBatching().gzipEnabled()) {
+            request.post(RequestBody.create(gzip(payload), JSON_TYPE))
+                    .addHeader("Content-Encoding", "gzip");
+        } else {
+            request.post(RequestBody.create(payload, JSON_TYPE));
+        }
+        if (hook.authorization() != null) {
+            request.addHeader("Authorization", hook.authorization());
+        }
+        long start = System.nanoTime();
+        endpoint.client().newCall(request.build()).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                try {
+                    record(hook, start, false);
+                    endpoint.breaker().onFailure();
+                    log.error("Call to {} failed: {}", hook.hook().getUrl(), e.getMessage());
+                    WebhookSender.this.onFailure(hook, payload, retry, e.getMessage());
+                } catch (Exception ex) {
+                    log.error("Could not handle webhook failure for {}", hook.hook().getUrl(), ex);
+                } finally {
+                    result.complete(Boolean.FALSE);
+                }
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                boolean success = response.isSuccessful();
+                try (response) {
+                    record(hook, start, success);
+                    if (success) {
+                        endpoint.breaker().onSuccess();
+                        if (retry != null) {
+                            deliveryRepo.deleteById(retry.getId());
+                        }
+                    } else {
+                        endpoint.breaker().onFailure();
+                        log.error("Call to {} failed, code: {}", hook.hook().getUrl(), response.code());
+                        WebhookSender.this.onFailure(hook, payload, retry, "http status: " + response.code());
+                    }
+                } catch (Exception e) {
+                    log.error("Could not handle webhook response from {}", hook.hook().getUrl(), e);
+                } finally {
+                    result.complete(success);
+                }
+            }
+        });
+        return result;
+    }
+
+    private void onFailure(ActiveWebhook hook, String payload, @Nullable WebhookDelivery retry, String error) {
+        String lastError = StringUtils.abbreviate(error, MAX_ERROR_LENGTH);
+        if (retry == null) {
+            deliveryRepo.save(WebhookDelivery.builder()
+                    .webhookId(hook.id())
+                    .payload(payload)
+                    .attempts(1)
+                    .nextAttemptAt(nextAttempt(1))
+                    .lastError(lastError)
+                    .deadLetter(Boolean.FALSE)
+                    .build());
+        } else if (retry.getAttempts() >= config.getMaxAttempts()) {
+            log.warn("Giving up on webhook delivery: {} to {} after {} attempts",
+                    retry.getId(), hook.hook().getUrl(), retry.getAttempts());
+            Counter.builder(METRIC_DEAD_LETTER).tag("hook", hook.id().toString()).register(meters).increment();
+            deliveryRepo.updateAttempt(retry.getId(), retry.getAttempts(), clock.instant(), lastError, Boolean.TRUE);
+        } else {
+            deliveryRepo.updateAttempt(retry.getId(), retry.getAttempts(), nextAttempt(retry.getAttempts()),
+                    lastError, Boolean.FALSE);
+        }
+    }
+
+    Instant nextAttempt(int attempts) {
+        return clock.instant().plus(backoff(attempts));
+    }
+
+    Duration backoff(int attempts) {
+        Duration backoff = config.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(config.getMaxBackoff()) > 0 ? config.getMaxBackoff() : backoff;
+    }
+
+    private static byte[] gzip(String payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private void record(ActiveWebhook hook, long start, boolean success) {
+        Timer.builder(METRIC_DELIVERY)
+                .tag("hook", hook.id().toString())
+                .tag("outcome", success ? "success" : "failure")
+                .register(meters)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Endpoint newEndpoint() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(config.getMaxRequestsPerEndpoint());
+        dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerEndpoint());
+        OkHttpClient client = base().newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(config.getMaxRequestsPerEndpoint(), 5, TimeUnit.MINUTES))
+                .build();
+        return new Endpoint(client, new CircuitBreaker(
+                config.getCircuitBreakerThreshold(), config.getCircuitBreakerOpen(), clock));
+    }
+
+    private synchronized OkHttpClient base() {
+        if (baseClient == null) {
+            baseClient = new OkHttpClient.Builder()
+                    .connectTimeout(config.getConnectTimeout())
+                    .readTimeout(config.getReadTimeout())
+                    .build();
+        }
+        return baseClient;
+    }
+
+    public void shutdown() {
+        endpoints.keySet().forEach(this::evict);
+    }
+
+    private record Endpoint(OkHttpClient client, CircuitBreaker breaker) {
+    }
+}
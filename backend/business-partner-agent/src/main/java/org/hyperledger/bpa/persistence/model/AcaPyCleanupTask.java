@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.persistence.model;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.AutoPopulated;
+import io.micronaut.data.annotation.DateCreated;
+import io.micronaut.data.annotation.DateUpdated;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Single aca-py record that still needs to be deleted after its partner was
+ * removed. Tasks that succeeded are deleted, failed tasks are kept for
+ * inspection.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "acapy_cleanup_task")
+public class AcaPyCleanupTask {
+
+    @Id
+    @AutoPopulated
+    private UUID id;
+
+    @DateCreated
+    private Instant createdAt;
+
+    @DateUpdated
+    private Instant updatedAt;
+
+    /**
+     * the removed partner, informational only as the partner does not exist anymore
+     */
+    @Nullable
+    private UUID partnerId;
+
+    @Enumerated(EnumType.STRING)
+    private RecordType recordType;
+
+    /** aca-py record id, or the connection id for the listing types */
+    private String recordId;
+
+    @Enumerated(EnumType.STRING)
+    private TaskState state;
+
+    private Integer attempts;
+
+    private Instant nextAttemptAt;
+
+    @Nullable
+    private String errorMsg;
+
+    public enum RecordType {
+        CONNECTION,
+        PRESENTATION_V1,
+        PRESENTATION_V2,
+        CREDENTIAL_V1,
+        CREDENTIAL_V2,
+        /**
+         * lists the credential exchanges of the connection that are unknown to the BPA
+         */
+        REMAINING_CREDENTIALS
+    }
+
+    public enum TaskState {
+        PENDING,
+        FAILED
+    }
+}
@@ -26,6 +26,7 @@ import io.micronaut.data.model.DataType;
 import lombok.*;
 import lombok.experimental.Accessors;
 import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.aries.api.connection.ConnectionState;
 import org.hyperledger.aries.api.credentials.Credential;
 import org.hyperledger.aries.api.credentials.CredentialAttributes;
 import org.hyperledger.aries.api.issue_credential_v1.CredExStateTranslator;
@@ -166,6 +167,10 @@ public class BPACredentialExchange
     }
 
     public Instant calculateIssuedAt() {
+        return calculateIssuedAt(stateToTimestamp);
+    }
+
+    static Instant calculateIssuedAt(@Nullable StateToTimestamp<CredentialExchangeState> stateToTimestamp) {
         return stateToTimestamp != null && stateToTimestamp.getStateToTimestamp() != null
                 ? stateToTimestamp.getStateToTimestamp().entrySet()
                         .stream()
@@ -255,4 +260,70 @@ public class BPACredentialExchange
         private String credentialExchangeId;
         private ExchangeVersion exchangeVersion;
     }
+
+    /**
+     * Columns that are needed to show an exchange in a list. The payloads are left
+     * out, the ids that are shown are read from the credential column and the
+     * joined tables, and from the partner's public profile only the legal name is
+     * selected.
+     */
+    @Introspected
+    @Data
+    @NoArgsConstructor
+    public static class ExchangeSummaryDTO implements CredExStateTranslator, ExchangeTypeTranslator {
+        private UUID id;
+        private Instant createdAt;
+        private Instant updatedAt;
+        private CredentialType type;
+        private String label;
+        private CredentialExchangeRole role;
+        private ExchangeVersion exchangeVersion;
+        private CredentialExchangeState state;
+        private StateToTimestamp<CredentialExchangeState> stateToTimestamp;
+        private String errorMsg;
+        private String revRegId;
+        private Boolean revoked;
+        private Boolean isPublic;
+
+        /** schema id, credential definition id and rev reg id of the credential */
+        private String credentialSchemaId;
+        private String credentialCredDefId;
+        private String credentialRevRegId;
+
+        private String schemaId;
+        private String schemaLabel;
+        private CredentialType schemaType;
+        private String schemaLdType;
+        private String credentialDefinitionId;
+        private String credDefTag;
+
+        private UUID partnerId;
+        private String partnerConnectionId;
+        private String partnerDid;
+        private String partnerLabel;
+        private String partnerAlias;
+        private Boolean partnerIncoming;
+        private ConnectionState partnerState;
+        private String partnerLegalName;
+
+        public Instant calculateIssuedAt() {
+            return BPACredentialExchange.calculateIssuedAt(stateToTimestamp);
+        }
+
+        /**
+         * @return the schema part of the exchange, or null if the exchange has no
+         *         schema
+         */
+        public @Nullable BPASchema toSchema() {
+            if (schemaType == null) {
+                return null;
+            }
+            return BPASchema.builder()
+                    .type(schemaType)
+                    .label(schemaLabel)
+                    .schemaId(schemaId)
+                    .ldType(schemaLdType)
+                    .build();
+        }
+    }
 }
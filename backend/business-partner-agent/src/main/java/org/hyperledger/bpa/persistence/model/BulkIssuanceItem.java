@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.persistence.model;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.AutoPopulated;
+import io.micronaut.data.annotation.TypeDef;
+import io.micronaut.data.model.DataType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Single credential of a {@link BulkIssuanceJob}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "bulk_issuance_item")
+public class BulkIssuanceItem {
+
+    @Id
+    @AutoPopulated
+    private UUID id;
+
+    /** {@link BulkIssuanceJob} id */
+    private UUID jobId;
+
+    /** position in the submitted list, items are sent in this order */
+    private Integer position;
+
+    @Nullable
+    private UUID partnerId;
+
+    @Nullable
+    private UUID credDefId;
+
+    @Nullable
+    @TypeDef(type = DataType.JSON)
+    private Map<String, String> document;
+
+    @Enumerated(EnumType.STRING)
+    private ItemState state;
+
+    @Nullable
+    private String errorMsg;
+
+    /** {@link BPACredentialExchange} id, set once the offer was sent */
+    @Nullable
+    private UUID credExId;
+
+    public enum ItemState {
+        PENDING,
+        SENT,
+        FAILED
+    }
+}
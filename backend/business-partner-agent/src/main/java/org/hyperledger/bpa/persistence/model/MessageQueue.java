@@ -49,6 +49,17 @@ public class MessageQueue {
     @DateCreated
     private Instant createdAt;
 
+    /** id of the websocket message, used to resume a replay */
+    @Nullable
+    private Long messageId;
+
+    /**
+     * Messages with the same key replace each other, so that only the latest
+     * notification for an entity is kept
+     */
+    @Nullable
+    private String dedupKey;
+
     @Nullable
     @TypeDef(type = DataType.JSON)
     private WebSocketMessageBody message;
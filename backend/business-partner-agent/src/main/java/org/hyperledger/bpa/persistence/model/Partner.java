@@ -163,5 +163,4 @@ public class Partner extends StateChangeDecorator<Partner, ConnectionState> {
             return this;
         }
     }
-
 }
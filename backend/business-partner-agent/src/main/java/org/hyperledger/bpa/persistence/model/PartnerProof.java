@@ -142,4 +142,31 @@ public class PartnerProof extends StateChangeDecorator<PartnerProof, Presentatio
         private String presentationExchangeId;
         private ExchangeVersion exchangeVersion;
     }
+
+    /**
+     * Columns that are needed to show a proof exchange in a list. The proof and the
+     * proof request are left out, of the request only the parts that make up the
+     * type label are selected.
+     */
+    @Introspected
+    @Data
+    @NoArgsConstructor
+    public static class ProofSummaryDTO implements ExchangeTypeTranslator {
+        private UUID id;
+        private Instant updatedAt;
+        private Boolean valid;
+        private PresentationExchangeState state;
+        private PresentationExchangeRole role;
+        private CredentialType type;
+        private ExchangeVersion exchangeVersion;
+        private String problemReport;
+        private StateToTimestamp<PresentationExchangeState> stateToTimestamp;
+        private UUID partnerId;
+        private UUID proofTemplateId;
+
+        /** indy proof request name, or json-ld presentation definition name */
+        private String requestName;
+        /** restriction of an indy request that asks for a single credential */
+        private String requestCredDefId;
+    }
 }
@@ -18,7 +18,9 @@
 package org.hyperledger.bpa.persistence.repository;
 
 import io.micronaut.core.annotation.NonNull;
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.data.annotation.Join;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.jdbc.annotation.JdbcRepository;
 import io.micronaut.data.model.Page;
 import io.micronaut.data.model.Pageable;
@@ -29,6 +31,8 @@ import org.hyperledger.bpa.controller.api.activity.ActivityType;
 import org.hyperledger.bpa.persistence.model.Activity;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -58,6 +62,16 @@ public interface ActivityRepository extends PageableRepository<Activity, UUID> {
     @Join(value = "partner", type = Join.Type.LEFT_FETCH)
     Page<Activity> findByTypeAndCompletedTrue(@NonNull ActivityType type, @NonNull Pageable pageable);
 
+    // keyset, see Keyset
+
+    @Query("SELECT id FROM activity WHERE (CAST(:type AS text) IS NULL OR type = :type) "
+            + "AND (CAST(:completed AS boolean) IS NULL OR completed = :completed) AND (updated_at, id) < (:updatedAt, :id) ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    List<UUID> findIdsByKeyset(@Nullable String type, @Nullable Boolean completed, Instant updatedAt, UUID id,
+            int limit);
+
+    @Join(value = "partner", type = Join.Type.LEFT_FETCH)
+    List<Activity> findByIdIn(Collection<UUID> id);
+
     Long countByCompletedFalse();
 
     Long countByCompletedFalseAndCreatedAtAfter(Instant createdAt);
@@ -25,6 +25,7 @@ import io.micronaut.data.model.query.builder.sql.Dialect;
 import io.micronaut.data.repository.CrudRepository;
 import org.hyperledger.bpa.persistence.model.BPACredentialDefinition;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -40,6 +41,9 @@ public interface BPACredentialDefinitionRepository extends CrudRepository<BPACre
     @Join(value = "schema", type = Join.Type.LEFT_FETCH)
     Optional<BPACredentialDefinition> findById(@NonNull UUID id);
 
+    @Join(value = "schema", type = Join.Type.LEFT_FETCH)
+    List<BPACredentialDefinition> findByIdIn(Collection<UUID> id);
+
     @Query("SELECT * FROM bpa_cred_def c " +
             "LEFT JOIN bpa_schema s ON c.schema_id = s.id " +
             "WHERE s.schema_id = :schemaId")
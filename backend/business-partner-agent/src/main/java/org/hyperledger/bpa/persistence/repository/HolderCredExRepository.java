@@ -37,6 +37,7 @@ import org.hyperledger.bpa.persistence.model.StateChangeDecorator;
 import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -45,6 +46,30 @@ import java.util.UUID;
 @JdbcRepository(dialect = Dialect.POSTGRES)
 public interface HolderCredExRepository extends PageableRepository<BPACredentialExchange, UUID> {
 
+    /**
+     * Selects {@link BPACredentialExchange.ExchangeSummaryDTO}, without the payload
+     * columns and the partner's public profile, the where clause is appended
+     */
+    String SUMMARY_SELECT = "SELECT c.id, c.created_at, c.updated_at, c.type, c.label, c.role, c.exchange_version, "
+            + "c.state, c.state_to_timestamp, c.error_msg, c.rev_reg_id, c.revoked, c.is_public, "
+            + "c.credential->>'schemaId' AS credential_schema_id, "
+            + "c.credential->>'credentialDefinitionId' AS credential_cred_def_id, "
+            + "c.credential->>'revRegId' AS credential_rev_reg_id, "
+            + "s.schema_id AS schema_id, s.label AS schema_label, s.type AS schema_type, "
+            + "s.ld_type AS schema_ld_type, d.credential_definition_id AS credential_definition_id, "
+            + "d.tag AS cred_def_tag, p.id AS partner_id, p.connection_id AS partner_connection_id, "
+            + "p.did AS partner_did, p.label AS partner_label, p.alias AS partner_alias, "
+            + "p.incoming AS partner_incoming, p.state AS partner_state, "
+            + "(SELECT vc->'credentialSubject'->>'legalName' FROM jsonb_array_elements(CASE WHEN "
+            + "jsonb_typeof(p.verifiable_presentation->'verifiableCredential') = 'array' "
+            + "THEN p.verifiable_presentation->'verifiableCredential' END) vc "
+            + "WHERE vc->'type' @> CAST('\"OrganizationalProfileCredential\"' AS jsonb) LIMIT 1) "
+            + "AS partner_legal_name "
+            + "FROM bpa_credential_exchange c "
+            + "LEFT JOIN bpa_schema s ON s.id = c.schema_id "
+            + "LEFT JOIN bpa_cred_def d ON d.id = c.cred_def_id "
+            + "LEFT JOIN partner p ON p.id = c.partner_id ";
+
     // find
 
     @NonNull
@@ -61,6 +86,12 @@ public interface HolderCredExRepository extends PageableRepository<BPACredential
             List<CredentialType> type,
             Pageable pageable);
 
+    Page<UUID> findIdByRoleEqualsAndStateInAndTypeIn(
+            CredentialExchangeRole role,
+            List<CredentialExchangeState> state,
+            List<CredentialType> type,
+            Pageable pageable);
+
     Optional<BPACredentialExchange> findByReferent(String referent);
 
     @Join(value = "schema", type = Join.Type.LEFT_FETCH)
@@ -69,6 +100,8 @@ public interface HolderCredExRepository extends PageableRepository<BPACredential
 
     List<BPACredentialExchange> findByRoleAndIsPublicTrue(CredentialExchangeRole role);
 
+    Optional<Instant> findCreatedAtById(UUID id);
+
     Optional<BPACredentialExchange> findByRevRegIdAndCredRevId(String revRegId, String credRefId);
 
     @Query("SELECT * FROM bpa_credential_exchange WHERE credential->>'schemaId' = :schemaId "
@@ -87,6 +120,22 @@ public interface HolderCredExRepository extends PageableRepository<BPACredential
     Page<BPACredentialExchange.DeleteCredentialExchangeDTO> findByPartnerIdAndStateNotIn(
             UUID partnerId, Set<CredentialExchangeState> state, Pageable pageable);
 
+    // keyset, see Keyset
+
+    @Query("SELECT id FROM bpa_credential_exchange WHERE role = 'HOLDER' AND state IN (:state) "
+            + "AND type IN (:type) AND (updated_at, id) < (:updatedAt, :id) ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    List<UUID> findHeldIdsByKeyset(List<String> state, List<String> type, Instant updatedAt, UUID id,
+            int limit);
+
+    @Join(value = "schema", type = Join.Type.LEFT_FETCH)
+    @Join(value = "partner", type = Join.Type.LEFT_FETCH)
+    List<BPACredentialExchange> findByIdIn(Collection<UUID> id);
+
+    // list views, see BPACredentialExchange.ExchangeSummaryDTO
+
+    @Query(SUMMARY_SELECT + "WHERE c.id IN (:id)")
+    List<BPACredentialExchange.ExchangeSummaryDTO> queryByIdIn(Collection<UUID> id);
+
     // update
 
     void updateIsPublic(@Id UUID id, Boolean isPublic);
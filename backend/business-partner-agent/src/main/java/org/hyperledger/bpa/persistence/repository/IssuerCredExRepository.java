@@ -21,6 +21,7 @@ import io.micronaut.core.annotation.NonNull;
 import io.micronaut.core.annotation.Nullable;
 import io.micronaut.data.annotation.Id;
 import io.micronaut.data.annotation.Join;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.jdbc.annotation.JdbcRepository;
 import io.micronaut.data.model.Page;
 import io.micronaut.data.model.Pageable;
@@ -36,6 +37,8 @@ import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.model.StateChangeDecorator;
 import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -76,6 +79,24 @@ public interface IssuerCredExRepository extends PageableRepository<BPACredential
     Page<BPACredentialExchange> findByRoleInAndPartnerEquals(@NonNull List<CredentialExchangeRole> role,
             @NonNull Partner partner, @NonNull Pageable pageable);
 
+    Page<UUID> findIdByRoleIn(@NonNull List<CredentialExchangeRole> role, @NonNull Pageable pageable);
+
+    Page<UUID> findIdByRoleInAndPartnerId(@NonNull List<CredentialExchangeRole> role, @NonNull UUID partnerId,
+            @NonNull Pageable pageable);
+
+    @Query("SELECT id FROM bpa_credential_exchange WHERE role IN (:role) "
+            + "AND (CAST(:partnerId AS uuid) IS NULL OR partner_id = :partnerId) AND (updated_at, id) < (:updatedAt, :id) ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    List<UUID> findIdsByKeyset(List<String> role, @Nullable UUID partnerId, Instant updatedAt, UUID id,
+            int limit);
+
+    @Join(value = "schema", type = Join.Type.LEFT_FETCH)
+    @Join(value = "credDef", type = Join.Type.LEFT_FETCH)
+    @Join(value = "partner", type = Join.Type.LEFT_FETCH)
+    List<BPACredentialExchange> findByIdIn(Collection<UUID> id);
+
+    @Query(HolderCredExRepository.SUMMARY_SELECT + "WHERE c.id IN (:id)")
+    List<BPACredentialExchange.ExchangeSummaryDTO> queryByIdIn(Collection<UUID> id);
+
     Number updateCredential(@Id UUID id, Credential indyCredential);
 
     Number updateCredential(@Id UUID id,
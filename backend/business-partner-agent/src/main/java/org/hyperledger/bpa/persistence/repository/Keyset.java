@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.persistence.repository;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.model.Page;
+import lombok.NonNull;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Position in a list that is ordered by (updated_at DESC, id DESC). Unlike an
+ * offset the database can seek directly to the position using the index on
+ * these two columns, so every page costs the same no matter how deep it is.
+ *
+ * @param updatedAt updated at of the last item of the previous page, null for
+ *                  the first page
+ * @param id        id of the last item of the previous page, null for the first
+ *                  page
+ * @param limit     page size
+ */
+public record Keyset(@Nullable Instant updatedAt, @Nullable UUID id, int limit) {
+
+    private static final String SEPARATOR = "|";
+
+    /** Sorts after every row, so the first page can use the same query */
+    private static final Instant MAX_UPDATED_AT = Instant.parse("9999-12-31T23:59:59Z");
+    private static final UUID MAX_ID = new UUID(-1L, -1L);
+
+    public static Keyset first(int limit) {
+        return new Keyset(null, null, limit);
+    }
+
+    /**
+     * @param token opaque token as returned by {@link #encode(Instant, UUID)}
+     * @param limit page size
+     * @return {@link Keyset}
+     */
+    public static Keyset decode(@Nullable String token, int limit) {
+        if (token == null || token.isBlank()) {
+            return first(limit);
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int idx = decoded.indexOf(SEPARATOR);
+            return new Keyset(Instant.parse(decoded.substring(0, idx)), UUID.fromString(decoded.substring(idx + 1)),
+                    limit);
+        } catch (RuntimeException e) {
+            throw new WrongApiUsageException("Invalid cursor: " + token);
+        }
+    }
+
+    public static String encode(@NonNull Instant updatedAt, @NonNull UUID id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((updatedAt + SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return updated at to seek from, never null
+     */
+    public Instant seekUpdatedAt() {
+        return updatedAt != null ? updatedAt : MAX_UPDATED_AT;
+    }
+
+    /**
+     * @return id to seek from, never null
+     */
+    public UUID seekId() {
+        return id != null ? id : MAX_ID;
+    }
+
+    /**
+     * The repositories select limit + 1 rows to find out if there is another page
+     *
+     * @return number of rows to select
+     */
+    public int fetchSize() {
+        return limit + 1;
+    }
+
+    /**
+     * Loads the entities, with all their joins, for the ids that were selected by
+     * the keyset query and puts them back into keyset order
+     *
+     * @param ids    ids in keyset order
+     * @param loader loads the entities for the ids in any order
+     * @param getId  id accessor
+     * @param <T>    entity type
+     * @return ordered entities
+     */
+    public static <T> List<T> load(@NonNull List<UUID> ids, @NonNull Function<List<UUID>, Iterable<T>> loader,
+            @NonNull Function<T, UUID> getId) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, T> byId = new HashMap<>();
+        loader.apply(ids).forEach(e -> byId.put(getId.apply(e), e));
+        List<T> result = new ArrayList<>(ids.size());
+        ids.forEach(id -> {
+            T e = byId.get(id);
+            if (e != null) {
+                result.add(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Same as {@link #load(List, Function, Function)} for a page of ids that was
+     * selected by offset
+     *
+     * @param ids    page of ids
+     * @param loader loads the entities or projections for the ids in any order
+     * @param getId  id accessor
+     * @param <T>    entity or projection type
+     * @return ordered page
+     */
+    public static <T> Page<T> load(@NonNull Page<UUID> ids, @NonNull Function<List<UUID>, Iterable<T>> loader,
+            @NonNull Function<T, UUID> getId) {
+        return Page.of(load(ids.getContent(), loader, getId), ids.getPageable(), ids.getTotalSize());
+    }
+}
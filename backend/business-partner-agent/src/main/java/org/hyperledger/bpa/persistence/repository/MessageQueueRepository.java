@@ -17,13 +17,56 @@
  */
 package org.hyperledger.bpa.persistence.repository;
 
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.jdbc.annotation.JdbcRepository;
 import io.micronaut.data.model.query.builder.sql.Dialect;
 import io.micronaut.data.repository.CrudRepository;
 import org.hyperledger.bpa.persistence.model.MessageQueue;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @JdbcRepository(dialect = Dialect.POSTGRES)
 public interface MessageQueueRepository extends CrudRepository<MessageQueue, UUID> {
+
+    /**
+     * Inserts the message, or replaces the queued message with the same dedup key.
+     * The replacement gets the new id, so that a replay that already loaded the
+     * replaced message does not delete the replacement with it.
+     */
+    @Query("INSERT INTO message_queue (id, created_at, message_id, dedup_key, message) "
+            + "VALUES (:id, :createdAt, :messageId, :dedupKey, CAST(:message AS jsonb)) "
+            + "ON CONFLICT (dedup_key) DO UPDATE SET id = EXCLUDED.id, created_at = EXCLUDED.created_at, "
+            + "message_id = EXCLUDED.message_id, message = EXCLUDED.message")
+    void upsert(UUID id, Instant createdAt, long messageId, @Nullable String dedupKey, String message);
+
+    /**
+     * Keyset page of the messages that were queued after the given one
+     */
+    @Query("SELECT * FROM message_queue WHERE (created_at, id) > (:createdAt, :id) "
+            + "ORDER BY created_at, id LIMIT :limit")
+    List<MessageQueue> findPageAfter(Instant createdAt, UUID id, int limit);
+
+    Optional<MessageQueue> findFirstByMessageId(Long messageId);
+
+    void deleteByIdIn(Collection<UUID> ids);
+
+    /**
+     * Deletes the given message and all messages that were queued before it
+     */
+    @Query("DELETE FROM message_queue WHERE (created_at, id) <= (:createdAt, :id)")
+    void deleteUpTo(Instant createdAt, UUID id);
+
+    void deleteByCreatedAtLessThan(Instant createdAt);
+
+    /**
+     * Deletes the oldest messages, so that at most the given number remains
+     */
+    @Query("DELETE FROM message_queue WHERE id IN "
+            + "(SELECT id FROM message_queue ORDER BY created_at DESC, id DESC OFFSET :keep)")
+    void trimTo(long keep);
 }
@@ -20,6 +20,7 @@ package org.hyperledger.bpa.persistence.repository;
 import io.micronaut.core.annotation.NonNull;
 import io.micronaut.data.annotation.Id;
 import io.micronaut.data.annotation.Join;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.jdbc.annotation.JdbcRepository;
 import io.micronaut.data.model.Page;
 import io.micronaut.data.model.Pageable;
@@ -33,6 +34,8 @@ import org.hyperledger.bpa.persistence.model.PartnerProof;
 import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -65,6 +68,25 @@ public interface PartnerProofRepository extends PageableRepository<PartnerProof,
     @Join(value = "proofTemplate", type = Join.Type.LEFT_FETCH)
     Page<PartnerProof> findByPartnerId(@NonNull UUID partnerId, @NonNull Pageable pageable);
 
+    @NonNull
+    Page<UUID> findIdByPartnerId(@NonNull UUID partnerId, @NonNull Pageable pageable);
+
+    /**
+     * Of the proof request only the parts that make up the type label are
+     * extracted, the proof is not selected
+     */
+    @Query("SELECT id, updated_at, valid, state, role, type, exchange_version, problem_report, state_to_timestamp, "
+            + "partner_id, proof_template_id, "
+            + "COALESCE(proof_request->'presentationDefinition'->>'name', proof_request->>'name') "
+            + "AS request_name, "
+            + "(SELECT CASE WHEN count(*) = 1 THEN max(CASE WHEN jsonb_typeof(a.value->'restrictions') = 'array' "
+            + "THEN CASE WHEN jsonb_array_length(a.value->'restrictions') = 1 "
+            + "THEN a.value->'restrictions'->0->>'cred_def_id' END END) END "
+            + "FROM jsonb_each(CASE WHEN jsonb_typeof(proof_request->'requestedAttributes') = 'object' "
+            + "THEN proof_request->'requestedAttributes' END) a) AS request_cred_def_id "
+            + "FROM partner_proof WHERE id IN (:id)")
+    List<PartnerProof.ProofSummaryDTO> queryByIdIn(Collection<UUID> id);
+
     @NonNull
     Page<PartnerProof.DeletePartnerProofDTO> getByPartnerId(@NonNull UUID partnerId, @NonNull Pageable pageable);
 
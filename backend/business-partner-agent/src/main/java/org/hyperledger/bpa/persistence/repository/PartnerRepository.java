@@ -33,6 +33,7 @@ import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.model.StateChangeDecorator;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -55,6 +56,9 @@ public interface PartnerRepository extends PageableRepository<Partner, UUID> {
 
     Optional<Partner> findByConnectionId(String connectionId);
 
+    @Join(value = "tags", type = Join.Type.LEFT_FETCH)
+    Optional<Partner> getByConnectionId(String connectionId);
+
     Optional<Partner> findByConnectionIdOrInvitationMsgId(@Nullable String connectionId,
             @Nullable String invitationMsgId);
 
@@ -62,15 +66,37 @@ public interface PartnerRepository extends PageableRepository<Partner, UUID> {
 
     List<Partner> findByDidIn(List<String> did);
 
+    List<String> findDidByDidIn(Collection<String> did);
+
+    List<String> findDidBySupportedCredentialsIsNull();
+
     Page<Partner> findByStateNotEquals(ConnectionState state, Pageable pageable);
 
     Optional<Partner> findByInvitationMsgId(String invitationMsgId);
 
-    @Query("SELECT distinct partner.* FROM partner,jsonb_to_recordset(partner.supported_credentials->'wrapped') as items(seqno text) where items.seqno = :seqNo")
+    @Query("SELECT * FROM partner WHERE supported_credentials->'wrapped' @> "
+            + "jsonb_build_array(jsonb_build_object('seqno', CAST(:seqNo AS text)))")
     List<Partner> findBySupportedCredential(String seqNo);
 
     List<Partner> findByStateInAndTrustPingTrueAndAriesSupportTrue(List<ConnectionState> state);
 
+    List<String> findConnectionIdByStateInAndTrustPingTrueAndAriesSupportTrue(List<ConnectionState> state);
+
+    List<String> findConnectionIdByConnectionIdIsNotNull();
+
+    @Query("SELECT p.id FROM partner p JOIN partner_tag pt ON pt.partner_id = p.id WHERE pt.tag_id = :tagId "
+            + "AND p.connection_id IS NOT NULL AND p.state IN (:state)")
+    List<UUID> findIdsByTagIdAndStateIn(UUID tagId, Collection<String> state);
+
+    // keyset, see Keyset
+
+    @Query("SELECT id FROM partner WHERE (CAST(:showInvitations AS boolean) OR state <> 'INVITATION') "
+            + "AND (updated_at, id) < (:updatedAt, :id) ORDER BY updated_at DESC, id DESC LIMIT :limit")
+    List<UUID> findIdsByKeyset(boolean showInvitations, Instant updatedAt, UUID id, int limit);
+
+    @Join(value = "tags", type = Join.Type.LEFT_FETCH)
+    List<Partner> findByIdIn(Collection<UUID> id);
+
     // delete
 
     @Query("delete from partner_tag where partner_id = :id; delete from partner where id = :id")
@@ -115,4 +141,12 @@ public interface PartnerRepository extends PageableRepository<Partner, UUID> {
     @Query("UPDATE partner SET state = :newState, last_seen = :lastSeen WHERE connection_id = :connectionId")
     void updateStateAndLastSeenByConnectionId(String connectionId, ConnectionState newState, Instant lastSeen);
 
+    @Query("UPDATE partner SET state = :newState WHERE connection_id IN (:connectionId) "
+            + "AND (state IS NULL OR state != :newState)")
+    void updateStateByConnectionIdIn(Collection<String> connectionId, ConnectionState newState);
+
+    @Query("UPDATE partner SET state = :newState, last_seen = :lastSeen WHERE connection_id IN (:connectionId)")
+    void updateStateAndLastSeenByConnectionIdIn(Collection<String> connectionId, ConnectionState newState,
+            Instant lastSeen);
+
 }
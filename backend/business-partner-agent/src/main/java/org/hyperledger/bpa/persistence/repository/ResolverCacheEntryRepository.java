@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.persistence.repository;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.Query;
+import io.micronaut.data.jdbc.annotation.JdbcRepository;
+import io.micronaut.data.model.query.builder.sql.Dialect;
+import io.micronaut.data.repository.CrudRepository;
+import org.hyperledger.bpa.persistence.model.ResolverCacheEntry;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+@JdbcRepository(dialect = Dialect.POSTGRES)
+public interface ResolverCacheEntryRepository extends CrudRepository<ResolverCacheEntry, UUID> {
+
+    Optional<ResolverCacheEntry> findByCacheNameAndCacheKey(String cacheName, String cacheKey);
+
+    @Query("INSERT INTO resolver_cache_entry (id, cache_name, cache_key, value, etag, last_modified, fetched_at) "
+            + "VALUES (:id, :cacheName, :cacheKey, :value, :etag, :lastModified, :fetchedAt) "
+            + "ON CONFLICT (cache_name, cache_key) DO UPDATE SET value = EXCLUDED.value, etag = EXCLUDED.etag, "
+            + "last_modified = EXCLUDED.last_modified, fetched_at = EXCLUDED.fetched_at")
+    void upsert(UUID id, String cacheName, String cacheKey, String value, @Nullable String etag,
+            @Nullable String lastModified, Instant fetchedAt);
+}
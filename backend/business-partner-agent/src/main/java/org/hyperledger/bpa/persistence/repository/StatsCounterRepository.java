@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.persistence.repository;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.Query;
+import io.micronaut.data.jdbc.annotation.JdbcRepository;
+import io.micronaut.data.model.query.builder.sql.Dialect;
+import io.micronaut.data.repository.CrudRepository;
+import org.hyperledger.bpa.persistence.model.StatsCounter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@JdbcRepository(dialect = Dialect.POSTGRES)
+public interface StatsCounterRepository extends CrudRepository<StatsCounter, UUID> {
+
+    /**
+     * Adds the entity to the counter and increments its bucket and the total,
+     * nothing happens if the entity is counted already
+     *
+     * @param partnerId partner the entity is deleted with, if any
+     * @return number of updated counter rows, 0 if the entity was counted already
+     */
+    @Query(value = "WITH m AS (INSERT INTO stats_counter_member (name, entity_id, bucket, partner_id) "
+            + "VALUES (:name, :entityId, :bucket, :partnerId) ON CONFLICT DO NOTHING RETURNING name, bucket) "
+            + "INSERT INTO stats_counter (id, name, bucket, value) "
+            + "SELECT md5(m.name || b.bucket::text)::uuid, m.name, b.bucket, 1 "
+            + "FROM m CROSS JOIN LATERAL (VALUES (m.bucket), (CAST(:total AS timestamp))) b(bucket) "
+            + "ON CONFLICT (name, bucket) DO UPDATE SET value = stats_counter.value + EXCLUDED.value",
+            readOnly = false)
+    int enter(String name, UUID entityId, Instant bucket, @Nullable UUID partnerId, Instant total);
+
+    /**
+     * Removes the entity from the counter and decrements the bucket it was counted
+     * in and the total, nothing happens if the entity is not counted
+     *
+     * @return number of updated counter rows, 0 if the entity was not counted
+     */
+    @Query(value = "WITH m AS (DELETE FROM stats_counter_member WHERE name = :name AND entity_id = :entityId "
+            + "RETURNING name, bucket) "
+            + "UPDATE stats_counter s SET value = s.value - 1 FROM m "
+            + "WHERE s.name = m.name AND (s.bucket = m.bucket OR s.bucket = :total)",
+            readOnly = false)
+    int leave(String name, UUID entityId, Instant total);
+
+    /**
+     * Removes all entities that were deleted with the partner, including the
+     * partner itself, and decrements their buckets and totals
+     *
+     * @return number of updated counter rows
+     */
+    @Query(value = "WITH m AS (DELETE FROM stats_counter_member WHERE partner_id = :partnerId "
+            + "RETURNING name, bucket), "
+            + "d AS (SELECT name, bucket, count(*) AS n FROM m GROUP BY name, bucket "
+            + "UNION ALL SELECT name, CAST(:total AS timestamp), count(*) FROM m GROUP BY name) "
+            + "UPDATE stats_counter s SET value = s.value - d.n FROM d "
+            + "WHERE s.name = d.name AND s.bucket = d.bucket",
+            readOnly = false)
+    int leavePartner(UUID partnerId, Instant total);
+
+    @Query("SELECT * FROM stats_counter WHERE bucket = :total OR bucket >= :from")
+    List<StatsCounter> findTotalsAndBucketsFrom(Instant total, Instant from);
+
+    long countByBucket(Instant bucket);
+
+    // rebuild, the names and conditions have to match DashboardCounter
+
+    /**
+     * Blocks {@link #enter} and {@link #leave} until the rebuild is committed
+     */
+    @Query(value = "LOCK TABLE stats_counter_member IN SHARE ROW EXCLUSIVE MODE", readOnly = false)
+    void lockMembers();
+
+    @Query("DELETE FROM stats_counter_member")
+    void deleteMembers();
+
+    @Query("INSERT INTO stats_counter_member (name, entity_id, bucket, partner_id) "
+            + "SELECT 'CREDENTIALS_SENT', id, coalesce(date_trunc('hour', created_at), :undated), CAST(NULL AS uuid) "
+            + "FROM bpa_credential_exchange WHERE role = 'ISSUER' AND state = 'CREDENTIAL_ACKED' "
+            + "UNION ALL SELECT 'CREDENTIALS_RECEIVED', id, coalesce(date_trunc('hour', created_at), :undated), "
+            + "CAST(NULL AS uuid) FROM bpa_credential_exchange WHERE role = 'HOLDER' AND state = 'CREDENTIAL_ACKED' "
+            + "UNION ALL SELECT 'PRESENTATION_REQUESTS_SENT', id, coalesce(date_trunc('hour', created_at), :undated), "
+            + "partner_id FROM partner_proof WHERE state = 'REQUEST_SENT' "
+            + "UNION ALL SELECT 'PRESENTATION_REQUESTS_RECEIVED', id, "
+            + "coalesce(date_trunc('hour', created_at), :undated), partner_id FROM partner_proof "
+            + "WHERE state = 'PRESENTATION_RECEIVED' "
+            + "UNION ALL SELECT 'PARTNERS', id, coalesce(date_trunc('hour', created_at), :undated), id "
+            + "FROM partner WHERE state != 'INVITATION' "
+            + "UNION ALL SELECT 'TASKS', id, coalesce(date_trunc('hour', created_at), :undated), partner_id "
+            + "FROM activity WHERE completed = false")
+    void rebuildMembers(Instant undated);
+
+    /**
+     * Sets every counter row to the count of its members in one statement. Buckets
+     * without members are set to 0, every counter gets a total, even if it is 0.
+     */
+    @Query("INSERT INTO stats_counter (id, name, bucket, value) "
+            + "SELECT md5(c.name || c.bucket::text)::uuid, c.name, c.bucket, c.value FROM ("
+            + "SELECT name, bucket, count(*) AS value FROM stats_counter_member GROUP BY name, bucket "
+            + "UNION ALL SELECT n.name, CAST(:total AS timestamp), "
+            + "(SELECT count(*) FROM stats_counter_member m WHERE m.name = n.name) "
+            + "FROM (VALUES ('CREDENTIALS_SENT'), ('CREDENTIALS_RECEIVED'), ('PRESENTATION_REQUESTS_SENT'), "
+            + "('PRESENTATION_REQUESTS_RECEIVED'), ('PARTNERS'), ('TASKS')) n(name) "
+            + "UNION ALL SELECT s.name, s.bucket, 0 FROM stats_counter s WHERE s.bucket != :total "
+            + "AND NOT EXISTS (SELECT 1 FROM stats_counter_member m WHERE m.name = s.name AND m.bucket = s.bucket)"
+            + ") c ON CONFLICT (name, bucket) DO UPDATE SET value = EXCLUDED.value")
+    void rebuildCounters(Instant total);
+}
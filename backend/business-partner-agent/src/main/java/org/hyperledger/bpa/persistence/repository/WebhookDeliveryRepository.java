@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.persistence.repository;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.Id;
+import io.micronaut.data.annotation.Query;
+import io.micronaut.data.jdbc.annotation.JdbcRepository;
+import io.micronaut.data.model.query.builder.sql.Dialect;
+import io.micronaut.data.repository.CrudRepository;
+import org.hyperledger.bpa.persistence.model.WebhookDelivery;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@JdbcRepository(dialect = Dialect.POSTGRES)
+public interface WebhookDeliveryRepository extends CrudRepository<WebhookDelivery, UUID> {
+
+    @Query("SELECT * FROM webhook_delivery WHERE dead_letter = false AND next_attempt_at <= :now ORDER BY next_attempt_at ASC LIMIT :limit")
+    List<WebhookDelivery> findDue(Instant now, int limit);
+
+    Optional<WebhookDelivery> findFirstByWebhookIdAndDeadLetterOrderByCreatedAt(UUID webhookId, Boolean deadLetter);
+
+    boolean existsByWebhookIdAndDeadLetter(UUID webhookId, Boolean deadLetter);
+
+    void updateAttempt(@Id UUID id, Integer attempts, Instant nextAttemptAt,
+            @Nullable String lastError, Boolean deadLetter);
+}
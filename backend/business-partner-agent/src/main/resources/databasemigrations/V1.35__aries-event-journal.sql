@@ -0,0 +1,6 @@
+CREATE TABLE aries_event_journal (
+    id bigint GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    created_at timestamp without time zone,
+    topic character varying(255) NOT NULL,
+    payload text NOT NULL
+);
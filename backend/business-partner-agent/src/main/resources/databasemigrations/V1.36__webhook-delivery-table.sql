@@ -0,0 +1,18 @@
+CREATE TABLE webhook_delivery (
+    id uuid PRIMARY KEY,
+    created_at timestamp without time zone,
+    webhook_id uuid NOT NULL,
+    payload text NOT NULL,
+    attempts integer NOT NULL DEFAULT 0,
+    next_attempt_at timestamp without time zone,
+    last_error character varying(2048),
+    dead_letter boolean NOT NULL DEFAULT false
+);
+
+ALTER TABLE webhook_delivery
+    ADD CONSTRAINT webhook_delivery_fk_1
+        FOREIGN KEY (webhook_id)
+            REFERENCES bpa_webhook(id)
+            ON DELETE CASCADE;
+
+CREATE INDEX webhook_delivery_due_idx ON webhook_delivery (next_attempt_at) WHERE dead_letter = false;
@@ -0,0 +1 @@
+CREATE INDEX webhook_delivery_webhook_idx ON webhook_delivery (webhook_id, created_at) WHERE dead_letter = false;
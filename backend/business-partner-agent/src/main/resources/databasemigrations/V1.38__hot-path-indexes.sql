@@ -0,0 +1,23 @@
+-- partner lookups by aca-py connection events and by did
+CREATE INDEX IF NOT EXISTS partner_connection_id_idx ON partner (connection_id);
+CREATE INDEX IF NOT EXISTS partner_invitation_msg_id_idx ON partner (invitation_msg_id);
+CREATE INDEX IF NOT EXISTS partner_did_idx ON partner (did);
+-- PartnerRepository.findBySupportedCredential, used with the @> operator
+CREATE INDEX IF NOT EXISTS partner_supported_credentials_idx ON partner
+    USING gin ((supported_credentials->'wrapped') jsonb_path_ops);
+
+-- credential exchange lookups by aca-py issue credential and revocation events
+CREATE INDEX IF NOT EXISTS bpa_credential_exchange_credential_exchange_id_idx ON bpa_credential_exchange (credential_exchange_id);
+CREATE INDEX IF NOT EXISTS bpa_credential_exchange_referent_idx ON bpa_credential_exchange (referent);
+CREATE INDEX IF NOT EXISTS bpa_credential_exchange_revocation_idx ON bpa_credential_exchange (rev_reg_id, cred_rev_id);
+CREATE INDEX IF NOT EXISTS bpa_credential_exchange_partner_id_idx ON bpa_credential_exchange (partner_id);
+-- HolderCredExRepository.findBySchemaIdAndCredentialDefinitionId
+CREATE INDEX IF NOT EXISTS bpa_credential_exchange_schema_id_idx ON bpa_credential_exchange ((credential->>'schemaId'));
+
+-- presentation exchange lookups by aca-py present proof events
+CREATE INDEX IF NOT EXISTS partner_proof_presentation_exchange_id_idx ON partner_proof (presentation_exchange_id);
+CREATE INDEX IF NOT EXISTS partner_proof_thread_id_idx ON partner_proof (thread_id);
+CREATE INDEX IF NOT EXISTS partner_proof_partner_id_idx ON partner_proof (partner_id);
+
+-- ActivityRepository.findByLinkIdAndTypeAndRole
+CREATE INDEX IF NOT EXISTS activity_link_id_type_role_idx ON activity (link_id, type, role);
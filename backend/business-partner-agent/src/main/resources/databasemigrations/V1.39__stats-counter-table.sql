@@ -0,0 +1,8 @@
+CREATE TABLE stats_counter (
+    id uuid PRIMARY KEY,
+    name character varying(255) NOT NULL,
+    bucket timestamp without time zone NOT NULL,
+    value bigint NOT NULL DEFAULT 0
+);
+
+CREATE UNIQUE INDEX stats_counter_name_bucket_idx ON stats_counter (name, bucket);
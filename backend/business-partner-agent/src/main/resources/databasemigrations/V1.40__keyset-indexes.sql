@@ -0,0 +1,9 @@
+-- keyset pagination orders by (updated_at DESC, id DESC), rows created before
+-- updated_at was maintained would never be reached by the seek predicate
+UPDATE partner SET updated_at = coalesce(created_at, now()) WHERE updated_at IS NULL;
+UPDATE bpa_credential_exchange SET updated_at = coalesce(created_at, now()) WHERE updated_at IS NULL;
+UPDATE activity SET updated_at = coalesce(created_at, now()) WHERE updated_at IS NULL;
+
+CREATE INDEX IF NOT EXISTS partner_updated_at_id_idx ON partner (updated_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS bpa_credential_exchange_updated_at_id_idx ON bpa_credential_exchange (updated_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS activity_updated_at_id_idx ON activity (updated_at DESC, id DESC);
@@ -0,0 +1,30 @@
+CREATE TABLE bulk_issuance_job (
+    id uuid PRIMARY KEY,
+    created_at timestamp without time zone,
+    updated_at timestamp without time zone,
+    state character varying(255) NOT NULL,
+    exchange_version character varying(255),
+    total integer NOT NULL DEFAULT 0,
+    sent integer NOT NULL DEFAULT 0,
+    failed integer NOT NULL DEFAULT 0
+);
+
+CREATE TABLE bulk_issuance_item (
+    id uuid PRIMARY KEY,
+    job_id uuid NOT NULL,
+    position integer NOT NULL,
+    partner_id uuid,
+    cred_def_id uuid,
+    document jsonb,
+    state character varying(255) NOT NULL,
+    error_msg character varying(2048),
+    cred_ex_id uuid
+);
+
+ALTER TABLE bulk_issuance_item
+    ADD CONSTRAINT bulk_issuance_item_fk_1
+        FOREIGN KEY (job_id)
+            REFERENCES bulk_issuance_job(id)
+            ON DELETE CASCADE;
+
+CREATE INDEX bulk_issuance_item_pending_idx ON bulk_issuance_item (job_id, state, position);
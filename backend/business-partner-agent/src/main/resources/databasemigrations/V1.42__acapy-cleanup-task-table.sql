@@ -0,0 +1,14 @@
+CREATE TABLE acapy_cleanup_task (
+    id uuid PRIMARY KEY,
+    created_at timestamp without time zone,
+    updated_at timestamp without time zone,
+    partner_id uuid,
+    record_type character varying(255) NOT NULL,
+    record_id character varying(255) NOT NULL,
+    state character varying(255) NOT NULL,
+    attempts integer NOT NULL DEFAULT 0,
+    next_attempt_at timestamp without time zone NOT NULL,
+    error_msg character varying(2048)
+);
+
+CREATE INDEX acapy_cleanup_task_due_idx ON acapy_cleanup_task (state, next_attempt_at);
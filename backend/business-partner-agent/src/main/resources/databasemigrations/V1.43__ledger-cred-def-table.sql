@@ -0,0 +1,11 @@
+CREATE TABLE ledger_cred_def (
+    id uuid PRIMARY KEY,
+    created_at timestamp without time zone,
+    schema_seq_no integer NOT NULL,
+    cred_def_id character varying(255) NOT NULL UNIQUE,
+    did character varying(255) NOT NULL,
+    ledger_seq_no integer NOT NULL
+);
+
+CREATE INDEX ledger_cred_def_schema_idx ON ledger_cred_def (schema_seq_no, ledger_seq_no);
+CREATE INDEX ledger_cred_def_did_idx ON ledger_cred_def (did);
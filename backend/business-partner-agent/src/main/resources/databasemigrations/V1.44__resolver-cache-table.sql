@@ -0,0 +1,10 @@
+CREATE TABLE resolver_cache_entry (
+    id uuid PRIMARY KEY,
+    cache_name character varying(255) NOT NULL,
+    cache_key character varying(2048) NOT NULL,
+    value text NOT NULL,
+    etag character varying(1024),
+    last_modified character varying(255),
+    fetched_at timestamp without time zone NOT NULL,
+    UNIQUE (cache_name, cache_key)
+);
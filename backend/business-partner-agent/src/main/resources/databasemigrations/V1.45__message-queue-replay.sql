@@ -0,0 +1,9 @@
+UPDATE message_queue SET created_at = now() WHERE created_at IS NULL;
+ALTER TABLE message_queue ALTER COLUMN created_at SET NOT NULL;
+
+ALTER TABLE message_queue ADD COLUMN message_id bigint;
+ALTER TABLE message_queue ADD COLUMN dedup_key character varying(255);
+
+CREATE UNIQUE INDEX message_queue_dedup_key_idx ON message_queue (dedup_key);
+CREATE INDEX message_queue_created_at_idx ON message_queue (created_at, id);
+CREATE INDEX message_queue_message_id_idx ON message_queue (message_id);
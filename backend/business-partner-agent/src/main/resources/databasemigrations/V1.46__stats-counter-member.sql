@@ -0,0 +1,9 @@
+CREATE TABLE stats_counter_member (
+    name character varying(255) NOT NULL,
+    entity_id uuid NOT NULL,
+    bucket timestamp without time zone NOT NULL,
+    PRIMARY KEY (name, entity_id)
+);
+
+-- the counters are rebuilt together with their members on the next read
+DELETE FROM stats_counter;
@@ -0,0 +1,8 @@
+-- members that are removed together with their partner
+ALTER TABLE stats_counter_member ADD COLUMN partner_id uuid;
+
+CREATE INDEX stats_counter_member_partner_id_idx ON stats_counter_member (partner_id);
+
+-- the counters are rebuilt together with their members, now with their partner
+DELETE FROM stats_counter_member;
+DELETE FROM stats_counter;
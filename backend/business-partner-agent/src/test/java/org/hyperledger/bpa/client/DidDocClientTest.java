@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.hyperledger.bpa.client.cache.ResolverCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DidDocClientTest {
+
+    private final AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2022-10-01T10:00:00Z"));
+
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.get();
+        }
+    };
+
+    private MockWebServer server;
+
+    private ExecutorService refresher;
+
+    private DidDocClient client;
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        refresher = Executors.newSingleThreadExecutor();
+        client = new DidDocClient();
+        client.clock = clock;
+        client.documentCache = new ResolverCache("document", Duration.ofMinutes(5), Duration.ZERO, 100,
+                clock, refresher, null, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+        refresher.shutdownNow();
+    }
+
+    @Test
+    void testDocumentIsRevalidatedWithETag() throws Exception {
+        String url = server.url("/profile.jsonld").toString();
+        server.enqueue(new MockResponse().setBody("{\"a\":\"1\"}").setHeader("ETag", "\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        assertEquals(Optional.of(Map.of("a", "1")), client.call(url, Map.class));
+        // fresh, not fetched again
+        assertEquals(Optional.of(Map.of("a", "1")), client.call(url, Map.class));
+        now.set(now.get().plus(Duration.ofMinutes(10)));
+        assertEquals(Optional.of(Map.of("a", "1")), client.call(url, Map.class));
+
+        assertEquals(2, server.getRequestCount());
+        RecordedRequest first = server.takeRequest(1, TimeUnit.SECONDS);
+        assertNull(first.getHeader("If-None-Match"));
+        RecordedRequest second = server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("\"v1\"", second.getHeader("If-None-Match"));
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.client.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResolverCacheTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2022-10-01T10:00:00Z"));
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ExecutorService refresher;
+
+    @BeforeEach
+    void setup() {
+        refresher = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        refresher.shutdownNow();
+    }
+
+    @Test
+    void testFreshEntryIsServedFromMemory() {
+        ResolverCache cache = cache(null);
+        AtomicInteger loads = new AtomicInteger();
+        ResolverCache.Loader loader = (k, prev) -> entry("v" + loads.incrementAndGet());
+
+        assertEquals(Optional.of("v1"), cache.get("did:1", loader));
+        clock.advance(Duration.ofSeconds(59));
+        assertEquals(Optional.of("v1"), cache.get("did:1", loader));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, count("miss"));
+        assertEquals(1, count("hit"));
+    }
+
+    @Test
+    void testStaleEntryIsServedWhileRefreshing() throws Exception {
+        ResolverCache cache = cache(null);
+        CountDownLatch refreshed = new CountDownLatch(1);
+        cache.get("did:1", (k, prev) -> entry("v1"));
+        clock.advance(Duration.ofMinutes(5));
+
+        Optional<String> stale = cache.get("did:1", (k, prev) -> {
+            assertEquals("v1", prev.value());
+            refreshed.countDown();
+            return entry("v2");
+        });
+
+        assertEquals(Optional.of("v1"), stale);
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, count("stale"));
+        awaitValue(cache, "v2");
+    }
+
+    @Test
+    void testExpiredEntryIsRevalidated() {
+        ResolverCache cache = cache(null);
+        cache.get("did:1", (k, prev) -> new ResolverCache.Entry("v1", "\"etag\"", null, clock.instant()));
+        clock.advance(Duration.ofHours(2));
+
+        Optional<String> value = cache.get("did:1", (k, prev) -> {
+            assertEquals("\"etag\"", prev.etag());
+            return prev.revalidated(clock.instant());
+        });
+
+        assertEquals(Optional.of("v1"), value);
+        assertEquals(2, count("miss"));
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() throws Exception {
+        ResolverCache cache = cache(null);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ResolverCache.Loader loader = (k, prev) -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return entry("v1");
+        };
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        Future<Optional<String>> first = callers.submit(() -> cache.get("did:1", loader));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        Future<Optional<String>> second = callers.submit(() -> cache.get("did:1", loader));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals(Optional.of("v1"), first.get(5, TimeUnit.SECONDS));
+        assertEquals(Optional.of("v1"), second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testUnresolvedIsNotCached() {
+        ResolverCache cache = cache(null);
+        AtomicInteger loads = new AtomicInteger();
+        ResolverCache.Loader loader = (k, prev) -> {
+            loads.incrementAndGet();
+            return null;
+        };
+        assertTrue(cache.get("did:1", loader).isEmpty());
+        assertTrue(cache.get("did:1", loader).isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testEntriesArePersistedAndReadBack() throws Exception {
+        InMemoryStore store = new InMemoryStore();
+        cache(store).get("did:1", (k, prev) -> entry("v1"));
+        for (int i = 0; i < 50 && store.entries.isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+
+        // new instance, e.g. after a restart
+        Optional<String> value = cache(store).get("did:1", (k, prev) -> fail("should not load"));
+        assertEquals(Optional.of("v1"), value);
+    }
+
+    private ResolverCache cache(ResolverCacheStore store) {
+        return new ResolverCache("test", Duration.ofMinutes(1), Duration.ofMinutes(30), 100,
+                clock, refresher, store, registry);
+    }
+
+    private ResolverCache.Entry entry(String value) {
+        return new ResolverCache.Entry(value, null, null, clock.instant());
+    }
+
+    private double count(String result) {
+        return registry.get(ResolverCache.METRIC_REQUESTS).tag("result", result).counter().count();
+    }
+
+    private void awaitValue(ResolverCache cache, String expected) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            Optional<String> v = cache.get("did:1", (k, prev) -> null);
+            if (v.isPresent() && expected.equals(v.get())) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("value was not refreshed");
+    }
+
+    private static final class InMemoryStore implements ResolverCacheStore {
+        private final Map<String, ResolverCache.Entry> entries = new ConcurrentHashMap<>();
+
+        @Override
+        public Optional<ResolverCache.Entry> find(String cacheName, String key) {
+            return Optional.ofNullable(entries.get(cacheName + key));
+        }
+
+        @Override
+        public void save(String cacheName, String key, ResolverCache.Entry entry) {
+            entries.put(cacheName + key, entry);
+        }
+    }
+
+    static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.controller.api;
+
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.persistence.repository.Keyset;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorPageTest {
+
+    record Row(UUID id, Instant updatedAt) {
+    }
+
+    @Test
+    void testTokenRoundTrip() {
+        Instant now = Instant.parse("2022-10-01T10:15:30.123456Z");
+        UUID id = UUID.randomUUID();
+        Keyset keyset = Keyset.decode(Keyset.encode(now, id), 10);
+        assertEquals(now, keyset.updatedAt());
+        assertEquals(id, keyset.id());
+        assertEquals(11, keyset.fetchSize());
+    }
+
+    @Test
+    void testFirstPage() {
+        Keyset keyset = Keyset.decode(null, 10);
+        assertNull(keyset.updatedAt());
+        assertNotNull(keyset.seekUpdatedAt());
+        assertNotNull(keyset.seekId());
+    }
+
+    @Test
+    void testInvalidToken() {
+        assertThrows(WrongApiUsageException.class, () -> Keyset.decode("foo", 10));
+    }
+
+    @Test
+    void testNextIsSetOnlyIfThereIsMore() {
+        Instant now = Instant.now();
+        List<Row> rows = IntStream.range(0, 3).mapToObj(i -> new Row(UUID.randomUUID(), now.minusSeconds(i)))
+                .toList();
+
+        CursorPage<UUID> page = CursorPage.of(rows, Keyset.first(2), Row::updatedAt, Row::id, Row::id);
+        assertEquals(2, page.getContent().size());
+        Keyset next = Keyset.decode(page.getNext(), 2);
+        assertEquals(rows.get(1).id(), next.id());
+        assertEquals(rows.get(1).updatedAt(), next.updatedAt());
+
+        page = CursorPage.of(rows, Keyset.first(3), Row::updatedAt, Row::id, Row::id);
+        assertEquals(3, page.getContent().size());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    void testLoadKeepsKeysetOrder() {
+        List<UUID> ids = IntStream.range(0, 5).mapToObj(i -> UUID.randomUUID()).toList();
+        List<UUID> loaded = Keyset.load(ids, l -> l.stream().sorted().toList(), Function.identity());
+        assertEquals(ids, loaded);
+        assertEquals(List.of(), Keyset.load(List.of(), l -> {
+            throw new IllegalStateException("not called");
+        }, Function.identity()));
+    }
+}
@@ -54,6 +54,9 @@ public class PartnerManagerTest {
     @Inject
     BPASchemaRepository schemaRepo;
 
+    @Inject
+    NotificationPartnerCache notificationPartnerCache;
+
     @Test
     void testAddAndRemovePartnerTag() {
         Tag t1 = tagRepo.save(Tag
@@ -155,6 +158,16 @@ public class PartnerManagerTest {
         Assertions.assertEquals(1, holderRepo.count());
     }
 
+    @Test
+    void testUpdateAliasEvictsNotificationPartner() {
+        Partner partner = partnerRepo.save(buildPartnerWithoutTag().alias("old").build());
+        Assertions.assertEquals("old", notificationPartnerCache.getByConnectionId("con1").getAlias());
+
+        partnerManager.updatePartner(partner.getId(), UpdatePartnerRequest.builder().alias("new").build());
+
+        Assertions.assertEquals("new", notificationPartnerCache.getByConnectionId("con1").getAlias());
+    }
+
     private void checkTagOnPartner(UUID partnerId, String... tagName) {
         Optional<Partner> dbP = partnerRepo.findById(partnerId);
         Assertions.assertTrue(dbP.isPresent());
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
+import org.hyperledger.aries.api.resolver.DIDDocument;
+import org.hyperledger.bpa.controller.PublicProfileController;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PublicDocumentCacheTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private PublicDocumentCache cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new PublicDocumentCache(Duration.ofMinutes(5));
+        cache.mapper = mapper;
+        cache.clock = Clock.fixed(Instant.parse("2022-10-01T10:00:00Z"), ZoneOffset.UTC);
+    }
+
+    @Test
+    void testProfileIsLoadedOnceAndReplacedOnUpdate() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        VerifiablePresentation<VerifiableIndyCredential> vp = VerifiablePresentation.<VerifiableIndyCredential>builder()
+                .build();
+
+        PublicDocumentCache.Snapshot first = cache.getProfile(() -> {
+            loads.incrementAndGet();
+            return Optional.of(vp);
+        }).orElseThrow();
+        PublicDocumentCache.Snapshot second = cache.getProfile(() -> {
+            loads.incrementAndGet();
+            return Optional.of(vp);
+        }).orElseThrow();
+
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertArrayEquals(mapper.writeValueAsBytes(vp), first.json());
+        try (GZIPInputStream gz = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+            assertArrayEquals(first.json(), gz.readAllBytes());
+        }
+
+        VerifiablePresentation<VerifiableIndyCredential> signed = VerifiablePresentation
+                .<VerifiableIndyCredential>builder()
+                .id("urn:signed").build();
+        cache.updateProfile(signed);
+        PublicDocumentCache.Snapshot updated = cache.getProfile(Optional::empty).orElseThrow();
+        assertNotEquals(first.etag(), updated.etag());
+        assertArrayEquals(mapper.writeValueAsBytes(signed), updated.json());
+    }
+
+    @Test
+    void testDidDocumentIsReloadedAfterRefresh() {
+        AtomicInteger loads = new AtomicInteger();
+        DIDDocument doc = DIDDocument.builder().id("did:web:localhost").build();
+        cache.getDidDocument(() -> {
+            loads.incrementAndGet();
+            return Optional.of(doc);
+        });
+        cache.clock = Clock.offset(cache.clock, Duration.ofMinutes(6));
+        cache.getDidDocument(() -> {
+            loads.incrementAndGet();
+            return Optional.of(doc);
+        });
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testETagMatching() {
+        PublicDocumentCache.Snapshot s = cache.serialize(DIDDocument.builder().id("did:web:localhost").build());
+        assertTrue(s.etag().startsWith("\"") && s.etag().endsWith("\""));
+        assertEquals(s.etag(), cache.serialize(DIDDocument.builder().id("did:web:localhost").build()).etag());
+        assertTrue(s.matches(s.etag()));
+        assertTrue(s.matches("\"other\", W/" + s.etag()));
+        assertTrue(s.matches("*"));
+        assertFalse(s.matches("\"other\""));
+        assertFalse(s.matches(null));
+    }
+
+    @Test
+    void testConditionalAndCompressedResponses() {
+        PublicDocumentCache.Snapshot s = cache.serialize(DIDDocument.builder().id("did:web:localhost").build());
+
+        HttpResponse<byte[]> plain = PublicProfileController.respond(HttpRequest.GET("/"), s);
+        assertEquals(HttpStatus.OK, plain.getStatus());
+        assertEquals(s.etag(), plain.getHeaders().get(HttpHeaders.ETAG));
+        assertSame(s.json(), plain.body());
+
+        HttpResponse<byte[]> gzipped = PublicProfileController.respond(HttpRequest.GET("/")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"), s);
+        assertEquals("gzip", gzipped.getHeaders().get(HttpHeaders.CONTENT_ENCODING));
+        assertSame(s.gzip(), gzipped.body());
+
+        HttpResponse<byte[]> notModified = PublicProfileController.respond(HttpRequest.GET("/")
+                .header(HttpHeaders.IF_NONE_MATCH, s.etag()), s);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatus());
+        assertNull(notModified.body());
+    }
+}
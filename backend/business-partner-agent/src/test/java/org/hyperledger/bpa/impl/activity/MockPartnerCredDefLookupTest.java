@@ -21,7 +21,7 @@ import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import jakarta.inject.Inject;
 import org.hyperledger.bpa.api.CredentialType;
 import org.hyperledger.bpa.client.LedgerExplorerClient;
-import org.hyperledger.bpa.controller.api.partner.PartnerCredentialType;
+import org.hyperledger.bpa.client.api.LedgerQueryResult;
 import org.hyperledger.bpa.persistence.model.BPASchema;
 import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.repository.BPARestrictionsRepository;
@@ -34,10 +34,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 
@@ -92,15 +94,17 @@ class MockPartnerCredDefLookupTest {
                 BPASchema.builder().seqNo(977).type(CredentialType.INDY).build(),
                 BPASchema.builder().seqNo(9999).type(CredentialType.INDY).build()));
 
-        when(ledger.queryCredentialDefinitions(anyString()))
-                .thenReturn(Optional.of(List.of(
-                        PartnerCredentialType.fromCredDefId("did-1:3:CL:1077:commercial register entry"),
-                        PartnerCredentialType.fromCredDefId("did-1:3:CL:1077:commereg test"),
-                        PartnerCredentialType.fromCredDefId("other:3:CL:1077:commreg"))))
-                .thenReturn(Optional.of(List.of(
-                        PartnerCredentialType.fromCredDefId("did-1:3:CL:977:bank"),
-                        PartnerCredentialType.fromCredDefId("did-2:3:CL:977:my-bank"))))
-                .thenReturn(Optional.empty());
+        // the schemas are looked up in parallel, so answer by schema and not by call
+        Map<String, List<LedgerQueryResult.DomainTransaction.TxnMetadata>> bySchema = Map.of(
+                "1077", List.of(
+                        txn("did-1:3:CL:1077:commercial register entry", 1),
+                        txn("did-1:3:CL:1077:commereg test", 2),
+                        txn("other:3:CL:1077:commreg", 3)),
+                "977", List.of(
+                        txn("did-1:3:CL:977:bank", 4),
+                        txn("did-2:3:CL:977:my-bank", 5)));
+        when(ledger.queryCredentialDefinitionTxns(anyString(), anyInt()))
+                .thenAnswer(a -> Optional.ofNullable(bySchema.get(a.<String>getArgument(0))));
 
         lookup.lookupTypesForAllPartners();
 
@@ -117,4 +121,11 @@ class MockPartnerCredDefLookupTest {
         partners = pRepo.findBySupportedCredential("9999");
         assertEquals(0, partners.size());
     }
+
+    private static LedgerQueryResult.DomainTransaction.TxnMetadata txn(String credDefId, int seqNo) {
+        LedgerQueryResult.DomainTransaction.TxnMetadata txn = new LedgerQueryResult.DomainTransaction.TxnMetadata();
+        txn.setTxnId(credDefId);
+        txn.setSeqNo(seqNo);
+        return txn;
+    }
 }
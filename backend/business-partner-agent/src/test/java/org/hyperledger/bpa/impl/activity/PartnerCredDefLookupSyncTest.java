@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.activity;
+
+import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.client.LedgerExplorerClient;
+import org.hyperledger.bpa.client.api.LedgerQueryResult;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.persistence.model.BPASchema;
+import org.hyperledger.bpa.persistence.model.LedgerCredDef;
+import org.hyperledger.bpa.persistence.repository.BPASchemaRepository;
+import org.hyperledger.bpa.persistence.repository.LedgerCredDefRepository;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PartnerCredDefLookupSyncTest {
+
+    @Mock
+    private LedgerExplorerClient ledger;
+
+    @Mock
+    private BPASchemaRepository schemaRepo;
+
+    @Mock
+    private PartnerRepository partnerRepo;
+
+    @Mock
+    private LedgerCredDefRepository credDefRepo;
+
+    @Mock
+    private LedgerCredDefWriter writer;
+
+    @Mock
+    private Converter conv;
+
+    private PartnerCredDefLookup lookup;
+
+    @BeforeEach
+    void setup() {
+        lookup = new PartnerCredDefLookup(2, 100, Duration.ofMillis(200));
+        lookup.setLedger(Optional.of(ledger));
+        lookup.setSchemaRepo(schemaRepo);
+        lookup.setDidPrefix("did:sov:");
+        lookup.partnerRepo = partnerRepo;
+        lookup.credDefRepo = credDefRepo;
+        lookup.writer = writer;
+        lookup.conv = conv;
+    }
+
+    @AfterEach
+    void tearDown() {
+        lookup.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testOnlyDeltasAreFetchedAndApplied() {
+        when(schemaRepo.findAll()).thenReturn(List.of(
+                BPASchema.builder().seqNo(1077).type(CredentialType.INDY).build(),
+                BPASchema.builder().seqNo(977).type(CredentialType.INDY).build()));
+        when(credDefRepo.findMaxLedgerSeqNoBySchemaSeqNo(1077)).thenReturn(Optional.of(5));
+        when(credDefRepo.findMaxLedgerSeqNoBySchemaSeqNo(977)).thenReturn(Optional.of(9));
+        when(ledger.queryCredentialDefinitionTxns("1077", 5))
+                .thenReturn(Optional.of(List.of(txn("did-2:3:CL:1077:new", 7))));
+        when(ledger.queryCredentialDefinitionTxns("977", 9)).thenReturn(Optional.of(List.of()));
+        when(credDefRepo.findCredDefIdByCredDefIdIn(anyCollection())).thenReturn(List.of());
+        when(partnerRepo.findDidBySupportedCredentialsIsNull()).thenReturn(List.of());
+        when(partnerRepo.findDidByDidIn(List.of("did:sov:did-2"))).thenReturn(List.of("did:sov:did-2"));
+        when(credDefRepo.findByDidIn(anyCollection())).thenReturn(List.of(
+                credDef("did-2:3:CL:977:old", 3),
+                credDef("did-2:3:CL:1077:new", 7)));
+        when(conv.toMap(any())).thenReturn(Map.of());
+
+        lookup.lookupTypesForAllPartners();
+
+        ArgumentCaptor<List<LedgerCredDef>> saved = ArgumentCaptor.forClass(List.class);
+        verify(writer, times(1)).saveCredDefs(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        assertEquals("did-2", saved.getValue().get(0).getDid());
+        assertEquals(7, saved.getValue().get(0).getLedgerSeqNo());
+
+        ArgumentCaptor<Map<String, Map<String, Object>>> updated = ArgumentCaptor.forClass(Map.class);
+        verify(writer, times(1)).updatePartners(updated.capture());
+        assertEquals(List.of("did:sov:did-2"), List.copyOf(updated.getValue().keySet()));
+    }
+
+    @Test
+    void testAsyncTriggersAreCoalesced() throws Exception {
+        when(schemaRepo.findAll()).thenReturn(List.of());
+        when(credDefRepo.findAll()).thenReturn(List.of());
+        when(partnerRepo.findDidBySupportedCredentialsIsNull()).thenReturn(List.of());
+
+        for (int i = 0; i < 10; i++) {
+            lookup.lookupTypesForAllPartnersAsync();
+        }
+
+        verify(schemaRepo, timeout(2000).times(1)).findAll();
+        Thread.sleep(400);
+        verify(schemaRepo, times(1)).findAll();
+    }
+
+    private static LedgerQueryResult.DomainTransaction.TxnMetadata txn(String credDefId, int seqNo) {
+        LedgerQueryResult.DomainTransaction.TxnMetadata txn = new LedgerQueryResult.DomainTransaction.TxnMetadata();
+        txn.setTxnId(credDefId);
+        txn.setSeqNo(seqNo);
+        return txn;
+    }
+
+    private static LedgerCredDef credDef(String credDefId, int seqNo) {
+        return LedgerCredDef.builder()
+                .credDefId(credDefId)
+                .did(credDefId.substring(0, credDefId.indexOf(':')))
+                .ledgerSeqNo(seqNo)
+                .build();
+    }
+}
@@ -17,13 +17,26 @@
  */
 package org.hyperledger.bpa.impl.activity;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.api.resolver.DIDDocument;
 import org.hyperledger.bpa.BaseTest;
+import org.hyperledger.bpa.client.cache.ResolverCache;
+import org.hyperledger.bpa.impl.aries.jsonld.SignVerifyLD;
 import org.junit.jupiter.api.Test;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 class PartnerLookupTest extends BaseTest {
 
@@ -46,4 +59,22 @@ class PartnerLookupTest extends BaseTest {
         assertTrue(matchKey.get().startsWith("C2VBLJff"));
     }
 
+    @Test
+    void testOnlySuccessfulVerificationIsCached() {
+        Clock clock = Clock.fixed(Instant.parse("2022-06-15T12:00:00Z"), ZoneOffset.UTC);
+        PartnerLookup lookup = new PartnerLookup();
+        lookup.clock = clock;
+        lookup.crypto = mock(SignVerifyLD.class);
+        lookup.verificationCache = new ResolverCache("verification", Duration.ofDays(1), Duration.ZERO, 100,
+                clock, Runnable::run, null, new SimpleMeterRegistry());
+        VerifiablePresentation<VerifiableIndyCredential> vp = new VerifiablePresentation<>();
+        // aca-py did not answer, then it did
+        when(lookup.crypto.verify(eq("verkey"), any())).thenReturn(Boolean.FALSE, Boolean.TRUE);
+
+        assertEquals(Boolean.FALSE, lookup.verify("verkey", vp));
+        assertEquals(Boolean.TRUE, lookup.verify("verkey", vp));
+        assertEquals(Boolean.TRUE, lookup.verify("verkey", vp));
+
+        verify(lookup.crypto, times(2)).verify(eq("verkey"), any());
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hyperledger.aries.webhook.EventHandler;
+import org.hyperledger.bpa.persistence.model.JournaledEvent;
+import org.hyperledger.bpa.persistence.repository.JournaledEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AriesEventJournalTest {
+
+    @Mock
+    JournaledEventRepository repo;
+
+    @Mock
+    EventHandler handler;
+
+    private AriesEventJournal journal;
+
+    @BeforeEach
+    void setup() {
+        journal = new AriesEventJournal();
+        journal.repo = repo;
+        journal.handlers = List.of(handler);
+        journal.dispatcher = new StripedEventDispatcher(0, new SimpleMeterRegistry());
+        journal.batchSize = 2;
+    }
+
+    @Test
+    void testUnknownTopicIsNotJournaled() {
+        journal.handleEvent("unknown", "{}");
+        verify(repo, never()).save(any());
+    }
+
+    @Test
+    void testEventsAreOnlyDrainedWhenReady() {
+        journal.handleEvent("connections", "{}");
+        verify(repo, times(1)).save(any());
+        verify(repo, never()).findOldest(anyInt());
+    }
+
+    @Test
+    void testDrainHandlesInOrderAndDeletesBatches() {
+        when(repo.findOldest(2))
+                .thenReturn(List.of(event(1L), event(2L)))
+                .thenReturn(List.of(event(3L)));
+
+        journal.drain();
+
+        InOrder inOrder = inOrder(handler, repo);
+        inOrder.verify(handler).handleEvent("connections", "1");
+        inOrder.verify(handler).handleEvent("connections", "2");
+        inOrder.verify(repo).deleteByIdIn(List.of(1L, 2L));
+        inOrder.verify(handler).handleEvent("connections", "3");
+        inOrder.verify(repo).deleteByIdIn(List.of(3L));
+    }
+
+    @Test
+    void testFailingEventDoesNotBlockJournal() {
+        when(repo.findOldest(2)).thenReturn(List.of(event(1L)));
+        doThrow(new IllegalStateException("expected")).when(handler).handleEvent("connections", "1");
+
+        journal.drain();
+
+        verify(repo, times(1)).deleteByIdIn(List.of(1L));
+    }
+
+    @Test
+    void testNothingIsDeletedWhenTheDbFails() {
+        when(repo.findOldest(2)).thenThrow(new IllegalStateException("expected"));
+        journal.drain();
+        verify(repo, never()).deleteByIdIn(any());
+    }
+
+    private static JournaledEvent event(Long id) {
+        return JournaledEvent.builder().id(id).topic("connections").payload(String.valueOf(id)).build();
+    }
+}
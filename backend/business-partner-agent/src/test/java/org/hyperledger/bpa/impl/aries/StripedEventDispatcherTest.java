@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedEventDispatcherTest {
+
+    @Test
+    void testInlineWithoutWorkers() {
+        StripedEventDispatcher dispatcher = new StripedEventDispatcher(0, new SimpleMeterRegistry());
+        List<String> handled = new CopyOnWriteArrayList<>();
+        dispatcher.dispatch("a", () -> handled.add(Thread.currentThread().getName()));
+        assertEquals(List.of(Thread.currentThread().getName()), handled);
+    }
+
+    @Test
+    void testEventsOfSameKeyAreOrdered() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        StripedEventDispatcher dispatcher = new StripedEventDispatcher(4, registry);
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(100);
+        IntStream.range(0, 100).forEach(i -> dispatcher.dispatch("exchange-1", () -> {
+            handled.add(i);
+            done.countDown();
+        }));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(IntStream.range(0, 100).boxed().toList(), handled);
+        assertEquals(100, registry.find(StripedEventDispatcher.METRIC_WAIT).timers()
+                .stream().mapToLong(t -> t.count()).sum());
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void testSlowExchangeDoesNotBlockOthers() throws Exception {
+        StripedEventDispatcher dispatcher = new StripedEventDispatcher(2, new SimpleMeterRegistry());
+        String slowKey = "slow";
+        // find a key that lives on the other stripe
+        String fastKey = IntStream.range(0, 100).mapToObj(i -> "fast-" + i)
+                .filter(k -> Math.floorMod(k.hashCode(), 2) != Math.floorMod(slowKey.hashCode(), 2))
+                .findFirst().orElseThrow();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastDone = new CountDownLatch(1);
+        dispatcher.dispatch(slowKey, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher.dispatch(slowKey, () -> {
+        });
+        dispatcher.dispatch(fastKey, fastDone::countDown);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(fastDone.await(5, TimeUnit.SECONDS));
+        assertEquals(1, dispatcher.getQueueDepth());
+        release.countDown();
+        dispatcher.shutdown();
+        assertEquals(0, dispatcher.getQueueDepth());
+    }
+
+    @Test
+    void testFailingHandlerDoesNotStopStripe() throws Exception {
+        StripedEventDispatcher dispatcher = new StripedEventDispatcher(1, new SimpleMeterRegistry());
+        CountDownLatch done = new CountDownLatch(1);
+        dispatcher.dispatch("a", () -> {
+            throw new IllegalStateException("expected");
+        });
+        dispatcher.dispatch("a", done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.connection;
+
+import org.hyperledger.aries.api.exception.AriesException;
+import org.hyperledger.bpa.persistence.model.AcaPyCleanupTask;
+import org.hyperledger.bpa.persistence.repository.AcaPyCleanupTaskRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AcaPyCleanupJobTest {
+
+    private static final Instant NOW = Instant.parse("2022-10-01T10:00:00Z");
+
+    @Mock
+    private AcyPyConnectionCleanup cleanup;
+
+    @Mock
+    private AcaPyCleanupTaskRepository repo;
+
+    @Mock
+    private AcaPyCleanupWriter writer;
+
+    private AcaPyCleanupJob job;
+
+    @BeforeEach
+    void setup() {
+        job = new AcaPyCleanupJob(2, 0, 10, 3, Duration.ofSeconds(10));
+        job.cleanup = cleanup;
+        job.repo = repo;
+        job.writer = writer;
+        job.clock = Clock.fixed(NOW, ZoneOffset.UTC);
+    }
+
+    @AfterEach
+    void tearDown() {
+        job.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBatchOutcomes() throws Exception {
+        AcaPyCleanupTask deleted = task(AcaPyCleanupTask.RecordType.CONNECTION, "c1");
+        AcaPyCleanupTask gone = task(AcaPyCleanupTask.RecordType.PRESENTATION_V1, "p1");
+        AcaPyCleanupTask unavailable = task(AcaPyCleanupTask.RecordType.CREDENTIAL_V1, "i1");
+        AcaPyCleanupTask rejected = task(AcaPyCleanupTask.RecordType.CREDENTIAL_V2, "i2");
+        AcaPyCleanupTask listing = task(AcaPyCleanupTask.RecordType.REMAINING_CREDENTIALS, "c1");
+        AcaPyCleanupTask remaining = task(AcaPyCleanupTask.RecordType.CREDENTIAL_V1, "i3");
+
+        doNothing().when(cleanup).delete(deleted);
+        doThrow(new AriesException(404, "not found")).when(cleanup).delete(gone);
+        doThrow(new IOException("timeout")).when(cleanup).delete(unavailable);
+        doThrow(new AriesException(400, "bad request")).when(cleanup).delete(rejected);
+        when(cleanup.streamRemainingCredentialExchangeRecords(listing)).thenReturn(Stream.of(remaining));
+        when(repo.findByStateAndNextAttemptAtLessThanEqualsOrderByNextAttemptAt(
+                eq(AcaPyCleanupTask.TaskState.PENDING), eq(NOW), any()))
+                .thenReturn(List.of(deleted, gone, unavailable, rejected, listing), List.of());
+
+        job.run();
+
+        ArgumentCaptor<List<AcaPyCleanupTask>> done = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<AcaPyCleanupTask>> failed = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<AcaPyCleanupTask>> discovered = ArgumentCaptor.forClass(List.class);
+        verify(writer, times(1)).writeBatch(done.capture(), failed.capture(), discovered.capture());
+
+        assertEquals(List.of(deleted, gone, listing), done.getValue());
+        assertEquals(List.of(unavailable, rejected), failed.getValue());
+        assertEquals(List.of(remaining), discovered.getValue());
+        assertEquals(NOW, remaining.getNextAttemptAt());
+
+        assertEquals(AcaPyCleanupTask.TaskState.PENDING, unavailable.getState());
+        assertEquals(1, unavailable.getAttempts());
+        assertEquals(NOW.plusSeconds(10), unavailable.getNextAttemptAt());
+
+        assertEquals(AcaPyCleanupTask.TaskState.FAILED, rejected.getState());
+        assertEquals("bad request", rejected.getErrorMsg());
+    }
+
+    @Test
+    void testTransientFailureGivesUpAfterMaxAttempts() throws Exception {
+        AcaPyCleanupTask t = task(AcaPyCleanupTask.RecordType.CONNECTION, "c1");
+        t.setAttempts(2);
+        doThrow(new AriesException(503, "unavailable")).when(cleanup).delete(t);
+        when(repo.findByStateAndNextAttemptAtLessThanEqualsOrderByNextAttemptAt(
+                eq(AcaPyCleanupTask.TaskState.PENDING), eq(NOW), any()))
+                .thenReturn(List.of(t), List.of());
+
+        job.run();
+
+        assertEquals(3, t.getAttempts());
+        assertEquals(AcaPyCleanupTask.TaskState.FAILED, t.getState());
+    }
+
+    @Test
+    void testIsTransient() {
+        assertTrue(AcaPyCleanupJob.isTransient(new UncheckedIOException(new IOException())));
+        assertTrue(AcaPyCleanupJob.isTransient(new AriesException(502, "")));
+        assertTrue(AcaPyCleanupJob.isTransient(new AriesException(429, "")));
+        assertFalse(AcaPyCleanupJob.isTransient(new AriesException(422, "")));
+        assertFalse(AcaPyCleanupJob.isTransient(new IllegalArgumentException()));
+    }
+
+    private static AcaPyCleanupTask task(AcaPyCleanupTask.RecordType type, String recordId) {
+        AcaPyCleanupTask t = AcyPyConnectionCleanup.newTask(UUID.randomUUID(), type, recordId);
+        t.setNextAttemptAt(NOW);
+        return t;
+    }
+}
@@ -17,24 +17,29 @@
  */
 package org.hyperledger.bpa.impl.aries.connection;
 
-import lombok.NonNull;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hyperledger.aries.AriesClient;
 import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.aries.api.exception.AriesException;
 import org.hyperledger.aries.api.trustping.PingEvent;
 import org.hyperledger.aries.api.trustping.PingEventState;
 import org.hyperledger.aries.api.trustping.PingRequest;
 import org.hyperledger.aries.api.trustping.PingResponse;
-import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
@@ -49,127 +54,104 @@ class PingManagerTest {
     @Mock
     private PartnerRepository repo;
 
-    @InjectMocks
-    private PingManager ping;
+    @Mock
+    private Clock clock;
 
-    @Test
-    void testHappyFlow() throws Exception {
-        ping.checkConnections();
+    private PingManager ping;
 
-        when(repo.findByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter))
-                .thenReturn(List.of(
-                        createPartner("1"),
-                        createPartner("2")));
+    private SimpleMeterRegistry registry;
 
-        when(aries.connectionsSendPing(anyString(), any(PingRequest.class)))
-                .thenReturn(Optional.of(new PingResponse("a")))
-                .thenReturn(Optional.of(new PingResponse("b")))
-                .thenReturn(Optional.of(new PingResponse("a")))
-                .thenReturn(Optional.of(new PingResponse("b")))
-                .thenReturn(Optional.of(new PingResponse("a")))
-                .thenReturn(Optional.of(new PingResponse("b")));
-
-        ping.handlePingEvent(PingEvent.of("a", PingEventState.RESPONSE_RECEIVED));
-        assertEquals(1, ping.getReceivedSize());
+    private final Instant start = Instant.parse("2022-01-01T10:00:00Z");
 
-        ping.checkConnections();
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        ping = new PingManager(1, 2, Duration.ofMinutes(1), 100, registry);
+        ping.aries = aries;
+        ping.repo = repo;
+        ping.clock = clock;
+    }
 
-        verify(repo, times(2)).findByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter);
-        verify(repo, never()).updateStateByConnectionId(anyString(), any(ConnectionState.class));
-        verify(repo, never()).updateStateAndLastSeenByConnectionId(any(), any(), any());
+    @AfterEach
+    void tearDown() {
+        ping.shutdown();
+    }
 
-        assertEquals(2, ping.getSentSize());
-        assertEquals(0, ping.getReceivedSize());
+    @Test
+    void testHappyFlow() throws Exception {
+        when(clock.instant()).thenReturn(start);
+        when(repo.findConnectionIdByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter))
+                .thenReturn(List.of("1", "2"));
+        when(aries.connectionsSendPing(anyString(), any(PingRequest.class))).thenAnswer(
+                a -> Optional.of(new PingResponse("thread-" + a.getArgument(0))));
 
         ping.checkConnections();
 
-        verify(repo, times(3)).findByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter);
-        verify(repo, times(1)).updateStateByConnectionId("1", ConnectionState.PING_NO_RESPONSE);
-        verify(repo, times(1)).updateStateByConnectionId("2", ConnectionState.PING_NO_RESPONSE);
-        verify(repo, never()).updateStateAndLastSeenByConnectionId(any(), any(), any());
-
-        assertEquals(2, ping.getSentSize());
-        assertEquals(0, ping.getReceivedSize());
+        assertEquals(2, ping.getPendingSize());
+        verify(repo, never()).updateStateByConnectionIdIn(any(), any());
+        verify(repo, never()).updateStateAndLastSeenByConnectionIdIn(any(), any(), any());
 
-        ping.handlePingEvent(PingEvent.of("a", PingEventState.RESPONSE_RECEIVED));
-        ping.handlePingEvent(PingEvent.of("b", PingEventState.RESPONSE_RECEIVED));
+        when(clock.instant()).thenReturn(start.plusMillis(250));
+        ping.handlePingEvent(PingEvent.of("thread-1", PingEventState.RESPONSE_RECEIVED));
         ping.handlePingEvent(PingEvent.of("comment", PingEventState.RECEIVED));
+        assertEquals(1, ping.getReceivedSize());
 
-        assertEquals(2, ping.getReceivedSize());
-
+        // 1 answered, 2 is still within the timeout, so only 1 is pinged again
+        Instant second = start.plusSeconds(10);
+        when(clock.instant()).thenReturn(second);
         ping.checkConnections();
 
-        verify(repo, times(1)).updateStateAndLastSeenByConnectionId(
-                argThat(a -> a.equals("1")),
-                argThat(a -> a.equals(ConnectionState.PING_RESPONSE)),
-                argThat(a -> a.isBefore(Instant.now())));
-        verify(repo, times(1)).updateStateAndLastSeenByConnectionId(
-                argThat(a -> a.equals("2")),
-                argThat(a -> a.equals(ConnectionState.PING_RESPONSE)),
-                argThat(a -> a.isBefore(Instant.now())));
-
-        assertEquals(2, ping.getSentSize());
-    }
-
-    @Test
-    void testInitialState() {
-        when(repo.findByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter))
-                .thenReturn(List.of(
-                        createPartner("1"),
-                        createPartner("2")));
+        verify(repo, times(1)).updateStateAndLastSeenByConnectionIdIn(Set.of("1"),
+                ConnectionState.PING_RESPONSE, second);
+        verify(repo, never()).updateStateByConnectionIdIn(any(), any());
+        verify(aries, times(3)).connectionsSendPing(anyString(), any(PingRequest.class));
+        assertEquals(Optional.of(Duration.ofMillis(250)), ping.getRoundTrip("1"));
+        assertEquals(1, registry.find(PingManager.METRIC_ROUND_TRIP).timer().count());
+        assertEquals(2, ping.getPendingSize());
+        assertEquals(0, ping.getReceivedSize());
 
+        // nothing answered within the timeout
+        when(clock.instant()).thenReturn(start.plusSeconds(120));
         ping.checkConnections();
-        verify(repo, never()).updateStateByConnectionId(anyString(), any(ConnectionState.class));
-
-        assertEquals(0, ping.getSentSize());
-    }
 
-    @Test
-    void testRemoveStale() throws Exception {
-        when(aries.connectionIds()).thenReturn(List.of("1", "2", "3"));
-        when(repo.findAll()).thenReturn(List.of(Partner.builder().connectionId("1").build()));
-
-        ping.deleteStaleConnections();
-
-        verify(aries, times(1)).connectionsRemove("2");
-        verify(aries, times(1)).connectionsRemove("3");
+        verify(repo, times(1)).updateStateByConnectionIdIn(Set.of("1", "2"), ConnectionState.PING_NO_RESPONSE);
+        verify(repo, times(1)).updateStateAndLastSeenByConnectionIdIn(any(), any(), any());
+        assertEquals(2, ping.getPendingSize());
     }
 
     @Test
-    void testRemoveStaleOnlyBpa() throws Exception {
-        when(aries.connectionIds()).thenReturn(List.of());
-        when(repo.findAll()).thenReturn(List.of(Partner.builder().connectionId("1").build()));
+    void testOnlyOneShardIsPingedPerRun() throws Exception {
+        ping = new PingManager(2, 2, Duration.ofMinutes(1), 100, registry);
+        ping.aries = aries;
+        ping.repo = repo;
+        ping.clock = clock;
+        when(clock.instant()).thenReturn(start);
+        List<String> connections = IntStream.range(0, 20).mapToObj(String::valueOf).toList();
+        when(repo.findConnectionIdByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter))
+                .thenReturn(connections);
+        when(aries.connectionsSendPing(anyString(), any(PingRequest.class))).thenAnswer(
+                a -> Optional.of(new PingResponse("thread-" + a.getArgument(0))));
 
-        ping.deleteStaleConnections();
-
-        verify(aries, never()).connectionsRemove(anyString());
-    }
-
-    @Test
-    void testRemoveStaleBothEmpty() throws Exception {
-        when(aries.connectionIds()).thenReturn(List.of());
-        when(repo.findAll()).thenReturn(List.of());
-
-        ping.deleteStaleConnections();
+        ping.checkConnections();
+        long shardZero = connections.stream().filter(c -> Math.floorMod(c.hashCode(), 2) == 0).count();
+        verify(aries, times((int) shardZero)).connectionsSendPing(anyString(), any(PingRequest.class));
 
-        verify(aries, never()).connectionsRemove(anyString());
+        ping.checkConnections();
+        verify(aries, times(connections.size())).connectionsSendPing(anyString(), any(PingRequest.class));
+        assertEquals(connections.size(), ping.getPendingSize());
     }
 
     @Test
-    void testRemoveStaleBothSame() throws Exception {
-        when(aries.connectionIds()).thenReturn(List.of("1", "2"));
-        when(repo.findAll()).thenReturn(List.of(
-                Partner.builder().connectionId("1").build(),
-                Partner.builder().connectionId("2").build()));
-
-        ping.deleteStaleConnections();
+    void testUnknownConnectionIsNoResponse() throws Exception {
+        when(clock.instant()).thenReturn(start);
+        when(repo.findConnectionIdByStateInAndTrustPingTrueAndAriesSupportTrue(PingManager.statesToFilter))
+                .thenReturn(List.of("1"));
+        when(aries.connectionsSendPing(anyString(), any(PingRequest.class)))
+                .thenThrow(new AriesException(404, "not found"));
 
-        verify(aries, never()).connectionsRemove(anyString());
-    }
+        ping.checkConnections();
 
-    private Partner createPartner(@NonNull String connectionId) {
-        return Partner.builder()
-                .connectionId(connectionId)
-                .build();
+        verify(repo, times(1)).updateStateByConnectionIdIn(Set.of("1"), ConnectionState.PING_NO_RESPONSE);
+        assertEquals(0, ping.getPendingSize());
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.connection;
+
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.exception.AriesException;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.admin.StaleConnectionReport;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StaleConnectionCleanupTest {
+
+    @Mock
+    private AriesClient aries;
+
+    @Mock
+    private PartnerRepository repo;
+
+    @Mock
+    private BPAMessageSource.DefaultMessageSource ms;
+
+    private StaleConnectionCleanup cleanup;
+
+    @BeforeEach
+    void setup() {
+        cleanup = new StaleConnectionCleanup(2, 0);
+        cleanup.aries = aries;
+        cleanup.repo = repo;
+        cleanup.ms = ms;
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanup.shutdown();
+    }
+
+    @Test
+    void testRemoveStale() throws Exception {
+        when(aries.connectionIds()).thenReturn(List.of("1", "2", "3"));
+        when(repo.findConnectionIdByConnectionIdIsNotNull()).thenReturn(List.of("1"));
+
+        StaleConnectionReport report = cleanup.removeStale();
+
+        verify(aries, times(1)).connectionsRemove("2");
+        verify(aries, times(1)).connectionsRemove("3");
+        assertEquals(List.of("2", "3"), report.getStale());
+        assertEquals(2, report.getRemoved());
+    }
+
+    @Test
+    void testDryRunDoesNotRemove() throws Exception {
+        when(aries.connectionIds()).thenReturn(List.of("1", "2", "3"));
+        when(repo.findConnectionIdByConnectionIdIsNotNull()).thenReturn(List.of("1"));
+
+        StaleConnectionReport report = cleanup.report();
+
+        verify(aries, never()).connectionsRemove(anyString());
+        assertEquals(List.of("2", "3"), report.getStale());
+        assertEquals(3, report.getAcaPyConnections());
+        assertEquals(1, report.getPartnerConnections());
+    }
+
+    @Test
+    void testFailedRemovalIsCounted() throws Exception {
+        when(aries.connectionIds()).thenReturn(List.of("1", "2"));
+        when(repo.findConnectionIdByConnectionIdIsNotNull()).thenReturn(List.of());
+        doThrow(new AriesException(500, "error")).when(aries).connectionsRemove("1");
+
+        StaleConnectionReport report = cleanup.removeStale();
+
+        assertEquals(1, report.getRemoved());
+        assertEquals(1, report.getFailed());
+    }
+
+    @Test
+    void testRemoveStaleOnlyBpa() throws Exception {
+        when(aries.connectionIds()).thenReturn(List.of());
+        when(repo.findConnectionIdByConnectionIdIsNotNull()).thenReturn(List.of("1"));
+
+        cleanup.removeStale();
+
+        verify(aries, never()).connectionsRemove(anyString());
+    }
+
+    @Test
+    void testRemoveStaleBothEmpty() throws Exception {
+        when(aries.connectionIds()).thenReturn(List.of());
+        when(repo.findConnectionIdByConnectionIdIsNotNull()).thenReturn(List.of());
+
+        cleanup.removeStale();
+
+        verify(aries, never()).connectionsRemove(anyString());
+    }
+
+    @Test
+    void testRemoveStaleBothSame() throws Exception {
+        when(aries.connectionIds()).thenReturn(List.of("1", "2"));
+        when(repo.findConnectionIdByConnectionIdIsNotNull()).thenReturn(List.of("1", "2"));
+
+        cleanup.removeStale();
+
+        verify(aries, never()).connectionsRemove(anyString());
+    }
+}
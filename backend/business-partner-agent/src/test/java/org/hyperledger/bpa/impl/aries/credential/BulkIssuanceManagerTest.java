@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.credential;
+
+import io.micronaut.data.model.Pageable;
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.bpa.api.exception.IssuerException;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.issuer.BulkIssuanceJobAPI;
+import org.hyperledger.bpa.controller.api.issuer.BulkIssueCredentialRequest;
+import org.hyperledger.bpa.impl.messaging.websocket.MessageService;
+import org.hyperledger.bpa.impl.messaging.websocket.NotificationBatcher;
+import org.hyperledger.bpa.persistence.model.*;
+import org.hyperledger.bpa.persistence.repository.BPACredentialDefinitionRepository;
+import org.hyperledger.bpa.persistence.repository.BulkIssuanceItemRepository;
+import org.hyperledger.bpa.persistence.repository.BulkIssuanceJobRepository;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkIssuanceManagerTest {
+
+    @Mock
+    BulkIssuanceJobRepository jobRepo;
+
+    @Mock
+    BulkIssuanceItemRepository itemRepo;
+
+    @Mock
+    BulkIssuanceWriter writer;
+
+    @Mock
+    PartnerRepository partnerRepo;
+
+    @Mock
+    BPACredentialDefinitionRepository credDefRepo;
+
+    @Mock
+    IssuerIndyManager indy;
+
+    @Mock
+    IssuerManager issuer;
+
+    @Mock
+    MessageService messageService;
+
+    @Mock
+    NotificationBatcher batcher;
+
+    @Mock
+    BPAMessageSource.DefaultMessageSource msg;
+
+    private BulkIssuanceManager bulk;
+
+    private final Partner partner = Partner.builder().id(UUID.randomUUID()).connectionId("c1").build();
+    private final BPACredentialDefinition credDef = BPACredentialDefinition.builder().id(UUID.randomUUID()).build();
+
+    @BeforeEach
+    void setup() {
+        bulk = new BulkIssuanceManager(2, 10);
+        bulk.jobRepo = jobRepo;
+        bulk.itemRepo = itemRepo;
+        bulk.writer = writer;
+        bulk.partnerRepo = partnerRepo;
+        bulk.credDefRepo = credDefRepo;
+        bulk.indy = indy;
+        bulk.issuer = issuer;
+        bulk.messageService = messageService;
+        bulk.batcher = batcher;
+        bulk.msg = msg;
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulk.shutdown();
+    }
+
+    @Test
+    void testInvalidItemsAreFailedUpFront() {
+        when(partnerRepo.findByIdIn(anyList())).thenReturn(List.of(partner));
+        when(credDefRepo.findByIdIn(anyList())).thenReturn(List.of(credDef));
+        doThrow(new IssuerException("mismatch")).when(indy)
+                .checkCredentialAttributes(eq(Map.of("wrong", "1")), any());
+        when(writer.createJob(any(), anyList())).thenAnswer(a -> {
+            BulkIssuanceJob job = a.getArgument(0);
+            job.setId(UUID.randomUUID());
+            return job;
+        });
+
+        BulkIssuanceJobAPI api = bulk.submit(BulkIssueCredentialRequest.builder().items(List.of(
+                item(UUID.randomUUID(), credDef.getId(), Map.of("name", "a")),
+                item(partner.getId(), credDef.getId(), Map.of("wrong", "1"))))
+                .build());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BulkIssuanceItem>> items = ArgumentCaptor.forClass(List.class);
+        verify(writer).createJob(any(), items.capture());
+        assertEquals(BulkIssuanceJob.JobState.DONE, api.getState());
+        assertEquals(2, api.getFailed());
+        assertEquals(ExchangeVersion.V1, api.getExchangeVersion());
+        assertEquals("mismatch", items.getValue().get(1).getErrorMsg());
+        assertTrue(items.getValue().stream()
+                .allMatch(i -> BulkIssuanceItem.ItemState.FAILED.equals(i.getState())));
+        verifyNoInteractions(itemRepo);
+    }
+
+    @Test
+    void testRunSendsPendingItemsInBatches() {
+        UUID jobId = UUID.randomUUID();
+        BulkIssuanceItem ok = pending(jobId, 0);
+        BulkIssuanceItem fails = pending(jobId, 1);
+        when(itemRepo.countByJobIdAndState(jobId, BulkIssuanceItem.ItemState.SENT)).thenReturn(3);
+        when(itemRepo.countByJobIdAndState(jobId, BulkIssuanceItem.ItemState.FAILED)).thenReturn(0);
+        when(itemRepo.findByJobIdAndStateOrderByPosition(eq(jobId), eq(BulkIssuanceItem.ItemState.PENDING),
+                any(Pageable.class)))
+                .thenReturn(List.of(ok, fails))
+                .thenReturn(List.of());
+        when(partnerRepo.findByIdIn(anyList())).thenReturn(List.of(partner));
+        when(credDefRepo.findByIdIn(anyList())).thenReturn(List.of(credDef));
+        BPACredentialExchange credEx = BPACredentialExchange.builder().build();
+        when(indy.sendIndyCredential(partner, credDef, Map.of("name", "0"), ExchangeVersion.V2)).thenReturn(credEx);
+        when(indy.sendIndyCredential(partner, credDef, Map.of("name", "1"), ExchangeVersion.V2))
+                .thenThrow(new IssuerException("aca-py down"));
+        BPACredentialExchange saved = BPACredentialExchange.builder().id(UUID.randomUUID()).build();
+        when(writer.writeSent(ok, credEx)).thenReturn(saved);
+
+        BulkIssuanceJob job = BulkIssuanceJob.builder().id(jobId).state(BulkIssuanceJob.JobState.RUNNING)
+                .exchangeVersion(ExchangeVersion.V2).build();
+        bulk.run(job);
+
+        verify(writer).writeSent(ok, credEx);
+        verify(writer).writeFailed(List.of(fails));
+        assertEquals(BulkIssuanceItem.ItemState.FAILED, fails.getState());
+        assertEquals("aca-py down", fails.getErrorMsg());
+
+        verify(jobRepo).updateProgress(jobId, BulkIssuanceJob.JobState.RUNNING, 4, 1);
+        verify(jobRepo).updateProgress(jobId, BulkIssuanceJob.JobState.DONE, 4, 1);
+        verify(issuer).fireCredentialIssuedEvent(saved);
+    }
+
+    @Test
+    void testExchangeIsPersistedBeforeTheBatchCompletes() {
+        UUID jobId = UUID.randomUUID();
+        BulkIssuanceItem first = pending(jobId, 0);
+        BulkIssuanceItem second = pending(jobId, 1);
+        when(itemRepo.findByJobIdAndStateOrderByPosition(eq(jobId), eq(BulkIssuanceItem.ItemState.PENDING),
+                any(Pageable.class)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of());
+        when(partnerRepo.findByIdIn(anyList())).thenReturn(List.of(partner));
+        when(credDefRepo.findByIdIn(anyList())).thenReturn(List.of(credDef));
+
+        Set<String> persisted = ConcurrentHashMap.newKeySet();
+        CountDownLatch firstPersisted = new CountDownLatch(1);
+        AtomicBoolean webhookFoundExchange = new AtomicBoolean();
+        when(writer.writeSent(any(), any())).thenAnswer(a -> {
+            BPACredentialExchange credEx = a.getArgument(1);
+            persisted.add(credEx.getCredentialExchangeId());
+            firstPersisted.countDown();
+            return credEx;
+        });
+        when(indy.sendIndyCredential(partner, credDef, Map.of("name", "0"), ExchangeVersion.V1))
+                .thenReturn(BPACredentialExchange.builder().credentialExchangeId("ex-0").build());
+        when(indy.sendIndyCredential(partner, credDef, Map.of("name", "1"), ExchangeVersion.V1))
+                .thenAnswer(a -> {
+                    // aca-py calls back for the first exchange while the second offer is in flight
+                    webhookFoundExchange.set(firstPersisted.await(5, TimeUnit.SECONDS)
+                            && persisted.contains("ex-0"));
+                    return BPACredentialExchange.builder().credentialExchangeId("ex-1").build();
+                });
+
+        bulk.run(BulkIssuanceJob.builder().id(jobId).state(BulkIssuanceJob.JobState.RUNNING).build());
+
+        assertTrue(webhookFoundExchange.get());
+        assertEquals(Set.of("ex-0", "ex-1"), persisted);
+        verify(jobRepo).updateProgress(jobId, BulkIssuanceJob.JobState.RUNNING, 2, 0);
+    }
+
+    @Test
+    void testParseCsv() {
+        UUID partnerId = UUID.randomUUID();
+        UUID credDefId = UUID.randomUUID();
+        List<BulkIssueCredentialRequest.BulkIssueItem> items = bulk.parseCsv(
+                "name,partnerId,credDefId,age\n\"Doe, Jane\"," + partnerId + "," + credDefId + ",42\n");
+        assertEquals(1, items.size());
+        assertEquals(partnerId, items.get(0).getPartnerId());
+        assertEquals(credDefId, items.get(0).getCredDefId());
+        assertEquals(Map.of("name", "Doe, Jane", "age", "42"), items.get(0).getDocument());
+
+        assertThrows(WrongApiUsageException.class, () -> bulk.parseCsv("name,age\nfoo,42"));
+        assertThrows(WrongApiUsageException.class,
+                () -> bulk.parseCsv("partnerId,credDefId,name\nnot-a-uuid," + credDefId + ",foo"));
+    }
+
+    private static BulkIssueCredentialRequest.BulkIssueItem item(UUID partnerId, UUID credDefId,
+            Map<String, String> document) {
+        return BulkIssueCredentialRequest.BulkIssueItem.builder()
+                .partnerId(partnerId).credDefId(credDefId).document(document).build();
+    }
+
+    private BulkIssuanceItem pending(UUID jobId, int position) {
+        return BulkIssuanceItem.builder().id(UUID.randomUUID()).jobId(jobId).position(position)
+                .partnerId(partner.getId()).credDefId(credDef.getId())
+                .document(Map.of("name", String.valueOf(position)))
+                .state(BulkIssuanceItem.ItemState.PENDING).build();
+    }
+}
@@ -23,11 +23,14 @@ import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCrede
 import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.bpa.BaseTest;
 import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
 import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 import org.hyperledger.bpa.testutil.FileLoader;
 import org.junit.jupiter.api.Test;
 
+import java.util.UUID;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
@@ -103,4 +106,24 @@ class CredentialManagerTest extends BaseTest {
         assertNull(iss);
     }
 
+    @Test
+    void testResolveSummaryIssuer() {
+        BPACredentialExchange.ExchangeSummaryDTO s = new BPACredentialExchange.ExchangeSummaryDTO();
+        assertNull(HolderManager.resolveSummaryIssuer(s));
+
+        s.setPartnerId(UUID.randomUUID());
+        s.setPartnerDid(DID);
+        s.setPartnerLabel("Their Label");
+        assertEquals(DID, HolderManager.resolveSummaryIssuer(s));
+
+        s.setPartnerIncoming(Boolean.TRUE);
+        assertEquals("Their Label", HolderManager.resolveSummaryIssuer(s));
+
+        s.setPartnerLegalName("Test Corp");
+        assertEquals("Test Corp", HolderManager.resolveSummaryIssuer(s));
+
+        s.setPartnerAlias("My Bank");
+        assertEquals("My Bank", HolderManager.resolveSummaryIssuer(s));
+    }
+
 }
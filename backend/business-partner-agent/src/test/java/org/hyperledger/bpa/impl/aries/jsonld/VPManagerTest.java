@@ -22,7 +22,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import org.hyperledger.aries.api.credentials.Credential;
+import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
 import org.hyperledger.aries.api.jsonld.VerifiableCredential;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.config.GsonConfig;
 import org.hyperledger.bpa.api.CredentialType;
 import org.hyperledger.bpa.impl.aries.schema.SchemaService;
@@ -31,21 +34,25 @@ import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
 import org.hyperledger.bpa.persistence.model.BPASchema;
 import org.hyperledger.bpa.persistence.model.MyDocument;
+import org.hyperledger.bpa.persistence.repository.HolderCredExRepository;
+import org.hyperledger.bpa.persistence.repository.MyDocumentRepository;
 import org.hyperledger.bpa.persistence.repository.PartnerRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class VPManagerTest {
@@ -63,6 +70,15 @@ class VPManagerTest {
     @Mock
     private PartnerRepository partnerRepository;
 
+    @Mock
+    private MyDocumentRepository docRepo;
+
+    @Mock
+    private HolderCredExRepository holderCredExRepo;
+
+    @Mock
+    private SignVerifyLD crypto;
+
     @InjectMocks
     private final VPManager vpm = new VPManager();
 
@@ -161,11 +177,84 @@ class VPManagerTest {
         // System.out.println(GsonConfig.prettyPrinter().toJson(indyCred));
     }
 
+    @Test
+    void testRebuildOnlyConvertsChangedDocuments() throws Exception {
+        MyDocument unchanged = buildDefault().setType(CredentialType.INDY).setSchemaId("s1")
+                .setDocument(createMap("{\"iban\":\"1234\"}"));
+        MyDocument changed = buildDefault().setType(CredentialType.INDY).setSchemaId("s2")
+                .setDocument(createMap("{\"bic\":\"4321\"}"));
+        when(identity.getMyDid()).thenReturn("did:sov:xxyyyzzz");
+        when(docRepo.findByIsPublicTrue()).thenReturn(List.of(unchanged, changed));
+        when(holderCredExRepo.findByRoleAndIsPublicTrue(CredentialExchangeRole.HOLDER)).thenReturn(List.of());
+        when(schemaService.getSchemaFor(anyString())).thenReturn(Optional.empty());
+        when(crypto.sign(any())).thenReturn(Optional.empty());
+
+        vpm.rebuild();
+        changed.setUpdatedAt(changed.getUpdatedAt().plusSeconds(1));
+        vpm.rebuild();
+
+        List<List<VerifiableIndyCredential>> signed = captureSigned(2);
+        // the converted subject is only reused for the unchanged document
+        assertSame(signed.get(0).get(0).getCredentialSubject(), signed.get(1).get(0).getCredentialSubject());
+        assertNotSame(signed.get(0).get(1).getCredentialSubject(), signed.get(1).get(1).getCredentialSubject());
+        // documents are reissued with every rebuild, cached fragments are not touched
+        assertNotSame(signed.get(0).get(0), signed.get(1).get(0));
+    }
+
+    @Test
+    void testRebuildConvertsAgainWhenSchemaChanges() throws Exception {
+        MyDocument doc = buildDefault().setType(CredentialType.INDY).setSchemaId("s1")
+                .setDocument(createMap("{\"iban\":\"1234\"}"));
+        BPASchema schema = BPASchema.builder()
+                .schemaAttributeNames(new TreeSet<>(Set.of("iban")))
+                .schemaId("s1")
+                .build();
+        when(identity.getMyDid()).thenReturn("did:sov:xxyyyzzz");
+        when(identity.getDidPrefix()).thenReturn("did:iil:");
+        when(docRepo.findByIsPublicTrue()).thenReturn(List.of(doc));
+        when(holderCredExRepo.findByRoleAndIsPublicTrue(CredentialExchangeRole.HOLDER)).thenReturn(List.of());
+        when(schemaService.getSchemaFor("s1")).thenReturn(Optional.empty(), Optional.of(schema));
+        when(crypto.sign(any())).thenReturn(Optional.empty());
+
+        vpm.rebuild();
+        vpm.rebuild();
+
+        List<List<VerifiableIndyCredential>> signed = captureSigned(2);
+        assertEquals(CredentialType.INDY.getContext(), signed.get(0).get(0).getContext());
+        assertEquals(CredentialType.INDY.getContext().size() + 1, signed.get(1).get(0).getContext().size());
+        assertNotSame(signed.get(0).get(0).getCredentialSubject(), signed.get(1).get(0).getCredentialSubject());
+    }
+
+    @Test
+    void testBurstOfRebuildsIsSignedOnce() {
+        when(identity.getMyDid()).thenReturn("did:sov:xxyyyzzz");
+        when(docRepo.findByIsPublicTrue()).thenReturn(List.of());
+        when(holderCredExRepo.findByRoleAndIsPublicTrue(CredentialExchangeRole.HOLDER)).thenReturn(List.of());
+        when(crypto.sign(any())).thenReturn(Optional.empty());
+        vpm.setDebounce(Duration.ofMillis(100));
+
+        for (int i = 0; i < 10; i++) {
+            vpm.recreateVerifiablePresentation();
+        }
+
+        verify(crypto, timeout(2000)).sign(any());
+        verify(crypto, after(300).times(1)).sign(any());
+        vpm.shutdown();
+    }
+
     private Map<String, Object> createMap(String json) throws JsonProcessingException {
         final JsonNode node = m.readTree(json);
         return c.toMap(node);
     }
 
+    private List<List<VerifiableIndyCredential>> captureSigned(int times) {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<VerifiablePresentation<VerifiableIndyCredential>> captor = ArgumentCaptor
+                .forClass(VerifiablePresentation.class);
+        verify(crypto, times(times)).sign(captor.capture());
+        return captor.getAllValues().stream().map(VerifiablePresentation::getVerifiableCredential).toList();
+    }
+
     private static MyDocument buildDefault() {
         return new MyDocument()
                 .setCreatedAt(Instant.now())
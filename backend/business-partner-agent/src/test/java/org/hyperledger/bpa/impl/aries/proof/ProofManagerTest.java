@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.proof;
+
+import io.micronaut.context.event.ApplicationEventPublisher;
+import org.hyperledger.aries.AriesClient;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.hyperledger.aries.api.present_proof_v2.V20PresExRecord;
+import org.hyperledger.aries.api.present_proof_v2.V20PresSendRequestRequest;
+import org.hyperledger.aries.api.present_proof_v2.V2DIFProofRequest;
+import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.api.notification.PresentationRequestSentEvent;
+import org.hyperledger.bpa.impl.aries.prooftemplates.ProofTemplateCompiler;
+import org.hyperledger.bpa.persistence.model.BPAProofTemplate;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.hyperledger.bpa.persistence.repository.PartnerProofRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@ExtendWith(MockitoExtension.class)
+public class ProofManagerTest {
+
+    @Mock
+    private AriesClient ac;
+
+    @Mock
+    private ProofTemplateCompiler proofTemplateCompiler;
+
+    @Mock
+    private VerifierLDManager ldVerifier;
+
+    @Mock
+    private PartnerProofRepository pProofRepo;
+
+    @Mock
+    private ApplicationEventPublisher<Object> eventPublisher;
+
+    @InjectMocks
+    private ProofTemplateCompiler compiler = new ProofTemplateCompiler();
+
+    @InjectMocks
+    private ProofManager proofManager = new ProofManager();
+
+    @Test
+    void testPreparedJsonLDRequestIsRenderedPerPartner() throws Exception {
+        BPAProofTemplate template = BPAProofTemplate.builder()
+                .id(UUID.randomUUID())
+                .name("template")
+                .type(CredentialType.JSON_LD)
+                .build();
+        Mockito.when(ldVerifier.prepareInputDescriptors(template)).thenReturn(List.of(
+                V2DIFProofRequest.PresentationDefinition.InputDescriptors.builder().id("schema").build()));
+        Mockito.when(proofTemplateCompiler.getCompiled(template.getId(), template))
+                .thenAnswer(a -> compiler.compile(template));
+        Mockito.when(ac.presentProofV2SendRequest(Mockito.any(V20PresSendRequestRequest.class)))
+                .thenReturn(Optional.empty());
+
+        ProofManager.PreparedProofRequest prepared = proofManager.prepareProofRequest(template, null);
+        proofManager.sendPreparedProofRequest(partner("c1"), prepared);
+        proofManager.sendPreparedProofRequest(partner("c2"), prepared);
+
+        ArgumentCaptor<V20PresSendRequestRequest> sent = ArgumentCaptor.forClass(V20PresSendRequestRequest.class);
+        Mockito.verify(ac, Mockito.times(2)).presentProofV2SendRequest(sent.capture());
+        Mockito.verify(proofTemplateCompiler, Mockito.times(1)).getCompiled(template.getId(), template);
+        V2DIFProofRequest first = sent.getAllValues().get(0).getPresentationRequest().getDif();
+        V2DIFProofRequest second = sent.getAllValues().get(1).getPresentationRequest().getDif();
+        Assertions.assertEquals("c1", sent.getAllValues().get(0).getConnectionId());
+        Assertions.assertEquals("c2", sent.getAllValues().get(1).getConnectionId());
+        Assertions.assertNotEquals(first.getOptions().getChallenge(), second.getOptions().getChallenge());
+        Assertions.assertNotEquals(first.getOptions().getDomain(), second.getOptions().getDomain());
+        Assertions.assertNotEquals(first.getPresentationDefinition().getId(),
+                second.getPresentationDefinition().getId());
+    }
+
+    @Test
+    void testPreparedRequestIsPersistedWhenSent() throws Exception {
+        BPAProofTemplate template = BPAProofTemplate.builder()
+                .id(UUID.randomUUID())
+                .name("template")
+                .type(CredentialType.JSON_LD)
+                .build();
+        Mockito.when(proofTemplateCompiler.getCompiled(template.getId(), template))
+                .thenAnswer(a -> compiler.compile(template));
+        Mockito.when(ac.presentProofV2SendRequest(Mockito.any(V20PresSendRequestRequest.class)))
+                .thenReturn(Optional.of(V20PresExRecord.builder()
+                        .presentationExchangeId("pex-1")
+                        .state(PresentationExchangeState.REQUEST_SENT)
+                        .build()));
+        Mockito.when(pProofRepo.save(Mockito.any())).thenAnswer(a -> {
+            PartnerProof pp = a.getArgument(0);
+            pp.setId(UUID.randomUUID());
+            return pp;
+        });
+
+        Optional<PartnerProof> sent = proofManager.sendPreparedProofRequest(partner("c1"),
+                proofManager.prepareProofRequest(template, null));
+
+        // saved before the send returns, webhooks of the exchange will find it
+        Assertions.assertTrue(sent.isPresent());
+        Assertions.assertNotNull(sent.get().getId());
+        Assertions.assertEquals("pex-1", sent.get().getPresentationExchangeId());
+        Mockito.verify(pProofRepo).save(sent.get());
+        Mockito.verify(eventPublisher).publishEventAsync(Mockito.any(PresentationRequestSentEvent.class));
+    }
+
+    private static Partner partner(String connectionId) {
+        return Partner.builder().id(UUID.randomUUID()).connectionId(connectionId).build();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.prooftemplates;
+
+import org.hyperledger.acy_py.generated.model.IndyProofReqPredSpec;
+import org.hyperledger.aries.api.present_proof.PresentProofRequest;
+import org.hyperledger.aries.api.present_proof_v2.V2DIFProofRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledProofTemplateTest {
+
+    @Test
+    void testIndyOnlySetsTimestampWhereRequired() {
+        CompiledProofTemplate compiled = CompiledProofTemplate.indy(PresentProofRequest.ProofRequest.builder()
+                .name("template")
+                .requestedAttribute("revocable", PresentProofRequest.ProofRequest.ProofRequestedAttributes.builder()
+                        .names(List.of("name"))
+                        .nonRevoked(nonRevoked(1L))
+                        .build())
+                .requestedAttribute("plain", PresentProofRequest.ProofRequest.ProofRequestedAttributes.builder()
+                        .names(List.of("city"))
+                        .build())
+                .requestedPredicate("age", PresentProofRequest.ProofRequest.ProofRequestedPredicates.builder()
+                        .name("age")
+                        .pType(IndyProofReqPredSpec.PTypeEnum.GREATER_THAN_OR_EQUAL_TO)
+                        .pValue(18)
+                        .nonRevoked(nonRevoked(1L))
+                        .build())
+                .build());
+
+        PresentProofRequest.ProofRequest first = compiled.toIndy(100L);
+        PresentProofRequest.ProofRequest second = compiled.toIndy(200L);
+
+        assertEquals("template", first.getName());
+        assertNull(first.getNonce());
+        assertEquals(nonRevoked(100L), first.getRequestedAttributes().get("revocable").getNonRevoked());
+        assertNull(first.getRequestedAttributes().get("plain").getNonRevoked());
+        assertEquals(List.of("city"), first.getRequestedAttributes().get("plain").getNames());
+        assertEquals(nonRevoked(100L), first.getRequestedPredicates().get("age").getNonRevoked());
+        assertEquals(18, first.getRequestedPredicates().get("age").getPValue());
+
+        // every call returns a new request
+        assertEquals(nonRevoked(200L), second.getRequestedAttributes().get("revocable").getNonRevoked());
+        assertEquals(nonRevoked(100L), first.getRequestedAttributes().get("revocable").getNonRevoked());
+        assertThrows(IllegalStateException.class, compiled::toDif);
+    }
+
+    @Test
+    void testDifHasFreshChallenge() {
+        CompiledProofTemplate compiled = CompiledProofTemplate.jsonLD("template", List.of(
+                V2DIFProofRequest.PresentationDefinition.InputDescriptors.builder().id("schema").build()));
+
+        V2DIFProofRequest first = compiled.toDif();
+        V2DIFProofRequest second = compiled.toDif();
+
+        assertEquals("template", first.getPresentationDefinition().getName());
+        assertEquals(1, first.getPresentationDefinition().getInputDescriptors().size());
+        assertNotEquals(first.getOptions().getChallenge(), second.getOptions().getChallenge());
+        assertNotEquals(first.getPresentationDefinition().getId(), second.getPresentationDefinition().getId());
+        assertThrows(IllegalStateException.class, () -> compiled.toIndy(1L));
+    }
+
+    private static PresentProofRequest.ProofRequest.ProofNonRevoked nonRevoked(long ts) {
+        return PresentProofRequest.ProofRequest.ProofNonRevoked.builder().from(ts).to(ts).build();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.aries.prooftemplates;
+
+import org.hyperledger.aries.api.ExchangeVersion;
+import org.hyperledger.aries.api.present_proof.PresentProofRequest;
+import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.api.exception.NetworkException;
+import org.hyperledger.bpa.api.exception.WrongApiUsageException;
+import org.hyperledger.bpa.config.BPAMessageSource;
+import org.hyperledger.bpa.controller.api.prooftemplates.ProofRequestFanOutJob;
+import org.hyperledger.bpa.controller.api.prooftemplates.ProofRequestFanOutRequest;
+import org.hyperledger.bpa.impl.aries.proof.ProofManager;
+import org.hyperledger.bpa.persistence.model.BPAProofTemplate;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.hyperledger.bpa.persistence.repository.PartnerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProofRequestFanOutTest {
+
+    @Mock
+    ProofTemplateManager templateManager;
+
+    @Mock
+    ProofManager proofManager;
+
+    @Mock
+    PartnerRepository partnerRepo;
+
+    @Mock
+    BPAMessageSource.DefaultMessageSource ms;
+
+    private ProofRequestFanOut fanOut;
+
+    private final BPAProofTemplate template = BPAProofTemplate.builder().id(UUID.randomUUID()).build();
+
+    @BeforeEach
+    void setup() {
+        fanOut = new ProofRequestFanOut(2, 2);
+        fanOut.templateManager = templateManager;
+        fanOut.proofManager = proofManager;
+        fanOut.partnerRepo = partnerRepo;
+        fanOut.ms = ms;
+    }
+
+    @AfterEach
+    void tearDown() {
+        fanOut.shutdown();
+    }
+
+    @Test
+    void testWithoutPartnersIsRejected() {
+        UUID id = template.getId();
+        ProofRequestFanOutRequest req = ProofRequestFanOutRequest.builder().build();
+        assertThrows(WrongApiUsageException.class, () -> fanOut.submit(id, req));
+        verifyNoInteractions(proofManager);
+    }
+
+    @Test
+    void testTemplateIsCompiledOnceAndSentToEveryPartner() throws Exception {
+        List<Partner> partners = List.of(partner("c1"), partner("c2"), partner("c3"));
+        UUID unknown = UUID.randomUUID();
+        ProofManager.PreparedProofRequest prepared = new ProofManager.PreparedProofRequest(template,
+                CredentialType.INDY, ExchangeVersion.V1,
+                CompiledProofTemplate.indy(PresentProofRequest.ProofRequest.builder().name("template").build()));
+
+        when(templateManager.findProofTemplate(template.getId())).thenReturn(template);
+        when(proofManager.prepareProofRequest(template, null)).thenReturn(prepared);
+        when(partnerRepo.findByIdIn(anyCollection())).thenReturn(partners);
+        when(proofManager.sendPreparedProofRequest(any(), eq(prepared))).thenAnswer(a -> {
+            Partner p = a.getArgument(0);
+            if ("c2".equals(p.getConnectionId())) {
+                throw new NetworkException("down");
+            }
+            return Optional.of(PartnerProof.builder().id(UUID.randomUUID()).partner(p).build());
+        });
+
+        ProofRequestFanOutJob job = fanOut.submit(template.getId(), ProofRequestFanOutRequest.builder()
+                .partnerIds(List.of(partners.get(0).getId(), partners.get(1).getId(),
+                        partners.get(2).getId(), unknown))
+                .build());
+        assertEquals(4, job.getTotal());
+
+        ProofRequestFanOutJob done = awaitDone(job.getId());
+        assertEquals(2, done.getSent());
+        assertEquals(2, done.getFailed());
+        assertEquals(List.of(ProofRequestFanOutJob.State.SENT, ProofRequestFanOutJob.State.FAILED,
+                ProofRequestFanOutJob.State.SENT, ProofRequestFanOutJob.State.FAILED),
+                done.getPartners().stream().map(ProofRequestFanOutJob.PartnerStatus::getState).toList());
+        assertNotNull(done.getPartners().get(0).getProofId());
+        assertEquals("down", done.getPartners().get(1).getErrorMsg());
+
+        verify(proofManager, times(1)).prepareProofRequest(any(), any());
+        verify(proofManager, times(3)).sendPreparedProofRequest(any(), any());
+    }
+
+    private ProofRequestFanOutJob awaitDone(UUID id) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            ProofRequestFanOutJob job = fanOut.getJob(id);
+            if (Boolean.TRUE.equals(job.getDone())) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        return fail("fan-out did not finish");
+    }
+
+    private static Partner partner(String connectionId) {
+        return Partner.builder().id(UUID.randomUUID()).connectionId(connectionId).build();
+    }
+}
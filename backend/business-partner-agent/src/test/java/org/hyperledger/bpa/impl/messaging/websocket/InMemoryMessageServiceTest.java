@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.messaging.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micronaut.websocket.WebSocketBroadcaster;
+import org.hyperledger.bpa.controller.api.WebSocketMessageBody;
+import org.hyperledger.bpa.persistence.model.MessageQueue;
+import org.hyperledger.bpa.persistence.repository.MessageQueueRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryMessageServiceTest {
+
+    @Mock
+    WebSocketBroadcaster broadcaster;
+
+    @Mock
+    MessageQueueRepository queue;
+
+    private static final Instant NOW = Instant.parse("2022-06-15T12:00:00Z");
+
+    private final InMemoryMessageService service = new InMemoryMessageService();
+
+    @BeforeEach
+    void setup() {
+        service.broadcaster = broadcaster;
+        service.queue = queue;
+        service.mapper = new ObjectMapper();
+        service.clock = Clock.fixed(NOW, ZoneOffset.UTC);
+    }
+
+    @Test
+    void testStoreReplacesNotificationOfSameEntity() {
+        service.sendMessage(message("partner-1"));
+
+        verify(queue).upsert(any(UUID.class), eq(NOW), anyLong(),
+                eq("ON_PARTNER_ADDED:partner-1"), anyString());
+    }
+
+    @Test
+    void testTrimDropsExpiredMessages() {
+        service.offlineTtl = Duration.ofDays(7);
+        service.offlineMaxLength = 1000;
+
+        service.trimStoredMessages();
+
+        verify(queue).deleteByCreatedAtLessThan(Instant.parse("2022-06-08T12:00:00Z"));
+        verify(queue).trimTo(1000);
+    }
+
+    @Test
+    void testReplayInPagesDeletesOnlyDelivered() {
+        List<MessageQueue> first = IntStream.range(0, InMemoryMessageService.REPLAY_PAGE_SIZE)
+                .mapToObj(i -> queued(Instant.ofEpochSecond(i))).toList();
+        MessageQueue lastOfFirst = first.get(first.size() - 1);
+        List<MessageQueue> second = List.of(queued(Instant.ofEpochSecond(1000)));
+        when(queue.findPageAfter(Instant.EPOCH, new UUID(0, 0), InMemoryMessageService.REPLAY_PAGE_SIZE))
+                .thenReturn(first);
+        when(queue.findPageAfter(lastOfFirst.getCreatedAt(), lastOfFirst.getId(),
+                InMemoryMessageService.REPLAY_PAGE_SIZE)).thenReturn(second);
+
+        service.sendStored(null);
+
+        verify(broadcaster, times(InMemoryMessageService.REPLAY_PAGE_SIZE + 1)).broadcastSync(any());
+        verify(queue).deleteByIdIn(first.stream().map(MessageQueue::getId).toList());
+        verify(queue).deleteByIdIn(List.of(second.get(0).getId()));
+        verify(queue, never()).findAll();
+        verify(queue, never()).deleteAll();
+    }
+
+    @Test
+    void testReplayResumesAfterLastSeen() {
+        MessageQueue seen = queued(Instant.ofEpochSecond(10));
+        when(queue.findFirstByMessageId(42L)).thenReturn(Optional.of(seen));
+        when(queue.findPageAfter(seen.getCreatedAt(), seen.getId(), InMemoryMessageService.REPLAY_PAGE_SIZE))
+                .thenReturn(List.of());
+
+        service.sendStored(42L);
+
+        verify(queue).deleteUpTo(seen.getCreatedAt(), seen.getId());
+        verify(broadcaster, never()).broadcastSync(any());
+    }
+
+    private static MessageQueue queued(Instant createdAt) {
+        return MessageQueue.builder()
+                .id(UUID.randomUUID())
+                .createdAt(createdAt)
+                .message(message(UUID.randomUUID().toString()))
+                .build();
+    }
+
+    private static WebSocketMessageBody message(String partnerId) {
+        return WebSocketMessageBody.notificationEvent(
+                WebSocketMessageBody.WebSocketMessageType.ON_PARTNER_ADDED, partnerId, null, null);
+    }
+}
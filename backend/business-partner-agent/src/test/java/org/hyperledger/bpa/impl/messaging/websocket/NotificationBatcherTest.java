@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.messaging.websocket;
+
+import org.hyperledger.bpa.controller.api.WebSocketMessageBody;
+import org.hyperledger.bpa.controller.api.WebSocketMessageBody.WebSocketMessageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationBatcherTest {
+
+    @Mock
+    MessageService messageService;
+
+    @Test
+    void testZeroIntervalSendsRightAway() {
+        NotificationBatcher batcher = new NotificationBatcher(Duration.ZERO);
+        batcher.messageService = messageService;
+        WebSocketMessageBody message = message(WebSocketMessageType.TASK_ADDED, "1");
+
+        batcher.send(message);
+
+        verify(messageService).sendMessage(message);
+    }
+
+    @Test
+    void testBurstIsSentAsOneBatchWithLatestPerEntity() {
+        NotificationBatcher batcher = new NotificationBatcher(Duration.ofMillis(100));
+        batcher.messageService = messageService;
+        when(messageService.hasConnectedSessions()).thenReturn(true);
+        for (int i = 0; i < 1000; i++) {
+            batcher.send(message(WebSocketMessageType.ON_BULK_ISSUANCE_PROGRESS, "job-1"));
+        }
+        WebSocketMessageBody task = message(WebSocketMessageType.TASK_ADDED, "1");
+        batcher.send(task);
+        WebSocketMessageBody last = message(WebSocketMessageType.ON_BULK_ISSUANCE_PROGRESS, "job-1");
+        batcher.send(last);
+
+        ArgumentCaptor<WebSocketMessageBody> sent = ArgumentCaptor.forClass(WebSocketMessageBody.class);
+        verify(messageService, timeout(2000)).sendMessage(sent.capture());
+        verify(messageService, after(300).times(1)).sendMessage(any());
+        assertEquals(WebSocketMessageType.BATCH, sent.getValue().getMessage().getType());
+        assertEquals(List.of(task, last), sent.getValue().getMessage().getInfo());
+        batcher.shutdown();
+    }
+
+    @Test
+    void testOfflineRecipientGetsEveryNotificationStoredOnItsOwn() {
+        NotificationBatcher batcher = new NotificationBatcher(Duration.ofMinutes(1));
+        batcher.messageService = messageService;
+        when(messageService.hasConnectedSessions()).thenReturn(false);
+        batcher.send(message(WebSocketMessageType.ON_BULK_ISSUANCE_PROGRESS, "job-1"));
+        WebSocketMessageBody task = message(WebSocketMessageType.TASK_ADDED, "1");
+        batcher.send(task);
+        WebSocketMessageBody last = message(WebSocketMessageType.ON_BULK_ISSUANCE_PROGRESS, "job-1");
+        batcher.send(last);
+
+        batcher.flush();
+
+        InOrder order = inOrder(messageService);
+        order.verify(messageService).store(task);
+        order.verify(messageService).store(last);
+        verify(messageService, times(2)).store(any());
+        verify(messageService, never()).sendMessage(any());
+        batcher.shutdown();
+    }
+
+    private static WebSocketMessageBody message(WebSocketMessageType type, String linkId) {
+        return WebSocketMessageBody.notificationEvent(type, linkId, null, null);
+    }
+}
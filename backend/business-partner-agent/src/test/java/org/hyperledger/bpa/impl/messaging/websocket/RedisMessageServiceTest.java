@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.messaging.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.StreamMessage;
+import io.lettuce.core.XAddArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import io.lettuce.core.pubsub.api.sync.RedisPubSubCommands;
+import io.micronaut.websocket.WebSocketSession;
+import org.hyperledger.bpa.controller.api.WebSocketMessageBody;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedisMessageServiceTest {
+
+    @Mock
+    StatefulRedisConnection<String, String> redis;
+
+    @Mock
+    RedisAsyncCommands<String, String> async;
+
+    @Mock
+    StatefulRedisPubSubConnection<String, String> pubSub;
+
+    @Mock
+    RedisPubSubCommands<String, String> pubSubSync;
+
+    @Mock
+    RedisFuture<Long> future;
+
+    @Mock
+    RedisFuture<String> stringFuture;
+
+    @Mock
+    RedisFuture<Long> delivered;
+
+    @Mock
+    RedisFuture<Long> undelivered;
+
+    @Mock
+    RedisCommands<String, String> sync;
+
+    @Mock
+    WebSocketSession session;
+
+    private final RedisMessageService service = new RedisMessageService();
+
+    @BeforeEach
+    void setup() {
+        service.redis = redis;
+        service.pubSub = pubSub;
+        service.mapper = new ObjectMapper();
+        service.heartbeat = Duration.ofSeconds(10);
+        service.offlineMaxLength = 10;
+        service.offlineTtl = Duration.ofDays(1);
+        when(redis.async()).thenReturn(async);
+    }
+
+    @Test
+    void testMessageForConnectedSessionIsPublishedWithoutBlocking() {
+        when(pubSub.sync()).thenReturn(pubSubSync);
+        when(async.set(anyString(), anyString(), any())).thenReturn(stringFuture);
+        when(async.publish(eq("bpa-messages"), anyString())).thenReturn(future);
+
+        service.subscribe(session);
+        assertTrue(service.hasConnectedSessions());
+        service.sendMessage(message());
+
+        verify(pubSubSync).subscribe("bpa-messages");
+        verify(async).publish(eq("bpa-messages"), anyString());
+        verify(async, never()).xadd(anyString(), any(XAddArgs.class), anyMap());
+        verify(redis, never()).sync();
+    }
+
+    @Test
+    void testMessageThatReachesNoSessionIsStored() {
+        when(pubSub.sync()).thenReturn(pubSubSync);
+        when(async.set(anyString(), anyString(), any())).thenReturn(stringFuture);
+        when(async.publish(eq("bpa-messages"), anyString())).thenReturn(future);
+        // the frontend is gone, but the session count is not updated yet
+        completeWith(0L, null);
+        when(async.xadd(eq("bpa-messages:offline"), any(XAddArgs.class), anyMap())).thenReturn(stringFuture);
+
+        service.subscribe(session);
+        service.sendMessage(message());
+
+        verify(async).xadd(eq("bpa-messages:offline"), any(XAddArgs.class), anyMap());
+        verify(async).pexpire("bpa-messages:offline", Duration.ofDays(1));
+    }
+
+    @Test
+    void testMessageIsStoredWhenPublishFails() {
+        when(pubSub.sync()).thenReturn(pubSubSync);
+        when(async.set(anyString(), anyString(), any())).thenReturn(stringFuture);
+        when(async.publish(eq("bpa-messages"), anyString())).thenReturn(future);
+        completeWith(null, new IllegalStateException("connection reset"));
+        when(async.xadd(eq("bpa-messages:offline"), any(XAddArgs.class), anyMap())).thenReturn(stringFuture);
+
+        service.subscribe(session);
+        service.sendMessage(message());
+
+        verify(async).xadd(eq("bpa-messages:offline"), any(XAddArgs.class), anyMap());
+    }
+
+    @Test
+    void testMessageWithoutSessionsIsStoredInCappedStream() {
+        when(async.xadd(eq("bpa-messages:offline"), any(XAddArgs.class), anyMap())).thenReturn(stringFuture);
+
+        assertFalse(service.hasConnectedSessions());
+        service.sendMessage(message());
+
+        verify(async).xadd(eq("bpa-messages:offline"), any(XAddArgs.class), anyMap());
+        verify(async).pexpire("bpa-messages:offline", Duration.ofDays(1));
+        verify(async, never()).publish(anyString(), anyString());
+        verify(redis, never()).sync();
+    }
+
+    @Test
+    void testReplayOnlyRemovesDeliveredMessages() throws Exception {
+        when(redis.sync()).thenReturn(sync);
+        when(sync.xrange(eq("bpa-messages:offline"), any(), any())).thenReturn(List.of(
+                new StreamMessage<>("bpa-messages:offline", "1-0", Map.of("id", "1", "message", "m1")),
+                new StreamMessage<>("bpa-messages:offline", "2-0", Map.of("id", "2", "message", "m2"))));
+        when(async.publish("bpa-messages", "m1")).thenReturn(delivered);
+        when(async.publish("bpa-messages", "m2")).thenReturn(undelivered);
+        when(delivered.get(anyLong(), any(TimeUnit.class))).thenReturn(1L);
+        when(undelivered.get(anyLong(), any(TimeUnit.class))).thenReturn(0L);
+
+        service.sendStored(null);
+
+        verify(sync).xdel("bpa-messages:offline", "1-0");
+        verify(sync, times(1)).xrange(eq("bpa-messages:offline"), any(), any());
+    }
+
+    private void completeWith(Long receivers, Throwable error) {
+        when(future.whenComplete(any())).thenAnswer(a -> {
+            a.<BiConsumer<Long, Throwable>>getArgument(0).accept(receivers, error);
+            return future;
+        });
+    }
+
+    private static WebSocketMessageBody message() {
+        return WebSocketMessageBody.notificationEvent(
+                WebSocketMessageBody.WebSocketMessageType.TASK_ADDED, "1", null, null);
+    }
+}
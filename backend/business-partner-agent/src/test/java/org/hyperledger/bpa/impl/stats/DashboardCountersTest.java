@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.stats;
+
+import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeRole;
+import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
+import org.hyperledger.bpa.api.notification.*;
+import org.hyperledger.bpa.controller.api.stats.DashboardCounts;
+import org.hyperledger.bpa.persistence.model.Activity;
+import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
+import org.hyperledger.bpa.persistence.model.Partner;
+import org.hyperledger.bpa.persistence.model.PartnerProof;
+import org.hyperledger.bpa.persistence.model.StatsCounter;
+import org.hyperledger.bpa.persistence.repository.StatsCounterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardCountersTest {
+
+    private static final Instant NOW = Instant.parse("2022-06-15T12:34:56Z");
+
+    @Mock
+    StatsCounterRepository repo;
+
+    private DashboardCounters counters;
+
+    @BeforeEach
+    void setup() {
+        counters = new DashboardCounters();
+        counters.repo = repo;
+        counters.clock = Clock.fixed(NOW, ZoneOffset.UTC);
+    }
+
+    @Test
+    void testEnterUpdatesBucketAndTotal() {
+        UUID id = UUID.randomUUID();
+        counters.enter(DashboardCounter.TASKS, id, Instant.parse("2022-06-15T10:59:59Z"));
+        verify(repo).enter("TASKS", id, Instant.parse("2022-06-15T10:00:00Z"), null, DashboardCounters.TOTAL);
+    }
+
+    @Test
+    void testEnterWithoutCreationDate() {
+        UUID id = UUID.randomUUID();
+        counters.enter(DashboardCounter.PARTNERS, id, null);
+        verify(repo).enter("PARTNERS", id, DashboardCounters.UNDATED, null, DashboardCounters.TOTAL);
+    }
+
+    @Test
+    void testEnterAndLeaveWithoutIdAreIgnored() {
+        counters.enter(DashboardCounter.PARTNERS, null, NOW);
+        counters.leave(DashboardCounter.PARTNERS, null);
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void testReadSumsBucketsOfPeriod() {
+        when(repo.findTotalsAndBucketsFrom(DashboardCounters.TOTAL, Instant.parse("2022-06-08T12:00:00Z")))
+                .thenReturn(List.of(
+                        row("CREDENTIALS_SENT", DashboardCounters.TOTAL, 0),
+                        row("CREDENTIALS_RECEIVED", DashboardCounters.TOTAL, 0),
+                        row("PRESENTATION_REQUESTS_SENT", DashboardCounters.TOTAL, 0),
+                        row("PRESENTATION_REQUESTS_RECEIVED", DashboardCounters.TOTAL, 0),
+                        row("PARTNERS", DashboardCounters.TOTAL, 100),
+                        row("PARTNERS", Instant.parse("2022-06-10T08:00:00Z"), 3),
+                        row("PARTNERS", Instant.parse("2022-06-15T12:00:00Z"), 2),
+                        row("TASKS", DashboardCounters.TOTAL, 7),
+                        row("UNKNOWN", DashboardCounters.TOTAL, 1)));
+
+        DashboardCounters.Counts counts = counters.read(Duration.ofDays(7));
+
+        assertEquals(100, counts.totals().getPartners());
+        assertEquals(7, counts.totals().getTasks());
+        assertEquals(0, counts.totals().getCredentialsSent());
+        assertEquals(5, counts.periodTotals().getPartners());
+        assertEquals(0, counts.periodTotals().getTasks());
+    }
+
+    @Test
+    void testReadWithMissingTotals() {
+        when(repo.findTotalsAndBucketsFrom(any(), any())).thenReturn(List.of(
+                row("PARTNERS", DashboardCounters.TOTAL, 100),
+                row("TASKS", DashboardCounters.TOTAL, 7)));
+        DashboardCounters.Counts counts = counters.read(Duration.ofDays(1));
+        assertEquals(0, counts.totals().getCredentialsSent());
+        assertEquals(100, counts.totals().getPartners());
+    }
+
+    @Test
+    void testReadEmpty() {
+        when(repo.findTotalsAndBucketsFrom(any(), any())).thenReturn(List.of());
+        DashboardCounters.Counts counts = counters.read(Duration.ofDays(1));
+        assertEquals(DashboardCounts.builder().credentialsSent(0L).credentialsReceived(0L)
+                .presentationRequestsSent(0L).presentationRequestsReceived(0L).partners(0L).tasks(0L).build(),
+                counts.totals());
+    }
+
+    @Test
+    void testRebuildLocksMembersBeforeCounting() {
+        counters.rebuild();
+        InOrder order = inOrder(repo);
+        order.verify(repo).lockMembers();
+        order.verify(repo).deleteMembers();
+        order.verify(repo).rebuildMembers(DashboardCounters.UNDATED);
+        order.verify(repo).rebuildCounters(DashboardCounters.TOTAL);
+    }
+
+    @Test
+    void testInitialiseBuildsMissingCounters() {
+        when(repo.countByBucket(DashboardCounters.TOTAL)).thenReturn(0L);
+        assertFalse(counters.isReady());
+
+        counters.initialise();
+
+        verify(repo).rebuildCounters(DashboardCounters.TOTAL);
+        assertTrue(counters.isReady());
+    }
+
+    @Test
+    void testInitialiseKeepsBuiltCounters() {
+        when(repo.countByBucket(DashboardCounters.TOTAL)).thenReturn((long) DashboardCounter.values().length);
+
+        counters.initialise();
+
+        verify(repo, never()).lockMembers();
+        assertTrue(counters.isReady());
+    }
+
+    @Test
+    void testListenerMovesVerifierRequestFromSentToReceived() {
+        DashboardCounterListener listener = new DashboardCounterListener();
+        listener.counters = counters;
+        UUID id = UUID.randomUUID();
+        Partner partner = Partner.builder().id(UUID.randomUUID()).build();
+        PartnerProof pp = PartnerProof.builder()
+                .id(id)
+                .partner(partner)
+                .role(PresentationExchangeRole.VERIFIER)
+                .state(PresentationExchangeState.REQUEST_SENT)
+                .createdAt(Instant.parse("2022-06-15T09:10:00Z"))
+                .build();
+
+        listener.onPresentationRequestSentEvent(PresentationRequestSentEvent.builder().partnerProof(pp).build());
+        pp.setState(PresentationExchangeState.PRESENTATION_RECEIVED);
+        listener.onPresentationReceivedEvent(PresentationReceivedEvent.builder().partnerProof(pp).build());
+        pp.setState(PresentationExchangeState.VERIFIED);
+        listener.onPresentationRequestCompletedEvent(
+                PresentationRequestCompletedEvent.builder().partnerProof(pp).build());
+
+        Instant bucket = Instant.parse("2022-06-15T09:00:00Z");
+        InOrder order = inOrder(repo);
+        order.verify(repo).enter("PRESENTATION_REQUESTS_SENT", id, bucket, partner.getId(), DashboardCounters.TOTAL);
+        order.verify(repo).leave("PRESENTATION_REQUESTS_SENT", id, DashboardCounters.TOTAL);
+        order.verify(repo).enter("PRESENTATION_REQUESTS_RECEIVED", id, bucket, partner.getId(),
+                DashboardCounters.TOTAL);
+        order.verify(repo).leave("PRESENTATION_REQUESTS_RECEIVED", id, DashboardCounters.TOTAL);
+    }
+
+    @Test
+    void testListenerRemovesEverythingOfARemovedPartner() {
+        DashboardCounterListener listener = new DashboardCounterListener();
+        listener.counters = counters;
+        Partner partner = Partner.builder()
+                .id(UUID.randomUUID())
+                .state(ConnectionState.ACTIVE)
+                .createdAt(Instant.parse("2022-06-15T09:10:00Z"))
+                .build();
+        Activity task = Activity.builder()
+                .id(UUID.randomUUID())
+                .partner(partner)
+                .createdAt(Instant.parse("2022-06-15T10:10:00Z"))
+                .build();
+
+        listener.onPartnerRequestCompletedEvent(PartnerRequestCompletedEvent.builder().partner(partner).build());
+        listener.onTaskAddedEvent(TaskAddedEvent.builder().activity(task).build());
+        listener.onPartnerRemovedEvent(PartnerRemovedEvent.builder().partner(partner).build());
+
+        InOrder order = inOrder(repo);
+        order.verify(repo).enter("PARTNERS", partner.getId(), Instant.parse("2022-06-15T09:00:00Z"),
+                partner.getId(), DashboardCounters.TOTAL);
+        order.verify(repo).enter("TASKS", task.getId(), Instant.parse("2022-06-15T10:00:00Z"),
+                partner.getId(), DashboardCounters.TOTAL);
+        order.verify(repo).leavePartner(partner.getId(), DashboardCounters.TOTAL);
+    }
+
+    @Test
+    void testListenerRemovesRevokedAndDeletedCredentials() {
+        DashboardCounterListener listener = new DashboardCounterListener();
+        listener.counters = counters;
+        BPACredentialExchange revoked = BPACredentialExchange.builder().id(UUID.randomUUID()).build();
+        BPACredentialExchange deleted = BPACredentialExchange.builder().id(UUID.randomUUID()).build();
+
+        listener.onCredentialRevokedEvent(CredentialRevokedEvent.builder().credentialExchange(revoked).build());
+        listener.onCredentialDeletedEvent(CredentialDeletedEvent.builder().credentialExchange(deleted).build());
+
+        verify(repo).leave("CREDENTIALS_SENT", revoked.getId(), DashboardCounters.TOTAL);
+        verify(repo).leave("CREDENTIALS_RECEIVED", revoked.getId(), DashboardCounters.TOTAL);
+        verify(repo).leave("CREDENTIALS_SENT", deleted.getId(), DashboardCounters.TOTAL);
+        verify(repo).leave("CREDENTIALS_RECEIVED", deleted.getId(), DashboardCounters.TOTAL);
+    }
+
+    private static StatsCounter row(String name, Instant bucket, long value) {
+        return StatsCounter.builder().id(UUID.randomUUID()).name(name).bucket(bucket).value(value).build();
+    }
+}
@@ -17,8 +17,10 @@
  */
 package org.hyperledger.bpa.impl.util;
 
+import com.google.gson.Gson;
 import org.hyperledger.aries.api.credentials.CredentialAttributes;
 import org.hyperledger.aries.api.issue_credential_v1.V1CredentialExchange;
+import org.hyperledger.aries.config.GsonConfig;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -40,6 +42,13 @@ public class CryptoUtilTest {
         Assertions.assertFalse(CryptoUtil.hashCompare(p1, p2));
     }
 
+    @Test
+    void testStreamedHashMatchesStringHash() {
+        V1CredentialExchange.CredentialProposalDict.CredentialProposal p = create("test");
+        Gson gson = GsonConfig.defaultConfig();
+        Assertions.assertEquals(CryptoUtil.toSHA256Hex(gson.toJson(p)), CryptoUtil.toSHA256Hex(gson, p));
+    }
+
     private V1CredentialExchange.CredentialProposalDict.CredentialProposal create(String value) {
         return V1CredentialExchange.CredentialProposalDict.CredentialProposal
                 .builder()
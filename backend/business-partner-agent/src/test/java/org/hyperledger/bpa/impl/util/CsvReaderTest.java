@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void testSimple() {
+        List<List<String>> rows = CsvReader.read("a,b,c\r\n1, 2 ,3\n\n");
+        assertEquals(List.of(List.of("a", "b", "c"), List.of("1", "2", "3")), rows);
+    }
+
+    @Test
+    void testQuoted() {
+        List<List<String>> rows = CsvReader.read("name,note\n\"Doe, Jane\",\"said \"\"hi\"\"\nbye\"");
+        assertEquals(List.of("Doe, Jane", "said \"hi\"\nbye"), rows.get(1));
+    }
+
+    @Test
+    void testEmptyFields() {
+        assertEquals(List.of(List.of("", "", "")), CsvReader.read(",,"));
+    }
+
+    @Test
+    void testUnterminatedQuote() {
+        assertThrows(IllegalArgumentException.class, () -> CsvReader.read("a,\"b"));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonTreeBridgeTest {
+
+    private static final String JSON = "{\"name\":\"Bob\",\"age\":42,\"balance\":12345678901,"
+            + "\"huge\":123456789012345678901234567890,\"ratio\":1.5,\"exp\":1e3,\"active\":true,\"none\":null,"
+            + "\"tags\":[\"a\",1,{\"nested\":[false]}],\"address\":{\"city\":\"Berlin\",\"zip\":\"10115\"}}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testGsonToJacksonMatchesParsing() throws Exception {
+        JsonElement gson = JsonParser.parseString(JSON);
+
+        JsonNode converted = JsonTreeBridge.toJackson(gson);
+
+        assertEquals(mapper.readTree(JSON), converted);
+    }
+
+    @Test
+    void testJacksonToGsonMatchesParsing() throws Exception {
+        ObjectNode jackson = (ObjectNode) mapper.readTree(JSON);
+
+        JsonObject converted = JsonTreeBridge.toGsonObject(jackson);
+
+        assertEquals(JsonParser.parseString(jackson.toString()).toString(), converted.toString());
+    }
+
+    @Test
+    void testRoundTrip() throws Exception {
+        JsonNode jackson = mapper.readTree(JSON);
+        assertEquals(jackson, JsonTreeBridge.toJackson(JsonTreeBridge.toGson(jackson)));
+    }
+}
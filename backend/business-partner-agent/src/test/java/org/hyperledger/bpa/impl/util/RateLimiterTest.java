@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimiterTest {
+
+    /** time only moves while the limiter sleeps */
+    private long now = 1_000;
+
+    private final List<Long> waits = new ArrayList<>();
+
+    private final RateLimiter.Sleeper sleeper = nanos -> {
+        waits.add(nanos);
+        now += nanos;
+    };
+
+    @Test
+    void testPermitsAreSpacedOut() throws Exception {
+        RateLimiter limiter = new RateLimiter(50, () -> now, sleeper);
+        for (int i = 0; i < 11; i++) {
+            limiter.acquire();
+        }
+        // the first permit is immediate, the other ten are 20ms apart
+        assertEquals(10, waits.size());
+        waits.forEach(w -> assertEquals(TimeUnit.MILLISECONDS.toNanos(20), w));
+        assertEquals(1_000 + TimeUnit.MILLISECONDS.toNanos(200), now);
+    }
+
+    @Test
+    void testIdleTimeIsNotSavedUp() throws Exception {
+        RateLimiter limiter = new RateLimiter(50, () -> now, sleeper);
+        limiter.acquire();
+        now += TimeUnit.SECONDS.toNanos(1);
+        limiter.acquire();
+        limiter.acquire();
+        assertEquals(List.of(TimeUnit.MILLISECONDS.toNanos(20)), waits);
+    }
+
+    @Test
+    void testNoLimit() throws Exception {
+        RateLimiter limiter = new RateLimiter(0, () -> now, sleeper);
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire();
+        }
+        assertEquals(List.of(), waits);
+    }
+}
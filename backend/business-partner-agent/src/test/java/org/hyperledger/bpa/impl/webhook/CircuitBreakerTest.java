@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.webhook;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void testOpensAfterThreshold() {
+        CircuitBreaker cb = new CircuitBreaker(2, Duration.ofMinutes(1), clock);
+        cb.onFailure();
+        assertTrue(cb.allowRequest());
+        cb.onFailure();
+        assertTrue(cb.isOpen());
+        assertFalse(cb.allowRequest());
+    }
+
+    @Test
+    void testSingleProbeAfterOpenDuration() {
+        CircuitBreaker cb = new CircuitBreaker(1, Duration.ofMinutes(1), clock);
+        cb.onFailure();
+        assertFalse(cb.allowRequest());
+        clock.now = clock.now.plusSeconds(61);
+        assertTrue(cb.allowRequest());
+        assertFalse(cb.allowRequest());
+        cb.onSuccess();
+        assertFalse(cb.isOpen());
+        assertTrue(cb.allowRequest());
+    }
+
+    @Test
+    void testFailedProbeReopens() {
+        CircuitBreaker cb = new CircuitBreaker(3, Duration.ofMinutes(1), clock);
+        cb.onFailure();
+        cb.onFailure();
+        cb.onFailure();
+        clock.now = clock.now.plusSeconds(61);
+        assertTrue(cb.allowRequest());
+        cb.onFailure();
+        assertTrue(cb.isOpen());
+        assertFalse(cb.allowRequest());
+    }
+
+    static class MutableClock extends Clock {
+        Instant now = Instant.parse("2022-01-01T00:00:00Z");
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hyperledger.bpa.core.RegisteredWebhook;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookBatching;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookEventType;
+import org.hyperledger.bpa.core.WebhookEvent;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.impl.webhook.WebhookRegistry.ActiveWebhook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookBatcherTest {
+
+    @Mock
+    WebhookSender sender;
+
+    private WebhookBatcher batcher;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    void setup() {
+        Converter conv = new Converter();
+        conv.setMapper(mapper);
+        batcher = new WebhookBatcher();
+        batcher.sender = sender;
+        batcher.conv = conv;
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void testFlushOnMaxBatchSize() throws Exception {
+        when(sender.sendInOrder(any(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        ActiveWebhook hook = hook(3, 60_000);
+        for (long i = 0; i < 7; i++) {
+            batcher.add(hook, event(i));
+        }
+        ArgumentCaptor<String> payloads = ArgumentCaptor.forClass(String.class);
+        verify(sender, times(2)).sendInOrder(eq(hook), payloads.capture());
+        assertEquals(List.of(0L, 1L, 2L), sentValues(payloads.getAllValues().get(0)));
+        assertEquals(List.of(3L, 4L, 5L), sentValues(payloads.getAllValues().get(1)));
+
+        batcher.flush(hook.id());
+        verify(sender, times(3)).sendInOrder(eq(hook), payloads.capture());
+        assertEquals(List.of(6L), sentValues(payloads.getValue()));
+    }
+
+    @Test
+    void testFlushAfterLinger() {
+        when(sender.sendInOrder(any(), anyString())).thenReturn(CompletableFuture.completedFuture(null));
+        ActiveWebhook hook = hook(100, 50);
+        batcher.add(hook, event(1));
+        batcher.add(hook, event(2));
+        verify(sender, timeout(2000)).sendInOrder(eq(hook), anyString());
+    }
+
+    @Test
+    void testNextBatchWaitsForPrevious() {
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        when(sender.sendInOrder(any(), anyString()))
+                .thenReturn(first)
+                .thenReturn(CompletableFuture.completedFuture(null));
+        ActiveWebhook hook = hook(1, 60_000);
+        batcher.add(hook, event(1));
+        batcher.add(hook, event(2));
+        verify(sender, times(1)).sendInOrder(eq(hook), anyString());
+        first.complete(null);
+        verify(sender, times(2)).sendInOrder(eq(hook), anyString());
+    }
+
+    @Test
+    void testDiscardDropsPendingEvents() {
+        ActiveWebhook hook = hook(10, 60_000);
+        batcher.add(hook, event(1));
+        batcher.discard(hook.id());
+        batcher.flush(hook.id());
+        verifyNoInteractions(sender);
+    }
+
+    private List<Long> sentValues(String payload) throws Exception {
+        List<WebhookEvent<?>> events = List.of(mapper.readValue(payload, WebhookEvent[].class));
+        return events.stream().map(WebhookEvent::getSent).toList();
+    }
+
+    private static ActiveWebhook hook(int maxBatchSize, int lingerMillis) {
+        return new ActiveWebhook(UUID.randomUUID(), RegisteredWebhook.builder()
+                .url("http://localhost/hook")
+                .batching(new WebhookBatching(maxBatchSize, lingerMillis, Boolean.FALSE))
+                .build(), null);
+    }
+
+    private static WebhookEvent<?> event(long i) {
+        return WebhookEvent.builder().type(WebhookEventType.PARTNER_ADD).sent(i).payload("p" + i).build();
+    }
+}
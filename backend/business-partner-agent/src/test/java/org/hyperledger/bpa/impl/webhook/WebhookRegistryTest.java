@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.webhook;
+
+import org.hyperledger.bpa.config.WebhookConfig;
+import org.hyperledger.bpa.core.RegisteredWebhook;
+import org.hyperledger.bpa.impl.util.Converter;
+import org.hyperledger.bpa.persistence.model.BPAWebhook;
+import org.hyperledger.bpa.persistence.repository.BPAWebhookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookRegistryTest {
+
+    @Mock
+    BPAWebhookRepository repo;
+
+    @Mock
+    Converter conv;
+
+    private final WebhookRegistry registry = new WebhookRegistry();
+
+    private final BPAWebhook hook = BPAWebhook.builder().id(UUID.randomUUID()).webhook(Map.of()).build();
+
+    @BeforeEach
+    void setup() {
+        registry.repo = repo;
+        registry.conv = conv;
+        registry.config = new WebhookConfig();
+    }
+
+    @Test
+    void testViewIsCachedUntilInvalidated() {
+        when(conv.fromMap(any(), eq(RegisteredWebhook.class))).thenReturn(RegisteredWebhook.builder().build());
+        when(repo.findAll()).thenReturn(List.of(hook), List.of());
+
+        assertTrue(registry.findById(hook.getId()).isPresent());
+        assertTrue(registry.findById(hook.getId()).isPresent());
+        registry.invalidate();
+        assertFalse(registry.findById(hook.getId()).isPresent());
+
+        verify(repo, times(2)).findAll();
+    }
+
+    @Test
+    void testLoadThatOverlapsAnInvalidationIsNotKept() {
+        when(conv.fromMap(any(), eq(RegisteredWebhook.class))).thenReturn(RegisteredWebhook.builder().build());
+        when(repo.findAll()).thenAnswer(a -> {
+            // the webhook is deleted while the first load is running
+            registry.invalidate();
+            return List.of(hook);
+        }).thenReturn(List.of());
+
+        registry.findById(hook.getId());
+
+        assertFalse(registry.findById(hook.getId()).isPresent());
+    }
+}
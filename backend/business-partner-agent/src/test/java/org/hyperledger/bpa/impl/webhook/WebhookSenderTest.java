@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.impl.webhook;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.hyperledger.bpa.config.WebhookConfig;
+import org.hyperledger.bpa.core.RegisteredWebhook;
+import org.hyperledger.bpa.core.RegisteredWebhook.WebhookBatching;
+import org.hyperledger.bpa.impl.webhook.WebhookRegistry.ActiveWebhook;
+import org.hyperledger.bpa.persistence.model.WebhookDelivery;
+import org.hyperledger.bpa.persistence.repository.WebhookDeliveryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebhookSenderTest {
+
+    @Mock
+    WebhookDeliveryRepository deliveryRepo;
+
+    @Mock
+    WebhookRegistry registry;
+
+    private MockWebServer server;
+    private WebhookSender sender;
+    private ActiveWebhook hook;
+
+    @BeforeEach
+    void setup() throws Exception {
+        server = new MockWebServer();
+        server.start();
+
+        sender = new WebhookSender();
+        sender.config = new WebhookConfig();
+        sender.config.setMaxAttempts(3);
+        sender.registry = registry;
+        sender.deliveryRepo = deliveryRepo;
+        sender.meters = new SimpleMeterRegistry();
+        sender.clock = Clock.systemUTC();
+
+        hook = new ActiveWebhook(UUID.randomUUID(), RegisteredWebhook.builder()
+                .url(server.url("/hook").toString())
+                .build(), "Basic dGVzdDp0ZXN0");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        sender.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    void testSuccessfulDeliveryIsNotPersisted() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200));
+        sender.send(hook, "{}");
+
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals("Basic dGVzdDp0ZXN0", request.getHeader("Authorization"));
+        assertEquals("{}", request.getBody().readUtf8());
+        verify(deliveryRepo, after(200).never()).save(any());
+    }
+
+    @Test
+    void testFailedDeliveryIsPersisted() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        sender.send(hook, "{}");
+
+        ArgumentCaptor<WebhookDelivery> captor = ArgumentCaptor.forClass(WebhookDelivery.class);
+        verify(deliveryRepo, timeout(5000)).save(captor.capture());
+        assertEquals(1, captor.getValue().getAttempts());
+        assertEquals(hook.id(), captor.getValue().getWebhookId());
+        assertFalse(captor.getValue().getDeadLetter());
+    }
+
+    @Test
+    void testSuccessfulRetryIsDeleted() {
+        WebhookDelivery delivery = delivery(1);
+        when(deliveryRepo.findDue(any(), anyInt())).thenReturn(List.of(delivery));
+        when(registry.findById(hook.id())).thenReturn(Optional.of(hook));
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        sender.retryDue();
+
+        verify(deliveryRepo).updateAttempt(eq(delivery.getId()), eq(2), any(), any(), eq(Boolean.FALSE));
+        verify(deliveryRepo, timeout(5000)).deleteById(delivery.getId());
+    }
+
+    @Test
+    void testLastAttemptBecomesDeadLetter() {
+        WebhookDelivery delivery = delivery(2);
+        when(deliveryRepo.findDue(any(), anyInt())).thenReturn(List.of(delivery));
+        when(registry.findById(hook.id())).thenReturn(Optional.of(hook));
+        server.enqueue(new MockResponse().setResponseCode(503));
+
+        sender.retryDue();
+
+        verify(deliveryRepo, timeout(5000)).updateAttempt(eq(delivery.getId()), eq(3), any(), any(), eq(Boolean.TRUE));
+        assertEquals(1, sender.meters.counter(WebhookSender.METRIC_DEAD_LETTER, "hook", hook.id().toString())
+                .count());
+    }
+
+    @Test
+    void testRetryOfRemovedWebhookIsDropped() {
+        WebhookDelivery delivery = delivery(1);
+        when(deliveryRepo.findDue(any(), anyInt())).thenReturn(List.of(delivery));
+        when(registry.findById(hook.id())).thenReturn(Optional.empty());
+
+        sender.retryDue();
+
+        verify(deliveryRepo).deleteById(delivery.getId());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    void testBatchIsQueuedBehindPendingRetries() throws Exception {
+        when(deliveryRepo.existsByWebhookIdAndDeadLetter(hook.id(), Boolean.FALSE)).thenReturn(Boolean.TRUE);
+
+        sender.sendInOrder(hook, "[{}]").get(5, TimeUnit.SECONDS);
+
+        ArgumentCaptor<WebhookDelivery> captor = ArgumentCaptor.forClass(WebhookDelivery.class);
+        verify(deliveryRepo).save(captor.capture());
+        assertEquals(0, captor.getValue().getAttempts());
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    void testGzippedBatch() throws Exception {
+        ActiveWebhook batched = new ActiveWebhook(hook.id(), RegisteredWebhook.builder()
+                .url(hook.hook().getUrl())
+                .batching(new WebhookBatching(10, 1000, Boolean.TRUE))
+                .build(), null);
+        server.enqueue(new MockResponse().setResponseCode(200));
+
+        sender.sendInOrder(batched, "[{\"a\":1}]").get(5, TimeUnit.SECONDS);
+
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals("gzip", request.getHeader("Content-Encoding"));
+        try (GZIPInputStream in = new GZIPInputStream(request.getBody().inputStream())) {
+            assertEquals("[{\"a\":1}]", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testBatchedRetriesAreSentInOrder() {
+        ActiveWebhook batched = new ActiveWebhook(hook.id(), RegisteredWebhook.builder()
+                .url(hook.hook().getUrl())
+                .batching(new WebhookBatching(10, 1000, Boolean.FALSE))
+                .build(), null);
+        WebhookDelivery oldest = delivery(1);
+        oldest.setNextAttemptAt(Instant.now().minusSeconds(1));
+        oldest.setPayload("[1]");
+        WebhookDelivery next = delivery(0);
+        next.setNextAttemptAt(Instant.now().minusSeconds(1));
+        next.setPayload("[2]");
+        when(deliveryRepo.findDue(any(), anyInt())).thenReturn(List.of(next, oldest));
+        when(registry.findById(hook.id())).thenReturn(Optional.of(batched));
+        when(deliveryRepo.findFirstByWebhookIdAndDeadLetterOrderByCreatedAt(hook.id(), Boolean.FALSE))
+                .thenReturn(Optional.of(oldest), Optional.of(next), Optional.empty());
+        server.enqueue(new MockResponse().setResponseCode(200));
+        server.enqueue(new MockResponse().setResponseCode(200));
+
+        sender.retryDue();
+
+        verify(deliveryRepo, timeout(5000)).deleteById(next.getId());
+        verify(deliveryRepo).deleteById(oldest.getId());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void testBackoffIsCapped() {
+        assertEquals(Duration.ofSeconds(30), sender.backoff(1));
+        assertEquals(Duration.ofSeconds(120), sender.backoff(3));
+        assertEquals(Duration.ofHours(1), sender.backoff(50));
+    }
+
+    private WebhookDelivery delivery(int attempts) {
+        return WebhookDelivery.builder()
+                .id(UUID.randomUUID())
+                .webhookId(hook.id())
+                .payload("{}")
+                .attempts(attempts)
+                .deadLetter(Boolean.FALSE)
+                .build();
+    }
+}
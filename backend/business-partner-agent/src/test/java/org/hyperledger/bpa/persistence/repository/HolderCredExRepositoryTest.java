@@ -17,17 +17,22 @@
  */
 package org.hyperledger.bpa.persistence.repository;
 
+import io.micronaut.data.model.Page;
 import io.micronaut.data.model.Pageable;
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import jakarta.inject.Inject;
 import org.hyperledger.aries.api.connection.ConnectionState;
+import org.hyperledger.aries.api.credentials.Credential;
 import org.hyperledger.aries.api.credentials.CredentialAttributes;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeRole;
 import org.hyperledger.aries.api.issue_credential_v1.CredentialExchangeState;
 import org.hyperledger.aries.api.issue_credential_v1.V1CredentialExchange;
+import org.hyperledger.aries.api.jsonld.VerifiableCredential.VerifiableIndyCredential;
+import org.hyperledger.aries.api.jsonld.VerifiablePresentation;
 import org.hyperledger.aries.config.GsonConfig;
 import org.hyperledger.bpa.BaseTest;
 import org.hyperledger.bpa.api.CredentialType;
+import org.hyperledger.bpa.impl.util.Converter;
 import org.hyperledger.bpa.persistence.model.BPACredentialExchange;
 import org.hyperledger.bpa.persistence.model.Partner;
 import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
@@ -151,6 +156,64 @@ class HolderCredExRepositoryTest extends BaseTest {
                 List.of(CredentialType.JSON_LD), Pageable.unpaged()).getTotalSize());
     }
 
+    @Test
+    void testQueryByIdInSelectsListColumns() throws Exception {
+        String schemaId = "F6dB7dMVHUQSC64qemnBi7:2:spaces:1.0";
+        String credDefId = "EraYCDJUPsChbkw7S1vV96:3:CL:4740:spaces";
+        VerifiablePresentation<VerifiableIndyCredential> vp = loadAndConvertTo("files/verifiablePresentation.json",
+                Converter.VP_TYPEREF);
+        Partner p = partnerRepo.save(Partner
+                .builder()
+                .ariesSupport(Boolean.TRUE)
+                .did("did:sov:F6dB7dMVHUQSC64qemnBi7")
+                .state(ConnectionState.ACTIVE)
+                .verifiablePresentation(vp)
+                .build());
+        BPACredentialExchange saved = holderCredExRepo.save(createDummyCredEx(p)
+                .setIndyCredential(Credential
+                        .builder()
+                        .schemaId(schemaId)
+                        .credentialDefinitionId(credDefId)
+                        .revRegId(credDefId + ":CL_ACCUM:1")
+                        .build()));
+        BPACredentialExchange noPartner = holderCredExRepo.save(createDummyCredEx(null));
+
+        List<BPACredentialExchange.ExchangeSummaryDTO> summaries = holderCredExRepo
+                .queryByIdIn(List.of(saved.getId(), noPartner.getId()));
+        assertEquals(2, summaries.size());
+
+        BPACredentialExchange.ExchangeSummaryDTO s = summaries.stream()
+                .filter(dto -> saved.getId().equals(dto.getId())).findFirst().orElseThrow();
+        assertEquals(CredentialExchangeState.CREDENTIAL_ACKED, s.getState());
+        assertEquals(CredentialType.INDY, s.getType());
+        assertEquals(schemaId, s.getCredentialSchemaId());
+        assertEquals(credDefId, s.getCredentialCredDefId());
+        assertNotNull(s.getCredentialRevRegId());
+        assertEquals(p.getId(), s.getPartnerId());
+        assertEquals("Test Corp", s.getPartnerLegalName());
+        assertNull(s.getSchemaType());
+
+        BPACredentialExchange.ExchangeSummaryDTO none = summaries.stream()
+                .filter(dto -> noPartner.getId().equals(dto.getId())).findFirst().orElseThrow();
+        assertNull(none.getPartnerId());
+        assertNull(none.getPartnerLegalName());
+    }
+
+    @Test
+    void testFindIdByTypeAndState() {
+        Partner p = createRandomPartner();
+        holderCredExRepo.save(createDummyCredEx(p));
+        holderCredExRepo.save(createDummyCredEx(p).setState(CredentialExchangeState.CREDENTIAL_ISSUED));
+        holderCredExRepo.save(createDummyCredEx(p).setState(CredentialExchangeState.DONE));
+
+        Page<UUID> ids = holderCredExRepo.findIdByRoleEqualsAndStateInAndTypeIn(
+                CredentialExchangeRole.HOLDER,
+                List.of(CredentialExchangeState.CREDENTIAL_ACKED, CredentialExchangeState.DONE),
+                List.of(CredentialType.INDY), Pageable.from(0, 1));
+        assertEquals(2, ids.getTotalSize());
+        assertEquals(1, ids.getContent().size());
+    }
+
     @Test
     void testUpdateCredentialOffer() {
         Partner p = createRandomPartner();
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020-2022 - for information on the respective copyright owner
+ * see the NOTICE file and/or the repository at
+ * https://github.com/hyperledger-labs/business-partner-agent
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hyperledger.bpa.persistence.repository;
+
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import jakarta.inject.Inject;
+import org.hyperledger.bpa.persistence.model.MessageQueue;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@MicronautTest
+class MessageQueueRepositoryTest {
+
+    private static final UUID MIN_ID = new UUID(0, 0);
+
+    @Inject
+    MessageQueueRepository repo;
+
+    @Test
+    void testReplacedMessageSurvivesDeleteOfTheLoadedPage() {
+        Instant now = Instant.now();
+        UUID first = UUID.randomUUID();
+        repo.upsert(first, now, 1, "TASK_ADDED:1", "{\"id\":1}");
+        List<MessageQueue> page = repo.findPageAfter(Instant.EPOCH, MIN_ID, 10);
+
+        // replaced while the replay is running
+        UUID second = UUID.randomUUID();
+        repo.upsert(second, now.plusSeconds(1), 2, "TASK_ADDED:1", "{\"id\":2}");
+        repo.deleteByIdIn(page.stream().map(MessageQueue::getId).toList());
+
+        List<MessageQueue> left = repo.findPageAfter(Instant.EPOCH, MIN_ID, 10);
+        assertEquals(1, left.size());
+        assertEquals(second, left.get(0).getId());
+        assertEquals(2L, left.get(0).getMessageId());
+    }
+}
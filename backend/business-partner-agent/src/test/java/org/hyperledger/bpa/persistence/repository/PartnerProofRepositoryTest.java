@@ -17,11 +17,14 @@
  */
 package org.hyperledger.bpa.persistence.repository;
 
+import io.micronaut.data.model.Page;
 import io.micronaut.data.model.Pageable;
 import io.micronaut.data.model.Sort;
 import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import io.reactivex.rxjava3.annotations.NonNull;
 import jakarta.inject.Inject;
+import org.hyperledger.aries.config.GsonConfig;
+import org.hyperledger.aries.api.present_proof.PresentProofRequest;
 import org.hyperledger.aries.api.present_proof.PresentationExchangeRecord;
 import org.hyperledger.aries.api.present_proof.PresentationExchangeState;
 import org.hyperledger.bpa.api.CredentialType;
@@ -31,9 +34,12 @@ import org.hyperledger.bpa.persistence.model.converter.ExchangePayload;
 import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 @MicronautTest
 class PartnerProofRepositoryTest {
@@ -145,6 +151,40 @@ class PartnerProofRepositoryTest {
         assertEquals(2, deleted);
     }
 
+    @Test
+    void testQueryByIdInSelectsListColumns() {
+        PartnerProof pp = repo.save(PartnerProof
+                .builder()
+                .type(CredentialType.INDY)
+                .partner(createDummyPartner())
+                .presentationExchangeId("pres-a")
+                .proofRequest(ExchangePayload.indy(PresentProofRequest.ProofRequest
+                        .builder()
+                        .name("proof-request")
+                        .requestedAttribute("bank_account", PresentProofRequest.ProofRequest.ProofRequestedAttributes
+                                .builder()
+                                .names(List.of("iban"))
+                                .restriction(GsonConfig.defaultConfig().toJsonTree(
+                                        Map.of("cred_def_id", "EraYCDJUPsChbkw7S1vV96:3:CL:4740:bank-account"))
+                                        .getAsJsonObject())
+                                .build())
+                        .build()))
+                .pushStateChange(PresentationExchangeState.REQUEST_SENT, timestamp)
+                .build());
+
+        Page<UUID> ids = repo.findIdByPartnerId(pp.getPartner().getId(), Pageable.from(0, 5));
+        assertEquals(List.of(pp.getId()), ids.getContent());
+
+        List<PartnerProof.ProofSummaryDTO> summaries = repo.queryByIdIn(ids.getContent());
+        assertEquals(1, summaries.size());
+        PartnerProof.ProofSummaryDTO s = summaries.get(0);
+        assertEquals(PresentationExchangeState.REQUEST_SENT, s.getState());
+        assertEquals(pp.getPartner().getId(), s.getPartnerId());
+        assertEquals("proof-request", s.getRequestName());
+        assertEquals("EraYCDJUPsChbkw7S1vV96:3:CL:4740:bank-account", s.getRequestCredDefId());
+        assertNotNull(s.getStateToTimestamp());
+    }
+
     private PartnerProof createDummyPresEx(@NonNull PartnerProof partnerProof, @NonNull String pesId) {
         return PartnerProof
                 .builder()
@@ -31,9 +31,11 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -281,6 +283,36 @@ class PartnerRepositoryTest {
         assertEquals("both", p.getAlias());
     }
 
+    @Test
+    void testFindIdsByKeyset() {
+        for (int i = 0; i < 5; i++) {
+            partnerRepo.save(Partner.builder().did("did:sov:" + i).ariesSupport(Boolean.FALSE)
+                    .state(i == 0 ? ConnectionState.INVITATION : ConnectionState.ACTIVE).build());
+        }
+
+        List<UUID> all = new ArrayList<>();
+        Keyset keyset = Keyset.first(2);
+        List<Partner> page;
+        do {
+            List<UUID> ids = partnerRepo.findIdsByKeyset(true,
+                    keyset.seekUpdatedAt(), keyset.seekId(), keyset.limit());
+            page = Keyset.load(ids, partnerRepo::findByIdIn, Partner::getId);
+            assertEquals(ids, page.stream().map(Partner::getId).toList());
+            all.addAll(ids);
+            if (!page.isEmpty()) {
+                Partner last = page.get(page.size() - 1);
+                keyset = new Keyset(last.getUpdatedAt(), last.getId(), 2);
+            }
+        } while (page.size() == 2);
+
+        assertEquals(5, all.size());
+        assertEquals(5, Set.copyOf(all).size());
+
+        List<UUID> withoutInvitations = partnerRepo.findIdsByKeyset(false,
+                Keyset.first(10).seekUpdatedAt(), Keyset.first(10).seekId(), 10);
+        assertEquals(4, withoutInvitations.size());
+    }
+
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
@@ -37,6 +37,12 @@ const socketApi = `${
   window.location.protocol === "https:" ? "wss" : "ws"
 }://${eventsHost}/${process.env.VUE_APP_EVENTS_PATH}`;
 
+// id of the last message that was received, passed when reconnecting so that
+// the backend does not replay it and the messages before it again
+let lastSeen: number | undefined;
+const socketUrl = () =>
+  lastSeen === undefined ? socketApi : `${socketApi}?lastSeen=${lastSeen}`;
+
 if (process.env.NODE_ENV === "development") {
   store.commit({
     type: "setExpertMode",
@@ -59,13 +65,24 @@ Vue.use(VueNativeSock, socketApi, {
     if (target === "SOCKET_ONMESSAGE" && this.format === "json" && event.data) {
       message = JSON.parse(event.data);
       // method = 'dispatch';
-      switch (message.message.type) {
-        case "ON_MESSAGE_RECEIVED":
-          target = "onMessageReceived";
-          break;
-        default:
-          target = "onNotification";
+      // notifications that were sent together arrive as one batch message
+      const messages =
+        message.message.type === "BATCH" ? message.message.info : [message];
+      for (const m of messages) {
+        const t =
+          m.message.type === "ON_MESSAGE_RECEIVED"
+            ? "onMessageReceived"
+            : "onNotification";
+        this.store[method](t, m);
+      }
+      if (messages.length > 0 && messages[messages.length - 1].id) {
+        lastSeen = messages[messages.length - 1].id;
       }
+      return;
+    }
+    if (target === "SOCKET_RECONNECT") {
+      // called right before the reconnect, which uses the connection url
+      this.connectionUrl = socketUrl();
     }
     this.store[method](target, message);
   },
@@ -0,0 +1,137 @@
+-- Event handling lookups at scale, with and without the hot path indexes (V1.38).
+--
+-- Run against a migrated BPA database (see README.md), everything happens in one transaction
+-- that is rolled back at the end, so no data is left behind:
+--   psql -h localhost -U walletuser -d walletuser -f hot-path-indexes.sql
+--
+-- Change the scale with: -v partners=200000 -v exchanges=1000000 -v rounds=500
+
+\if :{?partners} \else \set partners 100000 \endif
+\if :{?exchanges} \else \set exchanges 300000 \endif
+\if :{?rounds} \else \set rounds 200 \endif
+
+\set ON_ERROR_STOP on
+\timing off
+
+BEGIN;
+
+\echo seeding :partners partners and :exchanges credential and presentation exchanges
+
+INSERT INTO partner (id, created_at, updated_at, did, aries_support, connection_id, invitation_msg_id, state,
+                     supported_credentials)
+SELECT md5('partner' || i)::uuid, now(), now(), 'did:sov:bench' || i, true, 'bench-conn-' || i, 'bench-inv-' || i,
+       'ACTIVE',
+       jsonb_build_object('wrapped', jsonb_build_array(
+           jsonb_build_object('seqno', (i % 5000)::text, 'issuerDid', 'did:sov:issuer' || (i % 100)),
+           jsonb_build_object('seqno', ((i + 1) % 5000)::text, 'issuerDid', 'did:sov:issuer' || (i % 100))))
+FROM generate_series(1, :partners) i;
+
+INSERT INTO bpa_credential_exchange (id, created_at, updated_at, partner_id, type, thread_id, credential_exchange_id,
+                                     role, state, referent, rev_reg_id, cred_rev_id, credential)
+SELECT md5('credex' || i)::uuid, now(), now(), md5('partner' || (i % :partners + 1))::uuid, 'INDY',
+       'bench-cred-thread-' || i, 'bench-credex-' || i, CASE WHEN i % 2 = 0 THEN 'HOLDER' ELSE 'ISSUER' END,
+       'CREDENTIAL_ACKED', 'bench-referent-' || i, 'bench-revreg-' || (i % 1000), (i / 1000)::text,
+       jsonb_build_object('schemaId', 'did:sov:issuer:2:schema' || (i % 500) || ':1.0',
+                          'credentialDefinitionId', 'did:sov:issuer:3:CL:' || (i % 500) || ':tag')
+FROM generate_series(1, :exchanges) i;
+
+INSERT INTO partner_proof (id, partner_id, created_at, updated_at, state, role, presentation_exchange_id, thread_id)
+SELECT md5('proof' || i)::uuid, md5('partner' || (i % :partners + 1))::uuid, now(), now(), 'VERIFIED', 'VERIFIER',
+       'bench-presex-' || i, 'bench-proof-thread-' || i
+FROM generate_series(1, :exchanges) i;
+
+INSERT INTO activity (id, partner_id, link_id, type, role, state, completed, created_at, updated_at)
+SELECT md5('activity' || i)::uuid, md5('partner' || (i % :partners + 1))::uuid, md5('credex' || i)::uuid,
+       'CREDENTIAL_EXCHANGE', 'CREDENTIAL_EXCHANGE_HOLDER', 'CREDENTIAL_EXCHANGE_ACCEPTED', false, now(), now()
+FROM generate_series(1, :exchanges) i;
+
+ANALYZE partner;
+ANALYZE bpa_credential_exchange;
+ANALYZE partner_proof;
+ANALYZE activity;
+
+-- Replays the lookups and updates the aries event handlers do per event for
+-- random partners and exchanges, reports the mean time per event
+CREATE FUNCTION pg_temp.bench(label text, partners int, exchanges int, rounds int) RETURNS void AS $$
+DECLARE
+    started timestamptz;
+    p int;
+    e int;
+    n int;
+BEGIN
+    started := clock_timestamp();
+    FOR n IN 1..rounds LOOP
+        p := 1 + floor(random() * partners)::int;
+        PERFORM * FROM partner WHERE connection_id = 'bench-conn-' || p OR invitation_msg_id = 'bench-conn-' || p;
+        UPDATE partner SET state = 'ACTIVE', last_seen = now() WHERE connection_id = 'bench-conn-' || p;
+    END LOOP;
+    RAISE NOTICE '% connection event:         % us', rpad(label, 16),
+        round(extract(epoch FROM clock_timestamp() - started) * 1000000 / rounds);
+
+    started := clock_timestamp();
+    FOR n IN 1..rounds LOOP
+        e := 1 + floor(random() * exchanges)::int;
+        PERFORM * FROM bpa_credential_exchange WHERE credential_exchange_id = 'bench-credex-' || e;
+        PERFORM * FROM activity WHERE link_id = md5('credex' || e)::uuid
+            AND type = 'CREDENTIAL_EXCHANGE' AND role = 'CREDENTIAL_EXCHANGE_HOLDER';
+        UPDATE bpa_credential_exchange SET state = 'DONE' WHERE credential_exchange_id = 'bench-credex-' || e;
+    END LOOP;
+    RAISE NOTICE '% credential event:         % us', rpad(label, 16),
+        round(extract(epoch FROM clock_timestamp() - started) * 1000000 / rounds);
+
+    started := clock_timestamp();
+    FOR n IN 1..rounds LOOP
+        e := 1 + floor(random() * exchanges)::int;
+        PERFORM * FROM bpa_credential_exchange WHERE rev_reg_id = 'bench-revreg-' || (e % 1000)
+            AND cred_rev_id = (e / 1000)::text;
+        PERFORM * FROM bpa_credential_exchange WHERE referent = 'bench-referent-' || e;
+    END LOOP;
+    RAISE NOTICE '% revocation event:         % us', rpad(label, 16),
+        round(extract(epoch FROM clock_timestamp() - started) * 1000000 / rounds);
+
+    started := clock_timestamp();
+    FOR n IN 1..rounds LOOP
+        e := 1 + floor(random() * exchanges)::int;
+        PERFORM * FROM partner_proof WHERE presentation_exchange_id = 'bench-presex-' || e;
+        PERFORM * FROM partner_proof WHERE thread_id = 'bench-proof-thread-' || e;
+        UPDATE partner_proof SET state = 'DONE' WHERE presentation_exchange_id = 'bench-presex-' || e;
+    END LOOP;
+    RAISE NOTICE '% presentation event:       % us', rpad(label, 16),
+        round(extract(epoch FROM clock_timestamp() - started) * 1000000 / rounds);
+
+    started := clock_timestamp();
+    FOR n IN 1..rounds LOOP
+        e := 1 + floor(random() * 500)::int;
+        PERFORM * FROM bpa_credential_exchange WHERE credential->>'schemaId' = 'did:sov:issuer:2:schema' || e || ':1.0'
+            AND credential->>'credentialDefinitionId' = 'did:sov:issuer:3:CL:' || e || ':tag' AND role = 'HOLDER';
+    END LOOP;
+    RAISE NOTICE '% credentials by schema:    % us', rpad(label, 16),
+        round(extract(epoch FROM clock_timestamp() - started) * 1000000 / rounds);
+
+    started := clock_timestamp();
+    FOR n IN 1..rounds LOOP
+        e := floor(random() * 5000)::int;
+        PERFORM * FROM partner WHERE supported_credentials->'wrapped'
+            @> jsonb_build_array(jsonb_build_object('seqno', e::text));
+    END LOOP;
+    RAISE NOTICE '% partners by cred def:     % us', rpad(label, 16),
+        round(extract(epoch FROM clock_timestamp() - started) * 1000000 / rounds);
+END;
+$$ LANGUAGE plpgsql;
+
+SAVEPOINT without_indexes;
+
+DROP INDEX partner_connection_id_idx, partner_invitation_msg_id_idx, partner_did_idx,
+    partner_supported_credentials_idx, bpa_credential_exchange_credential_exchange_id_idx,
+    bpa_credential_exchange_referent_idx, bpa_credential_exchange_revocation_idx,
+    bpa_credential_exchange_partner_id_idx, bpa_credential_exchange_schema_id_idx,
+    partner_proof_presentation_exchange_id_idx, partner_proof_thread_id_idx, partner_proof_partner_id_idx,
+    activity_link_id_type_role_idx;
+
+SELECT pg_temp.bench('before (no idx)', :partners, :exchanges, :rounds);
+
+ROLLBACK TO SAVEPOINT without_indexes;
+
+SELECT pg_temp.bench('after (V1.38)', :partners, :exchanges, :rounds);
+
+ROLLBACK;